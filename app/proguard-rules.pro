@@ -4,6 +4,8 @@
 
 # --- Android Core ---
 -keep class com.orcterm.core.ssh.SshNative { *; }
+# JNI 通过类名与构造函数签名创建
+-keep class com.orcterm.core.ssh.ExecResult { *; }
 -keep class com.orcterm.data.HostEntity
 -keep class **.R$* { *; }
 -keep class **.R { *; }
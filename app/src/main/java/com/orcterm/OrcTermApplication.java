@@ -9,12 +9,23 @@ import androidx.appcompat.app.AppCompatDelegate;
 import androidx.core.os.LocaleListCompat;
 import androidx.annotation.NonNull;
 
+import com.orcterm.core.session.NetworkMonitor;
+import com.orcterm.core.ssh.SshNative;
+
 /**
  * 应用程序入口
  */
 public class OrcTermApplication extends Application {
+    private static final String PREF_SSH_CONNECT_TIMEOUT_SEC = "ssh_connect_timeout_sec";
     private static OrcTermApplication instance;
 
+    // SharedPreferences 只弱引用监听器，需由应用持有
+    private final SharedPreferences.OnSharedPreferenceChangeListener networkPrefsListener = (prefs, key) -> {
+        if (PREF_SSH_CONNECT_TIMEOUT_SEC.equals(key)) {
+            applySocketConfig(prefs);
+        }
+    };
+
     public static Context getAppContext() {
         return instance;
     }
@@ -26,6 +37,7 @@ public class OrcTermApplication extends Application {
         // 初始化全局配置
         initTheme();
         initLanguage();
+        initNetwork();
         registerActivityLifecycleCallbacks(new ActivityLifecycleCallbacks() {
             @Override
             public void onActivityResumed(@NonNull Activity activity) {
@@ -51,6 +63,21 @@ public class OrcTermApplication extends Application {
         }
     }
 
+    private void initNetwork() {
+        SharedPreferences prefs = getSharedPreferences("orcterm_prefs", Context.MODE_PRIVATE);
+        applySocketConfig(prefs);
+        // 设置中修改连接超时后对之后的连接立即生效
+        prefs.registerOnSharedPreferenceChangeListener(networkPrefsListener);
+        // 网络切换时触发会话快速重连
+        NetworkMonitor.getInstance().start(this);
+    }
+
+    // TCP 连接超时沿用设置中的"连接超时" (秒，0 表示不限)；socket 缓冲区使用系统默认值
+    private static void applySocketConfig(SharedPreferences prefs) {
+        int connectTimeoutSec = Math.max(0, prefs.getInt(PREF_SSH_CONNECT_TIMEOUT_SEC, 10));
+        SshNative.configureSocket(connectTimeoutSec * 1000, 0, 0);
+    }
+
     private void initLanguage() {
         SharedPreferences prefs = getSharedPreferences("orcterm_prefs", Context.MODE_PRIVATE);
         String lang = prefs.getString("app_language", "system");
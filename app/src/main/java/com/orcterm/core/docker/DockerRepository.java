@@ -1,5 +1,7 @@
 package com.orcterm.core.docker;
 
+import com.orcterm.core.ssh.ExecBatch;
+import com.orcterm.core.ssh.ExecResult;
 import com.orcterm.core.ssh.SshNative;
 import com.orcterm.util.CommandConstants;
 
@@ -8,6 +10,7 @@ import org.json.JSONObject;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Docker data access layer for list/overview queries.
@@ -78,8 +81,26 @@ public final class DockerRepository {
     }
 
     public Overview fetchOverview(long sshHandle, String engine) {
-        String version = fetchVersion(sshHandle, engine);
-        List<DockerContainer> containers = fetchContainers(sshHandle, engine);
+        if (sshHandle == 0) return new Overview("", 0, 0, 0, 0);
+        // 版本、容器与镜像查询互不依赖，在同一连接上并行执行；后备版本命令一并发出，省去一次串行往返
+        Map<String, ExecResult> results;
+        try {
+            results = new ExecBatch.Builder(sshNative, sshHandle)
+                    .add("version", getCommand(engine, CommandConstants.CMD_CONTAINER_VERSION_FORMAT))
+                    .add("versionFallback", getCommand(engine, CommandConstants.CMD_CONTAINER_VERSION_FALLBACK))
+                    .add("containers", getCommand(engine, CommandConstants.CMD_CONTAINER_PS_ALL_JSON))
+                    .add("images", getCommand(engine, CommandConstants.CMD_CONTAINER_IMAGES_JSON))
+                    .build()
+                    .run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Overview("", 0, 0, 0, 0);
+        }
+        String version = results.get("version").getStdoutText().trim();
+        if (version.isEmpty() || version.contains("Error")) {
+            version = results.get("versionFallback").getStdoutText().trim();
+        }
+        List<DockerContainer> containers = parseContainers(results.get("containers").getStdoutText());
         int total = containers.size();
         int running = 0;
         for (DockerContainer container : containers) {
@@ -88,7 +109,7 @@ public final class DockerRepository {
             }
         }
         int stopped = Math.max(0, total - running);
-        int imageCount = fetchImages(sshHandle, engine).size();
+        int imageCount = parseImages(results.get("images").getStdoutText()).size();
         return new Overview(version, total, running, stopped, imageCount);
     }
 
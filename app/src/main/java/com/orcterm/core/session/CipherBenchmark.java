@@ -0,0 +1,176 @@
+package com.orcterm.core.session;
+
+import com.orcterm.core.ssh.ExecStream;
+import com.orcterm.core.ssh.SshNative;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures handshake time and bulk throughput of a host for each candidate cipher.
+ * Every candidate gets its own connection with that cipher as the only preference,
+ * then streams {@link #BULK_BYTES} from /dev/zero over an uncompressed exec channel.
+ * The host key must already be trusted in known_hosts; credentials are never sent
+ * to an unverified server.
+ */
+public final class CipherBenchmark {
+
+    /**
+     * Ciphers worth comparing on mobile CPUs, fastest-first on ARMv8 with crypto extensions.
+     * The bundled libssh2 has no chacha20-poly1305, so it is not offered.
+     */
+    public static final String[] CANDIDATE_CIPHERS = {
+            "aes128-gcm@openssh.com",
+            "aes256-gcm@openssh.com",
+            "aes128-ctr",
+            "aes256-ctr",
+            "aes128-cbc"
+    };
+
+    static final int BULK_BYTES = 8 * 1024 * 1024;
+    private static final String BULK_COMMAND = "head -c " + BULK_BYTES + " /dev/zero";
+    private static final long BULK_TIMEOUT_MS = 60_000;
+
+    public static final class Result {
+        public final String cipher;
+        public final String mac;
+        public final long handshakeMs;
+        public final long bytesPerSecond;
+        public final String error;
+
+        Result(String cipher, String mac, long handshakeMs, long bytesPerSecond, String error) {
+            this.cipher = cipher;
+            this.mac = mac;
+            this.handshakeMs = handshakeMs;
+            this.bytesPerSecond = bytesPerSecond;
+            this.error = error;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    /**
+     * Progress callback, invoked on the benchmarking thread.
+     */
+    public interface Listener {
+        void onResult(int index, int total, Result result);
+    }
+
+    private CipherBenchmark() {
+    }
+
+    /**
+     * Runs every candidate in turn. Blocking; call from a background thread.
+     */
+    public static List<Result> run(
+            SshNative sshNative,
+            String hostname,
+            int port,
+            String username,
+            String password,
+            int authType,
+            String keyPath,
+            String knownHostsPath,
+            Listener listener
+    ) {
+        List<Result> results = new ArrayList<>();
+        for (int i = 0; i < CANDIDATE_CIPHERS.length; i++) {
+            Result result = measure(sshNative, hostname, port, username, password, authType, keyPath,
+                    knownHostsPath, CANDIDATE_CIPHERS[i]);
+            results.add(result);
+            if (listener != null) {
+                listener.onResult(i, CANDIDATE_CIPHERS.length, result);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Orders successful ciphers by throughput, breaking ties by handshake time,
+     * as a comma-separated preference list. Returns null when none succeeded.
+     */
+    public static String toPreference(List<Result> results) {
+        List<Result> ok = new ArrayList<>();
+        for (Result result : results) {
+            if (result.isSuccess()) {
+                ok.add(result);
+            }
+        }
+        if (ok.isEmpty()) {
+            return null;
+        }
+        ok.sort((a, b) -> a.bytesPerSecond != b.bytesPerSecond
+                ? Long.compare(b.bytesPerSecond, a.bytesPerSecond)
+                : Long.compare(a.handshakeMs, b.handshakeMs));
+        StringBuilder prefs = new StringBuilder();
+        for (Result result : ok) {
+            if (prefs.length() > 0) {
+                prefs.append(',');
+            }
+            prefs.append(result.cipher);
+        }
+        return prefs.toString();
+    }
+
+    private static Result measure(
+            SshNative sshNative,
+            String hostname,
+            int port,
+            String username,
+            String password,
+            int authType,
+            String keyPath,
+            String knownHostsPath,
+            String cipher
+    ) {
+        long start = System.nanoTime();
+        long handle = sshNative.connectWithOptions(hostname, port, 0, cipher, null, null);
+        long handshakeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (handle == 0) {
+            return new Result(cipher, null, handshakeMs, 0, "not supported");
+        }
+        try {
+            if (sshNative.knownHostsCheck(handle, hostname, port, knownHostsPath) != 0) {
+                return new Result(cipher, null, handshakeMs, 0, "host key not trusted");
+            }
+            String mac = sshNative.getSessionMethod(handle, SshNative.METHOD_MAC_SC);
+            SessionConnector.authenticate(sshNative, handle, username, password, authType, keyPath, "auth failed");
+
+            AtomicLong received = new AtomicLong();
+            ExecStream stream = ExecStream.start(sshNative, handle, BULK_COMMAND, BULK_TIMEOUT_MS, new ExecStream.Listener() {
+                @Override
+                public void onStdout(byte[] data, int length) {
+                    received.addAndGet(length);
+                }
+
+                @Override
+                public void onStderr(byte[] data, int length) {
+                }
+
+                @Override
+                public void onExit(ExecStream stream) {
+                }
+            });
+            if (!stream.await(BULK_TIMEOUT_MS + 5_000, TimeUnit.MILLISECONDS)) {
+                stream.cancel();
+                return new Result(cipher, mac, handshakeMs, 0, "timeout");
+            }
+            if (stream.getError() != null) {
+                return new Result(cipher, mac, handshakeMs, 0, stream.getError());
+            }
+            long durationMs = Math.max(1, stream.getDurationMs());
+            return new Result(cipher, mac, handshakeMs, received.get() * 1000 / durationMs, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Result(cipher, null, handshakeMs, 0, "interrupted");
+        } catch (Exception e) {
+            return new Result(cipher, null, handshakeMs, 0, e.getMessage());
+        } finally {
+            sshNative.disconnect(handle);
+        }
+    }
+}
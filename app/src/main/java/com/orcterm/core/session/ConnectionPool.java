@@ -0,0 +1,504 @@
+package com.orcterm.core.session;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.orcterm.OrcTermApplication;
+import com.orcterm.core.ssh.SshNative;
+import com.orcterm.data.HostEntity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * App-wide pool of authenticated SSH connections used for exec/SFTP work.
+ * Connections are keyed by (host, port, user, credentials) and shared through
+ * reference-counted leases. A lease prefers an idle connection for its key and
+ * opens another one while the host is below its connection limit; at the limit,
+ * leases share the least busy connection. Concurrent leases on one handle are
+ * safe: the native session serializes access under its lock and runs
+ * channel/SFTP opens one at a time behind its open gate. Idle connections are
+ * kept warm with keepalives and closed after a configurable TTL.
+ * Pooled handles are only probed and closed on the pool's single scheduler
+ * thread, so a keepalive never runs on a handle that has already been freed.
+ * Pre-warm handshakes run on their own thread so a slow host never delays
+ * sweeps or closes.
+ */
+public final class ConnectionPool {
+
+    private static final String TAG = "ConnectionPool";
+
+    static final String PREF_IDLE_TTL_SEC = "ssh_pool_idle_ttl_sec";
+    static final String PREF_MAX_PER_HOST = "ssh_pool_max_per_host";
+    static final String PREF_PREWARM_RECENT = "ssh_pool_prewarm_recent";
+
+    private static final int DEFAULT_IDLE_TTL_SEC = 300;
+    private static final int DEFAULT_MAX_PER_HOST = 4;
+    private static final int KEEPALIVE_INTERVAL_SEC = 15;
+    private static final long SWEEP_INTERVAL_MS = 15_000;
+
+    private static ConnectionPool instance;
+
+    private final Connector connector;
+    private final Map<Key, List<Entry>> entries = new LinkedHashMap<>();
+    // Handshakes in progress per host, counted against the per-host limit
+    private final Map<String, Integer> connecting = new HashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService prewarmExecutor;
+    private volatile long idleTtlMs = DEFAULT_IDLE_TTL_SEC * 1000L;
+    private volatile int maxPerHost = DEFAULT_MAX_PER_HOST;
+
+    private ConnectionPool() {
+        this(new NativeConnector(),
+                Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "ConnectionPool");
+                    thread.setDaemon(true);
+                    return thread;
+                }),
+                Executors.newSingleThreadExecutor(r -> {
+                    Thread thread = new Thread(r, "ConnectionPool-prewarm");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+        scheduler.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL_MS, SWEEP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // For tests: sweeps are not scheduled; submit sweep() to the (single-threaded) scheduler to run one
+    ConnectionPool(Connector connector, ScheduledExecutorService scheduler, ExecutorService prewarmExecutor) {
+        this.connector = connector;
+        this.scheduler = scheduler;
+        this.prewarmExecutor = prewarmExecutor;
+    }
+
+    public static synchronized ConnectionPool getInstance() {
+        if (instance == null) {
+            instance = new ConnectionPool();
+            Context context = OrcTermApplication.getAppContext();
+            if (context != null) {
+                instance.configure(context);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Reads the idle TTL and per-host limit from preferences.
+     */
+    public void configure(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences("orcterm_prefs", Context.MODE_PRIVATE);
+        setLimits(Math.max(0, prefs.getInt(PREF_IDLE_TTL_SEC, DEFAULT_IDLE_TTL_SEC)) * 1000L,
+                prefs.getInt(PREF_MAX_PER_HOST, DEFAULT_MAX_PER_HOST));
+    }
+
+    void setLimits(long idleTtlMs, int maxPerHost) {
+        this.idleTtlMs = Math.max(0, idleTtlMs);
+        this.maxPerHost = Math.max(1, maxPerHost);
+    }
+
+    /**
+     * A reference-counted hold on a pooled connection. Release exactly once.
+     */
+    public final class Lease {
+        private final Entry entry;
+        private boolean released;
+
+        private Lease(Entry entry) {
+            this.entry = entry;
+        }
+
+        public long getHandle() {
+            return entry.handle;
+        }
+
+        /**
+         * Returns the connection to the pool.
+         */
+        public void release() {
+            releaseLease(this, false);
+        }
+
+        /**
+         * Returns the connection and marks it broken so it is closed instead of reused.
+         */
+        public void invalidate() {
+            releaseLease(this, true);
+        }
+    }
+
+    /**
+     * Borrows a connection, connecting and authenticating only when no idle one is pooled
+     * and the host is below its connection limit.
+     */
+    public Lease lease(
+            String hostname,
+            int port,
+            String username,
+            String password,
+            int authType,
+            String keyPath,
+            String connectFailMessage,
+            String authFailMessage
+    ) throws Exception {
+        Key key = new Key(hostname, port, username, password, authType, keyPath);
+        synchronized (this) {
+            Entry idle = null;
+            Entry leastBusy = null;
+            for (Entry entry : entriesFor(key)) {
+                if (entry.broken) {
+                    continue;
+                }
+                if (entry.leases == 0) {
+                    idle = entry;
+                    break;
+                }
+                if (leastBusy == null || entry.leases < leastBusy.leases) {
+                    leastBusy = entry;
+                }
+            }
+            if (idle != null) {
+                idle.leases++;
+                return new Lease(idle);
+            }
+            if (countForHost(key.hostId) >= maxPerHost) {
+                evictIdleForHost(key.hostId);
+            }
+            if (countForHost(key.hostId) >= maxPerHost) {
+                if (leastBusy == null) {
+                    throw new Exception(connectFailMessage + ": too many connections to " + hostname);
+                }
+                leastBusy.leases++;
+                return new Lease(leastBusy);
+            }
+            connecting.merge(key.hostId, 1, Integer::sum);
+        }
+
+        // Connect outside the lock so other hosts are not held up by a slow handshake
+        long handle;
+        try {
+            handle = connector.connect(hostname, port, username, password, authType, keyPath,
+                    connectFailMessage, authFailMessage);
+        } catch (Exception e) {
+            synchronized (this) {
+                finishConnecting(key.hostId);
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            finishConnecting(key.hostId);
+            Entry entry = new Entry(key, handle);
+            entries.computeIfAbsent(key, k -> new ArrayList<>()).add(entry);
+            entry.leases++;
+            return new Lease(entry);
+        }
+    }
+
+    /**
+     * Connects to the given hosts in the background and leaves the connections idle in the pool.
+     * Handshakes run on a dedicated thread; only the finished connection is handed to the pool.
+     */
+    public void prewarm(List<HostEntity> hosts) {
+        if (hosts == null) {
+            return;
+        }
+        for (HostEntity host : hosts) {
+            if (host == null || host.hostname == null || host.username == null) {
+                continue;
+            }
+            prewarmExecutor.execute(() -> {
+                try {
+                    lease(host.hostname, host.port, host.username, host.password,
+                            host.authType, host.keyPath, "Connect failed", "Auth failed").release();
+                } catch (Exception e) {
+                    Log.d(TAG, "prewarm failed for " + host.hostname + ": " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Pre-warms the most recently used hosts, as configured by {@link #PREF_PREWARM_RECENT}.
+     */
+    public void prewarmRecent(Context context, List<HostEntity> hosts) {
+        SharedPreferences prefs = context.getSharedPreferences("orcterm_prefs", Context.MODE_PRIVATE);
+        int count = prefs.getInt(PREF_PREWARM_RECENT, 0);
+        if (count <= 0 || hosts == null || hosts.isEmpty()) {
+            return;
+        }
+        List<HostEntity> sorted = new ArrayList<>(hosts);
+        sorted.sort((a, b) -> Long.compare(b.lastConnected, a.lastConnected));
+        List<HostEntity> recent = new ArrayList<>();
+        for (HostEntity host : sorted) {
+            if (recent.size() >= count || host.lastConnected <= 0) {
+                break;
+            }
+            recent.add(host);
+        }
+        prewarm(recent);
+    }
+
+    /**
+     * Closes every idle connection; leased connections close when released.
+     */
+    public void evictAll() {
+        List<Entry> idle = new ArrayList<>();
+        synchronized (this) {
+            for (List<Entry> list : entries.values()) {
+                for (Entry entry : list) {
+                    entry.broken = true;
+                    if (entry.leases == 0) {
+                        idle.add(entry);
+                    }
+                }
+            }
+            for (Entry entry : idle) {
+                removeEntry(entry);
+            }
+        }
+        for (Entry entry : idle) {
+            closeLater(entry);
+        }
+    }
+
+    private void releaseLease(Lease lease, boolean broken) {
+        Entry toClose = null;
+        synchronized (this) {
+            if (lease.released) {
+                return;
+            }
+            lease.released = true;
+            Entry entry = lease.entry;
+            entry.leases = Math.max(0, entry.leases - 1);
+            if (broken) {
+                entry.broken = true;
+            }
+            if (entry.leases == 0) {
+                entry.idleSinceMs = System.currentTimeMillis();
+                if (entry.broken || idleTtlMs == 0) {
+                    removeEntry(entry);
+                    toClose = entry;
+                }
+            }
+        }
+        if (toClose != null) {
+            closeLater(toClose);
+        }
+    }
+
+    // Evicts expired idle connections and keeps the rest alive; runs on the scheduler thread
+    void sweep() {
+        long now = System.currentTimeMillis();
+        List<Entry> expired = new ArrayList<>();
+        List<Entry> idle = new ArrayList<>();
+        synchronized (this) {
+            for (List<Entry> list : entries.values()) {
+                for (Entry entry : list) {
+                    if (entry.leases > 0) {
+                        continue;
+                    }
+                    if (entry.broken || now - entry.idleSinceMs >= idleTtlMs) {
+                        expired.add(entry);
+                    } else {
+                        idle.add(entry);
+                    }
+                }
+            }
+            for (Entry entry : expired) {
+                removeEntry(entry);
+            }
+        }
+        for (Entry entry : expired) {
+            close(entry);
+        }
+        for (Entry entry : idle) {
+            // Leased connections are exercised by their users; only idle ones need probing.
+            // Entries evicted or invalidated since the snapshot are closed by a task queued
+            // behind this sweep, so the handle is still valid here unless already closed.
+            if (entry.closed) {
+                continue;
+            }
+            if (!connector.probe(entry.handle)) {
+                boolean close;
+                synchronized (this) {
+                    entry.broken = true;
+                    close = entry.leases == 0 && removeEntry(entry);
+                }
+                if (close) {
+                    close(entry);
+                }
+            }
+        }
+    }
+
+    private void closeLater(Entry entry) {
+        scheduler.execute(() -> close(entry));
+    }
+
+    // Runs on the scheduler thread only, which also runs sweep()
+    private void close(Entry entry) {
+        if (entry.closed) {
+            return;
+        }
+        entry.closed = true;
+        connector.disconnect(entry.handle);
+    }
+
+    private List<Entry> entriesFor(Key key) {
+        List<Entry> list = entries.get(key);
+        return list != null ? list : Collections.emptyList();
+    }
+
+    // Removes the entry from the pool; false if it had already been removed
+    private boolean removeEntry(Entry entry) {
+        List<Entry> list = entries.get(entry.key);
+        if (list == null || !list.remove(entry)) {
+            return false;
+        }
+        if (list.isEmpty()) {
+            entries.remove(entry.key);
+        }
+        return true;
+    }
+
+    private void finishConnecting(String hostId) {
+        connecting.computeIfPresent(hostId, (k, v) -> v > 1 ? v - 1 : null);
+    }
+
+    // Open connections plus handshakes in progress, across all users and credentials of the host
+    private int countForHost(String hostId) {
+        Integer count = connecting.get(hostId);
+        int total = count != null ? count : 0;
+        for (Map.Entry<Key, List<Entry>> e : entries.entrySet()) {
+            if (e.getKey().hostId.equals(hostId)) {
+                total += e.getValue().size();
+            }
+        }
+        return total;
+    }
+
+    private void evictIdleForHost(String hostId) {
+        Entry oldest = null;
+        for (List<Entry> list : entries.values()) {
+            for (Entry entry : list) {
+                if (entry.leases == 0 && entry.key.hostId.equals(hostId)
+                        && (oldest == null || entry.idleSinceMs < oldest.idleSinceMs)) {
+                    oldest = entry;
+                }
+            }
+        }
+        if (oldest != null) {
+            removeEntry(oldest);
+            closeLater(oldest);
+        }
+    }
+
+    /**
+     * Opens, probes and closes pooled connections; replaced in tests
+     */
+    interface Connector {
+        long connect(String hostname, int port, String username, String password, int authType,
+                     String keyPath, String connectFailMessage, String authFailMessage) throws Exception;
+
+        /** Sends a keepalive; false if the connection is broken */
+        boolean probe(long handle);
+
+        void disconnect(long handle);
+    }
+
+    private static final class NativeConnector implements Connector {
+        private final SshNative sshNative = new SshNative();
+
+        @Override
+        public long connect(String hostname, int port, String username, String password, int authType,
+                            String keyPath, String connectFailMessage, String authFailMessage) throws Exception {
+            long handle = SessionConnector.connectFresh(
+                    sshNative,
+                    hostname,
+                    port,
+                    username,
+                    password,
+                    authType,
+                    keyPath,
+                    connectFailMessage,
+                    authFailMessage
+            ).getHandle();
+            sshNative.setKeepaliveConfig(handle, true, KEEPALIVE_INTERVAL_SEC);
+            return handle;
+        }
+
+        @Override
+        public boolean probe(long handle) {
+            return sshNative.sendKeepalive(handle) >= 0;
+        }
+
+        @Override
+        public void disconnect(long handle) {
+            sshNative.disconnect(handle);
+        }
+    }
+
+    private static final class Entry {
+        final Key key;
+        final long handle;
+        int leases;
+        long idleSinceMs = System.currentTimeMillis();
+        boolean broken;
+        // Set on the scheduler thread when the handle has been disconnected
+        volatile boolean closed;
+
+        Entry(Key key, long handle) {
+            this.key = key;
+            this.handle = handle;
+        }
+    }
+
+    private static final class Key {
+        final String hostname;
+        final int port;
+        final String username;
+        final String password;
+        final int authType;
+        final String keyPath;
+        // host:port, the unit the per-host limit applies to
+        final String hostId;
+
+        Key(String hostname, int port, String username, String password, int authType, String keyPath) {
+            this.hostname = hostname;
+            this.port = port;
+            this.hostId = hostname + ":" + port;
+            this.username = username;
+            // Only the credential actually used for auth distinguishes connections
+            this.password = authType == 1 ? null : password;
+            this.authType = authType;
+            this.keyPath = authType == 1 ? keyPath : null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return port == other.port
+                    && authType == other.authType
+                    && Objects.equals(hostname, other.hostname)
+                    && Objects.equals(username, other.username)
+                    && Objects.equals(password, other.password)
+                    && Objects.equals(keyPath, other.keyPath);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(hostname, port, username, password, authType, keyPath);
+        }
+    }
+}
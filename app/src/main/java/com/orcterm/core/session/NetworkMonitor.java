@@ -0,0 +1,145 @@
+package com.orcterm.core.session;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+import android.util.Log;
+
+import com.orcterm.core.ssh.SshNative;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Tracks the default network so terminal sessions can react to connectivity changes
+ * instead of waiting for TCP to time out. Sessions waiting to reconnect retry as soon
+ * as a network becomes the default; sessions whose connection was opened on a network
+ * that has gone away are torn down and reconnected right away. The native DNS cache is
+ * flushed on every default-network change, so reconnects resolve on the new network.
+ */
+public final class NetworkMonitor {
+
+    private static final String TAG = "NetworkMonitor";
+
+    /**
+     * Callbacks run on the ConnectivityManager callback thread; keep them short.
+     */
+    public interface Listener {
+        /** A network became the default; connections can be opened again. */
+        void onDefaultNetworkAvailable(Network network);
+
+        /** A network that was the default went away; connections opened on it are dead. */
+        void onNetworkLost(Network network);
+    }
+
+    private static NetworkMonitor instance;
+
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    // Networks that have been the default; only connections opened on these can be affected by a loss
+    private final Set<Network> usedNetworks = ConcurrentHashMap.newKeySet();
+    private volatile Network defaultNetwork;
+    private volatile boolean started;
+
+    private NetworkMonitor() {
+    }
+
+    public static synchronized NetworkMonitor getInstance() {
+        if (instance == null) {
+            instance = new NetworkMonitor();
+        }
+        return instance;
+    }
+
+    /**
+     * Registers the connectivity callbacks. Safe to call more than once.
+     */
+    public synchronized void start(Context context) {
+        if (started) {
+            return;
+        }
+        ConnectivityManager cm = context.getSystemService(ConnectivityManager.class);
+        if (cm == null) {
+            return;
+        }
+        Network current = cm.getActiveNetwork();
+        if (current != null) {
+            defaultNetwork = current;
+            usedNetworks.add(current);
+        }
+        try {
+            cm.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(Network network) {
+                    Network previous = defaultNetwork;
+                    defaultNetwork = network;
+                    usedNetworks.add(network);
+                    if (!network.equals(previous)) {
+                        Log.i(TAG, "default network -> " + network);
+                        // Addresses cached on the old network may be unreachable (e.g. split-horizon DNS, IPv6-only cellular)
+                        SshNative.clearDnsCache();
+                        for (Listener listener : listeners) {
+                            listener.onDefaultNetworkAvailable(network);
+                        }
+                    }
+                }
+
+                @Override
+                public void onLost(Network network) {
+                    if (network.equals(defaultNetwork)) {
+                        defaultNetwork = null;
+                        Log.i(TAG, "no default network");
+                    }
+                }
+            });
+            NetworkRequest request = new NetworkRequest.Builder()
+                    .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                    .build();
+            cm.registerNetworkCallback(request, new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onLost(Network network) {
+                    if (!usedNetworks.remove(network)) {
+                        return;
+                    }
+                    Log.i(TAG, "network lost " + network);
+                    SshNative.clearDnsCache();
+                    // Pooled connections were opened on whichever network was the default at the time
+                    ConnectionPool.getInstance().evictAll();
+                    for (Listener listener : listeners) {
+                        listener.onNetworkLost(network);
+                    }
+                }
+            });
+            started = true;
+        } catch (RuntimeException e) {
+            // Missing ACCESS_NETWORK_STATE or too many callbacks: fall back to backoff-only reconnects
+            Log.w(TAG, "register network callbacks failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The current default network, or null when offline or not started.
+     */
+    public Network getDefaultNetwork() {
+        return defaultNetwork;
+    }
+
+    /**
+     * False only when the monitor is running and there is no default network.
+     */
+    public boolean isOnline() {
+        return !started || defaultNetwork != null;
+    }
+
+    public void addListener(Listener listener) {
+        if (listener != null) {
+            listeners.addIfAbsent(listener);
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+}
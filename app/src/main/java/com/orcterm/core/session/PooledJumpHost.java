@@ -0,0 +1,70 @@
+package com.orcterm.core.session;
+
+import com.orcterm.core.transport.JumpHost;
+import com.orcterm.data.HostEntity;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Jump host backed by {@link ConnectionPool}: the bastion connection is leased for as long
+ * as the tunneled session lives, so several sessions through the same bastion share one
+ * authenticated connection. Only a single hop is supported; the bastion's own jump host
+ * setting is ignored.
+ */
+public final class PooledJumpHost implements JumpHost {
+
+    private final HostEntity bastion;
+    private final List<ConnectionPool.Lease> leases = new ArrayList<>();
+
+    public PooledJumpHost(HostEntity bastion) {
+        this.bastion = bastion;
+    }
+
+    public HostEntity getBastion() {
+        return bastion;
+    }
+
+    @Override
+    public long acquire() throws Exception {
+        ConnectionPool.Lease lease = ConnectionPool.getInstance().lease(
+                bastion.hostname,
+                bastion.port,
+                bastion.username,
+                bastion.password,
+                bastion.authType,
+                bastion.keyPath,
+                "Jump host connect failed",
+                "Jump host auth failed"
+        );
+        synchronized (leases) {
+            leases.add(lease);
+        }
+        return lease.getHandle();
+    }
+
+    @Override
+    public void release(long handle, boolean broken) {
+        ConnectionPool.Lease lease = null;
+        synchronized (leases) {
+            Iterator<ConnectionPool.Lease> it = leases.iterator();
+            while (it.hasNext()) {
+                ConnectionPool.Lease candidate = it.next();
+                if (candidate.getHandle() == handle) {
+                    it.remove();
+                    lease = candidate;
+                    break;
+                }
+            }
+        }
+        if (lease == null) {
+            return;
+        }
+        if (broken) {
+            lease.invalidate();
+        } else {
+            lease.release();
+        }
+    }
+}
@@ -2,13 +2,14 @@ package com.orcterm.core.session;
 
 import android.text.TextUtils;
 
+import com.orcterm.core.ssh.ExecBatch;
 import com.orcterm.core.ssh.SshNative;
-import com.orcterm.core.terminal.TerminalSession;
 
 /**
- * Shared helper for acquiring SSH handles:
- * 1) Reuse an existing connected TerminalSession handle when available.
- * 2) Fall back to creating a new SSH connection and authenticating.
+ * Shared helper for acquiring SSH handles.
+ * {@link #acquire} always leases from {@link ConnectionPool}, connecting only when none is pooled.
+ * Terminal session handles are never lent out: auto-reconnect frees them without notice.
+ * Callers must {@link Connection#release()} acquired connections instead of disconnecting them.
  */
 public final class SessionConnector {
 
@@ -18,19 +19,57 @@ public final class SessionConnector {
     public static final class Connection {
         private final long handle;
         private final boolean shared;
+        private final ConnectionPool.Lease lease;
 
         public Connection(long handle, boolean shared) {
+            this(handle, shared, null);
+        }
+
+        private Connection(long handle, boolean shared, ConnectionPool.Lease lease) {
             this.handle = handle;
             this.shared = shared;
+            this.lease = lease;
         }
 
         public long getHandle() {
             return handle;
         }
 
+        /**
+         * True when the handle is owned by the pool and must not be disconnected.
+         */
         public boolean isShared() {
             return shared;
         }
+
+        public boolean isPooled() {
+            return lease != null;
+        }
+
+        /**
+         * Returns a pooled connection to the pool; no-op for other connections.
+         */
+        public void release() {
+            if (lease != null) {
+                lease.release();
+            }
+        }
+
+        /**
+         * Returns a pooled connection that failed so it is closed rather than reused.
+         */
+        public void invalidate() {
+            if (lease != null) {
+                lease.invalidate();
+            }
+        }
+    }
+
+    /**
+     * Creates a batch of commands that run concurrently on the given handle.
+     */
+    public static ExecBatch.Builder execBatch(SshNative sshNative, long handle) {
+        return new ExecBatch.Builder(sshNative, handle);
     }
 
     public static Connection acquire(
@@ -44,16 +83,7 @@ public final class SessionConnector {
             String connectFailMessage,
             String authFailMessage
     ) throws Exception {
-        TerminalSession session = SessionManager.getInstance().findConnectedSession(hostname, port, username);
-        if (session != null) {
-            long handle = session.getHandle();
-            if (handle != 0) {
-                return new Connection(handle, true);
-            }
-        }
-
-        return connectFresh(
-                sshNative,
+        ConnectionPool.Lease lease = ConnectionPool.getInstance().lease(
                 hostname,
                 port,
                 username,
@@ -63,6 +93,7 @@ public final class SessionConnector {
                 connectFailMessage,
                 authFailMessage
         );
+        return new Connection(lease.getHandle(), true, lease);
     }
 
     public static Connection connectFresh(
@@ -103,6 +134,28 @@ public final class SessionConnector {
         return handle;
     }
 
+    /**
+     * Opens a session to hostname:port tunneled through an authenticated outer session
+     * (ProxyJump). The returned handle is not yet authenticated.
+     */
+    public static long connectThrough(
+            SshNative sshNative,
+            long outerHandle,
+            String hostname,
+            int port,
+            String connectFailMessage
+    ) throws Exception {
+        long channel = sshNative.openDirectTcpIp(outerHandle, hostname, port);
+        if (channel == 0) {
+            throw new Exception(connectFailMessage + ": jump host cannot reach " + hostname + ":" + port);
+        }
+        long handle = sshNative.connectViaChannel(outerHandle, channel, 0, null, null, null);
+        if (handle == 0) {
+            throw new Exception(connectFailMessage);
+        }
+        return handle;
+    }
+
     public static void authenticate(
             SshNative sshNative,
             long handle,
@@ -0,0 +1,215 @@
+package com.orcterm.core.terminal;
+
+import java.util.Arrays;
+
+/**
+ * 输入回显延迟统计
+ * 记录按键写入 (write) 到屏幕上出现该按键回显的往返耗时，
+ * 并拆分为写入排队、网络+读取循环、分发+解析三段，便于判断卡顿来源。
+ * 只跟踪以可打印字符开头的输入：按下时记下光标位置，光标越过该位置或该格出现预期字符即视为回显，
+ * 其他输出造成的屏幕变化不会结束样本。只跟踪最早一次尚未得到回显的输入，保留最近 {@link #WINDOW_SIZE} 个样本。
+ */
+public class InputLatencyTracker {
+
+    /** 滚动窗口大小 */
+    public static final int WINDOW_SIZE = 128;
+    /** 直方图桶上界 (毫秒)，最后一个桶收纳超出部分 */
+    public static final long[] BUCKET_BOUNDS_MS = {10, 20, 50, 100, 200, 500, 1000};
+
+    // 超过该时间仍无回显的输入视为无回显 (如密码输入)，丢弃以免污染统计
+    private static final long STALE_INPUT_NANOS = 5_000_000_000L;
+
+    private final long[] totalSamples = new long[WINDOW_SIZE];
+    private final long[] queueSamples = new long[WINDOW_SIZE];
+    private final long[] networkSamples = new long[WINDOW_SIZE];
+    private final long[] dispatchSamples = new long[WINDOW_SIZE];
+    private int sampleCount = 0;
+    private int nextIndex = 0;
+
+    // 当前等待回显的输入各阶段时间戳 (nanoTime)，0 表示未发生
+    private long pendingInputNanos = 0;
+    private long pendingSentNanos = 0;
+    private long pendingReceivedNanos = 0;
+    // 预期回显：输入的首个字符及按下时的光标位置
+    private char pendingEchoChar;
+    private int pendingEchoColumn;
+    private int pendingEchoRow;
+
+    /**
+     * 记录一次用户输入 (TerminalSession.write 调用时)
+     *
+     * @param data    输入内容；不以可打印字符开头 (回车、方向键等) 的输入无法预测回显，不计入统计
+     * @param cursorX 输入时的光标列，未知时为负数
+     * @param cursorY 输入时的光标行，未知时为负数
+     */
+    public synchronized void markInput(String data, int cursorX, int cursorY) {
+        long now = System.nanoTime();
+        if (pendingInputNanos != 0 && now - pendingInputNanos < STALE_INPUT_NANOS) {
+            return;
+        }
+        pendingInputNanos = 0;
+        pendingSentNanos = 0;
+        pendingReceivedNanos = 0;
+        if (data == null || data.isEmpty() || cursorX < 0 || cursorY < 0) {
+            return;
+        }
+        char c = data.charAt(0);
+        if (c < 0x20 || c == 0x7f) {
+            return;
+        }
+        pendingInputNanos = now;
+        pendingEchoChar = c;
+        pendingEchoColumn = cursorX;
+        pendingEchoRow = cursorY;
+    }
+
+    /**
+     * 记录输入已交给 Transport 发送
+     */
+    public synchronized void markSent() {
+        if (pendingInputNanos != 0 && pendingSentNanos == 0) {
+            pendingSentNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * 记录读取循环收到远端数据
+     */
+    public synchronized void markReceived() {
+        if (pendingSentNanos != 0 && pendingReceivedNanos == 0) {
+            pendingReceivedNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * 屏幕更新后检查是否出现了等待中的回显，出现时完成一次样本
+     * 光标越过按下时的位置 (同行右移或移到下方行)，或该格出现输入的字符，即视为回显。
+     *
+     * @param chars 屏幕字符缓冲 [行][列]，仅在本次调用内读取
+     */
+    synchronized void markScreenUpdate(int cursorX, int cursorY, char[][] chars) {
+        if (pendingReceivedNanos == 0) {
+            return;
+        }
+        int row = pendingEchoRow;
+        int column = pendingEchoColumn;
+        boolean advanced = cursorY > row || (cursorY == row && cursorX > column);
+        boolean drawn = row < chars.length && column < chars[row].length
+                && chars[row][column] == pendingEchoChar;
+        if (!advanced && !drawn) {
+            return;
+        }
+        long now = System.nanoTime();
+        int index = nextIndex;
+        totalSamples[index] = now - pendingInputNanos;
+        queueSamples[index] = pendingSentNanos - pendingInputNanos;
+        networkSamples[index] = pendingReceivedNanos - pendingSentNanos;
+        dispatchSamples[index] = now - pendingReceivedNanos;
+        nextIndex = (index + 1) % WINDOW_SIZE;
+        if (sampleCount < WINDOW_SIZE) {
+            sampleCount++;
+        }
+        pendingInputNanos = 0;
+        pendingSentNanos = 0;
+        pendingReceivedNanos = 0;
+    }
+
+    public synchronized void reset() {
+        sampleCount = 0;
+        nextIndex = 0;
+        pendingInputNanos = 0;
+        pendingSentNanos = 0;
+        pendingReceivedNanos = 0;
+    }
+
+    /**
+     * 获取当前统计快照
+     */
+    public synchronized Snapshot snapshot() {
+        int count = sampleCount;
+        if (count == 0) {
+            return new Snapshot(0, 0, 0, 0, 0, 0, 0, 0, 0, 0, new int[BUCKET_BOUNDS_MS.length + 1]);
+        }
+        long[] sorted = Arrays.copyOf(totalSamples, count);
+        Arrays.sort(sorted);
+        int[] buckets = new int[BUCKET_BOUNDS_MS.length + 1];
+        for (long sample : sorted) {
+            buckets[bucketOf(sample / 1_000_000L)]++;
+        }
+        int lastIndex = (nextIndex - 1 + WINDOW_SIZE) % WINDOW_SIZE;
+        return new Snapshot(
+            count,
+            toMillis(totalSamples[lastIndex]),
+            toMillis(average(totalSamples, count)),
+            toMillis(percentile(sorted, 50)),
+            toMillis(percentile(sorted, 90)),
+            toMillis(percentile(sorted, 99)),
+            toMillis(sorted[count - 1]),
+            toMillis(average(queueSamples, count)),
+            toMillis(average(networkSamples, count)),
+            toMillis(average(dispatchSamples, count)),
+            buckets
+        );
+    }
+
+    private static int bucketOf(long millis) {
+        for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+            if (millis < BUCKET_BOUNDS_MS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS_MS.length;
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static long average(long[] samples, int count) {
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += samples[i];
+        }
+        return sum / count;
+    }
+
+    private static long toMillis(long nanos) {
+        return nanos / 1_000_000L;
+    }
+
+    /**
+     * 延迟统计快照 (单位: 毫秒)
+     * queue: 输入到发送完成；network: 发送到读取循环收到数据 (含网络往返与读取轮询间隔)；
+     * dispatch: 收到数据到回显出现 (含批量分发与主线程解析)。
+     */
+    public static final class Snapshot {
+        public final int count;
+        public final long lastMs;
+        public final long avgMs;
+        public final long p50Ms;
+        public final long p90Ms;
+        public final long p99Ms;
+        public final long maxMs;
+        public final long avgQueueMs;
+        public final long avgNetworkMs;
+        public final long avgDispatchMs;
+        /** 各桶样本数，桶边界见 {@link #BUCKET_BOUNDS_MS} */
+        public final int[] buckets;
+
+        Snapshot(int count, long lastMs, long avgMs, long p50Ms, long p90Ms, long p99Ms, long maxMs,
+                 long avgQueueMs, long avgNetworkMs, long avgDispatchMs, int[] buckets) {
+            this.count = count;
+            this.lastMs = lastMs;
+            this.avgMs = avgMs;
+            this.p50Ms = p50Ms;
+            this.p90Ms = p90Ms;
+            this.p99Ms = p99Ms;
+            this.maxMs = maxMs;
+            this.avgQueueMs = avgQueueMs;
+            this.avgNetworkMs = avgNetworkMs;
+            this.avgDispatchMs = avgDispatchMs;
+            this.buckets = buckets;
+        }
+    }
+}
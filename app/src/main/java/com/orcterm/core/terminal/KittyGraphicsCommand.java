@@ -0,0 +1,164 @@
+package com.orcterm.core.terminal;
+
+import java.util.Base64;
+
+/**
+ * kitty 图形协议命令
+ * 对应 APC 载荷 "G&lt;key=value,...&gt;;&lt;base64 数据&gt;"。
+ * 仅支持直接传输 (t=d)：PNG (f=100)、RGBA (f=32)、RGB (f=24)，可选 zlib 压缩 (o=z)。
+ * 纯 Java 实现，可在后台线程调用。
+ */
+public final class KittyGraphicsCommand {
+
+    public static final int FORMAT_RGB = 24;
+    public static final int FORMAT_RGBA = 32;
+    public static final int FORMAT_PNG = 100;
+
+    /** 动作: t 仅传输, T 传输并显示, p 显示已传输图像, d 删除 */
+    public char action = 't';
+    public int format = FORMAT_RGBA;
+    public char transmission = 'd';
+    public char compression = 0;
+    public int imageId = 0;
+    /** 原始像素宽高 (s/v)，PNG 可不提供 */
+    public int pixelWidth = 0;
+    public int pixelHeight = 0;
+    /** 显示占用的列数/行数 (c/r)，0 表示按像素换算 */
+    public int columns = 0;
+    public int rows = 0;
+    /** 是否还有后续分块 (m=1) */
+    public boolean more = false;
+    public int quiet = 0;
+    /** 删除动作的目标 (d)：a/A 屏幕上全部，i/I 指定 id，c/C 光标处；大写同时释放已传输的数据 */
+    public char deleteTarget = 'a';
+    public String payload = "";
+    /** 已解码的传输数据 (a=t 保存时由 payload 解码)，非 null 时代替 payload */
+    public byte[] data;
+
+    private KittyGraphicsCommand() {
+    }
+
+    /**
+     * 判断 APC 载荷是否为 kitty 图形命令
+     */
+    public static boolean isGraphics(String apc) {
+        return apc != null && !apc.isEmpty() && apc.charAt(0) == 'G';
+    }
+
+    /**
+     * 解析 APC 载荷 (已去掉 ESC _ 与 ST)
+     */
+    public static KittyGraphicsCommand parse(String apc) {
+        KittyGraphicsCommand cmd = new KittyGraphicsCommand();
+        int semicolon = apc.indexOf(';');
+        String control = semicolon >= 0 ? apc.substring(1, semicolon) : apc.substring(1);
+        cmd.payload = semicolon >= 0 ? apc.substring(semicolon + 1) : "";
+        for (String pair : control.split(",")) {
+            int eq = pair.indexOf('=');
+            if (eq != 1 || pair.length() < 3) {
+                continue;
+            }
+            char key = pair.charAt(0);
+            String value = pair.substring(2);
+            switch (key) {
+                case 'a':
+                    cmd.action = value.charAt(0);
+                    break;
+                case 't':
+                    cmd.transmission = value.charAt(0);
+                    break;
+                case 'o':
+                    cmd.compression = value.charAt(0);
+                    break;
+                case 'f':
+                    cmd.format = parseInt(value, FORMAT_RGBA);
+                    break;
+                case 'i':
+                    cmd.imageId = parseInt(value, 0);
+                    break;
+                case 's':
+                    cmd.pixelWidth = parseInt(value, 0);
+                    break;
+                case 'v':
+                    cmd.pixelHeight = parseInt(value, 0);
+                    break;
+                case 'c':
+                    cmd.columns = parseInt(value, 0);
+                    break;
+                case 'r':
+                    cmd.rows = parseInt(value, 0);
+                    break;
+                case 'm':
+                    cmd.more = parseInt(value, 0) == 1;
+                    break;
+                case 'q':
+                    cmd.quiet = parseInt(value, 0);
+                    break;
+                case 'd':
+                    cmd.deleteTarget = value.charAt(0);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return cmd;
+    }
+
+    /**
+     * 计算像素尺寸：优先使用 s/v，PNG 未提供时从 IHDR 读取
+     *
+     * @return {width, height}，无法确定时为 {0, 0}
+     */
+    public int[] resolvePixelSize() {
+        if (pixelWidth > 0 && pixelHeight > 0) {
+            return new int[]{pixelWidth, pixelHeight};
+        }
+        if (format == FORMAT_PNG && compression == 0) {
+            byte[] header = data;
+            if (header == null && payload.length() >= 32) {
+                try {
+                    // 前 24 字节包含 PNG 签名与 IHDR 宽高，对应 32 个 base64 字符
+                    header = Base64.getDecoder().decode(payload.substring(0, 32));
+                } catch (IllegalArgumentException ignored) {
+                    // 非法 base64，按未知尺寸处理
+                }
+            }
+            if (header != null && header.length >= 24 && header[12] == 'I' && header[13] == 'H'
+                && header[14] == 'D' && header[15] == 'R') {
+                return new int[]{readInt(header, 16), readInt(header, 20)};
+            }
+        }
+        return new int[]{0, 0};
+    }
+
+    /**
+     * 传输数据 (未解压)
+     *
+     * @return 字节数据；base64 非法时返回 null
+     */
+    public byte[] decodeData() {
+        if (data != null) {
+            return data;
+        }
+        try {
+            return Base64.getMimeDecoder().decode(payload);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 24)
+            | ((data[offset + 1] & 0xFF) << 16)
+            | ((data[offset + 2] & 0xFF) << 8)
+            | (data[offset + 3] & 0xFF);
+    }
+
+    private static int parseInt(String value, int fallback) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.orcterm.core.terminal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 本地预测回显 (类似 mosh 的 speculative echo)
+ * 位于 TerminalEmulator 之上，不修改仿真器状态：
+ * 用户输入可打印字符时先记录预测字符与光标位置，由视图以下划线叠加绘制；
+ * 服务端回显到达后逐个核对，一致则确认移除，不一致或超时则整体回滚。
+ * 在密码提示、全屏程序 (备用屏幕/滚动区域) 中自动停用。
+ * 所有方法均应在主线程调用 (与 TerminalView.append 同线程)。
+ */
+public class LocalEchoPredictor {
+
+    /** 关闭预测 */
+    public static final int MODE_OFF = 0;
+    /** 仅在回显延迟较高时显示预测 */
+    public static final int MODE_ADAPTIVE = 1;
+    /** 始终显示预测 */
+    public static final int MODE_ALWAYS = 2;
+
+    // 自适应模式下开始显示预测的回显延迟阈值
+    private static final long ADAPTIVE_THRESHOLD_MS = 30;
+    /** 预测超过该时间仍未被确认则回滚 */
+    public static final long PREDICTION_TIMEOUT_MS = 1500;
+    private static final int MAX_PREDICTIONS = 128;
+    private static final String[] PASSWORD_HINTS = {"password", "passphrase", "passcode", "密码", "口令"};
+
+    /**
+     * 单个预测字符
+     */
+    public static final class Prediction {
+        public final int row;
+        public final int col;
+        public final char ch;
+        final long createdAt;
+
+        Prediction(int row, int col, char ch, long createdAt) {
+            this.row = row;
+            this.col = col;
+            this.ch = ch;
+            this.createdAt = createdAt;
+        }
+    }
+
+    private final TerminalEmulator emulator;
+    private final List<Prediction> predictions = new ArrayList<>();
+    private int mode = MODE_OFF;
+    private long observedLatencyMs = 0;
+    // 上一轮预测超时且光标未动，判定为不回显输入，直到回车前不再预测
+    private boolean suppressedUntilNewline = false;
+    private int confirmedCount = 0;
+    private int rolledBackCount = 0;
+
+    public LocalEchoPredictor(TerminalEmulator emulator) {
+        this.emulator = emulator;
+    }
+
+    public void setMode(int mode) {
+        this.mode = mode;
+        if (mode == MODE_OFF) {
+            predictions.clear();
+        }
+    }
+
+    public int getMode() {
+        return mode;
+    }
+
+    /**
+     * 更新观测到的回显延迟，用于自适应模式判断是否显示
+     */
+    public void setObservedLatencyMs(long latencyMs) {
+        this.observedLatencyMs = latencyMs;
+    }
+
+    /**
+     * 处理用户输入 (发送到会话之前调用)
+     *
+     * @param data 即将写入会话的数据
+     */
+    public void onUserInput(String data) {
+        if (data == null || data.isEmpty() || mode == MODE_OFF) {
+            return;
+        }
+        for (int i = 0; i < data.length(); i++) {
+            char c = data.charAt(i);
+            if (c == '\r' || c == '\n') {
+                // 回车后输出不可预测，清空并解除抑制
+                predictions.clear();
+                suppressedUntilNewline = false;
+                continue;
+            }
+            if (!canPredict()) {
+                predictions.clear();
+                continue;
+            }
+            if (c == 0x7f || c == '\b') {
+                // 只回退本地尚未确认的预测，删除服务端已有内容无法可靠预测
+                int size = predictions.size();
+                if (size > 0) {
+                    predictions.remove(size - 1);
+                }
+                continue;
+            }
+            if (c < 0x20) {
+                // 控制字符/转义序列，后续输出无法预测
+                predictions.clear();
+                return;
+            }
+            int row = emulator.getCursorY();
+            int col = nextPredictedColumn();
+            if (col >= emulator.getColumns() - 1 || predictions.size() >= MAX_PREDICTIONS) {
+                // 不预测自动换行
+                continue;
+            }
+            predictions.add(new Prediction(row, col, c, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * 服务端数据已写入仿真器后调用，确认或回滚预测
+     */
+    public void onServerOutput() {
+        if (predictions.isEmpty()) {
+            return;
+        }
+        if (!isEnvironmentPredictable()) {
+            rollback();
+            return;
+        }
+        char[][] buffer = emulator.getBuffer();
+        int cursorX = emulator.getCursorX();
+        int cursorY = emulator.getCursorY();
+        while (!predictions.isEmpty()) {
+            Prediction first = predictions.get(0);
+            if (first.row != cursorY || first.row >= buffer.length || first.col >= buffer[first.row].length) {
+                rollback();
+                return;
+            }
+            char actual = buffer[first.row][first.col];
+            if (actual == first.ch && cursorX > first.col) {
+                predictions.remove(0);
+                confirmedCount++;
+                continue;
+            }
+            if (cursorX > first.col) {
+                // 服务端已越过该位置但写入不同内容，预测失败
+                rollback();
+                return;
+            }
+            break;
+        }
+        expireStale();
+    }
+
+    /**
+     * 检查超时预测 (绘制前调用即可)
+     */
+    public void expireStale() {
+        if (predictions.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now - predictions.get(0).createdAt > PREDICTION_TIMEOUT_MS) {
+            // 长时间无回显：多为关闭回显的输入 (如未识别的密码提示)
+            if (emulator.getCursorX() <= predictions.get(0).col) {
+                suppressedUntilNewline = true;
+            }
+            rollback();
+        }
+    }
+
+    /**
+     * 当前是否应绘制预测
+     */
+    public boolean shouldDisplay() {
+        if (predictions.isEmpty() || mode == MODE_OFF) {
+            return false;
+        }
+        if (mode == MODE_ADAPTIVE) {
+            return observedLatencyMs >= ADAPTIVE_THRESHOLD_MS;
+        }
+        return true;
+    }
+
+    /**
+     * 获取待确认的预测 (只读)
+     */
+    public List<Prediction> getPredictions() {
+        return predictions;
+    }
+
+    /**
+     * 预测光标列；无预测时返回 -1
+     */
+    public int getPredictedCursorX() {
+        if (predictions.isEmpty()) {
+            return -1;
+        }
+        return predictions.get(predictions.size() - 1).col + 1;
+    }
+
+    public int getPredictedCursorY() {
+        return predictions.isEmpty() ? -1 : predictions.get(0).row;
+    }
+
+    public int getConfirmedCount() {
+        return confirmedCount;
+    }
+
+    public int getRolledBackCount() {
+        return rolledBackCount;
+    }
+
+    public void reset() {
+        predictions.clear();
+        suppressedUntilNewline = false;
+    }
+
+    private void rollback() {
+        rolledBackCount += predictions.size();
+        predictions.clear();
+    }
+
+    private int nextPredictedColumn() {
+        if (predictions.isEmpty()) {
+            return emulator.getCursorX();
+        }
+        return predictions.get(predictions.size() - 1).col + 1;
+    }
+
+    private boolean canPredict() {
+        if (mode == MODE_OFF || suppressedUntilNewline) {
+            return false;
+        }
+        return isEnvironmentPredictable() && !isPasswordPrompt();
+    }
+
+    private boolean isEnvironmentPredictable() {
+        return emulator.isCursorVisible()
+            && !emulator.isAlternateScreenActive()
+            && !emulator.hasScrollRegion();
+    }
+
+    // 光标左侧文本包含密码提示时不预测
+    private boolean isPasswordPrompt() {
+        char[][] buffer = emulator.getBuffer();
+        int row = emulator.getCursorY();
+        if (row < 0 || row >= buffer.length) {
+            return false;
+        }
+        int end = Math.min(emulator.getCursorX(), buffer[row].length);
+        String prompt = new String(buffer[row], 0, end).toLowerCase(Locale.ROOT);
+        for (String hint : PASSWORD_HINTS) {
+            if (prompt.contains(hint)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
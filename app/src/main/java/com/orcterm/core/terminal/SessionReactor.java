@@ -0,0 +1,212 @@
+package com.orcterm.core.terminal;
+
+import android.util.Log;
+
+import com.orcterm.core.ssh.SshNative;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 终端会话共享的 I/O 反应器
+ * 所有 SSH 会话与本地 PTY 由同一个线程服务：在 JNI 中一次 poll 全部会话的 socket 与 PTY 主设备，就绪的会话在本线程上
+ * 非阻塞地读取并分发到各自的解析队列，socket 可写时写出输入队列。线程数不随标签页增加，
+ * 没有注册的会话时线程退出，下次注册时重新创建。
+ */
+final class SessionReactor {
+
+    private static final String TAG = "SessionReactor";
+
+    /** {@link Client#onEvent} 返回该值表示移除该客户端 */
+    static final long DETACH = -1;
+
+    // poll 出错时的退避，避免空转
+    private static final long POLL_ERROR_BACKOFF_MS = 10;
+
+    /**
+     * 反应器上的一个会话连接，回调均在反应器线程执行且不得阻塞
+     */
+    abstract static class Client {
+        // 有待写数据等需要处理的事件，由任意线程置位
+        volatile boolean signaled;
+        volatile boolean registered;
+        // 下次需要处理的时间点，仅反应器线程访问
+        long deadline;
+
+        /** 会话句柄，调用期间保持有效；0 表示改为等待 {@link #fd()} */
+        abstract long handle();
+
+        /** 句柄为 0 时等待可读的 fd (如本地 PTY 主设备)，调用期间保持打开 */
+        int fd() {
+            return -1;
+        }
+
+        /**
+         * 处理一次事件：socket 就绪、被 {@link #signal} 唤醒或到达上次返回的时间点
+         *
+         * @param ready socket (或 fd) 就绪或通道缓冲中有数据
+         * @param now   当前时间 (System.currentTimeMillis)
+         * @return 下次需要处理的时间点；{@link #DETACH} 表示移除
+         */
+        abstract long onEvent(boolean ready, long now);
+    }
+
+    private static SessionReactor instance;
+
+    private final SshNative sshNative = new SshNative();
+    private final List<Client> clients = new ArrayList<>();
+    private long reactorHandle;
+    private Thread thread;
+    // 每轮开始时递增；注销方据此确认反应器已不再使用旧的句柄快照
+    private long iteration;
+
+    private SessionReactor() {
+    }
+
+    static synchronized SessionReactor getInstance() {
+        if (instance == null) {
+            instance = new SessionReactor();
+        }
+        return instance;
+    }
+
+    /**
+     * 注册会话，下一轮立即处理一次 (写出注册前已入队的输入)
+     */
+    synchronized void register(Client client) {
+        if (reactorHandle == 0) {
+            reactorHandle = sshNative.reactorCreate();
+            if (reactorHandle == 0) {
+                throw new IllegalStateException("reactor create failed");
+            }
+        }
+        client.registered = true;
+        client.signaled = true;
+        clients.add(client);
+        if (thread == null) {
+            thread = new Thread(this::loop, "TerminalReactor");
+            thread.setDaemon(true);
+            thread.start();
+        } else {
+            sshNative.reactorWakeup(reactorHandle);
+        }
+    }
+
+    /**
+     * 注销会话
+     * 从其他线程调用时等待反应器进入下一轮，返回后即可安全释放会话句柄；
+     * 在反应器线程 (回调中) 调用时立即返回。
+     */
+    void unregister(Client client) {
+        long seen;
+        synchronized (this) {
+            if (!clients.remove(client)) {
+                return;
+            }
+            client.registered = false;
+            if (thread == null || Thread.currentThread() == thread) {
+                return;
+            }
+            seen = iteration;
+            sshNative.reactorWakeup(reactorHandle);
+        }
+        boolean interrupted = false;
+        synchronized (this) {
+            while (iteration == seen && thread != null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 请求反应器尽快处理该会话 (如输入队列有新数据)
+     */
+    void signal(Client client) {
+        client.signaled = true;
+        if (client.registered) {
+            long handle;
+            synchronized (this) {
+                handle = reactorHandle;
+            }
+            sshNative.reactorWakeup(handle);
+        }
+    }
+
+    private void loop() {
+        Client[] snapshot = new Client[0];
+        long[] handles = new long[0];
+        int[] fds = new int[0];
+        int[] ready = new int[0];
+        long handle;
+        while (true) {
+            int count;
+            synchronized (this) {
+                iteration++;
+                notifyAll();
+                if (clients.isEmpty()) {
+                    thread = null;
+                    return;
+                }
+                count = clients.size();
+                if (snapshot.length < count) {
+                    snapshot = new Client[count];
+                    handles = new long[count];
+                    fds = new int[count];
+                    ready = new int[count];
+                }
+                clients.toArray(snapshot);
+                handle = reactorHandle;
+            }
+
+            long now = System.currentTimeMillis();
+            long next = Long.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                Client client = snapshot[i];
+                handles[i] = client.handle();
+                fds[i] = handles[i] == 0 ? client.fd() : -1;
+                next = Math.min(next, client.signaled ? now : client.deadline);
+            }
+            int timeout = next == Long.MAX_VALUE ? -1 : (int) Math.min(Integer.MAX_VALUE, Math.max(0, next - now));
+            int result = sshNative.reactorPoll(handle, handles, fds, count, timeout, ready);
+            if (result < 0) {
+                Log.w(TAG, "reactor poll failed");
+                try {
+                    Thread.sleep(POLL_ERROR_BACKOFF_MS);
+                } catch (InterruptedException ignored) {
+                    // 反应器线程不响应中断
+                }
+                continue;
+            }
+
+            now = System.currentTimeMillis();
+            for (int i = 0; i < count; i++) {
+                Client client = snapshot[i];
+                snapshot[i] = null;
+                boolean isReady = ready[i] != 0;
+                if (!client.registered || (!isReady && !client.signaled && now < client.deadline)) {
+                    continue;
+                }
+                client.signaled = false;
+                long deadline;
+                try {
+                    deadline = client.onEvent(isReady, now);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "client event failed", e);
+                    deadline = DETACH;
+                }
+                if (deadline == DETACH) {
+                    unregister(client);
+                } else {
+                    client.deadline = deadline;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.orcterm.core.terminal;
+
+/**
+ * Sixel 图像解码
+ * 输入为 DCS 载荷 (去掉 ESC P 与 ST)，形如 "P1;P2;P3q" + 图像数据。
+ * 支持光栅属性 ("Pan;Pad;Ph;Pv)、调色板定义 (#Pc;Pu;Px;Py;Pz)、重复 (!Pn)、回车 ($) 与换行 (-)。
+ * 未绘制的像素保持透明，以便与终端背景/主题融合。
+ * 纯 Java 实现，可在后台线程调用。
+ */
+public final class SixelDecoder {
+
+    /** 单边最大像素，超出部分裁剪，避免异常载荷耗尽内存 */
+    public static final int MAX_DIMENSION = 2048;
+
+    // VT340 默认 16 色调色板 (RGB)
+    private static final int[] DEFAULT_PALETTE = {
+        0x000000, 0x3333CC, 0xCC2121, 0x33CC33, 0xCC33CC, 0x33CCCC, 0xCCCC33, 0x878787,
+        0x424242, 0x545499, 0x994242, 0x549954, 0x995499, 0x549999, 0x999954, 0xCCCCCC
+    };
+    private static final int PALETTE_SIZE = 256;
+
+    /**
+     * 解码结果，像素为 ARGB
+     */
+    public static final class Image {
+        public final int width;
+        public final int height;
+        public final int[] pixels;
+
+        Image(int width, int height, int[] pixels) {
+            this.width = width;
+            this.height = height;
+            this.pixels = pixels;
+        }
+    }
+
+    private SixelDecoder() {
+    }
+
+    /**
+     * 判断 DCS 载荷是否为 sixel (参数后紧跟 'q')
+     */
+    public static boolean isSixel(String dcs) {
+        return dataStart(dcs) > 0;
+    }
+
+    /**
+     * 计算图像像素尺寸，不分配像素缓冲，可在解析线程上同步调用
+     *
+     * @return {width, height}，已按 {@link #MAX_DIMENSION} 限制
+     */
+    public static int[] measure(String dcs) {
+        int start = dataStart(dcs);
+        if (start < 0) {
+            return new int[]{0, 0};
+        }
+        int[] raster = parseRaster(dcs, start);
+        if (raster != null && raster[0] > 0 && raster[1] > 0) {
+            return new int[]{Math.min(raster[0], MAX_DIMENSION), Math.min(raster[1], MAX_DIMENSION)};
+        }
+        int x = 0;
+        int maxX = 0;
+        int bands = 1;
+        int len = dcs.length();
+        int i = start;
+        while (i < len) {
+            char c = dcs.charAt(i);
+            if (c >= '?' && c <= '~') {
+                x++;
+                i++;
+            } else if (c == '!') {
+                i++;
+                int n = 0;
+                while (i < len && Character.isDigit(dcs.charAt(i))) {
+                    n = n * 10 + (dcs.charAt(i) - '0');
+                    i++;
+                }
+                if (i < len && dcs.charAt(i) >= '?' && dcs.charAt(i) <= '~') {
+                    x += Math.max(1, n);
+                    i++;
+                }
+            } else if (c == '$') {
+                maxX = Math.max(maxX, x);
+                x = 0;
+                i++;
+            } else if (c == '-') {
+                maxX = Math.max(maxX, x);
+                x = 0;
+                bands++;
+                i++;
+            } else {
+                i++;
+            }
+        }
+        maxX = Math.max(maxX, x);
+        return new int[]{Math.min(maxX, MAX_DIMENSION), Math.min(bands * 6, MAX_DIMENSION)};
+    }
+
+    /**
+     * 解码 sixel 图像
+     *
+     * @return 解码结果；载荷无效时返回 null
+     */
+    public static Image decode(String dcs) {
+        return decode(dcs, MAX_DIMENSION, MAX_DIMENSION);
+    }
+
+    /**
+     * 解码 sixel 图像并等比缩小到 maxWidth x maxHeight 以内
+     * 绘制时直接映射到目标尺寸 (最近邻)，只分配缩小后的像素缓冲，不会先分配完整栅格。
+     *
+     * @return 解码结果；载荷无效时返回 null
+     */
+    public static Image decode(String dcs, int maxWidth, int maxHeight) {
+        int start = dataStart(dcs);
+        if (start < 0) {
+            return null;
+        }
+        int[] size = measure(dcs);
+        int sourceWidth = size[0];
+        int sourceHeight = size[1];
+        if (sourceWidth <= 0 || sourceHeight <= 0) {
+            return null;
+        }
+        maxWidth = maxWidth > 0 ? maxWidth : MAX_DIMENSION;
+        maxHeight = maxHeight > 0 ? maxHeight : MAX_DIMENSION;
+        float scale = Math.min(1f, Math.min((float) maxWidth / sourceWidth, (float) maxHeight / sourceHeight));
+        Raster raster = new Raster(sourceWidth, sourceHeight,
+            Math.max(1, Math.round(sourceWidth * scale)), Math.max(1, Math.round(sourceHeight * scale)));
+        int[] palette = new int[PALETTE_SIZE];
+        for (int i = 0; i < PALETTE_SIZE; i++) {
+            palette[i] = 0xFF000000 | DEFAULT_PALETTE[i % DEFAULT_PALETTE.length];
+        }
+        int color = palette[0];
+        int x = 0;
+        int bandY = 0;
+        int len = dcs.length();
+        int i = start;
+        int[] args = new int[5];
+        while (i < len && bandY < sourceHeight) {
+            char c = dcs.charAt(i);
+            if (c >= '?' && c <= '~') {
+                raster.paint(x, bandY, c - '?', 1, color);
+                x++;
+                i++;
+            } else if (c == '!') {
+                i++;
+                int n = 0;
+                while (i < len && Character.isDigit(dcs.charAt(i))) {
+                    n = n * 10 + (dcs.charAt(i) - '0');
+                    i++;
+                }
+                if (i < len && dcs.charAt(i) >= '?' && dcs.charAt(i) <= '~') {
+                    int count = Math.max(1, n);
+                    raster.paint(x, bandY, dcs.charAt(i) - '?', count, color);
+                    x += count;
+                    i++;
+                }
+            } else if (c == '#') {
+                i++;
+                int argc = 0;
+                for (int k = 0; k < args.length; k++) {
+                    args[k] = 0;
+                }
+                while (i < len && argc < args.length) {
+                    int n = 0;
+                    boolean digits = false;
+                    while (i < len && Character.isDigit(dcs.charAt(i))) {
+                        n = n * 10 + (dcs.charAt(i) - '0');
+                        digits = true;
+                        i++;
+                    }
+                    if (digits) {
+                        args[argc++] = n;
+                    }
+                    if (i < len && dcs.charAt(i) == ';') {
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                int index = args[0] % PALETTE_SIZE;
+                if (argc >= 5) {
+                    palette[index] = args[1] == 1
+                        ? hlsToArgb(args[2], args[3], args[4])
+                        : rgbPercentToArgb(args[2], args[3], args[4]);
+                }
+                color = palette[index];
+            } else if (c == '$') {
+                x = 0;
+                i++;
+            } else if (c == '-') {
+                x = 0;
+                bandY += 6;
+                i++;
+            } else {
+                // 光栅属性已在 measure 中处理，其余字符忽略
+                i++;
+            }
+        }
+        return new Image(raster.width, raster.height, raster.pixels);
+    }
+
+    /**
+     * 目标像素缓冲：源坐标按比例映射到缩小后的尺寸
+     */
+    private static final class Raster {
+        final int sourceWidth;
+        final int sourceHeight;
+        final int width;
+        final int height;
+        final int[] pixels;
+
+        Raster(int sourceWidth, int sourceHeight, int width, int height) {
+            this.sourceWidth = sourceWidth;
+            this.sourceHeight = sourceHeight;
+            this.width = width;
+            this.height = height;
+            this.pixels = new int[width * height];
+        }
+
+        void paint(int x, int bandY, int bits, int count, int color) {
+            if (bits == 0 || x >= sourceWidth) {
+                return;
+            }
+            int end = Math.min(sourceWidth, x + count);
+            int targetStart = (int) ((long) x * width / sourceWidth);
+            int targetEnd = Math.max(targetStart + 1, (int) ((long) end * width / sourceWidth));
+            for (int bit = 0; bit < 6; bit++) {
+                if ((bits & (1 << bit)) == 0) {
+                    continue;
+                }
+                int y = bandY + bit;
+                if (y >= sourceHeight) {
+                    break;
+                }
+                int rowOffset = (int) ((long) y * height / sourceHeight) * width;
+                for (int px = targetStart; px < targetEnd && px < width; px++) {
+                    pixels[rowOffset + px] = color;
+                }
+            }
+        }
+    }
+
+    // 返回 'q' 之后数据的起始位置；非 sixel 返回 -1
+    private static int dataStart(String dcs) {
+        if (dcs == null) {
+            return -1;
+        }
+        for (int i = 0; i < dcs.length(); i++) {
+            char c = dcs.charAt(i);
+            if (c == 'q') {
+                return i + 1;
+            }
+            if (!Character.isDigit(c) && c != ';') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    // 解析紧跟在数据开头的光栅属性 "Pan;Pad;Ph;Pv，返回 {Ph, Pv}
+    private static int[] parseRaster(String dcs, int start) {
+        if (start >= dcs.length() || dcs.charAt(start) != '"') {
+            return null;
+        }
+        int[] values = new int[4];
+        int count = 0;
+        int i = start + 1;
+        while (i < dcs.length() && count < values.length) {
+            int n = 0;
+            while (i < dcs.length() && Character.isDigit(dcs.charAt(i))) {
+                n = n * 10 + (dcs.charAt(i) - '0');
+                i++;
+            }
+            values[count++] = n;
+            if (i < dcs.length() && dcs.charAt(i) == ';') {
+                i++;
+            } else {
+                break;
+            }
+        }
+        return count >= 4 ? new int[]{values[2], values[3]} : null;
+    }
+
+    private static int rgbPercentToArgb(int r, int g, int b) {
+        return 0xFF000000
+            | (percentToByte(r) << 16)
+            | (percentToByte(g) << 8)
+            | percentToByte(b);
+    }
+
+    private static int percentToByte(int percent) {
+        return Math.max(0, Math.min(255, percent * 255 / 100));
+    }
+
+    // sixel 的 HLS 色相以蓝色为 0 度，与常规 HLS 相差 240 度
+    private static int hlsToArgb(int hue, int lightness, int saturation) {
+        float h = ((hue + 240) % 360) / 360f;
+        float l = Math.min(100, lightness) / 100f;
+        float s = Math.min(100, saturation) / 100f;
+        float r;
+        float g;
+        float b;
+        if (s == 0f) {
+            r = g = b = l;
+        } else {
+            float q = l < 0.5f ? l * (1 + s) : l + s - l * s;
+            float p = 2 * l - q;
+            r = hueToChannel(p, q, h + 1f / 3f);
+            g = hueToChannel(p, q, h);
+            b = hueToChannel(p, q, h - 1f / 3f);
+        }
+        return 0xFF000000
+            | (Math.round(r * 255) << 16)
+            | (Math.round(g * 255) << 8)
+            | Math.round(b * 255);
+    }
+
+    private static float hueToChannel(float p, float q, float t) {
+        if (t < 0) t += 1;
+        if (t > 1) t -= 1;
+        if (t < 1f / 6f) return p + (q - p) * 6 * t;
+        if (t < 1f / 2f) return q;
+        if (t < 2f / 3f) return p + (q - p) * (2f / 3f - t) * 6;
+        return p;
+    }
+}
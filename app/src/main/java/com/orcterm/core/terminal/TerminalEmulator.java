@@ -14,6 +14,55 @@ public class TerminalEmulator {
 
     public interface ScrollbackListener {
         void onScrollbackLine(char[] chars, int[] styles);
+
+        /** 回滚缓冲被清空 (ED 3) */
+        default void onScrollbackCleared() {
+        }
+    }
+
+    /**
+     * 内联图像回调
+     * 在解析线程 (append 调用方) 上回调，实现方负责在后台线程解码。
+     */
+    public interface ImageListener {
+        /**
+         * 新图像已放置，单元格已预留
+         *
+         * @param placement 放置位置
+         * @param sixel     sixel 载荷 (DCS 内容)，kitty 图像为 null
+         * @param kitty     kitty 图形命令 (含完整 base64 数据)，sixel 图像为 null
+         */
+        void onImagePlaced(ImagePlacement placement, String sixel, KittyGraphicsCommand kitty);
+
+        void onImageRemoved(int id);
+    }
+
+    /**
+     * 图像放置信息
+     * absoluteRow 以仿真器启动以来滚入回滚缓冲的行数为基准，随文本一起滚动。
+     */
+    public static final class ImagePlacement {
+        public final int id;
+        public final long absoluteRow;
+        public final int column;
+        public final int cellColumns;
+        public final int cellRows;
+        public final int pixelWidth;
+        public final int pixelHeight;
+        // kitty 图像 id (i)，用于按 id 删除；sixel 与未指定 id 的为 0
+        final int kittyImageId;
+
+        ImagePlacement(int id, long absoluteRow, int column, int cellColumns, int cellRows,
+                       int pixelWidth, int pixelHeight, int kittyImageId) {
+            this.id = id;
+            this.kittyImageId = kittyImageId;
+            this.absoluteRow = absoluteRow;
+            this.column = column;
+            this.cellColumns = cellColumns;
+            this.cellRows = cellRows;
+            this.pixelWidth = pixelWidth;
+            this.pixelHeight = pixelHeight;
+        }
     }
 
     private int columns;
@@ -100,6 +149,26 @@ public class TerminalEmulator {
     // 脏区域跟踪
     private DirtyRegion dirtyRegion = new DirtyRegion();
     private ScrollbackListener scrollbackListener;
+    private volatile InputLatencyTracker latencyTracker;
+    private ImageListener imageListener;
+    // 渲染层挂在仿真器上的共享状态 (回滚缓冲、图像缓存等)，与仿真器同生命周期
+    private Object renderState;
+
+    // 内联图像
+    private static final int MAX_STRING_PAYLOAD = 8 * 1024 * 1024; // DCS/APC 载荷上限 (字符)
+    private static final int MAX_IMAGE_PLACEMENTS = 256;
+    private static final int MAX_KITTY_STORED = 4;
+    private static final int MAX_KITTY_STORED_BYTES = 8 * 1024 * 1024; // 已传输图像解码后的总字节上限
+    private final List<ImagePlacement> imagePlacements = new ArrayList<>();
+    // kitty a=t 传输但尚未显示的图像 (按 id)，保存解码后的数据，数量与总字节数受限
+    private final java.util.LinkedHashMap<Integer, KittyGraphicsCommand> kittyStored = new java.util.LinkedHashMap<>();
+    private long kittyStoredBytes = 0;
+    private KittyGraphicsCommand kittyPending; // 分块传输 (m=1) 中的命令
+    private StringBuilder kittyPendingData;
+    private long scrolledLineCount = 0;
+    private int nextImageId = 1;
+    private int cellPixelWidth = 10;
+    private int cellPixelHeight = 20;
 
     // 光标位置
     private int cursorX = 0;
@@ -109,6 +178,10 @@ public class TerminalEmulator {
     private int scrollTop = 0;
     private int scrollBottom;
     private boolean cursorVisible = true;
+    // 备用屏幕模式 (全屏程序如 vim/less/top)，仅记录状态
+    private boolean alternateScreenActive = false;
+    // 括号粘贴模式 (DECSET 2004)，开启时粘贴内容需包裹 ESC[200~ / ESC[201~
+    private volatile boolean bracketedPasteMode = false;
 
     // 当前属性
     private int currentForeColor = 7; // 默认白色
@@ -132,8 +205,13 @@ public class TerminalEmulator {
     private static final int STATE_NORMAL = 0;
     private static final int STATE_ESC = 1;     // 收到 ESC
     private static final int STATE_CSI = 2;     // 收到 ESC [ (CSI)
+    private static final int STATE_DCS = 3;     // 收到 ESC P (DCS，sixel)
+    private static final int STATE_APC = 4;     // 收到 ESC _ (APC，kitty 图形)
     private int parseState = STATE_NORMAL;
     private StringBuilder csiParamBuffer = new StringBuilder();
+    private StringBuilder stringPayload = new StringBuilder();
+    private boolean stringOverflow = false;
+    private boolean stringEscPending = false;
 
     public TerminalEmulator(int columns, int rows) {
         this.columns = columns;
@@ -241,6 +319,7 @@ public class TerminalEmulator {
             char c = data.charAt(i);
             processChar(c);
         }
+        reportEcho();
     }
 
     /**
@@ -283,6 +362,11 @@ public class TerminalEmulator {
                 } else if (c == 'M') {
                     reverseIndex();
                     parseState = STATE_NORMAL;
+                } else if (c == 'P' || c == '_') {
+                    parseState = c == 'P' ? STATE_DCS : STATE_APC;
+                    stringPayload.setLength(0);
+                    stringOverflow = false;
+                    stringEscPending = false;
                 } else {
                     // 未知序列，重置或处理简单转义 (如 ESC M)
                     parseState = STATE_NORMAL; 
@@ -298,6 +382,267 @@ public class TerminalEmulator {
                     parseState = STATE_NORMAL;
                 }
                 break;
+
+            case STATE_DCS:
+            case STATE_APC:
+                processStringChar(c);
+                break;
+        }
+    }
+
+    /**
+     * 累积 DCS/APC 载荷直到 ST (ESC \) 或 BEL
+     * 超过上限的载荷被丢弃，但仍消费到结束符，避免图像数据作为文本输出。
+     */
+    private void processStringChar(char c) {
+        if (stringEscPending) {
+            stringEscPending = false;
+            if (c == '\\') {
+                finishString();
+                return;
+            }
+            // ESC 后不是 '\'：载荷被中断，按新的转义序列处理
+            stringPayload.setLength(0);
+            parseState = STATE_ESC;
+            processChar(c);
+            return;
+        }
+        if (c == 27) {
+            stringEscPending = true;
+        } else if (c == 7) {
+            finishString();
+        } else if (!stringOverflow) {
+            if (stringPayload.length() >= MAX_STRING_PAYLOAD) {
+                stringOverflow = true;
+                stringPayload.setLength(0);
+            } else {
+                stringPayload.append(c);
+            }
+        }
+    }
+
+    private void finishString() {
+        int state = parseState;
+        parseState = STATE_NORMAL;
+        if (stringOverflow) {
+            stringOverflow = false;
+            return;
+        }
+        String payload = stringPayload.toString();
+        stringPayload.setLength(0);
+        if (state == STATE_DCS) {
+            if (SixelDecoder.isSixel(payload)) {
+                int[] size = SixelDecoder.measure(payload);
+                placeImage(size[0], size[1], 0, 0, payload, null, false);
+            }
+        } else if (KittyGraphicsCommand.isGraphics(payload)) {
+            handleKittyGraphics(KittyGraphicsCommand.parse(payload));
+        }
+    }
+
+    private void handleKittyGraphics(KittyGraphicsCommand cmd) {
+        if (kittyPending != null) {
+            // 后续分块只携带 m 与数据，其余控制参数沿用首块
+            if (kittyPendingData.length() + cmd.payload.length() > MAX_STRING_PAYLOAD) {
+                kittyPending = null;
+                kittyPendingData = null;
+                return;
+            }
+            kittyPendingData.append(cmd.payload);
+            if (cmd.more) {
+                return;
+            }
+            KittyGraphicsCommand first = kittyPending;
+            first.payload = kittyPendingData.toString();
+            first.more = false;
+            kittyPending = null;
+            kittyPendingData = null;
+            cmd = first;
+        } else if (cmd.more) {
+            kittyPending = cmd;
+            kittyPendingData = new StringBuilder(cmd.payload);
+            return;
+        }
+        switch (cmd.action) {
+            case 'T':
+                placeKittyImage(cmd);
+                break;
+            case 't':
+                if (cmd.imageId > 0) {
+                    storeKittyImage(cmd);
+                }
+                break;
+            case 'p':
+                KittyGraphicsCommand stored = kittyStored.get(cmd.imageId);
+                if (stored != null) {
+                    stored.columns = cmd.columns > 0 ? cmd.columns : stored.columns;
+                    stored.rows = cmd.rows > 0 ? cmd.rows : stored.rows;
+                    placeKittyImage(stored);
+                }
+                break;
+            case 'd':
+                deleteKittyImages(cmd);
+                break;
+            default:
+                break;
+        }
+    }
+
+    // 保存 a=t 传输的图像：base64 解码后保存，超出数量或总字节上限时淘汰最早的
+    private void storeKittyImage(KittyGraphicsCommand cmd) {
+        removeKittyStored(cmd.imageId);
+        byte[] data = cmd.decodeData();
+        if (data == null || data.length > MAX_KITTY_STORED_BYTES) {
+            return;
+        }
+        cmd.data = data;
+        cmd.payload = "";
+        kittyStored.put(cmd.imageId, cmd);
+        kittyStoredBytes += data.length;
+        while (kittyStored.size() > MAX_KITTY_STORED || kittyStoredBytes > MAX_KITTY_STORED_BYTES) {
+            removeKittyStored(kittyStored.keySet().iterator().next());
+        }
+    }
+
+    private void removeKittyStored(int imageId) {
+        KittyGraphicsCommand removed = kittyStored.remove(imageId);
+        if (removed != null && removed.data != null) {
+            kittyStoredBytes -= removed.data.length;
+        }
+    }
+
+    /**
+     * kitty 删除 (a=d)：按 d 选择目标，大写形式同时释放已传输的数据
+     * 支持 a/A (屏幕上全部)、i/I (指定 id)、c/C (覆盖光标所在单元格的)，其他选择器忽略。
+     */
+    private void deleteKittyImages(KittyGraphicsCommand cmd) {
+        char target = cmd.deleteTarget;
+        boolean freeData = Character.isUpperCase(target);
+        switch (Character.toLowerCase(target)) {
+            case 'a':
+                clearImages(IMAGES_SCREEN);
+                if (freeData) {
+                    kittyStored.clear();
+                    kittyStoredBytes = 0;
+                }
+                break;
+            case 'i':
+                if (cmd.imageId <= 0) {
+                    break;
+                }
+                for (int i = imagePlacements.size() - 1; i >= 0; i--) {
+                    if (imagePlacements.get(i).kittyImageId == cmd.imageId) {
+                        removePlacement(i);
+                    }
+                }
+                if (freeData) {
+                    removeKittyStored(cmd.imageId);
+                }
+                break;
+            case 'c':
+                long row = scrolledLineCount + cursorY;
+                for (int i = imagePlacements.size() - 1; i >= 0; i--) {
+                    ImagePlacement placement = imagePlacements.get(i);
+                    if (row >= placement.absoluteRow && row < placement.absoluteRow + placement.cellRows
+                        && cursorX >= placement.column && cursorX < placement.column + placement.cellColumns) {
+                        removePlacement(i);
+                        if (freeData && placement.kittyImageId > 0) {
+                            removeKittyStored(placement.kittyImageId);
+                        }
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void placeKittyImage(KittyGraphicsCommand cmd) {
+        if (cmd.transmission != 'd') {
+            // 文件/共享内存传输在远端主机上，无法读取
+            return;
+        }
+        int[] size = cmd.resolvePixelSize();
+        placeImage(size[0], size[1], cmd.columns, cmd.rows, null, cmd, true);
+    }
+
+    /**
+     * 在光标处预留图像单元格并通知解码
+     * sixel 放置后光标移到图像下方行首；kitty 放置后光标位于图像最后一行的右侧。
+     */
+    private void placeImage(int pixelWidth, int pixelHeight, int cellColumns, int cellRows,
+                            String sixel, KittyGraphicsCommand kitty, boolean cursorAfterImage) {
+        int spanCols = cellColumns > 0 ? cellColumns
+            : (pixelWidth + cellPixelWidth - 1) / Math.max(1, cellPixelWidth);
+        int spanRows = cellRows > 0 ? cellRows
+            : (pixelHeight + cellPixelHeight - 1) / Math.max(1, cellPixelHeight);
+        if (spanCols <= 0 || spanRows <= 0) {
+            return;
+        }
+        if (cursorX >= columns) {
+            cursorX = 0;
+            newLine();
+        }
+        // 超出屏幕的图像限制在屏幕范围内，解码时按比例缩小
+        spanCols = Math.min(spanCols, columns - cursorX);
+        spanRows = Math.min(spanRows, rows);
+        // 先滚动出足够的行，使图像完整位于屏幕内
+        int startColumn = cursorX;
+        for (int i = 1; i < spanRows; i++) {
+            newLine();
+        }
+        long absoluteRow = scrolledLineCount + cursorY - (spanRows - 1);
+        ImagePlacement placement = new ImagePlacement(nextImageId++, absoluteRow, startColumn,
+            spanCols, spanRows, pixelWidth, pixelHeight, kitty != null ? kitty.imageId : 0);
+        imagePlacements.add(placement);
+        while (imagePlacements.size() > MAX_IMAGE_PLACEMENTS) {
+            ImagePlacement removed = imagePlacements.remove(0);
+            if (imageListener != null) {
+                imageListener.onImageRemoved(removed.id);
+            }
+        }
+        if (imageListener != null) {
+            imageListener.onImagePlaced(placement, sixel, kitty);
+        }
+        int top = (int) Math.max(0, absoluteRow - scrolledLineCount);
+        dirtyRegion.updateRegion(startColumn, top, startColumn + spanCols - 1, cursorY);
+        if (cursorAfterImage) {
+            cursorX = Math.min(columns - 1, startColumn + spanCols);
+        } else {
+            cursorX = 0;
+            newLine();
+        }
+    }
+
+    private static final int IMAGES_ALL = 0;
+    private static final int IMAGES_SCREEN = 1;     // 与屏幕有交集的
+    private static final int IMAGES_SCROLLBACK = 2; // 已完全滚入回滚缓冲的
+
+    /**
+     * 清除图像
+     *
+     * @param scope IMAGES_ALL / IMAGES_SCREEN / IMAGES_SCROLLBACK
+     */
+    private void clearImages(int scope) {
+        for (int i = imagePlacements.size() - 1; i >= 0; i--) {
+            ImagePlacement placement = imagePlacements.get(i);
+            boolean onScreen = placement.absoluteRow + placement.cellRows > scrolledLineCount;
+            if (scope == IMAGES_ALL || (scope == IMAGES_SCREEN) == onScreen) {
+                removePlacement(i);
+            }
+        }
+    }
+
+    private void removePlacement(int index) {
+        ImagePlacement placement = imagePlacements.remove(index);
+        if (imageListener != null) {
+            imageListener.onImageRemoved(placement.id);
+        }
+        int top = (int) Math.max(0, placement.absoluteRow - scrolledLineCount);
+        int bottom = (int) Math.min(rows - 1, placement.absoluteRow + placement.cellRows - 1 - scrolledLineCount);
+        if (bottom >= top) {
+            dirtyRegion.updateRegion(placement.column, top,
+                Math.min(columns - 1, placement.column + placement.cellColumns - 1), bottom);
         }
     }
 
@@ -352,6 +697,10 @@ public class TerminalEmulator {
         int defaultStyle = encodeStyle(currentForeColor, currentBackColor, isBold, isUnderline, isInverse);
         int regionHeight = bottom - top + 1;
         int shift = Math.min(count, regionHeight);
+        // 只有整屏滚动才把图像带出屏幕；局部滚动区内的图像位置不随之移动
+        if (top == 0 && bottom == rows - 1) {
+            scrolledLineCount += shift;
+        }
         if (scrollbackListener != null && top == 0) {
             for (int i = 0; i < shift; i++) {
                 scrollbackListener.onScrollbackLine(
@@ -513,6 +862,10 @@ public class TerminalEmulator {
                         }
                         if (val == 25) {
                             cursorVisible = set;
+                        } else if (val == 47 || val == 1047 || val == 1049) {
+                            alternateScreenActive = set;
+                        } else if (val == 2004) {
+                            bracketedPasteMode = set;
                         }
                     }
                 }
@@ -532,11 +885,20 @@ public class TerminalEmulator {
     private void eraseInDisplay(List<Integer> args) {
         int mode = args.size() > 0 ? args.get(0) : 0;
         int defStyle = encodeStyle(currentForeColor, currentBackColor, isBold, isUnderline, isInverse);
+        if (mode == 3) {
+            // xterm: 只清除回滚缓冲 (及其中的图像)，屏幕内容不变
+            clearImages(IMAGES_SCROLLBACK);
+            if (scrollbackListener != null) {
+                scrollbackListener.onScrollbackCleared();
+            }
+            return;
+        }
         if (mode == 2) {
             for (int y = 0; y < rows; y++) {
                 Arrays.fill(charBuffer[y], ' ');
                 Arrays.fill(styleBuffer[y], defStyle);
             }
+            clearImages(IMAGES_SCREEN);
             dirtyRegion.updateAll(columns, rows);
             return;
         }
@@ -698,8 +1060,17 @@ public class TerminalEmulator {
         scrollTop = 0;
         scrollBottom = rows - 1;
         cursorVisible = true;
+        alternateScreenActive = false;
+        bracketedPasteMode = false;
         parseState = STATE_NORMAL;
         csiParamBuffer.setLength(0);
+        stringPayload.setLength(0);
+        stringEscPending = false;
+        kittyPending = null;
+        kittyPendingData = null;
+        kittyStored.clear();
+        kittyStoredBytes = 0;
+        clearImages(IMAGES_ALL);
     }
 
     public char[][] getBuffer() {
@@ -737,10 +1108,65 @@ public class TerminalEmulator {
         return cursorVisible;
     }
 
+    public boolean isAlternateScreenActive() {
+        return alternateScreenActive;
+    }
+
+    public boolean isBracketedPasteMode() {
+        return bracketedPasteMode;
+    }
+
+    /**
+     * 是否设置了非全屏的滚动区域 (通常意味着全屏程序正在运行)
+     */
+    public boolean hasScrollRegion() {
+        return scrollTop != 0 || scrollBottom != rows - 1;
+    }
+
     public void setScrollbackListener(ScrollbackListener listener) {
         this.scrollbackListener = listener;
     }
 
+    public void setInputLatencyTracker(InputLatencyTracker tracker) {
+        this.latencyTracker = tracker;
+    }
+
+    public void setImageListener(ImageListener listener) {
+        this.imageListener = listener;
+    }
+
+    public Object getRenderState() {
+        return renderState;
+    }
+
+    public void setRenderState(Object state) {
+        this.renderState = state;
+    }
+
+    /**
+     * 设置单元格像素尺寸，用于把图像像素尺寸换算为占用的行列数
+     */
+    public synchronized void setCellPixelSize(int width, int height) {
+        if (width > 0 && height > 0) {
+            this.cellPixelWidth = width;
+            this.cellPixelHeight = height;
+        }
+    }
+
+    /**
+     * 当前图像放置列表 (只读)，需与 append 在同一线程访问
+     */
+    public List<ImagePlacement> getImagePlacements() {
+        return java.util.Collections.unmodifiableList(imagePlacements);
+    }
+
+    /**
+     * 自启动以来从屏幕顶部滚出的行数，用于把图像的绝对行换算为屏幕行
+     */
+    public long getScrolledLineCount() {
+        return scrolledLineCount;
+    }
+
     private void eraseChars(int n) {
         if (n <= 0) return;
         int defStyle = encodeStyle(currentForeColor, currentBackColor, isBold, isUnderline, isInverse);
@@ -796,7 +1222,17 @@ public class TerminalEmulator {
             for (int i = 0; i < data.length(); i++) {
                 processChar(data.charAt(i));
             }
+            reportEcho();
+        }
+    }
+
+    // 屏幕有变化时交给延迟统计判断按键是否已回显，用于计算输入回显耗时
+    private void reportEcho() {
+        InputLatencyTracker tracker = latencyTracker;
+        if (tracker == null || !dirtyRegion.dirty) {
+            return;
         }
+        tracker.markScreenUpdate(cursorX, cursorY, charBuffer);
     }
 
 /**
@@ -1,21 +1,45 @@
 package com.orcterm.core.terminal;
 
+import android.net.Network;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 
+import com.orcterm.core.session.NetworkMonitor;
+import com.orcterm.core.transport.JumpHost;
 import com.orcterm.core.transport.LocalTransport;
+import com.orcterm.core.transport.NonBlockingTransport;
+import com.orcterm.core.transport.PortForwardSpec;
+import com.orcterm.core.transport.PortForwardStats;
+import com.orcterm.core.transport.RttSeries;
 import com.orcterm.core.transport.SshTransport;
 import com.orcterm.core.transport.TelnetTransport;
 import com.orcterm.core.transport.Transport;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import com.orcterm.core.transport.HostKeyVerifier;
 
 /**
@@ -38,13 +62,57 @@ public class TerminalSession {
         void onDataReceived(String data);
         /** 发生错误 */
         void onError(String message);
+
+        /**
+         * 连接意外中断，正在自动重连 (仿真器与回滚内容保留)
+         *
+         * @param attempt 已失败的尝试次数，0 表示刚检测到中断
+         * @param delayMs 距下次尝试的等待时间；-1 表示等待网络恢复
+         */
+        default void onReconnecting(int attempt, long delayMs) {
+        }
+
+        /** 自动重连成功，终端尺寸已同步 */
+        default void onReconnected() {
+        }
+    }
+
+    /**
+     * 粘贴进度监听器，回调在主线程执行
+     */
+    public interface PasteListener {
+        /** 已送入发送队列的字符数 */
+        void onProgress(int sentChars, int totalChars);
+        /** 粘贴结束；completed 为 false 表示被取消或连接已断开 */
+        void onFinished(boolean completed);
+    }
+
+    /**
+     * 进行中的粘贴，可随时取消
+     */
+    public static final class PasteTask {
+        private volatile boolean cancelled;
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
     }
 
     private volatile Transport transport;
+    // SSH 连接的读写由共享的 SessionReactor 线程负责；Telnet/本地连接仍使用读写线程
+    private volatile ReactorConnection reactorConnection;
     private TerminalEmulator emulator;
-    private final ExecutorService controlExecutor;
+    // 控制线程同时负责重连的退避调度
+    private final ScheduledExecutorService controlExecutor;
     private final ExecutorService readExecutor;
     private final ExecutorService writeExecutor;
+    private final ExecutorService pasteExecutor;
+    // 恢复转发需与服务器往返 (远程转发等待应答)，不占用控制线程，避免拖慢 resize 等操作
+    private final ExecutorService forwardExecutor;
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
     
     // 帧率限制相关字段
@@ -52,10 +120,32 @@ public class TerminalSession {
     private static final long MIN_FRAME_TIME = 16; // 60fps (1000ms / 60 = 16.67ms)
     private final StringBuilder pendingData = new StringBuilder();
     private boolean pendingUpdateScheduled = false;
-    private long lastKeepaliveTime = 0;
     private final StringBuilder readBuffer = new StringBuilder();
     private long lastReadDispatchTime = 0;
     private static final int READ_BATCH_SIZE = 2048;
+    private static final int READ_BUFFER_SIZE = 8192;
+    // 单次通道写入的合并上限
+    private static final int MAX_WRITE_BATCH = 16 * 1024;
+    // 粘贴按块编码入队，队列中未写出的字节超过上限时暂停，由通道窗口反压
+    private static final int PASTE_CHUNK_BYTES = 8 * 1024;
+    private static final int PASTE_MAX_IN_FLIGHT = 64 * 1024;
+    private static final long PASTE_PROGRESS_INTERVAL_MS = 100;
+    private static final String PASTE_START = "\u001b[200~";
+    private static final String PASTE_END = "\u001b[201~";
+    // 空闲时单次等待上限，到期后重新检查保活与连接状态
+    private static final int IDLE_WAIT_MS = 1000;
+    // 反应器上单个会话每轮最多读取的字节数，避免大量输出的会话独占反应器线程
+    private static final int REACTOR_READ_BUDGET = 64 * 1024;
+    // 写出受阻时的重试间隔：窗口可能由其他线程 (SFTP、转发) 的读取调整，socket 上不会再有事件
+    private static final long WRITE_RETRY_MS = 10;
+    // 会话线程空闲超过该时间后退出，有任务时重新创建
+    private static final long EXECUTOR_KEEP_ALIVE_SEC = 10;
+    // 自动重连：首次立即尝试，之后按指数退避，超过次数上限后放弃并断开
+    private static final long RECONNECT_BASE_DELAY_MS = 1000;
+    private static final long RECONNECT_MAX_DELAY_MS = 30_000;
+    private static final int RECONNECT_MAX_ATTEMPTS = 10;
+    // 重连后复位上一个 Shell 可能遗留的终端模式 (备用屏幕、括号粘贴、隐藏光标、文字属性)
+    private static final String RECONNECT_MODE_RESET = "\u001b[0m\u001b[?25h\u001b[?1049l\u001b[?2004l";
     
     // 创建带日志功能的自定义线程池
     private static final AtomicInteger THREAD_COUNTER = new AtomicInteger(1);
@@ -68,17 +158,79 @@ public class TerminalSession {
         }
     };
     
-    // 初始化带日志功能的线程池
+    // 初始化线程池：均为单线程且空闲时退出，打开的标签页不再各自占用常驻线程
     {
-        this.controlExecutor = Executors.newSingleThreadExecutor(TERMINAL_THREAD_FACTORY);
-        this.readExecutor = Executors.newSingleThreadExecutor(TERMINAL_THREAD_FACTORY);
-        this.writeExecutor = Executors.newSingleThreadExecutor(TERMINAL_THREAD_FACTORY);
+        ScheduledThreadPoolExecutor control = new ScheduledThreadPoolExecutor(1, TERMINAL_THREAD_FACTORY);
+        // 队列中仍有延迟任务 (重连退避) 时最后一个线程不会超时退出
+        control.setKeepAliveTime(EXECUTOR_KEEP_ALIVE_SEC, TimeUnit.SECONDS);
+        control.allowCoreThreadTimeOut(true);
+        this.controlExecutor = control;
+        this.readExecutor = newIdleExitExecutor();
+        this.writeExecutor = newIdleExitExecutor();
+        this.pasteExecutor = newIdleExitExecutor();
+        this.forwardExecutor = newIdleExitExecutor();
+    }
+
+    private static ExecutorService newIdleExitExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, EXECUTOR_KEEP_ALIVE_SEC, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), TERMINAL_THREAD_FACTORY);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
     private final AtomicBoolean isConnected = new AtomicBoolean(false);
+    // 输入队列：多个线程写入，写线程独占取出 (无锁)
+    private final ConcurrentLinkedQueue<byte[]> pendingWrites = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean writeScheduled = new AtomicBoolean(false);
+    // 已入队未写出的字节数，粘贴据此限流
+    private final AtomicLong queuedWriteBytes = new AtomicLong();
+    private final Object writeFlow = new Object();
+    private volatile boolean pasteWaiting = false;
     private final AtomicBoolean disconnectNotified = new AtomicBoolean(false);
+    // 重连状态：connectionGeneration 每次连接中断或关闭时递增，旧的读取循环据此退出
+    private final Object stateLock = new Object();
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final AtomicBoolean reconnecting = new AtomicBoolean(false);
+    private final AtomicInteger connectionGeneration = new AtomicInteger();
+    // 每次调度重连递增，过期的调度任务直接丢弃
+    private final AtomicInteger reconnectTicket = new AtomicInteger();
+    private volatile int reconnectAttempt;
+    private volatile boolean autoReconnect;
+    private volatile String reattachCommand;
+    // 建立当前连接时的默认网络，该网络丢失时立即重连
+    private volatile Network connectedNetwork;
+    private volatile int lastCols;
+    private volatile int lastRows;
+    private final NetworkMonitor.Listener networkListener = new NetworkMonitor.Listener() {
+        @Override
+        public void onDefaultNetworkAvailable(Network network) {
+            if (reconnecting.get()) {
+                Log.i(LOG_TAG, "network available -> reconnect now");
+                reconnectAttempt = 0;
+                scheduleReconnect(0);
+            }
+        }
+
+        @Override
+        public void onNetworkLost(Network network) {
+            Transport current = transport;
+            if (isConnected.get() && network.equals(connectedNetwork) && canAutoReconnect(current)) {
+                Log.i(LOG_TAG, "connection network lost -> reconnect");
+                try {
+                    controlExecutor.execute(() -> handleConnectionLost(current));
+                } catch (RejectedExecutionException ignored) {
+                    // Session already closed.
+                }
+            }
+        }
+    };
+    // 每次连接成功后自动恢复的转发
+    private final CopyOnWriteArrayList<PortForwardSpec> forwardSpecs = new CopyOnWriteArrayList<>();
     
     private final CopyOnWriteArrayList<SessionListener> listeners = new CopyOnWriteArrayList<>();
     private static final String LOG_TAG = "SSH_SESSION";
+    private final InputLatencyTracker latencyTracker = new InputLatencyTracker();
+    // 保活往返时间，跨重连累积
+    private final RttSeries rttSeries = new RttSeries();
     
     // 连接配置
     private String host;
@@ -88,6 +240,11 @@ public class TerminalSession {
     private int authType;
     private String keyPath;
     private HostKeyVerifier hostKeyVerifier;
+    private volatile boolean compressionEnabled;
+    private volatile String cipherPrefs;
+    private volatile String macPrefs;
+    private volatile String kexPrefs;
+    private volatile JumpHost jumpHost;
 
     public TerminalSession() {
     }
@@ -122,6 +279,50 @@ public class TerminalSession {
         this.hostKeyVerifier = verifier;
     }
 
+    /**
+     * 是否请求 SSH 传输压缩 (仅 SSH，需在 connect 前设置)
+     */
+    public void setCompressionEnabled(boolean enabled) {
+        this.compressionEnabled = enabled;
+    }
+
+    /**
+     * 设置加密/MAC/密钥交换算法偏好 (逗号分隔，null 表示默认；仅 SSH，需在 connect 前设置)
+     */
+    public void setMethodPreferences(String ciphers, String macs, String kex) {
+        this.cipherPrefs = ciphers;
+        this.macPrefs = macs;
+        this.kexPrefs = kex;
+    }
+
+    /**
+     * 经跳板机 (ProxyJump) 连接，null 表示直连 (仅 SSH，需在 connect 前设置)
+     */
+    public void setJumpHost(JumpHost jumpHost) {
+        this.jumpHost = jumpHost;
+    }
+
+    /**
+     * 连接意外中断时是否自动重连 (仅 SSH)；重连复用同一仿真器，回滚内容不丢失
+     */
+    public void setAutoReconnect(boolean enabled) {
+        this.autoReconnect = enabled;
+    }
+
+    /**
+     * 自动重连成功后发送的命令 (如恢复 tmux/screen 会话)，null 表示不发送
+     */
+    public void setReattachCommand(String command) {
+        this.reattachCommand = command;
+    }
+
+    /**
+     * 是否正在自动重连
+     */
+    public boolean isReconnecting() {
+        return reconnecting.get();
+    }
+
     /**
      * 发起连接
      *
@@ -157,15 +358,14 @@ public class TerminalSession {
         this.password = pass;
         this.authType = authType;
         this.keyPath = keyPath;
-        transport = new SshTransport();
+        SshTransport attached = new SshTransport();
         if (hostKeyVerifier != null) {
-            ((SshTransport) transport).setHostKeyVerifier(hostKeyVerifier);
+            attached.setHostKeyVerifier(hostKeyVerifier);
+        }
+        attached.attachExistingHandle(handle, 80, 24);
+        if (!onTransportUp(attached, false)) {
+            attached.disconnect();
         }
-        ((SshTransport) transport).attachExistingHandle(handle, 80, 24);
-        isConnected.set(true);
-        disconnectNotified.set(false);
-        notifyConnected();
-        startReadingAsync();
     }
 
     /**
@@ -175,6 +375,9 @@ public class TerminalSession {
      * @param rows 行数
      */
     public void resize(int cols, int rows) {
+        // 记录最新尺寸，重连后据此同步远端 PTY
+        lastCols = cols;
+        lastRows = rows;
         if (!isConnected.get()) return;
         Transport current = transport;
         if (current == null) return;
@@ -201,43 +404,201 @@ public class TerminalSession {
     private void connectInternal() {
         Log.i(LOG_TAG, "connectInternal start host=" + host + " port=" + port);
         try {
-            // 根据 Host 和 Port 判断协议类型
-            if ("local".equalsIgnoreCase(host) || "localhost".equalsIgnoreCase(host) && (port == 0 || port == -1)) {
-                 transport = new LocalTransport();
-                 Log.i(LOG_TAG, "transport=local");
-            } else if (port == 23) {
-                 transport = new TelnetTransport();
-                 Log.i(LOG_TAG, "transport=telnet");
-            } else {
-                 transport = new SshTransport();
-                 if (hostKeyVerifier != null) {
-                     ((SshTransport) transport).setHostKeyVerifier(hostKeyVerifier);
-                 }
-                 Log.i(LOG_TAG, "transport=ssh");
-            }
-
-            transport.connect(host, port, username, password, authType, keyPath);
-            Log.i(LOG_TAG, "transport connected");
-            
+            Transport created = openTransport();
+            if (!onTransportUp(created, false)) {
+                created.disconnect();
+            }
+        } catch (Exception e) {
+            Log.e(LOG_TAG, "connect error: " + e.getMessage(), e);
+            notifyError("Error: " + e.getMessage());
+            disconnect();
+        }
+    }
+
+    /**
+     * 按配置创建并连接 Transport，失败时已释放
+     */
+    private Transport openTransport() throws Exception {
+        Transport created;
+        // 根据 Host 和 Port 判断协议类型
+        if ("local".equalsIgnoreCase(host) || "localhost".equalsIgnoreCase(host) && (port == 0 || port == -1)) {
+             created = new LocalTransport();
+             Log.i(LOG_TAG, "transport=local");
+        } else if (port == 23) {
+             created = new TelnetTransport();
+             Log.i(LOG_TAG, "transport=telnet");
+        } else {
+             SshTransport ssh = new SshTransport();
+             if (hostKeyVerifier != null) {
+                 ssh.setHostKeyVerifier(hostKeyVerifier);
+             }
+             ssh.setCompressionEnabled(compressionEnabled);
+             ssh.setMethodPreferences(cipherPrefs, macPrefs, kexPrefs);
+             ssh.setJumpHost(jumpHost);
+             ssh.setRttSeries(rttSeries);
+             created = ssh;
+             Log.i(LOG_TAG, "transport=ssh");
+        }
+        try {
+            created.connect(host, port, username, password, authType, keyPath);
+        } catch (Exception e) {
+            try {
+                created.disconnect();
+            } catch (Exception ignored) {
+                // 连接失败时的清理错误不覆盖原始异常
+            }
+            throw e;
+        }
+        Log.i(LOG_TAG, "transport connected");
+        return created;
+    }
+
+    /**
+     * 启用已连接的 Transport：同步终端尺寸、启动读取循环并恢复转发
+     *
+     * @return 会话已关闭时返回 false，调用方负责释放 Transport
+     */
+    private boolean onTransportUp(Transport created, boolean reconnected) {
+        synchronized (stateLock) {
+            if (closed.get()) {
+                return false;
+            }
+            transport = created;
+            reactorConnection = created instanceof NonBlockingTransport
+                    ? new ReactorConnection((NonBlockingTransport) created, connectionGeneration.get())
+                    : null;
+            reconnecting.set(false);
             isConnected.set(true);
             disconnectNotified.set(false);
-            Log.i(LOG_TAG, "state=connected");
+        }
+        reconnectAttempt = 0;
+        NetworkMonitor monitor = NetworkMonitor.getInstance();
+        connectedNetwork = monitor.getDefaultNetwork();
+        if (autoReconnect) {
+            monitor.addListener(networkListener);
+        }
+        Log.i(LOG_TAG, "state=connected reconnected=" + reconnected);
+        int cols = lastCols;
+        int rows = lastRows;
+        if (cols > 0 && rows > 0) {
+            created.resize(cols, rows);
+        }
+        if (reconnected) {
+            notifyData(RECONNECT_MODE_RESET);
+            notifyReconnected();
+            String command = reattachCommand;
+            if (command != null && !command.isEmpty()) {
+                enqueueWrite((command + "\r").getBytes(StandardCharsets.UTF_8));
+            }
+        } else {
             notifyConnected();
-            
-            // 启动读取循环
-            startReadingAsync();
+        }
+        // 启动读取循环
+        startReadingAsync(created);
+        restoreForwardsAsync();
+        return true;
+    }
 
+    private boolean canAutoReconnect(Transport active) {
+        return autoReconnect && !closed.get() && active instanceof SshTransport;
+    }
+
+    /**
+     * 连接意外中断：释放失效的 Transport，保留仿真器与监听器，转入重连状态
+     */
+    private void handleConnectionLost(Transport lost) {
+        ReactorConnection connection;
+        synchronized (stateLock) {
+            if (closed.get() || transport != lost || !isConnected.get()) {
+                return;
+            }
+            connectionGeneration.incrementAndGet();
+            isConnected.set(false);
+            transport = null;
+            connection = reactorConnection;
+            reactorConnection = null;
+            reconnecting.set(true);
+        }
+        reconnectAttempt = 0;
+        pendingWrites.clear();
+        queuedWriteBytes.set(0);
+        // 反应器不再 poll 该句柄后才能释放
+        detachFromReactor(connection);
+        try {
+            lost.disconnect();
         } catch (Exception e) {
-            Log.e(LOG_TAG, "connect error: " + e.getMessage(), e);
-            notifyError("Error: " + e.getMessage());
-            disconnect();
+            Log.w(LOG_TAG, "disconnect lost transport error: " + e.getMessage());
         }
+        notifyReconnecting(0, 0);
+        scheduleReconnect(0);
     }
 
-    private void startReadingAsync() {
+    private void scheduleReconnect(long delayMs) {
+        int ticket = reconnectTicket.incrementAndGet();
+        try {
+            controlExecutor.schedule(() -> attemptReconnect(ticket), delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {
+            // Session already closed.
+        }
+    }
+
+    private void attemptReconnect(int ticket) {
+        if (ticket != reconnectTicket.get() || closed.get() || !reconnecting.get()) {
+            return;
+        }
+        if (!NetworkMonitor.getInstance().isOnline()) {
+            // 无网络时不消耗重试次数，等待默认网络恢复的回调
+            Log.i(LOG_TAG, "reconnect waiting for network");
+            notifyReconnecting(reconnectAttempt, -1);
+            return;
+        }
+        int attempt = ++reconnectAttempt;
+        Log.i(LOG_TAG, "reconnect attempt " + attempt);
+        Transport created;
+        try {
+            created = openTransport();
+        } catch (Exception e) {
+            Log.w(LOG_TAG, "reconnect attempt " + attempt + " failed: " + e.getMessage());
+            if (closed.get() || ticket != reconnectTicket.get()) {
+                // 会话已关闭，或尝试期间网络切换已安排了新的尝试
+                return;
+            }
+            if (attempt >= RECONNECT_MAX_ATTEMPTS) {
+                notifyError("Reconnect failed: " + e.getMessage());
+                disconnect();
+                return;
+            }
+            long delay = Math.min(RECONNECT_MAX_DELAY_MS, RECONNECT_BASE_DELAY_MS << (attempt - 1));
+            notifyReconnecting(attempt, delay);
+            scheduleReconnect(delay);
+            return;
+        }
+        if (!onTransportUp(created, true)) {
+            created.disconnect();
+        }
+    }
+
+    private void startReadingAsync(Transport active) {
+        ReactorConnection connection = reactorConnection;
+        if (connection != null && connection.active == active) {
+            Log.i(LOG_TAG, "attach to reactor");
+            try {
+                synchronized (stateLock) {
+                    // 注册前连接可能已中断或关闭，句柄随时会被释放
+                    if (reactorConnection == connection) {
+                        SessionReactor.getInstance().register(connection);
+                    }
+                }
+            } catch (IllegalStateException e) {
+                notifyError("Read error: " + e.getMessage());
+                disconnect();
+            }
+            return;
+        }
         Log.i(LOG_TAG, "start reading loop");
+        int generation = connectionGeneration.get();
         try {
-            readExecutor.execute(this::startReading);
+            readExecutor.execute(() -> startReading(active, generation));
         } catch (RejectedExecutionException e) {
             notifyError("Read error: Session is closed");
             disconnect();
@@ -248,69 +609,120 @@ public class TerminalSession {
      * 开始读取数据循环
      * 持续从 Transport 读取数据并通知监听器。
      */
-    private void startReading() {
+    private void startReading(Transport active, int generation) {
         Log.i(LOG_TAG, "read loop started");
-        byte[] buffer = new byte[8192];
-        while (isConnected.get()) {
+        // direct 缓冲区由 SSH 传输层零拷贝写入；解码器保留跨读取边界的不完整 UTF-8 序列
+        ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        CharBuffer chars = CharBuffer.allocate(READ_BUFFER_SIZE);
+        CharsetDecoder decoder = newReadDecoder();
+        boolean lost = false;
+        while (isConnected.get() && generation == connectionGeneration.get()) {
             try {
-                int read = transport.read(buffer);
+                int read = active.read(buffer);
                 if (read > 0) {
-                    readBuffer.append(new String(buffer, 0, read));
-                    long now = System.currentTimeMillis();
-                    if (readBuffer.length() >= READ_BATCH_SIZE || now - lastReadDispatchTime >= MIN_FRAME_TIME) {
-                        String data = readBuffer.toString();
-                        readBuffer.setLength(0);
-                        lastReadDispatchTime = now;
-                        notifyData(data);
-                    }
+                    appendReceived(buffer, chars, decoder);
+                } else if (read < 0) {
+                    // 流结束：远端 Shell 退出或本地进程结束
+                    Log.i(LOG_TAG, "read EOF");
+                    break;
                 } else {
-                     if (readBuffer.length() > 0) {
-                         long now = System.currentTimeMillis();
-                         if (now - lastReadDispatchTime >= MIN_FRAME_TIME) {
-                             String data = readBuffer.toString();
-                             readBuffer.setLength(0);
-                             lastReadDispatchTime = now;
-                             notifyData(data);
-                         }
-                     }
-                     // 非阻塞传输没有数据，稍作休眠
-                     try {
-                         Thread.sleep(10); 
-                     } catch (InterruptedException e) {
-                         Log.d(LOG_TAG, "read loop interrupted");
-                         break;
-                     }
-                }
-                if (transport instanceof SshTransport) {
-                    SshTransport ssh = (SshTransport) transport;
-                    int intervalSec = ssh.getKeepaliveIntervalSec();
-                    if (intervalSec > 0) {
-                        long now = System.currentTimeMillis();
-                        if (now - lastKeepaliveTime >= intervalSec * 1000L) {
-                            ssh.sendKeepalive();
-                            lastKeepaliveTime = now;
-                        }
-                    }
+                     dispatchReadBufferIfDue(System.currentTimeMillis());
+                     // 非阻塞传输没有数据，在内核中等待 socket 可读 (断开时由 wakeup 唤醒)
+                     active.waitForData(computeWaitTimeoutMs());
                 }
             } catch (Exception e) {
                 Log.e(LOG_TAG, "read error: " + e.getMessage(), e);
-                if (isConnected.get()) {
+                lost = isConnected.get() && generation == connectionGeneration.get();
+                if (lost && !canAutoReconnect(active)) {
                     notifyError("Read error: " + e.getMessage());
                 }
                 break;
             }
         }
+        finishReading(active, generation, lost);
+    }
+
+    /**
+     * 读取结束：分发剩余数据，连接意外中断时转入重连，否则关闭会话
+     */
+    private void finishReading(Transport active, int generation, boolean lost) {
         if (readBuffer.length() > 0) {
             String data = readBuffer.toString();
             readBuffer.setLength(0);
             notifyData(data);
         }
+        if (generation != connectionGeneration.get()) {
+            // 连接已转入重连或会话已关闭
+            Log.i(LOG_TAG, "read loop exit (superseded)");
+            return;
+        }
+        if (lost && canAutoReconnect(active)) {
+            Log.i(LOG_TAG, "read loop exit -> reconnect");
+            handleConnectionLost(active);
+            return;
+        }
         Log.i(LOG_TAG, "read loop exit -> disconnect");
         disconnect();
     }
 
+    private static CharsetDecoder newReadDecoder() {
+        return StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * 解码刚读入 buffer 的数据并追加到读取缓冲，攒够一批或到达帧间隔时分发
+     */
+    private void appendReceived(ByteBuffer buffer, CharBuffer chars, CharsetDecoder decoder) {
+        latencyTracker.markReceived();
+        buffer.flip();
+        decoder.decode(buffer, chars, false);
+        buffer.compact();
+        chars.flip();
+        readBuffer.append(chars);
+        chars.clear();
+        long now = System.currentTimeMillis();
+        if (readBuffer.length() >= READ_BATCH_SIZE || now - lastReadDispatchTime >= MIN_FRAME_TIME) {
+            dispatchReadBuffer(now);
+        }
+    }
+
+    private void dispatchReadBufferIfDue(long now) {
+        if (readBuffer.length() > 0 && now - lastReadDispatchTime >= MIN_FRAME_TIME) {
+            dispatchReadBuffer(now);
+        }
+    }
+
+    private void dispatchReadBuffer(long now) {
+        String data = readBuffer.toString();
+        readBuffer.setLength(0);
+        lastReadDispatchTime = now;
+        notifyData(data);
+    }
+
+    /**
+     * 下次需要处理读取缓冲的时间点：待分发数据按帧间隔，其余按空闲上限
+     */
+    private long nextServiceTime(long now) {
+        long next = now + IDLE_WAIT_MS;
+        if (readBuffer.length() > 0) {
+            next = Math.min(next, lastReadDispatchTime + MIN_FRAME_TIME);
+        }
+        return next;
+    }
+
+    /**
+     * 计算读取循环的等待超时
+     */
+    private int computeWaitTimeoutMs() {
+        long now = System.currentTimeMillis();
+        return (int) Math.max(1, nextServiceTime(now) - now);
+    }
+
     /**
      * 发送数据
+     * 按 UTF-8 编码后放入输入队列，由唯一的写线程 (SSH 为反应器线程) 合并连续输入 (粘贴、按键连发、宏) 后一次写入通道。
      *
      * @param data 要发送的字符串数据
      */
@@ -319,22 +731,206 @@ public class TerminalSession {
             Log.w("TerminalSession", "连接未就绪或transport为null，跳过发送");
             return;
         }
+        if (data == null || data.isEmpty()) {
+            return;
+        }
+        TerminalEmulator target = emulator;
+        if (target != null) {
+            latencyTracker.markInput(data, target.getCursorX(), target.getCursorY());
+        }
+        enqueueWrite(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void enqueueWrite(byte[] bytes) {
+        queuedWriteBytes.addAndGet(bytes.length);
+        pendingWrites.offer(bytes);
+        ReactorConnection connection = reactorConnection;
+        if (connection != null) {
+            // 由反应器线程在 socket 可写时写出
+            SessionReactor.getInstance().signal(connection);
+            return;
+        }
+        // 写线程空闲时才提交任务，其余输入由正在运行的任务一并取走
+        if (writeScheduled.compareAndSet(false, true)) {
+            try {
+                writeExecutor.execute(this::drainWrites);
+            } catch (RejectedExecutionException ignored) {
+                // Session already closed.
+                pendingWrites.clear();
+                queuedWriteBytes.set(0);
+            }
+        }
+    }
+
+    /**
+     * 流式粘贴
+     * 文本按块编码后送入输入队列，队列积压超过 PASTE_MAX_IN_FLIGHT 时等待写线程 (受通道窗口约束) 追上，
+     * 大段粘贴不会一次性占用内存，也不会阻塞界面和读取线程。
+     * 远端开启括号粘贴模式 (DECSET 2004) 时以 ESC[200~ / ESC[201~ 包裹内容。
+     *
+     * @param text     要粘贴的文本 (换行已按终端设置转换)
+     * @param listener 进度监听器，可为 null
+     * @return 可取消的粘贴任务
+     */
+    public PasteTask paste(String text, PasteListener listener) {
+        PasteTask task = new PasteTask();
+        if (text == null || text.isEmpty() || !isConnected.get() || transport == null) {
+            if (listener != null) {
+                mainHandler.post(() -> listener.onFinished(false));
+            }
+            return task;
+        }
         try {
-            writeExecutor.execute(() -> {
-                Log.v(LOG_TAG, "write bytes=" + data.length());
-                try {
-                    Transport active = transport;
-                    if (!isConnected.get() || active == null) {
-                        return;
-                    }
-                    active.write(data.getBytes());
-                } catch (Exception e) {
-                    Log.e(LOG_TAG, "write error: " + e.getMessage(), e);
-                    notifyError("Write error: " + e.getMessage());
+            pasteExecutor.execute(() -> runPaste(text, task, listener));
+        } catch (RejectedExecutionException e) {
+            task.cancel();
+            if (listener != null) {
+                mainHandler.post(() -> listener.onFinished(false));
+            }
+        }
+        return task;
+    }
+
+    private void runPaste(String text, PasteTask task, PasteListener listener) {
+        TerminalEmulator current = emulator;
+        boolean bracketed = current != null && current.isBracketedPasteMode();
+        // 内容中的结束标记会让远端提前退出粘贴状态，予以剔除
+        String content = bracketed ? text.replace(PASTE_END, "") : text;
+        int total = content.length();
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer in = CharBuffer.wrap(content);
+        ByteBuffer out = ByteBuffer.allocate(PASTE_CHUNK_BYTES);
+        long lastProgress = 0;
+        boolean completed = false;
+
+        if (bracketed) {
+            enqueueWrite(PASTE_START.getBytes(StandardCharsets.UTF_8));
+        }
+        try {
+            while (true) {
+                if (task.isCancelled() || !isConnected.get()) {
+                    break;
                 }
+                CoderResult result = encoder.encode(in, out, true);
+                if (result.isUnderflow()) {
+                    encoder.flush(out);
+                }
+                out.flip();
+                if (out.hasRemaining()) {
+                    byte[] chunk = new byte[out.remaining()];
+                    out.get(chunk);
+                    enqueueWrite(chunk);
+                }
+                out.clear();
+                long now = System.currentTimeMillis();
+                if (listener != null && now - lastProgress >= PASTE_PROGRESS_INTERVAL_MS) {
+                    lastProgress = now;
+                    int sent = in.position();
+                    mainHandler.post(() -> listener.onProgress(sent, total));
+                }
+                if (result.isUnderflow()) {
+                    completed = true;
+                    break;
+                }
+                awaitWriteBacklog(task);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (bracketed && isConnected.get()) {
+            // 取消时同样发送结束标记，避免远端停留在粘贴状态
+            enqueueWrite(PASTE_END.getBytes(StandardCharsets.UTF_8));
+        }
+        if (listener != null) {
+            boolean done = completed;
+            mainHandler.post(() -> {
+                if (done) {
+                    listener.onProgress(total, total);
+                }
+                listener.onFinished(done);
             });
-        } catch (RejectedExecutionException ignored) {
-            // Session already closed.
+        }
+    }
+
+    private void awaitWriteBacklog(PasteTask task) throws InterruptedException {
+        if (queuedWriteBytes.get() <= PASTE_MAX_IN_FLIGHT) {
+            return;
+        }
+        pasteWaiting = true;
+        try {
+            synchronized (writeFlow) {
+                while (queuedWriteBytes.get() > PASTE_MAX_IN_FLIGHT && !task.isCancelled() && isConnected.get()) {
+                    writeFlow.wait(IDLE_WAIT_MS);
+                }
+            }
+        } finally {
+            pasteWaiting = false;
+        }
+    }
+
+    /**
+     * 写线程：取空输入队列，合并为不超过 MAX_WRITE_BATCH 的块写入
+     */
+    private void drainWrites() {
+        byte[] batch = new byte[MAX_WRITE_BATCH];
+        while (true) {
+            byte[] chunk;
+            while ((chunk = pendingWrites.poll()) != null) {
+                Transport active = transport;
+                if (!isConnected.get() || active == null) {
+                    pendingWrites.clear();
+                    queuedWriteBytes.set(0);
+                    break;
+                }
+                int length = 0;
+                do {
+                    if (length > 0 && length + chunk.length > MAX_WRITE_BATCH) {
+                        writeToTransport(active, java.util.Arrays.copyOf(batch, length));
+                        length = 0;
+                    }
+                    if (chunk.length >= MAX_WRITE_BATCH) {
+                        // 大块输入直接写出，不再复制
+                        writeToTransport(active, chunk);
+                    } else {
+                        System.arraycopy(chunk, 0, batch, length, chunk.length);
+                        length += chunk.length;
+                    }
+                } while ((chunk = pendingWrites.poll()) != null);
+                if (length > 0) {
+                    writeToTransport(active, java.util.Arrays.copyOf(batch, length));
+                }
+            }
+            writeScheduled.set(false);
+            // 生产者可能在置位前入队但看到任务仍在运行，重新检查以免遗漏
+            if (pendingWrites.isEmpty() || !writeScheduled.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    private void writeToTransport(Transport active, byte[] data) {
+        Log.v(LOG_TAG, "write bytes=" + data.length);
+        try {
+            active.write(data);
+            latencyTracker.markSent();
+        } catch (Exception e) {
+            Log.e(LOG_TAG, "write error: " + e.getMessage(), e);
+            notifyError("Write error: " + e.getMessage());
+        }
+        releaseQueuedBytes(data.length);
+    }
+
+    /**
+     * 扣减已写出 (或已丢弃) 的字节数，积压回落时唤醒等待中的粘贴
+     */
+    private void releaseQueuedBytes(int length) {
+        long queued = queuedWriteBytes.addAndGet(-length);
+        if (pasteWaiting && queued <= PASTE_MAX_IN_FLIGHT) {
+            synchronized (writeFlow) {
+                writeFlow.notifyAll();
+            }
         }
     }
     
@@ -365,15 +961,145 @@ public class TerminalSession {
         }
     }
 
+    /**
+     * 开启动态端口转发 (SOCKS5 代理，仅 SSH)
+     *
+     * @param localPort 本地端口
+     * @throws Exception 如果不支持转发或开启失败
+     */
+    public void startDynamicForwarding(int localPort) throws Exception {
+        if (transport instanceof SshTransport) {
+            ((SshTransport) transport).startDynamicForwarding(localPort);
+        } else {
+            throw new UnsupportedOperationException("Only SSH supports port forwarding");
+        }
+    }
+
+    /**
+     * 按配置开启一条转发 (仅 SSH)；远程转发需等待服务器应答，不要在主线程调用
+     *
+     * @throws Exception 如果不支持转发或开启失败
+     */
+    public void startForwarding(PortForwardSpec spec) throws Exception {
+        Transport current = transport;
+        if (current instanceof SshTransport) {
+            ((SshTransport) current).startForwarding(spec);
+        } else {
+            throw new UnsupportedOperationException("Only SSH supports port forwarding");
+        }
+    }
+
+    /**
+     * 设置连接成功后自动恢复的转发 (替换原有配置)
+     */
+    public void setForwardSpecs(List<PortForwardSpec> specs) {
+        forwardSpecs.clear();
+        if (specs != null) {
+            forwardSpecs.addAllAbsent(specs);
+        }
+    }
+
+    /**
+     * 记住一条转发，之后每次重连自动恢复
+     */
+    public void addForwardSpec(PortForwardSpec spec) {
+        forwardSpecs.addIfAbsent(spec);
+    }
+
+    /**
+     * 不再自动恢复指定转发
+     *
+     * @param key {@link PortForwardSpec#getKey()}
+     */
+    public void removeForwardSpec(String key) {
+        for (PortForwardSpec spec : forwardSpecs) {
+            if (spec.getKey().equals(key)) {
+                forwardSpecs.remove(spec);
+            }
+        }
+    }
+
+    /**
+     * 自动恢复的转发中与 key 对应的配置，没有时返回 null
+     */
+    public PortForwardSpec findForwardSpec(String key) {
+        for (PortForwardSpec spec : forwardSpecs) {
+            if (spec.getKey().equals(key)) {
+                return spec;
+            }
+        }
+        return null;
+    }
+
+    private void restoreForwardsAsync() {
+        if (forwardSpecs.isEmpty() || !(transport instanceof SshTransport)) {
+            return;
+        }
+        try {
+            forwardExecutor.execute(this::restoreForwards);
+        } catch (RejectedExecutionException ignored) {
+            // Session already closed.
+        }
+    }
+
+    private void restoreForwards() {
+        for (PortForwardSpec spec : forwardSpecs) {
+            Transport current = transport;
+            if (!isConnected.get() || !(current instanceof SshTransport)) {
+                return;
+            }
+            try {
+                ((SshTransport) current).startForwarding(spec);
+                Log.i(LOG_TAG, "forward restored " + spec);
+            } catch (Exception e) {
+                // 端口被占用或服务器拒绝时跳过该条，不影响其他转发与终端
+                Log.w(LOG_TAG, "restore forward " + spec + " failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 端口转发流量统计，非 SSH 会话返回空列表
+     */
+    public List<PortForwardStats> getForwardStats() {
+        Transport current = transport;
+        if (current instanceof SshTransport) {
+            return ((SshTransport) current).getForwardStats();
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * 停止单条端口转发
+     */
+    public void stopForward(String key) {
+        Transport current = transport;
+        if (current instanceof SshTransport) {
+            ((SshTransport) current).stopForward(key);
+        }
+    }
+
     /**
      * 断开连接
      * 关闭 Transport 并释放资源。
      */
     public void disconnect() {
-        isConnected.set(false);
+        Transport current;
+        ReactorConnection connection;
+        synchronized (stateLock) {
+            closed.set(true);
+            reconnecting.set(false);
+            connectionGeneration.incrementAndGet();
+            isConnected.set(false);
+            current = transport;
+            transport = null;
+            connection = reactorConnection;
+            reactorConnection = null;
+        }
+        reconnectTicket.incrementAndGet();
+        NetworkMonitor.getInstance().removeListener(networkListener);
         Log.v(LOG_TAG, "disconnect requested");
-        Transport current = transport;
-        transport = null;
+        detachFromReactor(connection);
         if (current != null) {
             try {
                 current.disconnect();
@@ -381,6 +1107,8 @@ public class TerminalSession {
                 Log.w(LOG_TAG, "disconnect transport error: " + e.getMessage());
             }
         }
+        shutdownExecutor(forwardExecutor);
+        shutdownExecutor(pasteExecutor);
         shutdownExecutor(writeExecutor);
         shutdownExecutor(readExecutor);
         shutdownExecutor(controlExecutor);
@@ -389,12 +1117,170 @@ public class TerminalSession {
         }
     }
 
+    /**
+     * 从反应器注销；在其他线程调用时等待反应器不再使用该句柄
+     */
+    private void detachFromReactor(ReactorConnection connection) {
+        if (connection != null) {
+            SessionReactor.getInstance().unregister(connection);
+        }
+    }
+
     private void shutdownExecutor(ExecutorService target) {
         if (!target.isShutdown()) {
             target.shutdownNow();
         }
     }
 
+    /**
+     * SSH 连接或本地 PTY 在共享反应器上的读写
+     * 读取、解码、分发与输入队列的写出都在反应器线程上以非阻塞方式进行，每个连接 (每代) 一个实例。
+     */
+    private final class ReactorConnection extends SessionReactor.Client {
+        final NonBlockingTransport active;
+        private final int generation;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        private final CharBuffer chars = CharBuffer.allocate(READ_BUFFER_SIZE);
+        private final CharsetDecoder decoder = newReadDecoder();
+        private final byte[] batch = new byte[MAX_WRITE_BATCH];
+        // 正在写出的块：暂不可写时保留，之后以相同数据继续
+        private byte[] outgoing;
+        private int outgoingOffset;
+        // 下次保活的时间点；会话有事件时也会推进，以便及时收取应答
+        private long keepaliveDueAt;
+
+        ReactorConnection(NonBlockingTransport active, int generation) {
+            this.active = active;
+            this.generation = generation;
+            // 本地 PTY 没有保活
+            this.keepaliveDueAt = active instanceof SshTransport ? 0 : Long.MAX_VALUE;
+        }
+
+        @Override
+        long handle() {
+            return active.getHandle();
+        }
+
+        @Override
+        int fd() {
+            return active.getPollFd();
+        }
+
+        @Override
+        long onEvent(boolean ready, long now) {
+            if (!isConnected.get() || generation != connectionGeneration.get()) {
+                return detach(false);
+            }
+            boolean writeBlocked;
+            try {
+                if (ready && !readAvailable()) {
+                    // 流结束：远端 Shell 或本地进程退出
+                    Log.i(LOG_TAG, "read EOF");
+                    return detach(false);
+                }
+                dispatchReadBufferIfDue(System.currentTimeMillis());
+                writeBlocked = !flushWrites();
+                if (active instanceof SshTransport && (ready || now >= keepaliveDueAt)) {
+                    // 对端失联 (连续未应答) 时抛出异常，按连接中断处理
+                    long delay = ((SshTransport) active).serviceKeepalive();
+                    keepaliveDueAt = delay < 0 ? Long.MAX_VALUE : System.currentTimeMillis() + delay;
+                }
+            } catch (Exception e) {
+                Log.e(LOG_TAG, "read error: " + e.getMessage(), e);
+                boolean lost = isConnected.get() && generation == connectionGeneration.get();
+                if (lost && !canAutoReconnect(active)) {
+                    notifyError("Read error: " + e.getMessage());
+                }
+                return detach(lost);
+            }
+            long next = Math.min(nextServiceTime(System.currentTimeMillis()), keepaliveDueAt);
+            return writeBlocked ? Math.min(next, now + WRITE_RETRY_MS) : next;
+        }
+
+        /**
+         * 结束本连接：反应器线程上只分发剩余数据并注销 (返回 DETACH)
+         * 释放传输层可能等待网络应答或子进程退出 (PTY 关闭最长 200ms 并 waitpid)，交给控制线程执行，
+         * 以免阻塞共享反应器上的其他会话；控制线程注销时会等待反应器不再使用该句柄。
+         */
+        private long detach(boolean lost) {
+            if (readBuffer.length() > 0) {
+                dispatchReadBuffer(System.currentTimeMillis());
+            }
+            try {
+                controlExecutor.execute(() -> finishReading(active, generation, lost));
+            } catch (RejectedExecutionException e) {
+                // 会话已关闭，disconnect() 已释放传输层
+                Log.v(LOG_TAG, "reactor detach after close");
+            }
+            return SessionReactor.DETACH;
+        }
+
+        /**
+         * @return 远端已关闭通道时返回 false
+         */
+        private boolean readAvailable() throws Exception {
+            int total = 0;
+            while (total < REACTOR_READ_BUDGET) {
+                int read = active.read(buffer);
+                if (read < 0) {
+                    return false;
+                }
+                if (read == 0) {
+                    break;
+                }
+                total += read;
+                appendReceived(buffer, chars, decoder);
+            }
+            return true;
+        }
+
+        /**
+         * 写出输入队列直到队列为空或暂不可写
+         *
+         * @return 队列已写空时返回 true
+         */
+        private boolean flushWrites() throws IOException {
+            while (true) {
+                if (outgoing == null) {
+                    outgoing = pollWriteBatch();
+                    outgoingOffset = 0;
+                    if (outgoing == null) {
+                        return true;
+                    }
+                }
+                int written = active.writeNonBlocking(outgoing, outgoingOffset, outgoing.length - outgoingOffset);
+                if (written == 0) {
+                    return false;
+                }
+                outgoingOffset += written;
+                releaseQueuedBytes(written);
+                if (outgoingOffset == outgoing.length) {
+                    outgoing = null;
+                    latencyTracker.markSent();
+                }
+            }
+        }
+
+        /**
+         * 取出输入队列头部，合并为不超过 MAX_WRITE_BATCH 的块；大块输入直接返回，不再复制
+         */
+        private byte[] pollWriteBatch() {
+            byte[] chunk = pendingWrites.poll();
+            if (chunk == null || chunk.length >= MAX_WRITE_BATCH) {
+                return chunk;
+            }
+            int length = chunk.length;
+            System.arraycopy(chunk, 0, batch, 0, length);
+            byte[] next;
+            while ((next = pendingWrites.peek()) != null && length + next.length <= MAX_WRITE_BATCH) {
+                pendingWrites.poll();
+                System.arraycopy(next, 0, batch, length, next.length);
+                length += next.length;
+            }
+            return Arrays.copyOf(batch, length);
+        }
+    }
+
     // --- 通知辅助方法 ---
 
     private void notifyConnected() {
@@ -406,6 +1292,24 @@ public class TerminalSession {
         });
     }
 
+    private void notifyReconnecting(int attempt, long delayMs) {
+        if (listeners.isEmpty()) return;
+        mainHandler.post(() -> {
+            for (SessionListener l : listeners) {
+                l.onReconnecting(attempt, delayMs);
+            }
+        });
+    }
+
+    private void notifyReconnected() {
+        if (listeners.isEmpty()) return;
+        mainHandler.post(() -> {
+            for (SessionListener l : listeners) {
+                l.onReconnected();
+            }
+        });
+    }
+
     private void notifyDisconnected() {
         if (listeners.isEmpty()) return;
         mainHandler.post(() -> {
@@ -543,11 +1447,39 @@ public class TerminalSession {
         return password;
     }
 
+    /**
+     * 绑定渲染该会话输出的仿真器，同时接入输入回显延迟统计
+     */
     public void setEmulator(TerminalEmulator emulator) {
+        TerminalEmulator previous = this.emulator;
+        if (previous != null && previous != emulator) {
+            previous.setInputLatencyTracker(null);
+        }
         this.emulator = emulator;
+        if (emulator != null) {
+            emulator.setInputLatencyTracker(latencyTracker);
+        }
     }
 
     public TerminalEmulator getEmulator() {
         return emulator;
     }
+
+    /**
+     * 保活往返时间序列 (需开启心跳回包)，跨重连累积
+     */
+    public RttSeries getRttSeries() {
+        return rttSeries;
+    }
+
+    /**
+     * 获取输入回显延迟统计 (最近 {@link InputLatencyTracker#WINDOW_SIZE} 次按键)
+     */
+    public InputLatencyTracker.Snapshot getInputLatencyStats() {
+        return latencyTracker.snapshot();
+    }
+
+    public void resetInputLatencyStats() {
+        latencyTracker.reset();
+    }
 }
@@ -2,9 +2,12 @@ package com.orcterm.data;
 
 import android.content.Context;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -12,23 +15,71 @@ import java.util.concurrent.Executors;
 /**
  * 应用数据库类，基于 Room
  */
-@Database(entities = {HostEntity.class}, version = 4, exportSchema = false)
+@Database(entities = {HostEntity.class, PortForwardEntity.class}, version = 9, exportSchema = false)
 public abstract class AppDatabase extends RoomDatabase {
 
     public abstract HostDao hostDao();
 
+    public abstract PortForwardDao portForwardDao();
+
     private static volatile AppDatabase INSTANCE;
     private static final int NUMBER_OF_THREADS = 4;
     public static final ExecutorService databaseWriteExecutor =
             Executors.newFixedThreadPool(NUMBER_OF_THREADS);
 
+    // 4 -> 5: 本地预测回显，已有主机默认自适应
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE hosts ADD COLUMN predictiveEcho INTEGER NOT NULL DEFAULT 1");
+        }
+    };
+
+    // 5 -> 6: SSH 传输压缩
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE hosts ADD COLUMN compression INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    // 6 -> 7: 算法偏好，null 为默认
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE hosts ADD COLUMN cipherPrefs TEXT");
+            db.execSQL("ALTER TABLE hosts ADD COLUMN macPrefs TEXT");
+            db.execSQL("ALTER TABLE hosts ADD COLUMN kexPrefs TEXT");
+        }
+    };
+
+    // 7 -> 8: 每主机保存的端口转发
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `port_forwards` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `hostId` INTEGER NOT NULL, `type` INTEGER NOT NULL, `bindHost` TEXT, `bindPort` INTEGER NOT NULL, `targetHost` TEXT, `targetPort` INTEGER NOT NULL, FOREIGN KEY(`hostId`) REFERENCES `hosts`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_port_forwards_hostId` ON `port_forwards` (`hostId`)");
+        }
+    };
+
+    // 8 -> 9: 跳板机，0 表示直连
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE hosts ADD COLUMN jumpHostId INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
     public static AppDatabase getDatabase(final Context context) {
         if (INSTANCE == null) {
             synchronized (AppDatabase.class) {
                 if (INSTANCE == null) {
                     INSTANCE = Room.databaseBuilder(context.getApplicationContext(),
                             AppDatabase.class, "orcterm_database")
-                            .fallbackToDestructiveMigration()
+                            .addMigrations(MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7,
+                                    MIGRATION_7_8, MIGRATION_8_9)
+                            // 只有没有迁移路径的早期版本才重建；之后的版本缺少迁移时应报错而不是清空主机与凭据
+                            .fallbackToDestructiveMigrationFrom(1, 2, 3)
                             .build();
                 }
             }
@@ -30,7 +30,7 @@ public interface HostDao {
     HostEntity findById(long id);
 
     @Insert
-    void insert(HostEntity host);
+    long insert(HostEntity host);
 
     @Update
     void update(HostEntity host);
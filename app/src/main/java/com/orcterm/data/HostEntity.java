@@ -37,6 +37,12 @@ public class HostEntity {
     public int hostKeyPolicy = 1;
     public int environmentType = 2;
     public String terminalThemePreset = "default";
+    public int predictiveEcho = 1; // 本地预测回显: 0 关闭, 1 自适应, 2 始终
+    public boolean compression = false; // SSH 传输压缩 (zlib)
+    public String cipherPrefs; // 加密算法偏好，逗号分隔，null 为默认
+    public String macPrefs; // MAC 算法偏好
+    public String kexPrefs; // 密钥交换算法偏好
+    public long jumpHostId; // 跳板机 (ProxyJump) 主机 id，0 表示直连
 
     public HostEntity() {
     }
@@ -0,0 +1,31 @@
+package com.orcterm.data;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+
+import java.util.List;
+
+/**
+ * 端口转发配置数据访问对象 (DAO)
+ */
+@Dao
+public interface PortForwardDao {
+    @Query("SELECT * FROM port_forwards WHERE hostId = :hostId ORDER BY id")
+    List<PortForwardEntity> getForHost(long hostId);
+
+    @Query("SELECT * FROM port_forwards ORDER BY id")
+    List<PortForwardEntity> getAll();
+
+    @Insert
+    long insert(PortForwardEntity forward);
+
+    /**
+     * 删除与给定配置相同的记录 (同一主机下按类型、绑定地址与目标匹配)
+     */
+    @Query("DELETE FROM port_forwards WHERE hostId = :hostId AND type = :type AND bindPort = :bindPort"
+            + " AND ((bindHost IS NULL AND :bindHost IS NULL) OR bindHost = :bindHost)"
+            + " AND ((targetHost IS NULL AND :targetHost IS NULL) OR targetHost = :targetHost)"
+            + " AND targetPort = :targetPort")
+    int deleteMatching(long hostId, int type, String bindHost, int bindPort, String targetHost, int targetPort);
+}
@@ -0,0 +1,66 @@
+package com.orcterm.data;
+
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import com.orcterm.core.transport.PortForwardSpec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 端口转发配置实体类，映射数据库中的 'port_forwards' 表
+ * 每条记录属于一个主机，连接 (及重连) 成功后自动恢复；主机删除时一并删除。
+ */
+@Entity(tableName = "port_forwards",
+        foreignKeys = @ForeignKey(entity = HostEntity.class, parentColumns = "id", childColumns = "hostId",
+                onDelete = ForeignKey.CASCADE),
+        indices = @Index("hostId"))
+public class PortForwardEntity {
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+
+    public long hostId; // 所属主机
+    public int type; // PortForwardStats.TYPE_LOCAL / TYPE_DYNAMIC / TYPE_REMOTE
+    public String bindHost; // 远程转发的服务器端绑定地址
+    public int bindPort; // 本地/动态为本机端口，远程为服务器端端口
+    public String targetHost; // 目标主机，动态转发为 null
+    public int targetPort;
+
+    public PortForwardEntity() {
+    }
+
+    @Ignore
+    public PortForwardEntity(long hostId, PortForwardSpec spec) {
+        this.hostId = hostId;
+        this.type = spec.getType();
+        this.bindHost = spec.getBindHost();
+        this.bindPort = spec.getBindPort();
+        this.targetHost = spec.getTargetHost();
+        this.targetPort = spec.getTargetPort();
+    }
+
+    /**
+     * 转换为转发配置，类型未知时返回 null
+     */
+    public PortForwardSpec toSpec() {
+        return PortForwardSpec.of(type, bindHost, bindPort, targetHost, targetPort);
+    }
+
+    public static List<PortForwardSpec> toSpecs(List<PortForwardEntity> entities) {
+        List<PortForwardSpec> specs = new ArrayList<>();
+        if (entities == null) {
+            return specs;
+        }
+        for (PortForwardEntity entity : entities) {
+            PortForwardSpec spec = entity.toSpec();
+            if (spec != null) {
+                specs.add(spec);
+            }
+        }
+        return specs;
+    }
+}
@@ -5,8 +5,12 @@ import android.text.Editable;
 import android.text.TextUtils;
 import android.text.TextWatcher;
 import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.RadioGroup;
+import android.widget.Spinner;
+import android.widget.Switch;
 import android.widget.Toast;
 import android.content.Intent;
 import android.net.Uri;
@@ -27,9 +31,12 @@ import androidx.lifecycle.ViewModelProvider;
 import com.google.android.material.card.MaterialCardView;
 import com.google.android.material.textfield.TextInputEditText;
 import com.google.android.material.textfield.TextInputLayout;
+import com.orcterm.core.session.CipherBenchmark;
 import com.orcterm.core.session.HostKeyVerifier;
+import com.orcterm.core.session.PooledJumpHost;
 import com.orcterm.R;
 import com.orcterm.core.session.SessionConnector;
+import com.orcterm.data.AppDatabase;
 import com.orcterm.data.HostEntity;
 import com.orcterm.core.ssh.SshNative;
 import com.orcterm.util.CommandConstants;
@@ -38,6 +45,9 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -60,12 +70,19 @@ public class AddHostActivity extends AppCompatActivity {
     private View layoutKey;
     private TextInputEditText editTimeout;
     private TextInputEditText editKeepalive;
+    private TextInputEditText editCipherPrefs;
+    private TextInputEditText editMacPrefs;
+    private TextInputEditText editKexPrefs;
     private RadioGroup radioGroupHostKey;
     private RadioGroup radioGroupEnv;
     private RadioGroup radioGroupTheme;
+    private RadioGroup radioGroupPredictiveEcho;
+    private Switch switchCompression;
+    private Spinner spinnerJumpHost;
     private View layoutAdvanced;
     private Button buttonToggleAdvanced;
     private Button buttonTest;
+    private Button buttonBenchmark;
     private Button buttonSave;
     private Button buttonSelectKey;
     private ProgressBar progressTesting;
@@ -82,6 +99,10 @@ public class AddHostActivity extends AppCompatActivity {
     private int currentHostKeyPolicy = 1;
     private int currentEnvironmentType = 2;
     private String currentThemePreset = "default";
+    private int currentPredictiveEcho = 1;
+    private long currentJumpHostId = 0;
+    // 可选跳板机列表，下标 0 对应 "无 (直连)"
+    private final List<HostEntity> jumpCandidates = new ArrayList<>();
     private boolean isEdit = false;
     private long editHostId = -1;
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
@@ -100,6 +121,7 @@ public class AddHostActivity extends AppCompatActivity {
     private int initialTimeout;
     private int initialKeepalive;
     private int initialHostKeyPolicy;
+    private long initialJumpHostId;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -126,10 +148,17 @@ public class AddHostActivity extends AppCompatActivity {
         layoutAdvanced = findViewById(R.id.layout_advanced);
         editTimeout = findViewById(R.id.edit_timeout);
         editKeepalive = findViewById(R.id.edit_keepalive);
+        editCipherPrefs = findViewById(R.id.edit_cipher_prefs);
+        editMacPrefs = findViewById(R.id.edit_mac_prefs);
+        editKexPrefs = findViewById(R.id.edit_kex_prefs);
         radioGroupHostKey = findViewById(R.id.radio_group_hostkey);
         radioGroupEnv = findViewById(R.id.radio_group_env);
         radioGroupTheme = findViewById(R.id.radio_group_theme);
+        radioGroupPredictiveEcho = findViewById(R.id.radio_group_predictive_echo);
+        switchCompression = findViewById(R.id.switch_compression);
+        spinnerJumpHost = findViewById(R.id.spinner_jump_host);
         buttonTest = findViewById(R.id.button_test);
+        buttonBenchmark = findViewById(R.id.button_benchmark);
         progressTesting = findViewById(R.id.progress_testing);
         textSecurityStatus = findViewById(R.id.text_security_status);
         textHostKeyType = findViewById(R.id.text_hostkey_type);
@@ -145,11 +174,13 @@ public class AddHostActivity extends AppCompatActivity {
         buttonSave.setOnClickListener(v -> saveHost());
         buttonToggleAdvanced.setOnClickListener(v -> toggleAdvanced());
         buttonTest.setOnClickListener(v -> testConnection());
+        buttonBenchmark.setOnClickListener(v -> benchmarkCiphers());
         
         initViewFromIntent();
         setupAdvancedListeners();
         setupChangeListeners();
         captureInitialConnectionState();
+        loadJumpHostCandidates();
         suppressChangeEvents = false;
         updateEnvBadge(currentEnvironmentType);
         updateSecurityStatus("未测试", 0xFFB0BEC5);
@@ -194,12 +225,19 @@ public class AddHostActivity extends AppCompatActivity {
             if (currentThemePreset == null || currentThemePreset.isEmpty()) {
                 currentThemePreset = "default";
             }
+            currentPredictiveEcho = intent.getIntExtra("predictive_echo", 1);
 
             editTimeout.setText(String.valueOf(timeout));
             editKeepalive.setText(String.valueOf(keepalive));
             applyHostKeyPolicySelection(currentHostKeyPolicy);
             applyEnvironmentSelection(currentEnvironmentType);
             applyThemeSelection(currentThemePreset);
+            applyPredictiveEchoSelection(currentPredictiveEcho);
+            switchCompression.setChecked(intent.getBooleanExtra("compression", false));
+            editCipherPrefs.setText(intent.getStringExtra("cipher_prefs"));
+            editMacPrefs.setText(intent.getStringExtra("mac_prefs"));
+            editKexPrefs.setText(intent.getStringExtra("kex_prefs"));
+            currentJumpHostId = intent.getLongExtra("jump_host_id", 0);
 
             if (getSupportActionBar() != null) {
                 getSupportActionBar().setTitle("编辑主机");
@@ -264,6 +302,83 @@ public class AddHostActivity extends AppCompatActivity {
                 currentThemePreset = "default";
             }
         });
+
+        radioGroupPredictiveEcho.setOnCheckedChangeListener((group, checkedId) -> {
+            if (checkedId == R.id.radio_predict_off) {
+                currentPredictiveEcho = 0;
+            } else if (checkedId == R.id.radio_predict_always) {
+                currentPredictiveEcho = 2;
+            } else {
+                currentPredictiveEcho = 1;
+            }
+        });
+    }
+
+    /**
+     * 后台加载可作为跳板机的主机：排除自身以及本身也经跳板机连接的主机 (仅支持单跳)
+     */
+    private void loadJumpHostCandidates() {
+        executor.execute(() -> {
+            List<HostEntity> hosts = AppDatabase.getDatabase(this).hostDao().getAllHostsNow();
+            List<HostEntity> candidates = new ArrayList<>();
+            for (HostEntity host : hosts) {
+                if (host.id != editHostId && host.jumpHostId == 0) {
+                    candidates.add(host);
+                }
+            }
+            runOnUiThread(() -> bindJumpHostSpinner(candidates));
+        });
+    }
+
+    private void bindJumpHostSpinner(List<HostEntity> candidates) {
+        if (isFinishing()) return;
+        jumpCandidates.clear();
+        jumpCandidates.add(null);
+        jumpCandidates.addAll(candidates);
+        List<String> labels = new ArrayList<>();
+        int selection = 0;
+        for (int i = 0; i < jumpCandidates.size(); i++) {
+            HostEntity host = jumpCandidates.get(i);
+            if (host == null) {
+                labels.add("无 (直连)");
+                continue;
+            }
+            labels.add(host.alias + " (" + host.username + "@" + host.hostname + ":" + host.port + ")");
+            if (host.id == currentJumpHostId) {
+                selection = i;
+            }
+        }
+        if (selection == 0) {
+            // 原跳板机已被删除或不再可用
+            currentJumpHostId = 0;
+        }
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_dropdown_item, labels);
+        spinnerJumpHost.setAdapter(adapter);
+        spinnerJumpHost.setSelection(selection, false);
+        spinnerJumpHost.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                HostEntity host = position < jumpCandidates.size() ? jumpCandidates.get(position) : null;
+                long jumpId = host == null ? 0 : host.id;
+                if (jumpId != currentJumpHostId) {
+                    currentJumpHostId = jumpId;
+                    markTestRequired();
+                }
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+    }
+
+    private HostEntity findJumpCandidate(long id) {
+        for (HostEntity host : jumpCandidates) {
+            if (host != null && host.id == id) {
+                return host;
+            }
+        }
+        return null;
     }
 
     private void setupFilePicker() {
@@ -355,6 +470,12 @@ public class AddHostActivity extends AppCompatActivity {
         host.hostKeyPolicy = currentHostKeyPolicy;
         host.environmentType = currentEnvironmentType;
         host.terminalThemePreset = currentThemePreset;
+        host.predictiveEcho = currentPredictiveEcho;
+        host.compression = switchCompression.isChecked();
+        host.cipherPrefs = emptyToNull(editCipherPrefs.getText().toString().trim());
+        host.macPrefs = emptyToNull(editMacPrefs.getText().toString().trim());
+        host.kexPrefs = emptyToNull(editKexPrefs.getText().toString().trim());
+        host.jumpHostId = currentJumpHostId;
         
         if (currentAuthType == 0) {
             host.password = password;
@@ -411,6 +532,11 @@ public class AddHostActivity extends AppCompatActivity {
         int port = parseInt(portStr, 22);
         int timeoutSec = parseInt(editTimeout.getText().toString().trim(), 10);
         int keepaliveSec = parseInt(editKeepalive.getText().toString().trim(), 0);
+        HostEntity bastion = findJumpCandidate(currentJumpHostId);
+        if (currentJumpHostId != 0 && bastion == null) {
+            Toast.makeText(this, "跳板机信息加载中，请稍后重试", Toast.LENGTH_SHORT).show();
+            return;
+        }
 
         setTestingState(true);
         updateSecurityStatus("测试中...", 0xFF90A4AE);
@@ -422,8 +548,15 @@ public class AddHostActivity extends AppCompatActivity {
         executor.execute(() -> {
             SshNative ssh = new SshNative();
             long handle = 0;
+            PooledJumpHost jumpHost = bastion != null ? new PooledJumpHost(bastion) : null;
+            long jumpHandle = 0;
             try {
-                handle = SessionConnector.connectOnly(ssh, hostname, port, "网络不可达或握手失败");
+                if (jumpHost != null) {
+                    jumpHandle = jumpHost.acquire();
+                    handle = SessionConnector.connectThrough(ssh, jumpHandle, hostname, port, "经跳板机握手失败");
+                } else {
+                    handle = SessionConnector.connectOnly(ssh, hostname, port, "网络不可达或握手失败");
+                }
 
                 ssh.setSessionTimeout(handle, Math.max(1, timeoutSec) * 1000);
                 ssh.setSessionReadTimeout(handle, 60);
@@ -484,10 +617,99 @@ public class AddHostActivity extends AppCompatActivity {
                 if (handle != 0) {
                     ssh.disconnect(handle);
                 }
+                if (jumpHandle != 0) {
+                    jumpHost.release(jumpHandle, false);
+                }
             }
         });
     }
 
+    /**
+     * 逐个候选加密算法测量握手耗时与吞吐量，按吞吐量排序填入加密算法偏好
+     * 仅对已信任 Host Key 的主机执行，避免向未验证的服务器发送凭据
+     */
+    private void benchmarkCiphers() {
+        if (isTesting) return;
+
+        String hostname = editHostname.getText().toString().trim();
+        String username = editUsername.getText().toString().trim();
+        String password = editPassword.getText().toString().trim();
+        String keyPath = editKeyPath.getText().toString().trim();
+        int port = parseInt(editPort.getText().toString().trim(), 22);
+
+        if (TextUtils.isEmpty(hostname) || TextUtils.isEmpty(username)) {
+            Toast.makeText(this, "主机名和用户名不能为空", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        setTestingState(true);
+        updateSecurityStatus("算法测速中...", 0xFF90A4AE);
+        int authType = currentAuthType;
+
+        executor.execute(() -> {
+            SshNative ssh = new SshNative();
+            String knownHostsPath = ensureKnownHostsPath();
+            // 先确认主机密钥已受信任，再逐个算法建立连接
+            long probe = 0;
+            try {
+                probe = SessionConnector.connectOnly(ssh, hostname, port, "网络不可达或握手失败");
+                if (ssh.knownHostsCheck(probe, hostname, port, knownHostsPath) != HostKeyVerifier.CHECK_OK) {
+                    throw new Exception("请先测试连接并信任主机密钥");
+                }
+            } catch (Exception e) {
+                String message = e.getMessage();
+                runOnUiThread(() -> {
+                    updateSecurityStatus(TextUtils.isEmpty(message) ? "测速失败" : message, 0xFFE53935);
+                    setTestingState(false);
+                });
+                return;
+            } finally {
+                if (probe != 0) {
+                    ssh.disconnect(probe);
+                }
+            }
+
+            List<CipherBenchmark.Result> results = CipherBenchmark.run(ssh, hostname, port, username, password,
+                    authType, keyPath, knownHostsPath, (index, total, result) -> runOnUiThread(() ->
+                            updateSecurityStatus(String.format(Locale.US, "算法测速中... %d/%d", index + 1, total),
+                                    0xFF90A4AE)));
+            String prefs = CipherBenchmark.toPreference(results);
+            runOnUiThread(() -> {
+                setTestingState(false);
+                if (prefs == null) {
+                    updateSecurityStatus("所有候选算法均测速失败", 0xFFE53935);
+                } else {
+                    editCipherPrefs.setText(prefs);
+                    updateSecurityStatus("测速完成，已填入加密算法偏好", 0xFF4CAF50);
+                }
+                showBenchmarkResults(results);
+            });
+        });
+    }
+
+    private void showBenchmarkResults(List<CipherBenchmark.Result> results) {
+        if (isFinishing() || isDestroyed()) return;
+        StringBuilder message = new StringBuilder();
+        for (CipherBenchmark.Result result : results) {
+            message.append(result.cipher).append('\n');
+            if (result.isSuccess()) {
+                message.append(String.format(Locale.US, "  握手 %d ms, 吞吐 %.1f MiB/s",
+                        result.handshakeMs, result.bytesPerSecond / 1048576.0));
+                if (result.mac != null) {
+                    message.append(", MAC ").append(result.mac);
+                }
+            } else {
+                message.append("  失败: ").append(result.error);
+            }
+            message.append('\n');
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("算法测速结果")
+                .setMessage(message.toString().trim())
+                .setPositiveButton("确定", null)
+                .show();
+    }
+
     private void postSuccess() {
         runOnUiThread(() -> {
             testPassed = true;
@@ -515,6 +737,7 @@ public class AddHostActivity extends AppCompatActivity {
         isTesting = testing;
         progressTesting.setVisibility(testing ? View.VISIBLE : View.GONE);
         buttonTest.setEnabled(!testing);
+        buttonBenchmark.setEnabled(!testing);
         buttonSave.setEnabled(testPassed && !testing);
         buttonSelectKey.setEnabled(!testing);
         editAlias.setEnabled(!testing);
@@ -534,6 +757,10 @@ public class AddHostActivity extends AppCompatActivity {
         buttonToggleAdvanced.setEnabled(!testing);
         editTimeout.setEnabled(!testing);
         editKeepalive.setEnabled(!testing);
+        editCipherPrefs.setEnabled(!testing);
+        editMacPrefs.setEnabled(!testing);
+        editKexPrefs.setEnabled(!testing);
+        spinnerJumpHost.setEnabled(!testing);
         for (int i = 0; i < radioGroupHostKey.getChildCount(); i++) {
             radioGroupHostKey.getChildAt(i).setEnabled(!testing);
         }
@@ -589,6 +816,7 @@ public class AddHostActivity extends AppCompatActivity {
         initialTimeout = parseInt(editTimeout.getText().toString().trim(), 10);
         initialKeepalive = parseInt(editKeepalive.getText().toString().trim(), 0);
         initialHostKeyPolicy = currentHostKeyPolicy;
+        initialJumpHostId = currentJumpHostId;
     }
 
     private boolean isConnectionConfigChanged() {
@@ -604,6 +832,7 @@ public class AddHostActivity extends AppCompatActivity {
         if (initialHostKeyPolicy != currentHostKeyPolicy) return true;
         if (initialTimeout != timeout) return true;
         if (initialKeepalive != keepalive) return true;
+        if (initialJumpHostId != currentJumpHostId) return true;
         if (currentAuthType == 0) {
             String password = editPassword.getText().toString();
             return !TextUtils.equals(initialPassword, password);
@@ -689,6 +918,16 @@ public class AddHostActivity extends AppCompatActivity {
         updateEnvBadge(envType);
     }
 
+    private void applyPredictiveEchoSelection(int mode) {
+        if (mode == 0) {
+            radioGroupPredictiveEcho.check(R.id.radio_predict_off);
+        } else if (mode == 2) {
+            radioGroupPredictiveEcho.check(R.id.radio_predict_always);
+        } else {
+            radioGroupPredictiveEcho.check(R.id.radio_predict_adaptive);
+        }
+    }
+
     private void applyThemeSelection(String preset) {
         if ("light".equals(preset)) {
             radioGroupTheme.check(R.id.radio_theme_light);
@@ -732,6 +971,10 @@ public class AddHostActivity extends AppCompatActivity {
         }
     }
 
+    private String emptyToNull(String value) {
+        return TextUtils.isEmpty(value) ? null : value;
+    }
+
     private void copyToClipboard(String text) {
         ClipboardManager cm = (ClipboardManager) getSystemService(CLIPBOARD_SERVICE);
         if (cm != null) {
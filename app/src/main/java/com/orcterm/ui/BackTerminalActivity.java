@@ -39,16 +39,25 @@ import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import com.google.android.material.button.MaterialButton;
 import com.orcterm.R;
+import com.orcterm.core.terminal.LocalEchoPredictor;
 import com.orcterm.core.terminal.TerminalSession;
+import com.orcterm.data.AppDatabase;
+import com.orcterm.data.HostEntity;
+import com.orcterm.data.PortForwardEntity;
 import com.orcterm.core.transport.HostKeyVerifier;
+import com.orcterm.core.transport.PortForwardSpec;
+import com.orcterm.core.transport.PortForwardStats;
 import com.orcterm.util.CommandConstants;
 import com.orcterm.util.PersistentNotificationHelper;
 import com.orcterm.util.SessionLogManager;
+import com.orcterm.util.SessionPersistenceManager;
 import com.orcterm.util.CommandHistoryManager;
 import com.orcterm.ui.adapter.AutocompleteAdapter;
+import com.orcterm.ui.common.PasteProgressController;
 import com.orcterm.ui.widget.TerminalInputView;
 import com.orcterm.ui.widget.TerminalKeypadView;
 import com.orcterm.ui.widget.TerminalView;
+import com.orcterm.core.session.PooledJumpHost;
 import com.orcterm.core.session.SessionInfo;
 import com.orcterm.core.session.SessionManager;
 import com.orcterm.core.terminal.TerminalEmulator;
@@ -207,6 +216,7 @@ public class BackTerminalActivity extends AppCompatActivity {
     private int currentScrollbackLines = 2000;
     private boolean enterNewline = true;
     private boolean localEcho = false;
+    private final PasteProgressController pasteController = new PasteProgressController(this);
     private boolean immersiveMode = false;
 
     // UI 组件
@@ -253,6 +263,8 @@ public class BackTerminalActivity extends AppCompatActivity {
     private boolean splitVertical = false;
     private float splitRatio = 0.5f;
     private View splitDivider;
+    // 镜像分屏：只读视图共享活动会话的仿真器，独立滚动
+    private TerminalView splitMirrorView;
     private static final String PREF_SPLIT_MODE = "terminal_split_mode";
     private static final String PREF_SPLIT_VERTICAL = "terminal_split_vertical";
     private static final String PREF_SPLIT_RATIO = "terminal_split_ratio";
@@ -628,6 +640,11 @@ public class BackTerminalActivity extends AppCompatActivity {
                 dispatchInput(text);
             }
 
+            @Override
+            public void onPaste(String text) {
+                dispatchPaste(text);
+            }
+
             @Override
             public void onKeyDown(int keyCode, KeyEvent event) {
                 if (event.getAction() == KeyEvent.ACTION_DOWN) {
@@ -1214,7 +1231,7 @@ public class BackTerminalActivity extends AppCompatActivity {
                     startSessionLogging(resolved.host, resolved.port, resolved.user);
                     logSessionEvent("连接中", resolved.host, resolved.port, resolved.user);
                 }
-                session.connect(resolved.host, resolved.port, resolved.user, resolved.password, resolved.authType, resolved.keyPath);
+                connectWithHostOptions(session, resolved.host, resolved.port, resolved.user, resolved.password, resolved.authType, resolved.keyPath);
             }
             if (session != null && hasParams) {
                 SessionManager.getInstance().upsertSession(
@@ -1261,6 +1278,11 @@ public class BackTerminalActivity extends AppCompatActivity {
         TerminalEmulator emulator = new TerminalEmulator(80, 24);
         container.emulator = emulator;
         view.attachEmulator(emulator);
+        if (session != null) {
+            session.setEmulator(emulator);
+        }
+        container.echoPredictor = new LocalEchoPredictor(emulator);
+        view.setEchoPredictor(container.echoPredictor);
         view.setMaxScrollbackLines(currentScrollbackLines);
         view.setLayoutParams(new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.MATCH_PARENT));
         view.setFontSize(currentFontSize);
@@ -1363,6 +1385,13 @@ public class BackTerminalActivity extends AppCompatActivity {
         container.view = view;
         containerHost.addView(view);
         flushPendingContainerOutput(container);
+        if (!TextUtils.isEmpty(resolved.host)) {
+            loadPredictiveEchoMode(container, resolved.host, resolved.port, resolved.user);
+        } else if (session != null) {
+            loadPredictiveEchoMode(container, session.getHost(), session.getPort(), session.getUsername());
+        } else {
+            loadPredictiveEchoMode(container, null, 0, null);
+        }
 
         containers.add(container);
         if (id >= nextContainerId) {
@@ -1371,6 +1400,24 @@ public class BackTerminalActivity extends AppCompatActivity {
         return container;
     }
 
+    // 每个容器按所连主机的配置决定预测回显模式，未保存的主机默认自适应
+    private void loadPredictiveEchoMode(TerminalContainer container, String host, int port, String user) {
+        LocalEchoPredictor predictor = container.echoPredictor;
+        if (predictor == null) return;
+        predictor.reset();
+        predictor.setMode(LocalEchoPredictor.MODE_ADAPTIVE);
+        if (TextUtils.isEmpty(host)) return;
+        AppDatabase.databaseWriteExecutor.execute(() -> {
+            HostEntity entity = AppDatabase.getDatabase(this).hostDao().findByIdentity(host, port, user);
+            if (entity == null) return;
+            runOnUiThread(() -> {
+                if (container.echoPredictor == predictor) {
+                    predictor.setMode(entity.predictiveEcho);
+                }
+            });
+        });
+    }
+
     private void syncSessionsFromContainers() {
         for (TerminalContainer container : containers) {
             if (container.session == null) {
@@ -1682,10 +1729,48 @@ public class BackTerminalActivity extends AppCompatActivity {
             appendContainerOutput(container, send);
         }
         if (container.session != null) {
+            if (!localEcho && container.view != null && container.session.isConnected()
+                    && container.echoPredictor != null && container.echoPredictor.getMode() != LocalEchoPredictor.MODE_OFF) {
+                container.echoPredictor.setObservedLatencyMs(container.session.getInputLatencyStats().p50Ms);
+                container.view.predictInput(send);
+            }
             container.session.write(send);
         }
     }
 
+    // 传输压缩与算法偏好需在握手前确定，先读取主机配置再发起连接；保存的转发在连接成功后自动恢复
+    private void connectWithHostOptions(TerminalSession session, String host, int port, String user, String password, int authType, String keyPath) {
+        AppDatabase.databaseWriteExecutor.execute(() -> {
+            AppDatabase db = AppDatabase.getDatabase(this);
+            HostEntity entity = db.hostDao().findByIdentity(host, port, user);
+            SessionPersistenceManager manager = SessionPersistenceManager.getInstance(this);
+            session.setAutoReconnect(manager.isAutoReconnect());
+            session.setReattachCommand(manager.isReattachMultiplexer() ? CommandConstants.CMD_REATTACH_MULTIPLEXER : null);
+            session.setCompressionEnabled(entity != null && entity.compression);
+            if (entity != null) {
+                session.setMethodPreferences(entity.cipherPrefs, entity.macPrefs, entity.kexPrefs);
+                session.setForwardSpecs(PortForwardEntity.toSpecs(db.portForwardDao().getForHost(entity.id)));
+            }
+            HostEntity jump = entity != null && entity.jumpHostId != 0 ? db.hostDao().findById(entity.jumpHostId) : null;
+            session.setJumpHost(jump != null ? new PooledJumpHost(jump) : null);
+            session.connect(host, port, user, password, authType, keyPath);
+        });
+    }
+
+    private void dispatchPaste(String text) {
+        if (text == null || text.isEmpty()) return;
+        TerminalContainer container = activeContainer;
+        if (container == null || container.session == null) return;
+        if (container.view != null) {
+            container.view.scrollToBottom();
+        }
+        String send = normalizeLineEnding(text);
+        if (localEcho) {
+            appendContainerOutput(container, send);
+        }
+        pasteController.start(container.session, send);
+    }
+
     private void recordInputHistory(TerminalContainer container, String text) {
         if (container == null || text == null || text.isEmpty()) return;
         if (text.indexOf('\u001b') >= 0) {
@@ -1998,6 +2083,7 @@ public class BackTerminalActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        pasteController.release();
         if (isFinishing()) {
             // Do NOT clear sessions here to allow background persistence
             // SessionManager.getInstance().clearSessions();
@@ -2200,11 +2286,19 @@ public class BackTerminalActivity extends AppCompatActivity {
             Toast.makeText(this, "没有活动的会话", Toast.LENGTH_SHORT).show();
             return;
         }
+        TerminalSession session = activeContainer.session;
         
         android.widget.LinearLayout layout = new android.widget.LinearLayout(this);
         layout.setOrientation(android.widget.LinearLayout.VERTICAL);
         layout.setPadding(32, 32, 32, 32);
         
+        android.widget.Spinner spinnerType = new android.widget.Spinner(this);
+        android.widget.ArrayAdapter<String> typeAdapter = new android.widget.ArrayAdapter<>(this,
+            android.R.layout.simple_spinner_dropdown_item,
+            new String[] {"本地转发 (-L)", "远程转发 (-R)", "动态转发 (SOCKS5)"});
+        spinnerType.setAdapter(typeAdapter);
+        layout.addView(spinnerType);
+        
         EditText editLocalPort = new EditText(this);
         editLocalPort.setHint("本地端口 (如 8080)");
         editLocalPort.setInputType(android.text.InputType.TYPE_CLASS_NUMBER);
@@ -2220,30 +2314,107 @@ public class BackTerminalActivity extends AppCompatActivity {
         editRemotePort.setInputType(android.text.InputType.TYPE_CLASS_NUMBER);
         layout.addView(editRemotePort);
         
+        android.widget.CheckBox checkSave = new android.widget.CheckBox(this);
+        checkSave.setText("保存到主机，重连后自动恢复");
+        layout.addView(checkSave);
+        
+        // 各类型共用输入框，按类型切换提示；动态转发没有目标
+        spinnerType.setOnItemSelectedListener(new android.widget.AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(android.widget.AdapterView<?> parent, View view, int position, long id) {
+                int type = typeForPosition(position);
+                editLocalPort.setHint(type == PortForwardStats.TYPE_REMOTE
+                    ? "服务器端口 (如 8080)"
+                    : type == PortForwardStats.TYPE_DYNAMIC ? "SOCKS 端口 (如 1080)" : "本地端口 (如 8080)");
+                boolean remote = type == PortForwardStats.TYPE_REMOTE;
+                editRemoteHost.setHint(remote ? "本机可达的目标主机 (如 localhost)" : "远程主机 (如 localhost)");
+                editRemotePort.setHint(remote ? "目标端口 (如 80)" : "远程端口 (如 80)");
+                int targetVisibility = type == PortForwardStats.TYPE_DYNAMIC ? View.GONE : View.VISIBLE;
+                editRemoteHost.setVisibility(targetVisibility);
+                editRemotePort.setVisibility(targetVisibility);
+            }
+
+            @Override
+            public void onNothingSelected(android.widget.AdapterView<?> parent) {
+            }
+        });
+        
         new AlertDialog.Builder(this)
             .setTitle("添加端口转发 (SSH Tunnel)")
             .setView(layout)
             .setPositiveButton("启动", (dialog, which) -> {
+                PortForwardSpec spec;
                 try {
+                    int type = typeForPosition(spinnerType.getSelectedItemPosition());
                     int local = Integer.parseInt(editLocalPort.getText().toString().trim());
-                    String host = editRemoteHost.getText().toString().trim();
-                    int remote = Integer.parseInt(editRemotePort.getText().toString().trim());
-                    
-                    if (host.isEmpty()) {
-                        Toast.makeText(this, "主机名不能为空", Toast.LENGTH_SHORT).show();
-                        return;
+                    if (type == PortForwardStats.TYPE_DYNAMIC) {
+                        spec = PortForwardSpec.dynamic(local);
+                    } else {
+                        String host = editRemoteHost.getText().toString().trim();
+                        int remote = Integer.parseInt(editRemotePort.getText().toString().trim());
+                        if (host.isEmpty()) {
+                            Toast.makeText(this, "主机名不能为空", Toast.LENGTH_SHORT).show();
+                            return;
+                        }
+                        spec = type == PortForwardStats.TYPE_REMOTE
+                            ? PortForwardSpec.remote(null, local, host, remote)
+                            : PortForwardSpec.local(local, host, remote);
                     }
-                    
-                    activeContainer.session.startLocalForwarding(local, host, remote);
-                    Toast.makeText(this, "转发已启动: " + local + " -> " + host + ":" + remote, Toast.LENGTH_SHORT).show();
-                } catch (Exception e) {
-                    Toast.makeText(this, "启动失败: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                } catch (NumberFormatException e) {
+                    Toast.makeText(this, "端口格式不正确", Toast.LENGTH_SHORT).show();
+                    return;
                 }
+                startPortForward(session, spec, checkSave.isChecked());
             })
+            .setNeutralButton("转发统计", (dialog, which) -> openPortForwardStats())
             .setNegativeButton("取消", null)
             .show();
     }
 
+    private static int typeForPosition(int position) {
+        switch (position) {
+            case 1: return PortForwardStats.TYPE_REMOTE;
+            case 2: return PortForwardStats.TYPE_DYNAMIC;
+            default: return PortForwardStats.TYPE_LOCAL;
+        }
+    }
+
+    // 远程转发需等待服务器应答，连同保存配置一起放到后台执行
+    private void startPortForward(TerminalSession session, PortForwardSpec spec, boolean save) {
+        AppDatabase.databaseWriteExecutor.execute(() -> {
+            try {
+                session.startForwarding(spec);
+            } catch (Exception e) {
+                runOnUiThread(() -> Toast.makeText(this, "启动失败: " + e.getMessage(), Toast.LENGTH_LONG).show());
+                return;
+            }
+            boolean saved = false;
+            if (save) {
+                session.addForwardSpec(spec);
+                AppDatabase db = AppDatabase.getDatabase(this);
+                HostEntity host = db.hostDao().findByIdentity(session.getHost(), session.getPort(), session.getUsername());
+                if (host != null) {
+                    db.portForwardDao().deleteMatching(host.id, spec.getType(), spec.getBindHost(), spec.getBindPort(),
+                        spec.getTargetHost(), spec.getTargetPort());
+                    db.portForwardDao().insert(new PortForwardEntity(host.id, spec));
+                    saved = true;
+                }
+            }
+            String message = "转发已启动: " + spec + (save && !saved ? " (未找到主机记录，仅本次会话自动恢复)" : "");
+            runOnUiThread(() -> Toast.makeText(this, message, Toast.LENGTH_SHORT).show());
+        });
+    }
+
+    private void openPortForwardStats() {
+        if (activeContainer == null || activeContainer.session == null) {
+            return;
+        }
+        Intent intent = new Intent(this, PortForwardActivity.class);
+        intent.putExtra("session_id", activeContainer.id);
+        intent.putExtra("session_name", activeContainer.name);
+        startActivity(intent);
+    }
+
     private void applyFontSize(int size) {
         currentFontSize = size;
         for (TerminalContainer container : containers) {
@@ -2350,6 +2521,7 @@ public class BackTerminalActivity extends AppCompatActivity {
         TerminalSession.SessionListener sessionListener;
         TerminalEmulator emulator;
         TerminalView view;
+        LocalEchoPredictor echoPredictor;
         StringBuilder pendingOutput;
         StringBuilder inputBuffer;
         List<CommandEntry> commandHistory;
@@ -2460,6 +2632,39 @@ public class BackTerminalActivity extends AppCompatActivity {
             logSessionEvent("连接错误", buildSessionErrorMessage(message));
         }
     }
+
+    @Override
+    public void onReconnecting(int attempt, long delayMs) {
+        if (attempt != 0) {
+            return;
+        }
+        runOnUiThread(() -> {
+            container.connected = false;
+            SessionManager.getInstance().updateSession(container.id, false);
+            appendContainerOutput(container, "\r\nConnection lost, reconnecting...\r\n");
+            containerAdapter.notifyDataSetChanged();
+            updatePersistentNotification();
+        });
+        if (sessionLoggingEnabled && container.session != null) {
+            logSessionEvent("连接中断，自动重连", container.session.getHost(),
+                container.session.getPort(), container.session.getUsername());
+        }
+    }
+
+    @Override
+    public void onReconnected() {
+        runOnUiThread(() -> {
+            container.connected = true;
+            SessionManager.getInstance().updateSession(container.id, true);
+            appendContainerOutput(container, "Reconnected.\r\n");
+            containerAdapter.notifyDataSetChanged();
+            updatePersistentNotification();
+        });
+        if (sessionLoggingEnabled && container.session != null) {
+            logSessionEvent("自动重连成功", container.session.getHost(),
+                container.session.getPort(), container.session.getUsername());
+        }
+    }
 }
 
     private class ContainerAdapter extends RecyclerView.Adapter<ContainerAdapter.ContainerViewHolder> {
@@ -2644,6 +2849,7 @@ public class BackTerminalActivity extends AppCompatActivity {
             menu.getMenu().add(0, 6, 6, splitVertical ? "切换为左右分屏" : "切换为上下分屏");
         }
         menu.getMenu().add(0, 7, 7, container.connected ? "断开连接" : "重连");
+        menu.getMenu().add(0, 8, 8, "镜像分屏");
         menu.setOnMenuItemClickListener(item -> {
             if (item.getItemId() == 0) {
                 showRenameContainerDialog(container);
@@ -2684,6 +2890,10 @@ public class BackTerminalActivity extends AppCompatActivity {
                 }
                 return true;
             }
+            if (item.getItemId() == 8) {
+                enableMirrorSplit(container);
+                return true;
+            }
             return false;
         });
         menu.show();
@@ -2773,14 +2983,20 @@ public class BackTerminalActivity extends AppCompatActivity {
                 startSessionLogging(params.host, params.port, params.user);
                 logSessionEvent("重连中", params.host, params.port, params.user);
             }
-            session.connect(params.host, params.port, params.user, params.password, params.authType, params.keyPath);
+            connectWithHostOptions(session, params.host, params.port, params.user, params.password, params.authType, params.keyPath);
 
             for (TerminalContainer c : targets) {
                 c.connected = false;
                 c.session = session;
+                if (c.echoPredictor != null) {
+                    c.echoPredictor.reset();
+                }
                 if (c.view != null && c.emulator != null) {
                     c.view.attachEmulator(c.emulator);
                 }
+                if (c.emulator != null && session.getEmulator() == null) {
+                    session.setEmulator(c.emulator);
+                }
                 ContainerSessionListener listener = new ContainerSessionListener(c);
                 session.addListener(listener);
                 c.sessionListener = listener;
@@ -2853,7 +3069,39 @@ public class BackTerminalActivity extends AppCompatActivity {
         applySplitLayout();
     }
 
+    /**
+     * 同一会话分屏显示两次：主视图跟随输出，镜像视图只读并可独立回滚，
+     * 两者共享同一仿真器的解析结果与行缓存，不产生额外解析开销。
+     */
+    private void enableMirrorSplit(TerminalContainer primary) {
+        if (primary == null || primary.emulator == null) return;
+        releaseSplitMirror();
+        TerminalView mirror = new TerminalView(this);
+        mirror.setLayoutParams(new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.MATCH_PARENT));
+        mirror.setFontSize(currentFontSize);
+        mirror.setColorScheme(getEffectiveScheme());
+        mirror.setLineHeightMultiplier(currentLineHeight);
+        mirror.setLetterSpacing(currentLetterSpacing);
+        mirror.setTypeface(currentFontFamily == 0 ? Typeface.MONOSPACE : Typeface.SANS_SERIF);
+        mirror.attachEmulatorReadOnly(primary.emulator);
+        splitMirrorView = mirror;
+        splitMode = true;
+        activeContainer = primary;
+        splitSecondary = primary;
+        applySplitLayout();
+    }
+
+    private void releaseSplitMirror() {
+        if (splitMirrorView == null) return;
+        if (splitMirrorView.getParent() instanceof ViewGroup) {
+            ((ViewGroup) splitMirrorView.getParent()).removeView(splitMirrorView);
+        }
+        splitMirrorView.detachEmulator();
+        splitMirrorView = null;
+    }
+
     private void disableSplitMode() {
+        releaseSplitMirror();
         splitMode = false;
         splitSecondary = null;
         terminalPrefs.edit()
@@ -2877,7 +3125,11 @@ public class BackTerminalActivity extends AppCompatActivity {
         if (activeContainer == null) {
             return;
         }
-        if (splitSecondary == null || splitSecondary == activeContainer) {
+        if (splitMirrorView != null && splitMirrorView.getEmulator() != activeContainer.emulator) {
+            // 活动标签已切换，镜像失效，回退为普通分屏
+            releaseSplitMirror();
+        }
+        if (splitMirrorView == null && (splitSecondary == null || splitSecondary == activeContainer)) {
             for (TerminalContainer c : visibleContainers) {
                 if (c != activeContainer) {
                     splitSecondary = c;
@@ -2934,7 +3186,7 @@ public class BackTerminalActivity extends AppCompatActivity {
             .putFloat(PREF_SPLIT_RATIO, splitRatio)
             .apply();
         attachViewToHost(activeContainer.view, splitPrimaryHost);
-        attachViewToHost(splitSecondary.view, splitSecondaryHost);
+        attachViewToHost(splitMirrorView != null ? splitMirrorView : splitSecondary.view, splitSecondaryHost);
         for (TerminalContainer container : containers) {
             if (container != activeContainer && container != splitSecondary) {
                 container.view.setVisibility(View.GONE);
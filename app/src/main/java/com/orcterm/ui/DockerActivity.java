@@ -72,6 +72,7 @@ public class DockerActivity extends AppCompatActivity {
     private SshNative sshNative;
     private long sshHandle = 0;
     private boolean isSharedSession = false;
+    private SessionConnector.Connection sshConnection;
     
     private List<DockerContainer> containerList = new ArrayList<>();
     
@@ -328,6 +329,10 @@ public class DockerActivity extends AppCompatActivity {
         final boolean shared = isSharedSession;
         sshHandle = 0;
         isSharedSession = false;
+        if (sshConnection != null) {
+            sshConnection.release();
+            sshConnection = null;
+        }
         if (handle != 0 && !shared) {
             new Thread(() -> sshNative.disconnect(handle)).start();
         }
@@ -421,6 +426,7 @@ public class DockerActivity extends AppCompatActivity {
                     "Connect failed",
                     "Auth failed"
             );
+            sshConnection = connection;
             sshHandle = connection.getHandle();
             isSharedSession = connection.isShared();
         }
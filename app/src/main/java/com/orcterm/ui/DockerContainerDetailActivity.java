@@ -50,6 +50,7 @@ public class DockerContainerDetailActivity extends AppCompatActivity {
     private SshNative sshNative;
     private long sshHandle = 0;
     private boolean isSharedSession = false;
+    private SessionConnector.Connection sshConnection;
     
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
@@ -267,6 +268,7 @@ public class DockerContainerDetailActivity extends AppCompatActivity {
                     "Connect failed",
                     "Auth failed"
             );
+            sshConnection = connection;
             sshHandle = connection.getHandle();
             isSharedSession = connection.isShared();
         }
@@ -455,6 +457,10 @@ public class DockerContainerDetailActivity extends AppCompatActivity {
         final boolean shared = isSharedSession;
         sshHandle = 0;
         isSharedSession = false;
+        if (sshConnection != null) {
+            sshConnection.release();
+            sshConnection = null;
+        }
         if (handle != 0 && sshNative != null && !shared) {
             new Thread(() -> {
                 try {
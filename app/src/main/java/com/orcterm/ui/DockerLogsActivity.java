@@ -11,35 +11,53 @@ import androidx.appcompat.app.AppCompatActivity;
 
 import com.orcterm.R;
 import com.orcterm.core.session.SessionConnector;
+import com.orcterm.core.ssh.ExecStream;
 import com.orcterm.core.ssh.SshNative;
 import com.orcterm.util.CommandConstants;
 
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 /**
  * Docker 容器日志 Activity
+ * 通过 ExecStream 持续跟踪 (docker logs -f)，新日志到达即追加，显示内容按字符上限截断。
  */
 public class DockerLogsActivity extends AppCompatActivity {
 
+    // 日志视图最多保留的字符数，超出后丢弃最早的部分
+    private static final int MAX_LOG_CHARS = 200_000;
+    // 批量刷新界面的间隔
+    private static final long FLUSH_INTERVAL_MS = 100;
+
     private TextView textLogs;
     private ScrollView scrollView;
-    
+
     private SshNative sshNative;
     private long sshHandle = 0;
     private boolean isSharedSession = false;
-    
+    private SessionConnector.Connection sshConnection;
+    private volatile ExecStream logStream;
+
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // 读取线程写入、主线程取走的待显示文本
+    private final StringBuilder pendingText = new StringBuilder();
+    private boolean flushScheduled = false;
+    private boolean receivedAny = false;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_docker_logs);
-        
+
         setSupportActionBar(findViewById(R.id.toolbar));
         getSupportActionBar().setDisplayHomeAsUpEnabled(true);
-        
+
         String containerName = getIntent().getStringExtra("container_name");
         getSupportActionBar().setTitle("日志: " + containerName);
 
@@ -72,19 +90,22 @@ public class DockerLogsActivity extends AppCompatActivity {
                         "Connect failed",
                         "Auth failed"
                 );
+                sshConnection = connection;
                 sshHandle = connection.getHandle();
                 isSharedSession = connection.isShared();
 
                 if (sshHandle != 0) {
-                    // 暂时只获取最后100行
-                    // "docker logs --tail 100 <id>"
-                    String logs = sshNative.exec(sshHandle, String.format(CommandConstants.CMD_DOCKER_LOGS_TAIL, containerId));
-                    
-                    mainHandler.post(() -> {
-                        textLogs.setText(logs);
-                        scrollView.fullScroll(ScrollView.FOCUS_DOWN);
-                    });
-                    
+                    // docker 将容器的 stderr 输出到 stderr，两路合并显示
+                    logStream = ExecStream.start(
+                            sshNative,
+                            sshHandle,
+                            String.format(CommandConstants.CMD_DOCKER_LOGS_FOLLOW, containerId),
+                            ExecStream.NO_TIMEOUT,
+                            new LogListener()
+                    );
+                    if (isFinishing() || isDestroyed()) {
+                        logStream.cancel();
+                    }
                 } else {
                     mainHandler.post(() -> Toast.makeText(this, "连接失败", Toast.LENGTH_SHORT).show());
                 }
@@ -94,6 +115,105 @@ public class DockerLogsActivity extends AppCompatActivity {
         });
     }
 
+    private final class LogListener implements ExecStream.Listener {
+        private final Utf8Chunks stdout = new Utf8Chunks();
+        private final Utf8Chunks stderr = new Utf8Chunks();
+
+        @Override
+        public void onStdout(byte[] data, int length) {
+            appendPending(stdout.decode(data, length));
+        }
+
+        @Override
+        public void onStderr(byte[] data, int length) {
+            appendPending(stderr.decode(data, length));
+        }
+
+        @Override
+        public void onExit(ExecStream stream) {
+            if (stream.isCancelled()) {
+                return;
+            }
+            String error = stream.getError();
+            if (error != null) {
+                appendPending("\n错误: " + error + "\n");
+            } else if (stream.getExitStatus() != 0) {
+                appendPending("\n[exit " + stream.getExitStatus() + "]\n");
+            }
+        }
+    }
+
+    private void appendPending(CharSequence text) {
+        if (text.length() == 0) {
+            return;
+        }
+        synchronized (pendingText) {
+            pendingText.append(text);
+            // 界面来不及刷新时，待显示部分同样受上限约束
+            if (pendingText.length() > MAX_LOG_CHARS) {
+                pendingText.delete(0, pendingText.length() - MAX_LOG_CHARS);
+            }
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        mainHandler.postDelayed(this::flushPending, FLUSH_INTERVAL_MS);
+    }
+
+    private void flushPending() {
+        String text;
+        synchronized (pendingText) {
+            text = pendingText.toString();
+            pendingText.setLength(0);
+            flushScheduled = false;
+        }
+        if (isDestroyed()) {
+            return;
+        }
+        boolean atBottom = !scrollView.canScrollVertically(1);
+        if (!receivedAny) {
+            receivedAny = true;
+            textLogs.setText("");
+        }
+        textLogs.append(text);
+        CharSequence current = textLogs.getText();
+        if (current.length() > MAX_LOG_CHARS) {
+            textLogs.setText(current.subSequence(current.length() - MAX_LOG_CHARS, current.length()));
+        }
+        if (atBottom) {
+            scrollView.post(() -> scrollView.fullScroll(ScrollView.FOCUS_DOWN));
+        }
+    }
+
+    /**
+     * 增量 UTF-8 解码，保留跨分块的不完整字节序列
+     */
+    private static final class Utf8Chunks {
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final ByteBuffer bytes = ByteBuffer.allocate(8192 + 4);
+        private final CharBuffer chars = CharBuffer.allocate(8192 + 4);
+
+        String decode(byte[] data, int length) {
+            StringBuilder out = new StringBuilder(length);
+            int offset = 0;
+            while (offset < length) {
+                int n = Math.min(bytes.remaining(), length - offset);
+                bytes.put(data, offset, n);
+                offset += n;
+                bytes.flip();
+                decoder.decode(bytes, chars, false);
+                bytes.compact();
+                chars.flip();
+                out.append(chars);
+                chars.clear();
+            }
+            return out.toString();
+        }
+    }
+
     @Override
     public boolean onSupportNavigateUp() {
         finish();
@@ -103,11 +223,28 @@ public class DockerLogsActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        final ExecStream stream = logStream;
+        logStream = null;
         final long handle = sshHandle;
         final boolean shared = isSharedSession;
+        final SessionConnector.Connection connection = sshConnection;
         sshHandle = 0;
         isSharedSession = false;
+        sshConnection = null;
+        mainHandler.removeCallbacksAndMessages(null);
         new Thread(() -> {
+            if (stream != null) {
+                stream.cancel();
+                try {
+                    // 独占连接需等读取线程释放通道后再断开
+                    stream.await(2, java.util.concurrent.TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (connection != null) {
+                connection.release();
+            }
             if (handle != 0 && !shared) {
                 sshNative.disconnect(handle);
             }
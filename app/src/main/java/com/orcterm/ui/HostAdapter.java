@@ -533,7 +533,13 @@ public class HostAdapter extends ListAdapter<HostEntity, HostAdapter.HostViewHol
                    oldItem.keepAliveReply == newItem.keepAliveReply &&
                    oldItem.hostKeyPolicy == newItem.hostKeyPolicy &&
                    oldItem.environmentType == newItem.environmentType &&
-                   TextUtils.equals(oldItem.terminalThemePreset, newItem.terminalThemePreset);
+                   TextUtils.equals(oldItem.terminalThemePreset, newItem.terminalThemePreset) &&
+                   oldItem.predictiveEcho == newItem.predictiveEcho &&
+                   oldItem.compression == newItem.compression &&
+                   TextUtils.equals(oldItem.cipherPrefs, newItem.cipherPrefs) &&
+                   TextUtils.equals(oldItem.macPrefs, newItem.macPrefs) &&
+                   TextUtils.equals(oldItem.kexPrefs, newItem.kexPrefs) &&
+                   oldItem.jumpHostId == newItem.jumpHostId;
         }
     }
 }
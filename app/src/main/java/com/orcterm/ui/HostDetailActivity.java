@@ -36,6 +36,7 @@ import com.github.mikephil.charting.formatter.IndexAxisValueFormatter;
 import com.google.android.material.color.MaterialColors;
 import com.orcterm.R;
 import com.orcterm.core.session.SessionConnector;
+import com.orcterm.core.ssh.ExecResult;
 import com.orcterm.core.ssh.SshNative;
 import com.orcterm.core.session.SessionInfo;
 import com.orcterm.core.session.SessionManager;
@@ -87,12 +88,13 @@ public class HostDetailActivity extends AppCompatActivity {
 
     private SshNative sshNative;
     private long sshHandle = 0;
+    // 连接池租约，页面停止时归还，短时间内再次进入可复用
+    private SessionConnector.Connection sshConnection;
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
     private volatile boolean isMonitoring = false;
     private volatile boolean monitoringTaskRunning = false;
     private long sharedSessionId = -1;
-    private boolean keepSharedHandle = false;
 
     private String lsblkOutput = "";
     private List<Entry> netDownloadEntries = new ArrayList<>();
@@ -418,7 +420,7 @@ public class HostDetailActivity extends AppCompatActivity {
 
     private void connectSsh() throws Exception {
         if (sshHandle == 0) {
-            SessionConnector.Connection connection = SessionConnector.connectFresh(
+            SessionConnector.Connection connection = SessionConnector.acquire(
                     sshNative,
                     hostname,
                     port,
@@ -429,24 +431,21 @@ public class HostDetailActivity extends AppCompatActivity {
                     "Connect failed",
                     "Auth failed"
             );
+            sshConnection = connection;
             sshHandle = connection.getHandle();
-            registerSharedSessionHandle();
+            registerSession();
         }
     }
     
-    // 将主机详情的 SSH 连接交给会话管理，退出后可在底部终端继续使用
-    private void registerSharedSessionHandle() {
-        if (sshHandle == 0 || keepSharedHandle) {
+    // 登记主机会话，退出后可在底部终端继续使用；池中的连接不交给终端，终端自行建立连接
+    private void registerSession() {
+        if (sshHandle == 0 || sharedSessionId > 0) {
             return;
         }
         SessionManager manager = SessionManager.getInstance();
         SessionInfo existing = findExistingSession(manager.getSessions());
         if (existing != null) {
             sharedSessionId = existing.id;
-            if (manager.getTerminalSession(existing.id) == null) {
-                manager.putSharedHandle(existing.id, sshHandle);
-                keepSharedHandle = true;
-            }
             manager.upsertSession(
                 new SessionInfo(existing.id, existing.name, hostname, port, username, password, authType, keyPath, true),
                 manager.getTerminalSession(existing.id)
@@ -456,8 +455,6 @@ public class HostDetailActivity extends AppCompatActivity {
         sharedSessionId = System.currentTimeMillis();
         SessionInfo info = new SessionInfo(sharedSessionId, hostname, hostname, port, username, password, authType, keyPath, true);
         manager.upsertSession(info, null);
-        manager.putSharedHandle(sharedSessionId, sshHandle);
-        keepSharedHandle = true;
     }
     
     private SessionInfo findExistingSession(List<SessionInfo> sessions) {
@@ -474,13 +471,21 @@ public class HostDetailActivity extends AppCompatActivity {
 
     private void fetchSystemInfo() {
         try {
-            // Run commands one by one or combined
-            String host = exec(CommandConstants.CMD_HOSTNAME);
+            if (sshHandle == 0) return;
+            // 四条命令在同一连接上并行执行，uname 作为发行版名称的后备一并获取
+            Map<String, ExecResult> results = SessionConnector.execBatch(sshNative, sshHandle)
+                    .add("host", CommandConstants.CMD_HOSTNAME)
+                    .add("release", CommandConstants.CMD_OS_PRETTY_NAME)
+                    .add("uname", CommandConstants.CMD_UNAME_O)
+                    .add("ip", CommandConstants.CMD_HOSTNAME_IP)
+                    .build()
+                    .run();
+            String host = results.get("host").getStdoutText().trim();
             // Try to get pretty name, fallback to uname
-            String release = exec(CommandConstants.CMD_OS_PRETTY_NAME);
-            if (release.isEmpty()) release = exec(CommandConstants.CMD_UNAME_O);
+            String release = results.get("release").getStdoutText().trim();
+            if (release.isEmpty()) release = results.get("uname").getStdoutText().trim();
             
-            String ip = exec(CommandConstants.CMD_HOSTNAME_IP);
+            String ip = results.get("ip").getStdoutText().trim();
             
             String finalRelease = release;
             mainHandler.post(() -> {
@@ -1352,26 +1357,24 @@ public class HostDetailActivity extends AppCompatActivity {
     protected void onStop() {
         super.onStop();
         isMonitoring = false;
-        releaseSshIfNeeded(false);
+        releaseSsh();
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
         isMonitoring = false;
-        releaseSshIfNeeded(true);
+        releaseSsh();
         executor.shutdownNow();
     }
 
-    private void releaseSshIfNeeded(boolean forceClear) {
-        final long handle = sshHandle;
-        final boolean keep = keepSharedHandle;
-        if (keep && !forceClear) {
-            return;
-        }
+    // 归还池中的连接，由连接池保活并在空闲超时后关闭
+    private void releaseSsh() {
+        SessionConnector.Connection connection = sshConnection;
+        sshConnection = null;
         sshHandle = 0;
-        if (handle != 0 && !keep) {
-            new Thread(() -> sshNative.disconnect(handle)).start();
+        if (connection != null) {
+            connection.release();
         }
     }
 }
@@ -75,6 +75,7 @@ public class MonitorActivity extends AppCompatActivity {
     private SshNative ssh;
     private long sshHandle = 0;
     private boolean isSharedSession = false;
+    private SessionConnector.Connection sshConnection;
 
     // Stats history
     private List<Entry> netDownloadEntries = new ArrayList<>();
@@ -277,6 +278,7 @@ public class MonitorActivity extends AppCompatActivity {
                 "Connect failed",
                 "Auth failed"
         );
+        sshConnection = connection;
         sshHandle = connection.getHandle();
         isSharedSession = connection.isShared();
     }
@@ -298,6 +300,10 @@ public class MonitorActivity extends AppCompatActivity {
                 ssh.disconnect(sshHandle);
             } catch (Exception ignored) {}
         }
+        if (sshConnection != null) {
+            sshConnection.release();
+            sshConnection = null;
+        }
         sshHandle = 0;
         isSharedSession = false;
     }
@@ -0,0 +1,195 @@
+package com.orcterm.ui;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.format.Formatter;
+import android.view.View;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AlertDialog;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.orcterm.R;
+import com.orcterm.core.session.SessionManager;
+import com.orcterm.core.terminal.TerminalSession;
+import com.orcterm.core.transport.PortForwardSpec;
+import com.orcterm.core.transport.PortForwardStats;
+import com.orcterm.data.AppDatabase;
+import com.orcterm.data.HostEntity;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 端口转发统计界面
+ * 按秒刷新会话中各条转发的流量、速率、连接数与建立耗时，可停止单条转发或删除其保存的配置。
+ */
+public class PortForwardActivity extends AppCompatActivity {
+
+    private static final long REFRESH_INTERVAL_MS = 1000;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // key -> {上次入站字节, 上次出站字节, 采样时间}
+    private final Map<String, long[]> lastSamples = new HashMap<>();
+
+    private TerminalSession session;
+    private PortForwardAdapter adapter;
+    private TextView textSummary;
+    private TextView textEmpty;
+    private RecyclerView recycler;
+
+    private final Runnable refreshTask = new Runnable() {
+        @Override
+        public void run() {
+            refresh();
+            mainHandler.postDelayed(this, REFRESH_INTERVAL_MS);
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_port_forward);
+
+        setSupportActionBar(findViewById(R.id.toolbar));
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+            String title = getIntent().getStringExtra("session_name");
+            getSupportActionBar().setTitle(title == null ? "端口转发" : "端口转发: " + title);
+        }
+
+        textSummary = findViewById(R.id.text_summary);
+        textEmpty = findViewById(R.id.text_empty);
+        recycler = findViewById(R.id.recycler_forwards);
+        recycler.setLayoutManager(new LinearLayoutManager(this));
+        // 每秒整体重绑，关闭变更动画避免闪烁
+        recycler.setItemAnimator(null);
+        adapter = new PortForwardAdapter(this::confirmStop);
+        recycler.setAdapter(adapter);
+
+        long sessionId = getIntent().getLongExtra("session_id", -1);
+        session = SessionManager.getInstance().getTerminalSession(sessionId);
+        if (session == null) {
+            Toast.makeText(this, "会话已关闭", Toast.LENGTH_SHORT).show();
+            finish();
+        }
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        mainHandler.post(refreshTask);
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        mainHandler.removeCallbacks(refreshTask);
+    }
+
+    private void refresh() {
+        if (session == null) {
+            return;
+        }
+        List<PortForwardStats> stats = session.getForwardStats();
+        long now = System.currentTimeMillis();
+        Map<String, long[]> rates = new HashMap<>();
+        long totalIn = 0;
+        long totalOut = 0;
+        long active = 0;
+        for (PortForwardStats item : stats) {
+            long in = item.getBytesIn();
+            long out = item.getBytesOut();
+            totalIn += in;
+            totalOut += out;
+            active += item.getActiveConnections();
+            long[] last = lastSamples.get(item.getKey());
+            if (last != null && now > last[2]) {
+                long elapsed = now - last[2];
+                rates.put(item.getKey(), new long[] {
+                        Math.max(0, in - last[0]) * 1000 / elapsed,
+                        Math.max(0, out - last[1]) * 1000 / elapsed
+                });
+            }
+            lastSamples.put(item.getKey(), new long[] {in, out, now});
+        }
+        // 已停止的转发不再保留采样
+        lastSamples.keySet().retainAll(keysOf(stats));
+
+        adapter.setItems(stats, rates);
+        boolean empty = stats.isEmpty();
+        textEmpty.setVisibility(empty ? View.VISIBLE : View.GONE);
+        recycler.setVisibility(empty ? View.GONE : View.VISIBLE);
+        textSummary.setText(String.format(Locale.US, "%d 条转发 · %d 个活动连接 · ↓ %s  ↑ %s",
+                stats.size(), active,
+                Formatter.formatShortFileSize(this, totalIn),
+                Formatter.formatShortFileSize(this, totalOut)));
+    }
+
+    private static Set<String> keysOf(List<PortForwardStats> stats) {
+        Set<String> keys = new HashSet<>();
+        for (PortForwardStats item : stats) {
+            keys.add(item.getKey());
+        }
+        return keys;
+    }
+
+    private void confirmStop(PortForwardStats stats) {
+        String target = stats.getType() == PortForwardStats.TYPE_REMOTE
+                ? "服务器端口 " + stats.getLocalPort()
+                : "本地端口 " + stats.getLocalPort();
+        PortForwardSpec spec = session.findForwardSpec(stats.getKey());
+        AlertDialog.Builder builder = new AlertDialog.Builder(this)
+                .setTitle("停止转发")
+                .setMessage("停止" + target + " 的转发？活动连接将被断开。"
+                        + (spec != null ? "\n该转发已保存，仅停止时重连后会自动恢复。" : ""))
+                .setPositiveButton("停止", (d, w) -> {
+                    session.stopForward(stats.getKey());
+                    refresh();
+                })
+                .setNegativeButton("取消", null);
+        if (spec != null) {
+            builder.setNeutralButton("停止并删除", (d, w) -> {
+                session.stopForward(stats.getKey());
+                session.removeForwardSpec(stats.getKey());
+                deleteSavedSpec(spec);
+                refresh();
+            });
+        }
+        builder.show();
+    }
+
+    private void deleteSavedSpec(PortForwardSpec spec) {
+        String host = session.getHost();
+        int port = session.getPort();
+        String user = session.getUsername();
+        AppDatabase.databaseWriteExecutor.execute(() -> {
+            AppDatabase db = AppDatabase.getDatabase(this);
+            HostEntity entity = db.hostDao().findByIdentity(host, port, user);
+            if (entity != null) {
+                db.portForwardDao().deleteMatching(entity.id, spec.getType(), spec.getBindHost(), spec.getBindPort(),
+                        spec.getTargetHost(), spec.getTargetPort());
+            }
+        });
+    }
+
+    @Override
+    public boolean onSupportNavigateUp() {
+        finish();
+        return true;
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mainHandler.removeCallbacksAndMessages(null);
+    }
+}
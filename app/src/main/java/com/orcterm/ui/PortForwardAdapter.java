@@ -0,0 +1,171 @@
+package com.orcterm.ui;
+
+import android.text.format.Formatter;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.orcterm.R;
+import com.orcterm.core.transport.PortForwardStats;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 端口转发统计列表适配器
+ * 统计对象持续变化，每次刷新整体重绑；点击条目展开/收起连接明细。
+ */
+public class PortForwardAdapter extends RecyclerView.Adapter<PortForwardAdapter.ViewHolder> {
+
+    // 明细中最多列出的连接数 (按流量排序)
+    private static final int MAX_DETAIL_CONNECTIONS = 20;
+
+    private final OnStopListener listener;
+    private final List<PortForwardStats> items = new ArrayList<>();
+    private final Map<String, long[]> rates = new HashMap<>();
+    private final Set<String> expanded = new HashSet<>();
+
+    public interface OnStopListener {
+        void onStop(PortForwardStats stats);
+    }
+
+    public PortForwardAdapter(OnStopListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @param rates key -> {入站字节/秒, 出站字节/秒}
+     */
+    public void setItems(List<PortForwardStats> stats, Map<String, long[]> rates) {
+        items.clear();
+        items.addAll(stats);
+        this.rates.clear();
+        this.rates.putAll(rates);
+        notifyDataSetChanged();
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_port_forward, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        PortForwardStats stats = items.get(position);
+        View itemView = holder.itemView;
+        boolean isExpanded = expanded.contains(stats.getKey());
+
+        if (stats.getType() == PortForwardStats.TYPE_DYNAMIC) {
+            holder.title.setText(String.format(Locale.US, "SOCKS5 :%d", stats.getLocalPort()));
+        } else if (stats.getType() == PortForwardStats.TYPE_REMOTE) {
+            holder.title.setText(String.format(Locale.US, "远程 :%d → 本机 %s:%d",
+                    stats.getLocalPort(), stats.getTargetHost(), stats.getTargetPort()));
+        } else {
+            holder.title.setText(String.format(Locale.US, ":%d → %s:%d",
+                    stats.getLocalPort(), stats.getTargetHost(), stats.getTargetPort()));
+        }
+
+        long[] rate = rates.get(stats.getKey());
+        holder.traffic.setText(String.format(Locale.US, "↓ %s (%s/s)   ↑ %s (%s/s)",
+                formatBytes(holder, stats.getBytesIn()),
+                formatBytes(holder, rate == null ? 0 : rate[0]),
+                formatBytes(holder, stats.getBytesOut()),
+                formatBytes(holder, rate == null ? 0 : rate[1])));
+        holder.connections.setText(String.format(Locale.US,
+                "活动连接 %d · 累计 %d · 失败 %d · 建立耗时 平均 %d ms / 最大 %d ms",
+                stats.getActiveConnections(), stats.getTotalConnections(), stats.getFailedConnections(),
+                stats.getAverageSetupMs(), stats.getMaxSetupMs()));
+
+        String error = stats.getLastError();
+        holder.error.setVisibility(error == null ? View.GONE : View.VISIBLE);
+        holder.error.setText(error == null ? "" : "最近错误: " + error);
+
+        if (isExpanded) {
+            holder.details.setVisibility(View.VISIBLE);
+            holder.details.setText(buildDetails(holder, stats));
+        } else {
+            holder.details.setVisibility(View.GONE);
+        }
+
+        itemView.setOnClickListener(v -> {
+            if (!expanded.remove(stats.getKey())) {
+                expanded.add(stats.getKey());
+            }
+            notifyItemChanged(holder.getBindingAdapterPosition());
+        });
+        holder.stop.setOnClickListener(v -> {
+            if (listener != null) {
+                listener.onStop(stats);
+            }
+        });
+    }
+
+    @Override
+    public int getItemCount() {
+        return items.size();
+    }
+
+    private String buildDetails(ViewHolder holder, PortForwardStats stats) {
+        List<PortForwardStats.ConnectionStats> conns = stats.getConnections();
+        if (conns.isEmpty()) {
+            return "无活动连接";
+        }
+        conns.sort((a, b) -> Long.compare(b.getBytesIn() + b.getBytesOut(), a.getBytesIn() + a.getBytesOut()));
+        long now = System.currentTimeMillis();
+        StringBuilder sb = new StringBuilder();
+        int shown = Math.min(conns.size(), MAX_DETAIL_CONNECTIONS);
+        for (int i = 0; i < shown; i++) {
+            PortForwardStats.ConnectionStats conn = conns.get(i);
+            String target = conn.getTarget() == null ? "(握手中)" : conn.getTarget();
+            String setup = conn.getSetupMs() < 0 ? "-" : conn.getSetupMs() + "ms";
+            sb.append(conn.getClient()).append(" → ").append(target).append('\n')
+                    .append(String.format(Locale.US, "  ↓ %s  ↑ %s  建立 %s  已持续 %ds",
+                            formatBytes(holder, conn.getBytesIn()),
+                            formatBytes(holder, conn.getBytesOut()),
+                            setup,
+                            (now - conn.getAcceptedAtMs()) / 1000));
+            if (i < shown - 1) {
+                sb.append('\n');
+            }
+        }
+        if (conns.size() > shown) {
+            sb.append('\n').append("… 另有 ").append(conns.size() - shown).append(" 个连接");
+        }
+        return sb.toString();
+    }
+
+    private static String formatBytes(ViewHolder holder, long bytes) {
+        return Formatter.formatShortFileSize(holder.itemView.getContext(), bytes);
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView title;
+        final TextView traffic;
+        final TextView connections;
+        final TextView error;
+        final TextView details;
+        final Button stop;
+
+        ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            title = itemView.findViewById(R.id.text_title);
+            traffic = itemView.findViewById(R.id.text_traffic);
+            connections = itemView.findViewById(R.id.text_connections);
+            error = itemView.findViewById(R.id.text_error);
+            details = itemView.findViewById(R.id.text_details);
+            stop = itemView.findViewById(R.id.button_stop);
+        }
+    }
+}
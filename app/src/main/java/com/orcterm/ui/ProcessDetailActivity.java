@@ -41,6 +41,7 @@ public class ProcessDetailActivity extends AppCompatActivity {
     private SshNative ssh;
     private long sshHandle = 0;
     private boolean isSharedSession = false;
+    private SessionConnector.Connection sshConnection;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -104,6 +105,7 @@ public class ProcessDetailActivity extends AppCompatActivity {
                 "Connect failed",
                 "Auth failed"
         );
+        sshConnection = connection;
         sshHandle = connection.getHandle();
         isSharedSession = connection.isShared();
     }
@@ -164,6 +166,10 @@ public class ProcessDetailActivity extends AppCompatActivity {
         sshHandle = 0;
         isSharedSession = false;
         executor.shutdownNow();
+        if (sshConnection != null) {
+            sshConnection.release();
+            sshConnection = null;
+        }
         if (handle != 0 && !shared) {
             new Thread(() -> ssh.disconnect(handle)).start();
         }
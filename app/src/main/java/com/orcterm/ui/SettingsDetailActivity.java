@@ -204,6 +204,7 @@ public class SettingsDetailActivity extends AppCompatActivity {
         keys.add("ssh_read_timeout_sec");
         keys.add("ssh_keepalive_interval_sec");
         keys.add("ssh_keepalive_reply");
+        keys.add("ssh_keepalive_max_missed");
         keys.add("sftp_default_path");
         keys.add("home_host_auto_connect_enabled");
         keys.add("home_host_list_auto_fetch_enabled");
@@ -228,6 +229,7 @@ public class SettingsDetailActivity extends AppCompatActivity {
         if ("ssh_connect_timeout_sec".equals(key)) return prefs.getInt(key, 10);
         if ("ssh_read_timeout_sec".equals(key)) return prefs.getInt(key, 60);
         if ("ssh_keepalive_interval_sec".equals(key)) return prefs.getInt(key, 0);
+        if ("ssh_keepalive_max_missed".equals(key)) return prefs.getInt(key, 3);
         if ("monitor_refresh_interval_sec".equals(key)) return prefs.getInt(key, 3);
         if ("monitor_process_limit".equals(key)) return prefs.getInt(key, 80);
         if ("terminal_enter_newline".equals(key)) return prefs.getBoolean(key, true);
@@ -306,6 +308,7 @@ public class SettingsDetailActivity extends AppCompatActivity {
         if ("ssh_read_timeout_sec".equals(key)) return getString(R.string.settings_ssh_read_timeout_title);
         if ("ssh_keepalive_interval_sec".equals(key)) return getString(R.string.settings_ssh_keepalive_interval_title);
         if ("ssh_keepalive_reply".equals(key)) return getString(R.string.settings_ssh_keepalive_reply_title);
+        if ("ssh_keepalive_max_missed".equals(key)) return getString(R.string.settings_ssh_keepalive_max_missed_title);
         if ("sftp_default_path".equals(key)) return getString(R.string.settings_ssh_sftp_default_path_title);
         if ("home_host_auto_connect_enabled".equals(key)) return getString(R.string.settings_ssh_home_auto_connect_title);
         if ("home_host_list_auto_fetch_enabled".equals(key)) return getString(R.string.settings_ssh_home_list_auto_fetch_title);
@@ -682,6 +685,8 @@ public class SettingsDetailActivity extends AppCompatActivity {
             updateSshKeepaliveReplySummary(keepaliveReply);
         });
         keepaliveReply.setOnClickListener(v -> keepaliveReplySwitch.toggle());
+        View keepaliveMaxMissed = addItem(R.drawable.ic_action_info, getString(R.string.settings_ssh_keepalive_max_missed_title), "", "ssh_keepalive_max_missed", v -> showSshKeepaliveMaxMissedDialog());
+        updateSshTimeoutSummary(keepaliveMaxMissed, "ssh_keepalive_max_missed", 3, R.string.settings_ssh_keepalive_max_missed_summary);
         View sftpDefaultPath = addItem(R.drawable.ic_action_storage, getString(R.string.settings_ssh_sftp_default_path_title), "", "sftp_default_path", v -> showSftpDefaultPathDialog());
         updateSftpDefaultPathSummary(sftpDefaultPath);
     }
@@ -1349,6 +1354,26 @@ public class SettingsDetailActivity extends AppCompatActivity {
         });
         reconnectItem.setOnClickListener(v -> reconnectSwitch.toggle());
         
+        // 连接中断时自动重连
+        View autoReconnectItem = addItem(R.drawable.ic_action_refresh, getString(R.string.settings_session_auto_reconnect_title), 
+            getString(R.string.settings_session_auto_reconnect_summary), null);
+        Switch autoReconnectSwitch = autoReconnectItem.findViewById(R.id.switch_widget);
+        autoReconnectSwitch.setVisibility(View.VISIBLE);
+        autoReconnectItem.findViewById(R.id.chevron).setVisibility(View.GONE);
+        autoReconnectSwitch.setChecked(manager.isAutoReconnect());
+        autoReconnectSwitch.setOnCheckedChangeListener((btn, isChecked) -> manager.setAutoReconnect(isChecked));
+        autoReconnectItem.setOnClickListener(v -> autoReconnectSwitch.toggle());
+        
+        // 重连后恢复 tmux/screen
+        View reattachItem = addItem(R.drawable.ic_action_refresh, getString(R.string.settings_session_reattach_title), 
+            getString(R.string.settings_session_reattach_summary), null);
+        Switch reattachSwitch = reattachItem.findViewById(R.id.switch_widget);
+        reattachSwitch.setVisibility(View.VISIBLE);
+        reattachItem.findViewById(R.id.chevron).setVisibility(View.GONE);
+        reattachSwitch.setChecked(manager.isReattachMultiplexer());
+        reattachSwitch.setOnCheckedChangeListener((btn, isChecked) -> manager.setReattachMultiplexer(isChecked));
+        reattachItem.setOnClickListener(v -> reattachSwitch.toggle());
+        
         addDivider();
         
         // 心跳保活设置
@@ -1673,6 +1698,10 @@ public class SettingsDetailActivity extends AppCompatActivity {
         showSshNumberDialog(getString(R.string.settings_ssh_keepalive_interval_title), "ssh_keepalive_interval_sec", 0, 0, 3600);
     }
 
+    private void showSshKeepaliveMaxMissedDialog() {
+        showSshNumberDialog(getString(R.string.settings_ssh_keepalive_max_missed_title), "ssh_keepalive_max_missed", 3, 0, 20);
+    }
+
     private void showSftpDefaultPathDialog() {
         EditText input = new EditText(this);
         String current = prefs.getString("sftp_default_path", "/root");
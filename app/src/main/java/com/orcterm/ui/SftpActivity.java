@@ -96,6 +96,8 @@ public class SftpActivity extends AppCompatActivity {
     private SftpRepository sftpRepository;
     private long sshHandle = 0;
     private boolean isSharedSession = false;
+    // 从连接池租用的连接，离开页面时归还
+    private SessionConnector.Connection sshConnection;
     private boolean preferDedicatedConnection = true;
     
     private String hostname, username, password;
@@ -1401,6 +1403,7 @@ public class SftpActivity extends AppCompatActivity {
                 getString(R.string.err_connect_fail),
                 getString(R.string.err_auth_fail)
             );
+            sshConnection = reused;
             sshHandle = reused.getHandle();
             isSharedSession = reused.isShared();
             markSftpSessionConnected();
@@ -1431,6 +1434,7 @@ public class SftpActivity extends AppCompatActivity {
                 if ((!sftpRepository.isValidListResponse(response)
                         || ("[]".equals(response == null ? null : response.trim()) && isSharedSession))
                         && isSharedSession) {
+                    releaseSshConnection(true);
                     isSharedSession = false;
                     sshHandle = 0;
                     preferDedicatedConnection = true;
@@ -1444,6 +1448,7 @@ public class SftpActivity extends AppCompatActivity {
                         } catch (Exception ignored) {
                         }
                     }
+                    releaseSshConnection(true);
                     sshHandle = 0;
                     isSharedSession = false;
                     preferDedicatedConnection = true;
@@ -1577,7 +1582,12 @@ public class SftpActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (sshHandle != 0 && sftpSessionId > 0) {
+        if (sshConnection != null && sshConnection.isPooled()) {
+            // 池化连接归还连接池，不移交给 SessionManager
+            releaseSshConnection(false);
+            sshHandle = 0;
+            isSharedSession = false;
+        } else if (sshHandle != 0 && sftpSessionId > 0) {
             SessionManager.getInstance().putSharedHandle(sftpSessionId, sshHandle);
             sshHandle = 0;
             isSharedSession = true;
@@ -1585,6 +1595,19 @@ public class SftpActivity extends AppCompatActivity {
         executor.shutdownNow();
     }
 
+    private void releaseSshConnection(boolean broken) {
+        SessionConnector.Connection connection = sshConnection;
+        sshConnection = null;
+        if (connection == null) {
+            return;
+        }
+        if (broken) {
+            connection.invalidate();
+        } else {
+            connection.release();
+        }
+    }
+
     private long resolveSftpSessionId(long hintedSessionId) {
         SessionManager manager = SessionManager.getInstance();
         if (hintedSessionId > 0 && manager.getTerminalSession(hintedSessionId) == null) {
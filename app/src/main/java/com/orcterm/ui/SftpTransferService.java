@@ -14,7 +14,7 @@ import android.util.Base64;
 import androidx.core.app.NotificationCompat;
 
 import com.orcterm.R;
-import com.orcterm.core.session.SessionConnector;
+import com.orcterm.core.session.ConnectionPool;
 import com.orcterm.core.session.SessionManager;
 import com.orcterm.core.ssh.SshNative;
 import com.orcterm.core.terminal.TerminalSession;
@@ -577,8 +577,8 @@ public class SftpTransferService extends Service {
                 }
             }
         }
-        SessionConnector.Connection connection = SessionConnector.connectFresh(
-                sshNative,
+        // 其次从连接池租用，池中连接由传输结束时归还
+        ConnectionPool.Lease lease = ConnectionPool.getInstance().lease(
                 task.hostname,
                 task.port,
                 task.username,
@@ -588,10 +588,10 @@ public class SftpTransferService extends Service {
                 getString(R.string.err_connect_fail),
                 getString(R.string.err_auth_fail)
         );
-        long handle = connection.getHandle();
-        task.isSharedHandle = false;
+        task.isSharedHandle = true;
         task.sharedHandleKey = null;
-        return handle;
+        task.poolLease = lease;
+        return lease.getHandle();
     }
 
     private void releaseSharedHandle(TransferTask task) {
@@ -599,8 +599,12 @@ public class SftpTransferService extends Service {
         if (task.sharedHandleKey != null) {
             sharedHandleInUse.remove(task.sharedHandleKey);
         }
+        if (task.poolLease != null) {
+            task.poolLease.release();
+        }
         task.isSharedHandle = false;
         task.sharedHandleKey = null;
+        task.poolLease = null;
     }
 
     private String buildSharedKey(String host, int port, String user) {
@@ -911,6 +915,7 @@ public class SftpTransferService extends Service {
         final String keyPath;
         boolean isSharedHandle = false;
         String sharedHandleKey;
+        ConnectionPool.Lease poolLease;
         long lastUiUpdateTime = 0;
         int lastUiProgress = 0;
 
@@ -29,13 +29,21 @@ import androidx.appcompat.app.AppCompatActivity;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.color.MaterialColors;
 import com.orcterm.R;
+import com.orcterm.core.session.PooledJumpHost;
 import com.orcterm.core.session.SessionInfo;
 import com.orcterm.core.session.SessionManager;
+import com.orcterm.core.terminal.LocalEchoPredictor;
 import com.orcterm.core.terminal.TerminalEmulator;
 import com.orcterm.core.terminal.TerminalSession;
 import com.orcterm.core.transport.HostKeyVerifier;
+import com.orcterm.data.AppDatabase;
+import com.orcterm.data.HostEntity;
+import com.orcterm.data.PortForwardEntity;
+import com.orcterm.ui.common.PasteProgressController;
 import com.orcterm.ui.widget.TerminalInputView;
 import com.orcterm.ui.widget.TerminalView;
+import com.orcterm.util.CommandConstants;
+import com.orcterm.util.SessionPersistenceManager;
 
 import org.json.JSONObject;
 
@@ -112,6 +120,7 @@ public class SshTerminalActivity extends AppCompatActivity {
 
     private TerminalSession session;
     private TerminalEmulator emulator;
+    private LocalEchoPredictor echoPredictor;
     private SharedPreferences terminalPrefs;
     private ThemeRepository themeRepository;
     private SharedPreferences.OnSharedPreferenceChangeListener prefListener;
@@ -122,6 +131,7 @@ public class SshTerminalActivity extends AppCompatActivity {
     private boolean keypadVisible = true;
     private boolean enterNewline = true;
     private boolean localEcho = false;
+    private final PasteProgressController pasteController = new PasteProgressController(this);
     private boolean autoScrollOutput = true;
     private Bitmap terminalBackground;
 
@@ -171,6 +181,22 @@ public class SshTerminalActivity extends AppCompatActivity {
             appendLocalLine(getString(R.string.error_prefix, message));
             upsertSessionInfo(false);
         }
+
+        @Override
+        public void onReconnecting(int attempt, long delayMs) {
+            updateStatus(getString(R.string.ssh_terminal_reconnecting), STATUS_CONNECTING);
+            if (attempt == 0) {
+                appendLocalLine(getString(R.string.ssh_terminal_banner_reconnecting));
+                upsertSessionInfo(false);
+            }
+        }
+
+        @Override
+        public void onReconnected() {
+            updateStatus(getString(R.string.ssh_terminal_connected), STATUS_CONNECTED);
+            appendLocalLine(getString(R.string.ssh_terminal_banner_reconnected, username, hostname, port));
+            upsertSessionInfo(true);
+        }
     };
 
     @Override
@@ -196,6 +222,7 @@ public class SshTerminalActivity extends AppCompatActivity {
             return;
         }
         renderHostText();
+        loadPredictiveEchoMode(getIntent());
         connectOrAttach();
     }
 
@@ -216,12 +243,14 @@ public class SshTerminalActivity extends AppCompatActivity {
         }
         initialCommandSent = false;
         renderHostText();
+        loadPredictiveEchoMode(getIntent());
         connectOrAttach();
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        pasteController.release();
         if (session != null) {
             session.removeListener(sessionListener);
         }
@@ -249,6 +278,8 @@ public class SshTerminalActivity extends AppCompatActivity {
     private void setupTerminalView() {
         emulator = new TerminalEmulator(80, 24);
         terminalView.attachEmulator(emulator);
+        echoPredictor = new LocalEchoPredictor(emulator);
+        terminalView.setEchoPredictor(echoPredictor);
         terminalView.setOnResizeListener((cols, rows) -> {
             if (session != null) {
                 session.resize(cols, rows);
@@ -295,6 +326,11 @@ public class SshTerminalActivity extends AppCompatActivity {
                 dispatchInput(text);
             }
 
+            @Override
+            public void onPaste(String text) {
+                dispatchPaste(text);
+            }
+
             @Override
             public void onKeyDown(int keyCode, KeyEvent event) {
                 handleHardwareKeyDown(keyCode, event);
@@ -1218,6 +1254,30 @@ public class SshTerminalActivity extends AppCompatActivity {
         hostText.setText(getString(R.string.session_host_format, username, hostname, port));
     }
 
+    // 预测回显按主机配置，未保存的主机使用默认的自适应模式
+    private void loadPredictiveEchoMode(Intent intent) {
+        echoPredictor.reset();
+        if (intent.hasExtra("predictive_echo")) {
+            echoPredictor.setMode(intent.getIntExtra("predictive_echo", LocalEchoPredictor.MODE_ADAPTIVE));
+            return;
+        }
+        echoPredictor.setMode(LocalEchoPredictor.MODE_ADAPTIVE);
+        final String targetHost = hostname;
+        final int targetPort = port;
+        final String targetUser = username;
+        AppDatabase.databaseWriteExecutor.execute(() -> {
+            HostEntity host = AppDatabase.getDatabase(this).hostDao().findByIdentity(targetHost, targetPort, targetUser);
+            if (host == null) {
+                return;
+            }
+            runOnUiThread(() -> {
+                if (echoPredictor != null && TextUtils.equals(targetHost, hostname) && targetPort == port) {
+                    echoPredictor.setMode(host.predictiveEcho);
+                }
+            });
+        });
+    }
+
     private void connectOrAttach() {
         TerminalSession preferred = SessionManager.getInstance().getTerminalSession(sessionId);
         if (preferred != null && preferred.isConnected()) {
@@ -1241,6 +1301,7 @@ public class SshTerminalActivity extends AppCompatActivity {
         }
         session = target;
         session.addListener(sessionListener);
+        session.setEmulator(emulator);
         updateStatus(getString(R.string.ssh_terminal_connected), STATUS_CONNECTED);
         if (reused) {
             appendLocalLine(getString(R.string.ssh_terminal_banner_reusing_session));
@@ -1256,10 +1317,38 @@ public class SshTerminalActivity extends AppCompatActivity {
         session = new TerminalSession();
         session.setHostKeyVerifier(createHostKeyVerifier());
         session.addListener(sessionListener);
+        session.setEmulator(emulator);
         updateStatus(getString(R.string.ssh_terminal_connecting), STATUS_CONNECTING);
         appendLocalLine(getString(R.string.ssh_terminal_banner_connecting, username, hostname, port));
         upsertSessionInfo(false);
-        session.connect(hostname, port, username, password, authType, keyPath);
+        // 传输压缩与算法偏好需在握手前确定，先读取主机配置再发起连接
+        final TerminalSession target = session;
+        final String targetHost = hostname;
+        final int targetPort = port;
+        final String targetUser = username;
+        final String targetPassword = password;
+        final int targetAuthType = authType;
+        final String targetKeyPath = keyPath;
+        AppDatabase.databaseWriteExecutor.execute(() -> {
+            AppDatabase db = AppDatabase.getDatabase(this);
+            HostEntity host = db.hostDao().findByIdentity(targetHost, targetPort, targetUser);
+            applyReconnectPolicy(target);
+            target.setCompressionEnabled(host != null && host.compression);
+            if (host != null) {
+                target.setMethodPreferences(host.cipherPrefs, host.macPrefs, host.kexPrefs);
+                target.setForwardSpecs(PortForwardEntity.toSpecs(db.portForwardDao().getForHost(host.id)));
+            }
+            HostEntity jump = host != null && host.jumpHostId != 0 ? db.hostDao().findById(host.jumpHostId) : null;
+            target.setJumpHost(jump != null ? new PooledJumpHost(jump) : null);
+            target.connect(targetHost, targetPort, targetUser, targetPassword, targetAuthType, targetKeyPath);
+        });
+    }
+
+    // 断线自动重连与 tmux/screen 恢复按会话策略设置
+    private void applyReconnectPolicy(TerminalSession target) {
+        SessionPersistenceManager manager = SessionPersistenceManager.getInstance(this);
+        target.setAutoReconnect(manager.isAutoReconnect());
+        target.setReattachCommand(manager.isReattachMultiplexer() ? CommandConstants.CMD_REATTACH_MULTIPLEXER : null);
     }
 
     private void reconnectSession() {
@@ -1268,6 +1357,9 @@ public class SshTerminalActivity extends AppCompatActivity {
             session.removeListener(sessionListener);
             session.disconnect();
         }
+        if (echoPredictor != null) {
+            echoPredictor.reset();
+        }
         connectNewSession();
     }
 
@@ -1292,9 +1384,31 @@ public class SshTerminalActivity extends AppCompatActivity {
             Toast.makeText(this, getString(R.string.ssh_terminal_not_connected), Toast.LENGTH_SHORT).show();
             return;
         }
+        if (!localEcho && echoPredictor != null && echoPredictor.getMode() != LocalEchoPredictor.MODE_OFF) {
+            echoPredictor.setObservedLatencyMs(session.getInputLatencyStats().p50Ms);
+            terminalView.predictInput(send);
+        }
         session.write(send);
     }
 
+    private void dispatchPaste(String text) {
+        if (TextUtils.isEmpty(text)) {
+            return;
+        }
+        if (session == null || !session.isConnected()) {
+            Toast.makeText(this, getString(R.string.ssh_terminal_not_connected), Toast.LENGTH_SHORT).show();
+            return;
+        }
+        String send = normalizeLineEnding(text);
+        if (localEcho) {
+            terminalView.append(send);
+        }
+        if (autoScrollOutput) {
+            terminalView.scrollToBottom();
+        }
+        pasteController.start(session, send);
+    }
+
     private String normalizeLineEnding(String text) {
         if (text == null) {
             return "";
@@ -10,6 +10,10 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.color.MaterialColors;
 import com.orcterm.R;
 import com.orcterm.core.session.SessionInfo;
+import com.orcterm.core.session.SessionManager;
+import com.orcterm.core.terminal.InputLatencyTracker;
+import com.orcterm.core.terminal.TerminalSession;
+import com.orcterm.core.transport.RttSeries;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -62,12 +66,14 @@ public class SessionAdapter extends RecyclerView.Adapter<SessionAdapter.SessionV
         TextView textName;
         TextView textHost;
         TextView textStatus;
+        TextView textLatency;
 
         SessionViewHolder(View itemView) {
             super(itemView);
             textName = itemView.findViewById(R.id.text_name);
             textHost = itemView.findViewById(R.id.text_host);
             textStatus = itemView.findViewById(R.id.text_status);
+            textLatency = itemView.findViewById(R.id.text_latency);
 
             itemView.setOnClickListener(v -> {
                 if (listener != null && getAdapterPosition() != RecyclerView.NO_POSITION) {
@@ -98,6 +104,29 @@ public class SessionAdapter extends RecyclerView.Adapter<SessionAdapter.SessionV
             int padH = (int) (6 * itemView.getResources().getDisplayMetrics().density);
             int padV = (int) (2 * itemView.getResources().getDisplayMetrics().density);
             textStatus.setPadding(padH, padV, padH, padV);
+            bindLatency(session);
+        }
+
+        private void bindLatency(SessionInfo session) {
+            TerminalSession terminalSession = SessionManager.getInstance().getTerminalSession(session.id);
+            InputLatencyTracker.Snapshot stats = terminalSession != null ? terminalSession.getInputLatencyStats() : null;
+            RttSeries rtt = terminalSession != null ? terminalSession.getRttSeries() : null;
+            String text = null;
+            if (stats != null && stats.count > 0) {
+                text = itemView.getContext().getString(R.string.session_latency_format,
+                    (int) stats.p50Ms, (int) stats.p90Ms, (int) stats.avgNetworkMs, (int) stats.avgDispatchMs);
+            }
+            if (rtt != null && rtt.getSampleCount() > 0) {
+                String rttText = itemView.getContext().getString(R.string.session_rtt_format,
+                    rtt.getLastMs(), rtt.getAverageMs());
+                text = text == null ? rttText : text + " · " + rttText;
+            }
+            if (text == null) {
+                textLatency.setVisibility(View.GONE);
+                return;
+            }
+            textLatency.setText(text);
+            textLatency.setVisibility(View.VISIBLE);
         }
     }
 }
@@ -0,0 +1,124 @@
+package com.orcterm.ui.common;
+
+import android.app.Activity;
+import android.widget.LinearLayout;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AlertDialog;
+
+import com.orcterm.R;
+import com.orcterm.core.terminal.TerminalSession;
+
+/**
+ * Streams a paste into a terminal session and shows a cancelable progress dialog for large pastes.
+ */
+public final class PasteProgressController {
+
+    // Pastes below this size finish before a dialog would be readable
+    private static final int PROGRESS_DIALOG_MIN_CHARS = 32 * 1024;
+
+    private final Activity activity;
+    @Nullable
+    private TerminalSession.PasteTask activeTask;
+    @Nullable
+    private AlertDialog dialog;
+    @Nullable
+    private ProgressBar progressBar;
+    @Nullable
+    private TextView progressText;
+
+    public PasteProgressController(Activity activity) {
+        this.activity = activity;
+    }
+
+    /**
+     * Starts pasting; a paste still in flight is canceled first.
+     */
+    public void start(TerminalSession session, String text) {
+        cancel();
+        boolean showDialog = text.length() >= PROGRESS_DIALOG_MIN_CHARS;
+        if (showDialog) {
+            showDialog(text.length());
+        }
+        final TerminalSession.PasteTask[] holder = new TerminalSession.PasteTask[1];
+        holder[0] = session.paste(text, new TerminalSession.PasteListener() {
+            @Override
+            public void onProgress(int sentChars, int totalChars) {
+                if (holder[0] == activeTask) {
+                    updateProgress(sentChars, totalChars);
+                }
+            }
+
+            @Override
+            public void onFinished(boolean completed) {
+                if (holder[0] != activeTask) {
+                    return;
+                }
+                activeTask = null;
+                dismissDialog();
+                if (!completed && showDialog && !activity.isFinishing()) {
+                    Toast.makeText(activity, R.string.terminal_paste_cancelled, Toast.LENGTH_SHORT).show();
+                }
+            }
+        });
+        activeTask = holder[0];
+    }
+
+    public void cancel() {
+        if (activeTask != null) {
+            activeTask.cancel();
+            activeTask = null;
+        }
+        dismissDialog();
+    }
+
+    /**
+     * Detaches from the activity; the paste keeps streaming in the session.
+     */
+    public void release() {
+        activeTask = null;
+        dismissDialog();
+    }
+
+    private void showDialog(int totalChars) {
+        int padding = (int) (20 * activity.getResources().getDisplayMetrics().density);
+        LinearLayout content = new LinearLayout(activity);
+        content.setOrientation(LinearLayout.VERTICAL);
+        content.setPadding(padding, padding / 2, padding, 0);
+        progressBar = new ProgressBar(activity, null, android.R.attr.progressBarStyleHorizontal);
+        progressBar.setMax(Math.max(1, totalChars));
+        progressText = new TextView(activity);
+        content.addView(progressBar);
+        content.addView(progressText);
+        updateProgress(0, totalChars);
+        dialog = new AlertDialog.Builder(activity)
+            .setTitle(R.string.terminal_paste_progress_title)
+            .setView(content)
+            .setCancelable(false)
+            .setNegativeButton(R.string.action_cancel, (d, w) -> cancel())
+            .show();
+    }
+
+    private void updateProgress(int sentChars, int totalChars) {
+        if (progressBar != null) {
+            progressBar.setProgress(sentChars);
+        }
+        if (progressText != null) {
+            progressText.setText(activity.getString(R.string.terminal_paste_progress_message, sentChars, totalChars));
+        }
+    }
+
+    private void dismissDialog() {
+        if (dialog != null) {
+            if (dialog.isShowing() && !activity.isDestroyed()) {
+                dialog.dismiss();
+            }
+            dialog = null;
+        }
+        progressBar = null;
+        progressText = null;
+    }
+}
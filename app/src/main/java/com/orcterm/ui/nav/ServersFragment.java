@@ -25,6 +25,7 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.snackbar.Snackbar;
+import com.orcterm.core.session.ConnectionPool;
 import com.orcterm.core.session.SessionConnector;
 import com.orcterm.core.ssh.SshNative;
 import com.orcterm.R;
@@ -87,6 +88,9 @@ public class ServersFragment extends Fragment {
     private static final long MONITOR_INTERVAL_BACKGROUND_MS = 30000;
     private final Map<Long, Long> monitorHandles = new ConcurrentHashMap<>();
     private final Set<Long> sharedMonitorHosts = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private boolean poolPrewarmed = false;
+    // 监控使用的连接池租约，停止监控时归还
+    private final Map<Long, SessionConnector.Connection> monitorConnections = new ConcurrentHashMap<>();
     private final Map<Long, Integer> monitorFailCounts = new ConcurrentHashMap<>();
     private final Map<Long, Long> monitorNextRetryTimes = new ConcurrentHashMap<>();
     private final Map<Long, Long> monitorLastSuccessTimes = new ConcurrentHashMap<>();
@@ -179,6 +183,11 @@ public class ServersFragment extends Fragment {
         mHostViewModel.getAllHosts().observe(getViewLifecycleOwner(), hosts -> {
             mAllHosts = new ArrayList<>(hosts);
             filterAndSort();
+            // 首次加载时按设置预热最近使用的主机连接
+            if (!poolPrewarmed) {
+                poolPrewarmed = true;
+                ConnectionPool.getInstance().prewarmRecent(requireContext(), mAllHosts);
+            }
             // 如果当前未选择主机且列表非空，默认选择第一个
             if (navViewModel.getCurrentHostId().getValue() == null && !mAllHosts.isEmpty()) {
                 long savedId = prefs.getLong("current_host_id", -1L);
@@ -294,6 +303,10 @@ public class ServersFragment extends Fragment {
                 Long handle = entry.getValue();
                 if (handle != 0) ssh.disconnect(handle);
             }
+            for (SessionConnector.Connection connection : monitorConnections.values()) {
+                connection.release();
+            }
+            monitorConnections.clear();
             monitorHandles.clear();
             sharedMonitorHosts.clear();
             monitorFailCounts.clear();
@@ -374,6 +387,7 @@ public class ServersFragment extends Fragment {
                 );
                 handle = connection.getHandle();
                 if (!monitoringEnabled) {
+                    connection.release();
                     if (!connection.isShared()) {
                         try {
                             ssh.disconnect(handle);
@@ -383,6 +397,10 @@ public class ServersFragment extends Fragment {
                     return;
                 }
                 monitorHandles.put(host.id, handle);
+                SessionConnector.Connection previous = monitorConnections.put(host.id, connection);
+                if (previous != null) {
+                    previous.release();
+                }
                 if (connection.isShared()) {
                     sharedMonitorHosts.add(host.id);
                     isSharedHandle = true;
@@ -418,6 +436,10 @@ public class ServersFragment extends Fragment {
             }
             monitorHandles.remove(host.id); // Remove invalid handle
             sharedMonitorHosts.remove(host.id);
+            SessionConnector.Connection failed = monitorConnections.remove(host.id);
+            if (failed != null) {
+                failed.invalidate();
+            }
             int failCount = monitorFailCounts.getOrDefault(host.id, 0) + 1;
             monitorFailCounts.put(host.id, failCount);
             long delay = Math.min(60000L, 2000L << Math.min(failCount, 5));
@@ -1048,6 +1070,12 @@ public class ServersFragment extends Fragment {
         intent.putExtra("hostkey_policy", host.hostKeyPolicy);
         intent.putExtra("environment_type", host.environmentType);
         intent.putExtra("terminal_theme_preset", host.terminalThemePreset);
+        intent.putExtra("predictive_echo", host.predictiveEcho);
+        intent.putExtra("compression", host.compression);
+        intent.putExtra("cipher_prefs", host.cipherPrefs);
+        intent.putExtra("mac_prefs", host.macPrefs);
+        intent.putExtra("kex_prefs", host.kexPrefs);
+        intent.putExtra("jump_host_id", host.jumpHostId);
         startActivity(intent);
     }
 
@@ -1098,9 +1126,10 @@ public class ServersFragment extends Fragment {
         Toast.makeText(requireContext(), "正在诊断 " + host.alias + "...", Toast.LENGTH_SHORT).show();
         executor.execute(() -> {
             SshNative ssh = new SshNative();
+            SessionConnector.Connection connection = null;
             long handle = 0;
             try {
-                SessionConnector.Connection connection = SessionConnector.connectFresh(
+                connection = SessionConnector.acquire(
                         ssh,
                         host.hostname,
                         host.port,
@@ -1159,7 +1188,7 @@ public class ServersFragment extends Fragment {
                     getActivity().runOnUiThread(() -> Toast.makeText(requireContext(), host.alias + " 诊断失败: " + e.getMessage(), Toast.LENGTH_LONG).show());
                 }
             } finally {
-                if (handle != 0) ssh.disconnect(handle);
+                if (connection != null) connection.release();
             }
         });
     }
@@ -1178,9 +1207,10 @@ public class ServersFragment extends Fragment {
         String cmd = action.equals("reboot") ? CommandConstants.CMD_SUDO_REBOOT : CommandConstants.CMD_SUDO_SHUTDOWN;
         executor.execute(() -> {
             SshNative ssh = new SshNative();
+            SessionConnector.Connection connection = null;
             long handle = 0;
             try {
-                SessionConnector.Connection connection = SessionConnector.connectFresh(
+                connection = SessionConnector.acquire(
                         ssh,
                         host.hostname,
                         host.port,
@@ -1203,7 +1233,8 @@ public class ServersFragment extends Fragment {
                     getActivity().runOnUiThread(() -> Toast.makeText(requireContext(), host.alias + " 执行失败: " + e.getMessage(), Toast.LENGTH_LONG).show());
                 }
             } finally {
-                if (handle != 0) ssh.disconnect(handle);
+                // 重启或关机后连接必然断开，不放回连接池
+                if (connection != null) connection.invalidate();
             }
         });
     }
@@ -0,0 +1,105 @@
+package com.orcterm.ui.widget;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 字形回退缓存
+ * 每个主字体对应一个实例，惰性地为每个码位确定一次使用哪一个字体，
+ * 避免混合中英文与制表符输出时每帧都由 Paint 逐次回退。
+ * Paint.hasGlyph 会检查系统回退链，无法判断字体本身是否包含该字形；
+ * 因此按字体测量字符宽度，与该字体的单元格宽度 (或两倍，宽字符) 一致时才认为其可用，
+ * 由回退字体画出、会破坏网格对齐的字形则继续尝试链中的下一个字体。
+ * 回退链: 主字体 -> 等宽字体 -> 系统默认字体；都不合适时仍使用主字体。
+ * 仅在主线程使用。
+ */
+final class GlyphFallbackCache {
+
+    /** 主字体索引 */
+    static final int PRIMARY = 0;
+
+    private static final Map<Typeface, GlyphFallbackCache> CACHES = new WeakHashMap<>();
+    // 测量用字号，足够大以区分细小的宽度差异
+    private static final float PROBE_TEXT_SIZE = 100f;
+    // 宽度与单元格的相对误差上限
+    private static final float ADVANCE_TOLERANCE = 0.05f;
+
+    private final Typeface[] chain;
+    private final Paint probePaint = new Paint();
+    // 各字体的单元格宽度 (以 "M" 的宽度计)
+    private final float[] cellWidths;
+    // BMP 码位 -> 字体索引 + 1，0 表示尚未探测
+    private final byte[] fontIndexByChar = new byte[65536];
+
+    private GlyphFallbackCache(Typeface primary) {
+        if (primary == Typeface.MONOSPACE) {
+            chain = new Typeface[]{primary, Typeface.DEFAULT};
+        } else {
+            chain = new Typeface[]{primary, Typeface.MONOSPACE, Typeface.DEFAULT};
+        }
+        probePaint.setTextSize(PROBE_TEXT_SIZE);
+        cellWidths = new float[chain.length];
+        for (int i = 0; i < chain.length; i++) {
+            probePaint.setTypeface(chain[i]);
+            cellWidths[i] = probePaint.measureText("M");
+        }
+    }
+
+    static GlyphFallbackCache forTypeface(Typeface typeface) {
+        Typeface key = typeface != null ? typeface : Typeface.MONOSPACE;
+        GlyphFallbackCache cache = CACHES.get(key);
+        if (cache == null) {
+            cache = new GlyphFallbackCache(key);
+            CACHES.put(key, cache);
+        }
+        return cache;
+    }
+
+    /**
+     * 获取字符应使用的字体索引，每个码位只探测一次
+     */
+    int fontIndexOf(char c) {
+        if (c < 0x7f || Character.isSurrogate(c)) {
+            // ASCII 由主字体覆盖；代理对无法单独探测，交给主字体
+            return PRIMARY;
+        }
+        int cached = fontIndexByChar[c];
+        if (cached != 0) {
+            return cached - 1;
+        }
+        int index = PRIMARY;
+        String probe = String.valueOf(c);
+        for (int i = 0; i < chain.length; i++) {
+            probePaint.setTypeface(chain[i]);
+            if (!probePaint.hasGlyph(probe)) {
+                // 系统回退链中也没有该字形，其他字体同样无法显示
+                break;
+            }
+            if (fitsCell(probePaint.measureText(probe), cellWidths[i])) {
+                index = i;
+                break;
+            }
+        }
+        fontIndexByChar[c] = (byte) (index + 1);
+        return index;
+    }
+
+    private static boolean fitsCell(float advance, float cell) {
+        if (cell <= 0f) {
+            return false;
+        }
+        return Math.abs(advance - cell) <= cell * ADVANCE_TOLERANCE
+                || Math.abs(advance - cell * 2) <= cell * 2 * ADVANCE_TOLERANCE;
+    }
+
+    Typeface getTypeface(int index) {
+        return index >= 0 && index < chain.length ? chain[index] : chain[PRIMARY];
+    }
+
+    int getFontCount() {
+        return chain.length;
+    }
+}
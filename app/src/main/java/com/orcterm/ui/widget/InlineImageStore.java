@@ -0,0 +1,317 @@
+package com.orcterm.ui.widget;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.orcterm.core.terminal.KittyGraphicsCommand;
+import com.orcterm.core.terminal.SixelDecoder;
+import com.orcterm.core.terminal.TerminalEmulator;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * 内联图像位图缓存
+ * 每个仿真器 (会话) 一个实例，由 TerminalRenderBuffer 持有：
+ * 图像在后台线程解码并缩小到所占单元格大小，按字节预算做 LRU 淘汰，
+ * 被淘汰的图像在视图中以占位框显示，不会重新解码。
+ * 待解码的载荷按数量与字节数限额排队，超出时丢弃最早的；已被擦除或覆盖的图像在解码前移出队列。
+ * 除解码任务外，所有方法需在主线程调用。
+ */
+final class InlineImageStore implements TerminalEmulator.ImageListener {
+
+    private static final String TAG = "InlineImageStore";
+    /** 每个会话的位图字节预算 */
+    static final int DEFAULT_BUDGET_BYTES = 16 * 1024 * 1024;
+    // 未给出像素尺寸的压缩 PNG 解压后的上限
+    private static final int MAX_INFLATED_PNG_BYTES = 16 * 1024 * 1024;
+    // 每个会话排队等待解码的图像数与载荷字节数上限
+    private static final int MAX_PENDING_DECODES = 8;
+    private static final long MAX_PENDING_BYTES = 16L * 1024 * 1024;
+
+    private static final ExecutorService DECODE_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "InlineImageDecoder");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
+    private final TerminalRenderBuffer owner;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final LruCache<Integer, Bitmap> bitmaps;
+    // 解码期间被移除的图像，结果回到主线程时丢弃 (主线程)
+    private final java.util.Set<Integer> removedIds = new java.util.HashSet<>();
+    // 等待解码的载荷，主线程入队、解码线程出队；以下字段由 pending 保护
+    private final ArrayDeque<PendingDecode> pending = new ArrayDeque<>();
+    // 已出队、结果尚未回到主线程的图像
+    private final java.util.Set<Integer> decodingIds = new java.util.HashSet<>();
+    private long pendingBytes;
+    private boolean draining;
+    private int cellWidth = 10;
+    private int cellHeight = 20;
+
+    InlineImageStore(TerminalRenderBuffer owner, int budgetBytes) {
+        this.owner = owner;
+        this.bitmaps = new LruCache<Integer, Bitmap>(budgetBytes) {
+            @Override
+            protected int sizeOf(Integer key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+    }
+
+    void setCellSize(int width, int height) {
+        if (width > 0 && height > 0) {
+            cellWidth = width;
+            cellHeight = height;
+        }
+    }
+
+    Bitmap getBitmap(int id) {
+        return bitmaps.get(id);
+    }
+
+    void clear() {
+        synchronized (pending) {
+            pending.clear();
+            pendingBytes = 0;
+        }
+        bitmaps.evictAll();
+    }
+
+    @Override
+    public void onImagePlaced(TerminalEmulator.ImagePlacement placement, String sixel, KittyGraphicsCommand kitty) {
+        PendingDecode task = new PendingDecode(placement.id, sixel, kitty,
+            placement.cellColumns * cellWidth, placement.cellRows * cellHeight);
+        removedIds.remove(task.id);
+        boolean start;
+        synchronized (pending) {
+            pending.addLast(task);
+            pendingBytes += task.bytes;
+            // 输出过快时只保留最新的图像，较早的以占位框显示
+            while (pending.size() > 1 && (pending.size() > MAX_PENDING_DECODES || pendingBytes > MAX_PENDING_BYTES)) {
+                PendingDecode dropped = pending.removeFirst();
+                pendingBytes -= dropped.bytes;
+            }
+            start = !draining;
+            draining = true;
+        }
+        if (start) {
+            DECODE_EXECUTOR.execute(this::drainPending);
+        }
+    }
+
+    @Override
+    public void onImageRemoved(int id) {
+        if (bitmaps.remove(id) != null) {
+            return;
+        }
+        synchronized (pending) {
+            java.util.Iterator<PendingDecode> it = pending.iterator();
+            while (it.hasNext()) {
+                PendingDecode task = it.next();
+                if (task.id == id) {
+                    // 尚未开始解码，直接丢弃
+                    it.remove();
+                    pendingBytes -= task.bytes;
+                    return;
+                }
+            }
+            if (decodingIds.contains(id)) {
+                // 正在解码，结果回到主线程时丢弃
+                removedIds.add(id);
+            }
+        }
+    }
+
+    // 解码线程：依次取出本会话的待解码图像，队列为空时退出
+    private void drainPending() {
+        while (true) {
+            PendingDecode task;
+            synchronized (pending) {
+                task = pending.pollFirst();
+                if (task == null) {
+                    draining = false;
+                    return;
+                }
+                pendingBytes -= task.bytes;
+                decodingIds.add(task.id);
+            }
+            decode(task);
+        }
+    }
+
+    private void decode(PendingDecode task) {
+        final int id = task.id;
+        Bitmap bitmap = null;
+        try {
+            bitmap = task.sixel != null
+                ? decodeSixel(task.sixel, task.maxWidth, task.maxHeight)
+                : decodeKitty(task.kitty, task.maxWidth, task.maxHeight);
+        } catch (RuntimeException | OutOfMemoryError e) {
+            Log.w(TAG, "Inline image decode failed", e);
+        }
+        final Bitmap decoded = bitmap;
+        mainHandler.post(() -> {
+            synchronized (pending) {
+                decodingIds.remove(id);
+            }
+            boolean removed = removedIds.remove(id);
+            if (decoded == null) {
+                return;
+            }
+            if (removed) {
+                decoded.recycle();
+                return;
+            }
+            bitmaps.put(id, decoded);
+            owner.onImageReady();
+        });
+    }
+
+    private static final class PendingDecode {
+        final int id;
+        final String sixel;
+        final KittyGraphicsCommand kitty;
+        final int maxWidth;
+        final int maxHeight;
+        // 排队占用的内存估计
+        final long bytes;
+
+        PendingDecode(int id, String sixel, KittyGraphicsCommand kitty, int maxWidth, int maxHeight) {
+            this.id = id;
+            this.sixel = sixel;
+            this.kitty = kitty;
+            this.maxWidth = maxWidth;
+            this.maxHeight = maxHeight;
+            if (sixel != null) {
+                this.bytes = sixel.length() * 2L;
+            } else if (kitty != null && kitty.data != null) {
+                this.bytes = kitty.data.length;
+            } else {
+                this.bytes = kitty != null && kitty.payload != null ? kitty.payload.length() * 2L : 0;
+            }
+        }
+    }
+
+    private static Bitmap decodeSixel(String sixel, int maxWidth, int maxHeight) {
+        SixelDecoder.Image image = SixelDecoder.decode(sixel, maxWidth, maxHeight);
+        if (image == null) {
+            return null;
+        }
+        Bitmap source = Bitmap.createBitmap(image.pixels, image.width, image.height, Bitmap.Config.ARGB_8888);
+        return fitInto(source, maxWidth, maxHeight);
+    }
+
+    private static Bitmap decodeKitty(KittyGraphicsCommand cmd, int maxWidth, int maxHeight) {
+        byte[] data = cmd.decodeData();
+        if (data == null) {
+            return null;
+        }
+        int bytesPerPixel = cmd.format == KittyGraphicsCommand.FORMAT_RGB ? 3 : 4;
+        if (cmd.compression == 'z') {
+            // 原始像素解压后恰为 s*v*bpp，超出即为异常载荷 (解压炸弹)
+            long limit = cmd.format == KittyGraphicsCommand.FORMAT_PNG
+                ? MAX_INFLATED_PNG_BYTES
+                : (long) cmd.pixelWidth * cmd.pixelHeight * bytesPerPixel;
+            if (limit <= 0 || limit > Integer.MAX_VALUE) {
+                return null;
+            }
+            data = inflate(data, (int) limit);
+            if (data == null) {
+                return null;
+            }
+        }
+        if (cmd.format == KittyGraphicsCommand.FORMAT_PNG) {
+            BitmapFactory.Options bounds = new BitmapFactory.Options();
+            bounds.inJustDecodeBounds = true;
+            BitmapFactory.decodeByteArray(data, 0, data.length, bounds);
+            if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+                return null;
+            }
+            // 先按 2 的幂采样缩小，避免完整解码大图
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inSampleSize = sampleSize(bounds.outWidth, bounds.outHeight, maxWidth, maxHeight);
+            Bitmap source = BitmapFactory.decodeByteArray(data, 0, data.length, options);
+            return source != null ? fitInto(source, maxWidth, maxHeight) : null;
+        }
+        int width = cmd.pixelWidth;
+        int height = cmd.pixelHeight;
+        if (width <= 0 || height <= 0 || (long) width * height * bytesPerPixel > data.length) {
+            return null;
+        }
+        int[] pixels = new int[width * height];
+        for (int i = 0, offset = 0; i < pixels.length; i++, offset += bytesPerPixel) {
+            int alpha = bytesPerPixel == 4 ? data[offset + 3] & 0xFF : 0xFF;
+            pixels[i] = (alpha << 24)
+                | ((data[offset] & 0xFF) << 16)
+                | ((data[offset + 1] & 0xFF) << 8)
+                | (data[offset + 2] & 0xFF);
+        }
+        Bitmap source = Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888);
+        return fitInto(source, maxWidth, maxHeight);
+    }
+
+    /**
+     * zlib 解压，输出超过 limit 字节时放弃
+     *
+     * @return 解压结果；数据无效或超出上限返回 null
+     */
+    private static byte[] inflate(byte[] data, int limit) {
+        Inflater inflater = new Inflater();
+        inflater.setInput(data);
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(limit, (long) data.length * 4));
+        byte[] chunk = new byte[8192];
+        try {
+            while (!inflater.finished()) {
+                int n = inflater.inflate(chunk);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                if (out.size() + n > limit) {
+                    return null;
+                }
+                out.write(chunk, 0, n);
+            }
+        } catch (DataFormatException e) {
+            return null;
+        } finally {
+            inflater.end();
+        }
+        return out.toByteArray();
+    }
+
+    private static int sampleSize(int width, int height, int maxWidth, int maxHeight) {
+        int sample = 1;
+        while (width / (sample * 2) >= maxWidth && height / (sample * 2) >= maxHeight) {
+            sample *= 2;
+        }
+        return sample;
+    }
+
+    // 等比缩小到单元格区域内；不放大
+    private static Bitmap fitInto(Bitmap source, int maxWidth, int maxHeight) {
+        if (maxWidth <= 0 || maxHeight <= 0) {
+            return source;
+        }
+        float scale = Math.min(1f, Math.min((float) maxWidth / source.getWidth(), (float) maxHeight / source.getHeight()));
+        if (scale >= 1f) {
+            return source;
+        }
+        int width = Math.max(1, Math.round(source.getWidth() * scale));
+        int height = Math.max(1, Math.round(source.getHeight() * scale));
+        Bitmap scaled = Bitmap.createScaledBitmap(source, width, height, true);
+        if (scaled != source) {
+            source.recycle();
+        }
+        return scaled;
+    }
+}
@@ -22,6 +22,11 @@ public class TerminalInputView extends AppCompatEditText {
     public interface OnKeyInputListener {
         void onInput(String text);
         void onKeyDown(int keyCode, KeyEvent event);
+
+        /** 粘贴文本，默认按普通输入处理 */
+        default void onPaste(String text) {
+            onInput(text);
+        }
     }
 
     private OnKeyInputListener inputListener;
@@ -73,7 +78,7 @@ public class TerminalInputView extends AppCompatEditText {
      */
     public void pasteText(String text) {
         if (inputListener != null && text != null) {
-            inputListener.onInput(text);
+            inputListener.onPaste(text);
         }
     }
     
@@ -0,0 +1,367 @@
+package com.orcterm.ui.widget;
+
+import com.orcterm.core.terminal.TerminalEmulator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 终端渲染共享缓冲
+ * 同一个 TerminalEmulator 只对应一个实例，挂在仿真器上 (随仿真器一起回收)，由所有挂载该仿真器的 TerminalView 共享：
+ * 回滚缓冲 (scrollback)、行文本缓存、高危行标记与内联图像位图只保存一份，
+ * 仿真器脏区域在这里统一消费后分发给各视图，视图只保留各自的视口与滚动偏移。
+ * 所有方法需在主线程调用。
+ */
+final class TerminalRenderBuffer implements TerminalEmulator.ScrollbackListener {
+
+    /**
+     * 回滚行，内容不可变，文本、高危标记与字体分段缓存在行内
+     */
+    static final class ScrollbackLine {
+        final char[] chars;
+        final int[] styles;
+        String text;
+        Boolean highRisk;
+        byte[] fonts;
+        GlyphFallbackCache fontsOwner;
+        int fontsColumns = -1;
+
+        ScrollbackLine(char[] chars, int[] styles) {
+            this.chars = chars;
+            this.styles = styles;
+        }
+    }
+
+    private final TerminalEmulator emulator;
+    private final List<TerminalView> views = new ArrayList<>();
+    private final InlineImageStore imageStore;
+    private ScrollbackLine[] scrollbackBuffer;
+    private int scrollbackHead = 0;
+    private int scrollbackCount = 0;
+    private int maxScrollbackLines = 2000;
+    // 屏幕行缓存，随仿真器脏区域失效
+    private String[] screenRowText = new String[0];
+    private Boolean[] screenRowHighRisk = new Boolean[0];
+    // 屏幕行字体分段缓存 (每个单元格的字体索引)，随行内容或字体变化失效
+    private byte[][] screenRowFonts = new byte[0][];
+    private GlyphFallbackCache screenFontsOwner;
+    private int screenCacheColumns = -1;
+
+    private TerminalRenderBuffer(TerminalEmulator emulator) {
+        this.emulator = emulator;
+        this.scrollbackBuffer = new ScrollbackLine[maxScrollbackLines];
+        emulator.setScrollbackListener(this);
+        this.imageStore = new InlineImageStore(this, InlineImageStore.DEFAULT_BUDGET_BYTES);
+        emulator.setImageListener(imageStore);
+    }
+
+    /**
+     * 获取仿真器对应的共享缓冲，不存在时创建
+     */
+    static TerminalRenderBuffer obtain(TerminalEmulator emulator) {
+        Object state = emulator.getRenderState();
+        if (state instanceof TerminalRenderBuffer) {
+            return (TerminalRenderBuffer) state;
+        }
+        TerminalRenderBuffer buffer = new TerminalRenderBuffer(emulator);
+        emulator.setRenderState(buffer);
+        return buffer;
+    }
+
+    TerminalEmulator getEmulator() {
+        return emulator;
+    }
+
+    void attach(TerminalView view) {
+        if (!views.contains(view)) {
+            views.add(view);
+        }
+    }
+
+    void detach(TerminalView view) {
+        views.remove(view);
+    }
+
+    int getViewCount() {
+        return views.size();
+    }
+
+    InlineImageStore getImageStore() {
+        return imageStore;
+    }
+
+    /**
+     * 后台解码的图像已就绪，通知所有视图重绘
+     */
+    void onImageReady() {
+        for (int i = 0; i < views.size(); i++) {
+            views.get(i).invalidate();
+        }
+    }
+
+    @Override
+    public void onScrollbackLine(char[] chars, int[] styles) {
+        if (chars == null || styles == null || maxScrollbackLines <= 0) return;
+        ensureScrollbackCapacity();
+        boolean evicted;
+        if (scrollbackCount < maxScrollbackLines) {
+            int index = (scrollbackHead + scrollbackCount) % maxScrollbackLines;
+            scrollbackBuffer[index] = new ScrollbackLine(chars, styles);
+            scrollbackCount++;
+            evicted = false;
+        } else {
+            scrollbackBuffer[scrollbackHead] = new ScrollbackLine(chars, styles);
+            scrollbackHead = (scrollbackHead + 1) % maxScrollbackLines;
+            evicted = true;
+        }
+        // 屏幕内容整体上移，屏幕行缓存全部失效
+        clearScreenCache();
+        for (int i = 0; i < views.size(); i++) {
+            views.get(i).onScrollbackLineAdded(evicted);
+        }
+    }
+
+    @Override
+    public void onScrollbackCleared() {
+        resetScrollback();
+        for (int i = 0; i < views.size(); i++) {
+            views.get(i).onScrollbackCleared();
+        }
+    }
+
+    /**
+     * 消费仿真器脏区域并通知所有视图重绘对应区域
+     */
+    void dispatchDamage() {
+        TerminalEmulator.DirtyRegion dirtyRegion = emulator.getDirtyRegion();
+        if (dirtyRegion == null || !dirtyRegion.isDirty()) {
+            return;
+        }
+        int minX = dirtyRegion.getMinX();
+        int maxX = dirtyRegion.getMaxX();
+        int minY = dirtyRegion.getMinY();
+        int maxY = dirtyRegion.getMaxY();
+        emulator.clearDirtyRegion();
+        invalidateScreenRows(minY, maxY);
+        for (int i = 0; i < views.size(); i++) {
+            views.get(i).onScreenDamaged(minX, minY, maxX, maxY);
+        }
+    }
+
+    int getScrollbackCount() {
+        return scrollbackCount;
+    }
+
+    ScrollbackLine getScrollbackLine(int index) {
+        if (scrollbackBuffer == null || index < 0 || index >= scrollbackCount) {
+            return null;
+        }
+        return scrollbackBuffer[(scrollbackHead + index) % scrollbackBuffer.length];
+    }
+
+    int getMaxScrollbackLines() {
+        return maxScrollbackLines;
+    }
+
+    void setMaxScrollbackLines(int maxLines) {
+        int newMax = Math.max(0, maxLines);
+        if (newMax == maxScrollbackLines) {
+            return;
+        }
+        maxScrollbackLines = newMax;
+        rebuildScrollbackBuffer();
+    }
+
+    void resetScrollback() {
+        scrollbackHead = 0;
+        scrollbackCount = 0;
+        scrollbackBuffer = maxScrollbackLines > 0 ? new ScrollbackLine[maxScrollbackLines] : null;
+        clearScreenCache();
+    }
+
+    /**
+     * 获取全局行文本 (回滚行在前，屏幕行在后)，结果在所有视图间共享
+     */
+    String getRowText(int globalRow, int cols) {
+        if (globalRow < scrollbackCount) {
+            ScrollbackLine line = getScrollbackLine(globalRow);
+            if (line == null) {
+                return blankLine(cols);
+            }
+            if (line.text == null || line.text.length() != cols) {
+                StringBuilder sb = new StringBuilder(cols);
+                for (int col = 0; col < cols; col++) {
+                    char c = col < line.chars.length ? line.chars[col] : ' ';
+                    sb.append(c == 0 ? ' ' : c);
+                }
+                line.text = sb.toString();
+            }
+            return line.text;
+        }
+        int screenRow = globalRow - scrollbackCount;
+        ensureScreenCache(cols);
+        if (screenRow < 0 || screenRow >= screenRowText.length) {
+            return blankLine(cols);
+        }
+        String cached = screenRowText[screenRow];
+        if (cached != null) {
+            return cached;
+        }
+        TerminalEmulator.ScreenBuffer buffer = emulator.getScreenBuffer();
+        StringBuilder sb = new StringBuilder(cols);
+        for (int col = 0; col < cols; col++) {
+            char c = buffer.getChar(screenRow, col);
+            sb.append(c == 0 ? ' ' : c);
+        }
+        String built = sb.toString();
+        screenRowText[screenRow] = built;
+        return built;
+    }
+
+    /**
+     * 全局行是否包含高危命令，结果在所有视图间共享
+     */
+    boolean isHighRiskRow(int globalRow, int cols) {
+        ScrollbackLine line = globalRow < scrollbackCount ? getScrollbackLine(globalRow) : null;
+        int screenRow = globalRow - scrollbackCount;
+        if (line != null && line.highRisk != null) {
+            return line.highRisk;
+        }
+        if (line == null && globalRow >= scrollbackCount) {
+            ensureScreenCache(cols);
+            if (screenRow >= 0 && screenRow < screenRowHighRisk.length && screenRowHighRisk[screenRow] != null) {
+                return screenRowHighRisk[screenRow];
+            }
+        }
+        String text = getRowText(globalRow, cols).trim().toLowerCase(java.util.Locale.getDefault());
+        boolean risky = !text.isEmpty()
+            && (text.contains("rm -rf")
+                || text.contains("mkfs")
+                || text.contains("dd if=")
+                || text.contains(":(){:|:&};:"));
+        if (line != null) {
+            line.highRisk = risky;
+        } else if (screenRow >= 0 && screenRow < screenRowHighRisk.length) {
+            screenRowHighRisk[screenRow] = risky;
+        }
+        return risky;
+    }
+
+    /**
+     * 获取全局行每个单元格的字体索引，同一行内容只计算一次
+     * 返回 null 表示整行都使用主字体
+     */
+    byte[] getRowFonts(int globalRow, int cols, GlyphFallbackCache glyphCache) {
+        if (globalRow < scrollbackCount) {
+            ScrollbackLine line = getScrollbackLine(globalRow);
+            if (line == null) {
+                return null;
+            }
+            if (line.fontsOwner != glyphCache || line.fontsColumns != cols) {
+                line.fonts = computeFonts(line.chars, null, 0, cols, glyphCache);
+                line.fontsOwner = glyphCache;
+                line.fontsColumns = cols;
+            }
+            return line.fonts;
+        }
+        int screenRow = globalRow - scrollbackCount;
+        ensureScreenCache(cols);
+        if (screenRow < 0 || screenRow >= screenRowFonts.length) {
+            return null;
+        }
+        if (screenFontsOwner != glyphCache) {
+            for (int i = 0; i < screenRowFonts.length; i++) {
+                screenRowFonts[i] = null;
+            }
+            screenFontsOwner = glyphCache;
+        }
+        byte[] fonts = screenRowFonts[screenRow];
+        if (fonts == null) {
+            fonts = computeFonts(null, emulator.getScreenBuffer(), screenRow, cols, glyphCache);
+            // 空数组标记"整行主字体"，避免重复计算
+            screenRowFonts[screenRow] = fonts != null ? fonts : new byte[0];
+        }
+        return fonts == null || fonts.length == 0 ? null : fonts;
+    }
+
+    private static byte[] computeFonts(char[] chars, TerminalEmulator.ScreenBuffer buffer, int screenRow,
+                                       int cols, GlyphFallbackCache glyphCache) {
+        byte[] fonts = null;
+        for (int col = 0; col < cols; col++) {
+            char c;
+            if (chars != null) {
+                c = col < chars.length ? chars[col] : ' ';
+            } else {
+                c = buffer.getChar(screenRow, col);
+            }
+            int index = glyphCache.fontIndexOf(c);
+            if (index != GlyphFallbackCache.PRIMARY) {
+                if (fonts == null) {
+                    fonts = new byte[cols];
+                }
+                fonts[col] = (byte) index;
+            }
+        }
+        return fonts;
+    }
+
+    void clearScreenCache() {
+        for (int i = 0; i < screenRowText.length; i++) {
+            screenRowText[i] = null;
+            screenRowHighRisk[i] = null;
+            screenRowFonts[i] = null;
+        }
+    }
+
+    private void invalidateScreenRows(int startRow, int endRow) {
+        int start = Math.max(0, startRow);
+        int end = Math.min(screenRowText.length - 1, endRow);
+        for (int i = start; i <= end; i++) {
+            screenRowText[i] = null;
+            screenRowHighRisk[i] = null;
+            screenRowFonts[i] = null;
+        }
+    }
+
+    private void ensureScreenCache(int cols) {
+        int rows = emulator.getRows();
+        if (screenRowText.length != rows || screenCacheColumns != cols) {
+            screenRowText = new String[rows];
+            screenRowHighRisk = new Boolean[rows];
+            screenRowFonts = new byte[rows][];
+            screenCacheColumns = cols;
+        }
+    }
+
+    private void ensureScrollbackCapacity() {
+        if (scrollbackBuffer == null || scrollbackBuffer.length != maxScrollbackLines) {
+            rebuildScrollbackBuffer();
+        }
+    }
+
+    private void rebuildScrollbackBuffer() {
+        if (maxScrollbackLines <= 0) {
+            scrollbackBuffer = null;
+            scrollbackHead = 0;
+            scrollbackCount = 0;
+            return;
+        }
+        ScrollbackLine[] newBuffer = new ScrollbackLine[maxScrollbackLines];
+        int keep = Math.min(scrollbackCount, maxScrollbackLines);
+        int start = Math.max(0, scrollbackCount - keep);
+        for (int i = 0; i < keep; i++) {
+            newBuffer[i] = getScrollbackLine(start + i);
+        }
+        scrollbackBuffer = newBuffer;
+        scrollbackHead = 0;
+        scrollbackCount = keep;
+    }
+
+    private static String blankLine(int cols) {
+        StringBuilder sb = new StringBuilder(cols);
+        for (int col = 0; col < cols; col++) {
+            sb.append(' ');
+        }
+        return sb.toString();
+    }
+}
@@ -17,6 +17,7 @@ import android.view.ViewConfiguration;
 import android.widget.OverScroller;
 
 import com.orcterm.R;
+import com.orcterm.core.terminal.LocalEchoPredictor;
 import com.orcterm.core.terminal.TerminalEmulator;
 
 /**
@@ -48,6 +49,9 @@ public class TerminalView extends View {
     private Paint lineNumberPaint;
     private Paint bracketMatchPaint;
     private Paint highRiskPaint;
+    private Paint imagePaint;
+    private Paint imagePlaceholderPaint;
+    private final android.graphics.RectF imageRect = new android.graphics.RectF();
     private Paint scrollHintPaint;
     private Paint scrollHintTextPaint;
     private Paint searchHighlightPaint;
@@ -83,12 +87,10 @@ public class TerminalView extends View {
     private int highRiskHighlightColor = 0x55FF5252;
     private String pendingPreviewContent;
     private String scrollHintText;
-    private ScrollbackLine[] scrollbackBuffer = null;
-    private int scrollbackHead = 0;
-    private int scrollbackCount = 0;
     private char[] textRunBuffer = new char[0];
-    private String[] visibleLineCache;
-    private Boolean[] visibleHighRiskCache;
+    // 行文本/回滚缓冲由挂载同一仿真器的所有视图共享，视图只保留自身视口与搜索缓存
+    private TerminalRenderBuffer renderBuffer;
+    private boolean readOnly;
     private int[][] visibleSearchMatchCache;
     private int[] visibleSearchMatchCount;
     private String visibleSearchQueryLower;
@@ -97,6 +99,8 @@ public class TerminalView extends View {
     private int visibleCacheRows = -1;
     private int scrollOffsetLines = 0;
     private int maxScrollbackLines = 2000;
+    private LocalEchoPredictor echoPredictor;
+    private final Runnable expirePredictionsRunnable = this::expirePredictions;
 
     // ANSI color table (0-15 for 16-color, 16-255 for 256-color)
     private int[] colors = new int[256];
@@ -106,16 +110,10 @@ public class TerminalView extends View {
     
     // Rendering optimization: Paint cache
     private java.util.Map<Integer, Paint> colorPaintCache = new java.util.HashMap<>();
-
-    private static class ScrollbackLine {
-        private final char[] chars;
-        private final int[] styles;
-
-        private ScrollbackLine(char[] chars, int[] styles) {
-            this.chars = chars;
-            this.styles = styles;
-        }
-    }
+    // 回退字体 Paint 缓存，键为 (字体索引 << 32) | 颜色
+    private java.util.Map<Long, Paint> fallbackPaintCache = new java.util.HashMap<>();
+    // 码位 -> 字体的回退决策，每个码位只探测一次
+    private GlyphFallbackCache glyphCache;
 
     // Cursor style related fields
     public enum CursorStyle {
@@ -189,13 +187,14 @@ public class TerminalView extends View {
             if (lineNumberPaint != null) {
                 lineNumberPaint.setTextSize(textPaint.getTextSize());
             }
+            clearColorCache();
             updateMetrics();
             
             // Trigger resize
             if (getWidth() > 0 && getHeight() > 0) {
                 int cols = (int) (getWidth() / charWidth);
                 int rows = (int) (getHeight() / charHeight);
-                if (cols > 0 && rows > 0) {
+                if (cols > 0 && rows > 0 && !readOnly) {
                     if (emulator != null) emulator.resize(cols, rows);
                     if (resizeListener != null) resizeListener.onResize(cols, rows);
                 }
@@ -226,6 +225,9 @@ public class TerminalView extends View {
             if (lineNumberPaint != null) {
                 lineNumberPaint.setTypeface(typeface);
             }
+            glyphCache = GlyphFallbackCache.forTypeface(typeface);
+            // 缓存的 Paint 复制自 textPaint，字体变化后需重建
+            clearColorCache();
             updateMetrics();
             postInvalidate();
         }
@@ -421,6 +423,7 @@ public class TerminalView extends View {
     private void init() {
         textPaint = new Paint();
         textPaint.setTypeface(Typeface.MONOSPACE);
+        glyphCache = GlyphFallbackCache.forTypeface(Typeface.MONOSPACE);
         textPaint.setTextSize(fontSize);
         textPaint.setAntiAlias(true);
 
@@ -442,6 +445,11 @@ public class TerminalView extends View {
         bracketMatchPaint.setColor(bracketMatchColor);
         highRiskPaint = new Paint();
         highRiskPaint.setColor(highRiskHighlightColor);
+        imagePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        imagePlaceholderPaint = new Paint();
+        imagePlaceholderPaint.setColor(0x66888888);
+        imagePlaceholderPaint.setStyle(Paint.Style.STROKE);
+        imagePlaceholderPaint.setStrokeWidth(dpToPx(1));
         scrollHintPaint = new Paint();
         scrollHintPaint.setColor(0xAA000000);
         scrollHintPaint.setStyle(Paint.Style.FILL);
@@ -505,12 +513,21 @@ public class TerminalView extends View {
     }
 
     public void attachEmulator(TerminalEmulator emulator) {
+        if (renderBuffer != null) {
+            renderBuffer.detach(this);
+        }
         this.emulator = emulator;
-        resetScrollback();
-        if (this.emulator != null) {
-            this.emulator.setScrollbackListener(this::addScrollbackLine);
+        renderBuffer = emulator != null ? TerminalRenderBuffer.obtain(emulator) : null;
+        if (renderBuffer != null) {
+            renderBuffer.attach(this);
+            if (!readOnly) {
+                renderBuffer.setMaxScrollbackLines(maxScrollbackLines);
+            }
         }
-        if (getWidth() > 0 && getHeight() > 0) {
+        syncCellPixelSize();
+        scrollOffsetLines = 0;
+        clearVisibleLineCache();
+        if (!readOnly && this.emulator != null && getWidth() > 0 && getHeight() > 0) {
             int cols = (int) (getWidth() / charWidth);
             int rows = (int) (getHeight() / charHeight);
             if (cols > 0 && rows > 0) {
@@ -520,11 +537,58 @@ public class TerminalView extends View {
         postInvalidate();
     }
 
+    /**
+     * 以只读方式挂载到已有仿真器 (镜像视图)
+     * 与主视图共享解析结果、回滚缓冲和行缓存，但保留独立的滚动偏移，
+     * 且不会改变仿真器尺寸或触发 resize 回调。
+     */
+    public void attachEmulatorReadOnly(TerminalEmulator emulator) {
+        readOnly = true;
+        attachEmulator(emulator);
+    }
+
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * 从仿真器卸载，不再接收共享缓冲的更新
+     */
+    public void detachEmulator() {
+        if (renderBuffer != null) {
+            renderBuffer.detach(this);
+        }
+        renderBuffer = null;
+        emulator = null;
+        clearVisibleLineCache();
+        postInvalidate();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (renderBuffer != null) {
+            renderBuffer.attach(this);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (renderBuffer != null) {
+            renderBuffer.detach(this);
+        }
+    }
+
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
         
-        if (emulator != null && w > 0 && h > 0) {
+        if (emulator != null && !readOnly && w > 0 && h > 0) {
             int cols = (int) (w / charWidth);
             int rows = (int) (h / charHeight);
             if (cols > 0 && rows > 0) {
@@ -539,18 +603,70 @@ public class TerminalView extends View {
     }
 
     public void append(String data) {
+        if (readOnly) {
+            // 镜像视图不解析数据，由主视图写入共享仿真器后统一分发重绘
+            return;
+        }
         if (emulator != null) {
             emulator.write(data);
-            invalidateDirtyRegion();
+            if (echoPredictor != null && !echoPredictor.getPredictions().isEmpty()) {
+                echoPredictor.onServerOutput();
+                invalidate();
+            }
+            dispatchDamage();
         }
     }
 
+    /**
+     * 设置本地预测回显，预测字符以下划线叠加在屏幕上
+     */
+    public void setEchoPredictor(LocalEchoPredictor predictor) {
+        this.echoPredictor = predictor;
+        invalidate();
+    }
+
+    public LocalEchoPredictor getEchoPredictor() {
+        return echoPredictor;
+    }
+
+    /**
+     * 用户输入发送前调用，生成预测并安排超时回滚
+     */
+    public void predictInput(String data) {
+        if (echoPredictor == null || echoPredictor.getMode() == LocalEchoPredictor.MODE_OFF) {
+            return;
+        }
+        echoPredictor.onUserInput(data);
+        removeCallbacks(expirePredictionsRunnable);
+        if (!echoPredictor.getPredictions().isEmpty()) {
+            postDelayed(expirePredictionsRunnable, LocalEchoPredictor.PREDICTION_TIMEOUT_MS + 16);
+        }
+        invalidate();
+    }
+
+    private void expirePredictions() {
+        if (echoPredictor == null) return;
+        echoPredictor.expireStale();
+        if (!echoPredictor.getPredictions().isEmpty()) {
+            postDelayed(expirePredictionsRunnable, LocalEchoPredictor.PREDICTION_TIMEOUT_MS);
+        }
+        invalidate();
+    }
+
     /**
      * Notify view that screen content has been updated externally
      * (e.g. by TerminalSession writing directly to emulator)
      */
     public void notifyScreenUpdate() {
-        invalidateDirtyRegion();
+        dispatchDamage();
+    }
+
+    private void dispatchDamage() {
+        if (renderBuffer == null) {
+            postInvalidate();
+            return;
+        }
+        renderBuffer.dispatchDamage();
     }
 
     @Override
@@ -567,6 +683,12 @@ public class TerminalView extends View {
         // Draw terminal content
         drawTerminalContent(canvas);
 
+        // Draw inline images (sixel / kitty graphics)
+        drawInlineImages(canvas);
+
+        // Draw speculative local echo
+        drawPredictions(canvas);
+
         // Draw selection
         drawSelection(canvas);
 
@@ -726,14 +848,17 @@ public class TerminalView extends View {
             Paint runPaint = null;
             int runLen = 0;
             float runStartX = x;
+            int globalRow = baseRow + row;
+            // 行字体分段随行内容缓存，绘制时只查表，不逐帧回退
+            byte[] rowFonts = renderBuffer != null ? renderBuffer.getRowFonts(globalRow, cols, glyphCache) : null;
+            int runFont = GlyphFallbackCache.PRIMARY;
             
             for (int col = 0; col < cols; col++) {
-                int globalRow = baseRow + row;
                 char c;
                 int fgColor;
                 int bgColor;
                 if (globalRow < scrollbackCount) {
-                    ScrollbackLine line = getScrollbackLine(globalRow);
+                    TerminalRenderBuffer.ScrollbackLine line = getScrollbackLine(globalRow);
                     if (line == null) {
                         c = ' ';
                         fgColor = 7;
@@ -778,21 +903,25 @@ public class TerminalView extends View {
                         actualFgColor = isDark(effectiveBg) ? Color.WHITE : Color.BLACK;
                     }
                     
-                    Paint cachedPaint = getCachedPaint(actualFgColor);
+                    int font = rowFonts != null && col < rowFonts.length ? rowFonts[col] : GlyphFallbackCache.PRIMARY;
+                    Paint cachedPaint = font == GlyphFallbackCache.PRIMARY
+                        ? getCachedPaint(actualFgColor)
+                        : getFallbackPaint(font, actualFgColor);
                     if (runPaint == cachedPaint) {
                         textRunBuffer[runLen++] = c;
                     } else {
                         if (runLen > 0 && runPaint != null) {
-                            canvas.drawText(textRunBuffer, 0, runLen, runStartX, baseline, runPaint);
+                            drawTextRun(canvas, runLen, runStartX, baseline, runPaint, runFont);
                         }
                         runPaint = cachedPaint;
+                        runFont = font;
                         runLen = 0;
                         runStartX = x;
                         textRunBuffer[runLen++] = c;
                     }
                 } else {
                     if (runLen > 0 && runPaint != null) {
-                        canvas.drawText(textRunBuffer, 0, runLen, runStartX, baseline, runPaint);
+                        drawTextRun(canvas, runLen, runStartX, baseline, runPaint, runFont);
                         runLen = 0;
                         runPaint = null;
                     }
@@ -801,8 +930,63 @@ public class TerminalView extends View {
                 x += charWidth;
             }
             if (runLen > 0 && runPaint != null) {
-                canvas.drawText(textRunBuffer, 0, runLen, runStartX, baseline, runPaint);
+                drawTextRun(canvas, runLen, runStartX, baseline, runPaint, runFont);
+            }
+        }
+    }
+
+    /**
+     * Draw a text run. Runs in a fallback font are placed cell by cell so
+     * their advance widths cannot drift off the monospace grid.
+     */
+    private void drawTextRun(Canvas canvas, int runLen, float startX, float baseline, Paint paint, int font) {
+        if (font == GlyphFallbackCache.PRIMARY) {
+            canvas.drawText(textRunBuffer, 0, runLen, startX, baseline, paint);
+            return;
+        }
+        float x = startX;
+        for (int i = 0; i < runLen; i++) {
+            canvas.drawText(textRunBuffer, i, 1, x, baseline, paint);
+            x += charWidth;
+        }
+    }
+
+    /**
+     * Draw inline images. Placements are anchored to absolute rows, so they
+     * scroll with the text; evicted or still-decoding images show a placeholder.
+     */
+    private void drawInlineImages(Canvas canvas) {
+        java.util.List<TerminalEmulator.ImagePlacement> placements = emulator.getImagePlacements();
+        if (placements.isEmpty() || renderBuffer == null) {
+            return;
+        }
+        InlineImageStore store = renderBuffer.getImageStore();
+        int rows = getVisibleRowCount();
+        int baseRow = getDisplayBaseRow();
+        long firstScreenRow = emulator.getScrolledLineCount();
+        int scrollbackCount = getScrollbackCount();
+        float xOffset = getLineNumberOffset(rows);
+        for (int i = 0; i < placements.size(); i++) {
+            TerminalEmulator.ImagePlacement placement = placements.get(i);
+            long globalRow = scrollbackCount + (placement.absoluteRow - firstScreenRow);
+            long viewRow = globalRow - baseRow;
+            if (globalRow < 0 || viewRow + placement.cellRows <= 0 || viewRow >= rows) {
+                continue;
+            }
+            float left = xOffset + placement.column * charWidth;
+            float top = viewRow * charHeight;
+            Bitmap bitmap = store.getBitmap(placement.id);
+            if (bitmap == null) {
+                imageRect.set(left, top, left + placement.cellColumns * charWidth, top + placement.cellRows * charHeight);
+                canvas.drawRect(imageRect, imagePlaceholderPaint);
+                continue;
             }
+            // 位图已缩小到单元格区域内，按原尺寸绘制 (单元格尺寸变化后再等比缩放)
+            float scale = Math.min(1f, Math.min(
+                placement.cellColumns * charWidth / bitmap.getWidth(),
+                placement.cellRows * charHeight / bitmap.getHeight()));
+            imageRect.set(left, top, left + bitmap.getWidth() * scale, top + bitmap.getHeight() * scale);
+            canvas.drawBitmap(bitmap, null, imageRect, imagePaint);
         }
     }
 
@@ -920,8 +1104,14 @@ public class TerminalView extends View {
             }
         }
 
-        float cursorX = getLineNumberOffset(emulator.getRows()) + emulator.getCursorX() * charWidth;
-        float cursorY = emulator.getCursorY() * charHeight;
+        int cursorCol = emulator.getCursorX();
+        int cursorRow = emulator.getCursorY();
+        if (echoPredictor != null && echoPredictor.shouldDisplay()) {
+            cursorCol = Math.min(emulator.getColumns() - 1, echoPredictor.getPredictedCursorX());
+            cursorRow = echoPredictor.getPredictedCursorY();
+        }
+        float cursorX = getLineNumberOffset(emulator.getRows()) + cursorCol * charWidth;
+        float cursorY = cursorRow * charHeight;
 
         cursorPaint.setColor(cursorColor);
 
@@ -946,6 +1136,26 @@ public class TerminalView extends View {
         }
     }
 
+    /**
+     * Draw predicted characters underlined on top of the screen content
+     */
+    private void drawPredictions(Canvas canvas) {
+        if (echoPredictor == null || scrollOffsetLines > 0 || !echoPredictor.shouldDisplay()) return;
+        float xOffset = getLineNumberOffset(emulator.getRows());
+        Paint textRun = getCachedPaint(colors[7]);
+        for (LocalEchoPredictor.Prediction prediction : echoPredictor.getPredictions()) {
+            float x = xOffset + prediction.col * charWidth;
+            float y = prediction.row * charHeight;
+            float baseline = y + charHeight - (charHeight * 0.2f);
+            bgPaint.setColor(colors[0]);
+            canvas.drawRect(x, y, x + charWidth, y + charHeight, bgPaint);
+            charArray[0] = prediction.ch;
+            canvas.drawText(charArray, 0, 1, x, baseline, textRun);
+            bgPaint.setColor(colors[7]);
+            canvas.drawRect(x, y + charHeight - 2, x + charWidth, y + charHeight, bgPaint);
+        }
+    }
+
     private void drawScrollHint(Canvas canvas) {
         if (scrollOffsetLines <= 0 || scrollHintPaint == null || scrollHintTextPaint == null) return;
         String text = scrollHintText;
@@ -977,11 +1187,27 @@ public class TerminalView extends View {
         return paint;
     }
 
+    /**
+     * Get cached Paint for a fallback font and color
+     */
+    private Paint getFallbackPaint(int font, int color) {
+        long key = ((long) font << 32) | (color & 0xFFFFFFFFL);
+        Paint paint = fallbackPaintCache.get(key);
+        if (paint == null) {
+            paint = new Paint(textPaint);
+            paint.setTypeface(glyphCache.getTypeface(font));
+            paint.setColor(color);
+            fallbackPaintCache.put(key, paint);
+        }
+        return paint;
+    }
+
     /**
      * Clear color paint cache
      */
     private void clearColorCache() {
         colorPaintCache.clear();
+        fallbackPaintCache.clear();
     }
 
     /**
@@ -1043,52 +1269,54 @@ public class TerminalView extends View {
         Paint.FontMetrics fm = textPaint.getFontMetrics();
         charHeight = (fm.descent - fm.ascent) * lineHeightMultiplier;
         charWidth = textPaint.measureText("M") + letterSpacing;
+        syncCellPixelSize();
     }
 
-    /**
-     * Invalidate dirty region for performance optimization
-     */
-    private void invalidateDirtyRegion() {
-        if (emulator == null) {
-            postInvalidate();
-            return;
+    // 图像按单元格像素尺寸换算占用行列，并据此缩小位图
+    private void syncCellPixelSize() {
+        int cellWidth = Math.max(1, Math.round(charWidth));
+        int cellHeight = Math.max(1, Math.round(charHeight));
+        if (emulator != null && !readOnly) {
+            emulator.setCellPixelSize(cellWidth, cellHeight);
         }
-        TerminalEmulator.DirtyRegion dirtyRegion = emulator.getDirtyRegion();
-        if (dirtyRegion == null || !dirtyRegion.isDirty()) {
-            return;
+        if (renderBuffer != null && !readOnly) {
+            renderBuffer.getImageStore().setCellSize(cellWidth, cellHeight);
         }
+    }
+
+    /**
+     * Invalidate the damaged screen region, mapped through this view's own scroll offset.
+     * Called by the shared render buffer for every attached view.
+     */
+    void onScreenDamaged(int damageMinX, int damageMinY, int damageMaxX, int damageMaxY) {
         int rows = getVisibleRowCount();
         int cols = getVisibleColumnCount();
         if (rows <= 0 || cols <= 0) {
             postInvalidate();
-            emulator.clearDirtyRegion();
             return;
         }
         int scrollbackCount = getScrollbackCount();
         int baseRow = getDisplayBaseRow();
         int visibleStart = baseRow;
         int visibleEnd = baseRow + rows - 1;
-        int globalStart = scrollbackCount + dirtyRegion.getMinY();
-        int globalEnd = scrollbackCount + dirtyRegion.getMaxY();
+        int globalStart = scrollbackCount + damageMinY;
+        int globalEnd = scrollbackCount + damageMaxY;
         int clippedStart = Math.max(visibleStart, globalStart);
         int clippedEnd = Math.min(visibleEnd, globalEnd);
         if (clippedStart > clippedEnd) {
-            emulator.clearDirtyRegion();
             return;
         }
         int startRow = clippedStart - baseRow;
         int endRow = clippedEnd - baseRow;
         float xOffset = getLineNumberOffset(rows);
-        int minX = Math.max(0, Math.min(cols - 1, dirtyRegion.getMinX()));
-        int maxX = Math.max(0, Math.min(cols - 1, dirtyRegion.getMaxX()));
+        int minX = Math.max(0, Math.min(cols - 1, damageMinX));
+        int maxX = Math.max(0, Math.min(cols - 1, damageMaxX));
         float left = showLineNumbers ? 0f : xOffset + minX * charWidth;
         float right = xOffset + (maxX + 1) * charWidth;
         float top = startRow * charHeight;
         float bottom = (endRow + 1) * charHeight;
         postInvalidate((int) left, (int) top, (int) right, (int) bottom);
-        invalidateVisibleLineCache(startRow, endRow);
         invalidateVisibleSearchCache(startRow, endRow);
-        emulator.clearDirtyRegion();
     }
 
     /**
@@ -1121,10 +1349,17 @@ public class TerminalView extends View {
     private void applyPreviewContent(String content) {
         int cols = Math.max(10, (int) (getWidth() / charWidth));
         int rows = Math.max(5, (int) (getHeight() / charHeight));
+        if (renderBuffer != null) {
+            renderBuffer.detach(this);
+        }
         emulator = new TerminalEmulator(cols, rows);
-        resetScrollback();
-        emulator.setScrollbackListener(this::addScrollbackLine);
+        renderBuffer = TerminalRenderBuffer.obtain(emulator);
+        renderBuffer.attach(this);
+        renderBuffer.setMaxScrollbackLines(maxScrollbackLines);
+        scrollOffsetLines = 0;
+        clearVisibleLineCache();
         emulator.write(content);
+        renderBuffer.dispatchDamage();
         invalidate();
     }
 
@@ -1133,26 +1368,8 @@ public class TerminalView extends View {
     }
 
     private boolean isHighRiskLine(int row, int cols) {
-        if (emulator == null) return false;
-        int baseRow = getDisplayBaseRow();
-        int rows = getVisibleRowCount();
-        ensureVisibleLineCache(baseRow, cols, rows);
-        if (row >= 0 && row < visibleCacheRows) {
-            Boolean cached = visibleHighRiskCache[row];
-            if (cached != null) {
-                return cached;
-            }
-        }
-        String line = buildDisplayLine(row, cols).trim().toLowerCase(java.util.Locale.getDefault());
-        boolean risky = !line.isEmpty()
-            && (line.contains("rm -rf")
-                || line.contains("mkfs")
-                || line.contains("dd if=")
-                || line.contains(":(){:|:&};:"));
-        if (row >= 0 && row < visibleCacheRows) {
-            visibleHighRiskCache[row] = risky;
-        }
-        return risky;
+        if (emulator == null || renderBuffer == null) return false;
+        return renderBuffer.isHighRiskRow(getDisplayBaseRow() + row, cols);
     }
 
     private void handleTwoFingerSelection(MotionEvent event, int action) {
@@ -1355,38 +1572,22 @@ public class TerminalView extends View {
         }
     }
 
-    private void addScrollbackLine(char[] chars, int[] styles) {
-        if (chars == null || styles == null) return;
-        if (maxScrollbackLines <= 0) return;
-        ensureScrollbackCapacity(maxScrollbackLines);
-        int newCount = Math.min(scrollbackCount + 1, maxScrollbackLines);
-        if (scrollOffsetLines > 0) {
-            int maxOffsetAfterAdd = Math.max(0, newCount - getVisibleRowCount());
-            scrollOffsetLines = Math.min(scrollOffsetLines + 1, maxOffsetAfterAdd);
-        }
-        if (scrollbackCount < maxScrollbackLines) {
-            int index = (scrollbackHead + scrollbackCount) % maxScrollbackLines;
-            scrollbackBuffer[index] = new ScrollbackLine(chars, styles);
-            scrollbackCount++;
-        } else {
-            scrollbackBuffer[scrollbackHead] = new ScrollbackLine(chars, styles);
-            scrollbackHead = (scrollbackHead + 1) % maxScrollbackLines;
-            if (scrollOffsetLines > 0) {
-                scrollOffsetLines = Math.max(0, scrollOffsetLines - 1);
-            }
-        }
+    /**
+     * A line was pushed into the shared scrollback; keep a scrolled-back viewport anchored.
+     */
+    void onScrollbackCleared() {
+        scrollOffsetLines = 0;
         clearVisibleLineCache();
+        invalidate();
     }
 
-    private void resetScrollback() {
-        scrollbackHead = 0;
-        scrollbackCount = 0;
-        if (maxScrollbackLines > 0) {
-            scrollbackBuffer = new ScrollbackLine[maxScrollbackLines];
-        } else {
-            scrollbackBuffer = null;
+    void onScrollbackLineAdded(boolean evicted) {
+        if (scrollOffsetLines > 0) {
+            scrollOffsetLines = Math.min(scrollOffsetLines + 1, getMaxScrollOffset());
+            if (evicted) {
+                scrollOffsetLines = Math.max(0, scrollOffsetLines - 1);
+            }
         }
-        scrollOffsetLines = 0;
         clearVisibleLineCache();
     }
 
@@ -1396,7 +1597,9 @@ public class TerminalView extends View {
             return;
         }
         maxScrollbackLines = newMax;
-        rebuildScrollbackBuffer();
+        if (renderBuffer != null) {
+            renderBuffer.setMaxScrollbackLines(newMax);
+        }
         setScrollOffset(scrollOffsetLines);
         clearVisibleLineCache();
     }
@@ -1418,46 +1621,8 @@ public class TerminalView extends View {
     }
 
     private String buildDisplayLine(int row, int cols) {
-        if (emulator == null) return "";
-        int baseRow = getDisplayBaseRow();
-        ensureVisibleLineCache(baseRow, cols, getVisibleRowCount());
-        if (row >= 0 && row < visibleCacheRows) {
-            String cached = visibleLineCache[row];
-            if (cached != null) return cached;
-        }
-        StringBuilder sb = new StringBuilder(cols);
-        int globalRow = baseRow + row;
-        int scrollbackCount = getScrollbackCount();
-        if (globalRow < scrollbackCount) {
-            ScrollbackLine line = getScrollbackLine(globalRow);
-            if (line == null) {
-                for (int col = 0; col < cols; col++) {
-                    sb.append(' ');
-                }
-                String built = sb.toString();
-                cacheVisibleLine(row, built);
-                return built;
-            }
-            for (int col = 0; col < cols; col++) {
-                char c = (col >= 0 && col < line.chars.length) ? line.chars[col] : ' ';
-                if (c == 0) c = ' ';
-                sb.append(c);
-            }
-            String built = sb.toString();
-            cacheVisibleLine(row, built);
-            return built;
-        }
-        TerminalEmulator.ScreenBuffer buffer = emulator.getScreenBuffer();
-        if (buffer == null) return "";
-        int bufferRow = globalRow - scrollbackCount;
-        for (int col = 0; col < cols; col++) {
-            char c = buffer.getChar(bufferRow, col);
-            if (c == 0) c = ' ';
-            sb.append(c);
-        }
-        String built = sb.toString();
-        cacheVisibleLine(row, built);
-        return built;
+        if (emulator == null || renderBuffer == null) return "";
+        return renderBuffer.getRowText(getDisplayBaseRow() + row, cols);
     }
 
     private void clearSelection() {
@@ -1468,56 +1633,15 @@ public class TerminalView extends View {
     }
 
     private int getScrollbackCount() {
-        return scrollbackCount;
-    }
-
-    private ScrollbackLine getScrollbackLine(int index) {
-        if (scrollbackBuffer == null || index < 0 || index >= scrollbackCount) {
-            return null;
-        }
-        int capacity = scrollbackBuffer.length;
-        int actualIndex = (scrollbackHead + index) % capacity;
-        return scrollbackBuffer[actualIndex];
+        return renderBuffer != null ? renderBuffer.getScrollbackCount() : 0;
     }
 
-    private void ensureScrollbackCapacity(int capacity) {
-        if (capacity <= 0) {
-            scrollbackBuffer = null;
-            scrollbackHead = 0;
-            scrollbackCount = 0;
-            return;
-        }
-        if (scrollbackBuffer == null || scrollbackBuffer.length != capacity) {
-            rebuildScrollbackBuffer();
-        }
-    }
-
-    private void rebuildScrollbackBuffer() {
-        if (maxScrollbackLines <= 0) {
-            scrollbackBuffer = null;
-            scrollbackHead = 0;
-            scrollbackCount = 0;
-            clearVisibleLineCache();
-            return;
-        }
-        ScrollbackLine[] newBuffer = new ScrollbackLine[maxScrollbackLines];
-        int keep = Math.min(scrollbackCount, maxScrollbackLines);
-        int start = Math.max(0, scrollbackCount - keep);
-        for (int i = 0; i < keep; i++) {
-            ScrollbackLine line = getScrollbackLine(start + i);
-            newBuffer[i] = line;
-        }
-        scrollbackBuffer = newBuffer;
-        scrollbackHead = 0;
-        scrollbackCount = keep;
-        scrollOffsetLines = Math.max(0, Math.min(scrollOffsetLines, getMaxScrollOffset()));
-        clearVisibleLineCache();
+    private TerminalRenderBuffer.ScrollbackLine getScrollbackLine(int index) {
+        return renderBuffer != null ? renderBuffer.getScrollbackLine(index) : null;
     }
 
     private void ensureVisibleLineCache(int baseRow, int cols, int rows) {
         if (rows <= 0 || cols <= 0) {
-            visibleLineCache = null;
-            visibleHighRiskCache = null;
             visibleSearchMatchCache = null;
             visibleSearchMatchCount = null;
             visibleSearchQueryLower = null;
@@ -1526,12 +1650,10 @@ public class TerminalView extends View {
             visibleCacheRows = -1;
             return;
         }
-        if (visibleLineCache == null
+        if (visibleSearchMatchCache == null
                 || visibleCacheBaseRow != baseRow
                 || visibleCacheCols != cols
                 || visibleCacheRows != rows) {
-            visibleLineCache = new String[rows];
-            visibleHighRiskCache = new Boolean[rows];
             visibleSearchMatchCache = new int[rows][];
             visibleSearchMatchCount = new int[rows];
             visibleSearchQueryLower = null;
@@ -1541,33 +1663,7 @@ public class TerminalView extends View {
         }
     }
 
-    private void cacheVisibleLine(int row, String line) {
-        if (visibleLineCache == null) return;
-        if (row < 0 || row >= visibleCacheRows) return;
-        visibleLineCache[row] = line;
-    }
-
-    private void invalidateVisibleLineCache(int startRow, int endRow) {
-        if (visibleLineCache == null) return;
-        int start = Math.max(0, Math.min(visibleCacheRows - 1, startRow));
-        int end = Math.max(0, Math.min(visibleCacheRows - 1, endRow));
-        for (int i = start; i <= end; i++) {
-            visibleLineCache[i] = null;
-            if (visibleHighRiskCache != null) {
-                visibleHighRiskCache[i] = null;
-            }
-            if (visibleSearchMatchCache != null) {
-                visibleSearchMatchCache[i] = null;
-            }
-            if (visibleSearchMatchCount != null) {
-                visibleSearchMatchCount[i] = 0;
-            }
-        }
-    }
-
     private void clearVisibleLineCache() {
-        visibleLineCache = null;
-        visibleHighRiskCache = null;
         visibleSearchMatchCache = null;
         visibleSearchMatchCount = null;
         visibleSearchQueryLower = null;
@@ -14,6 +14,8 @@ import androidx.annotation.Nullable;
 import com.orcterm.data.AppDatabase;
 import com.orcterm.data.HostDao;
 import com.orcterm.data.HostEntity;
+import com.orcterm.data.PortForwardDao;
+import com.orcterm.data.PortForwardEntity;
 
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -32,6 +34,7 @@ import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -55,10 +58,13 @@ public class BackupRestoreManager {
     
     private final Context context;
     private final HostDao hostDao;
+    private final PortForwardDao portForwardDao;
     
     public BackupRestoreManager(@NonNull Context context) {
         this.context = context.getApplicationContext();
-        this.hostDao = AppDatabase.getDatabase(this.context).hostDao();
+        AppDatabase database = AppDatabase.getDatabase(this.context);
+        this.hostDao = database.hostDao();
+        this.portForwardDao = database.portForwardDao();
     }
     
     /**
@@ -85,6 +91,7 @@ public class BackupRestoreManager {
                     callback.onProgress(20, 100, "备份主机配置...");
                 }
                 backup.put("hosts", backupHosts());
+                backup.put("port_forwards", backupPortForwards());
                 
                 // 备份应用设置
                 if (callback != null) {
@@ -157,7 +164,10 @@ public class BackupRestoreManager {
                     if (callback != null) {
                         callback.onProgress(30, 100, "恢复主机配置...");
                     }
-                    restoreHosts(backup.getJSONArray("hosts"));
+                    Map<Long, Long> hostIdMap = restoreHosts(backup.getJSONArray("hosts"));
+                    if (backup.has("port_forwards")) {
+                        restorePortForwards(backup.getJSONArray("port_forwards"), hostIdMap);
+                    }
                 }
                 
                 // 恢复设置
@@ -309,6 +319,28 @@ public class BackupRestoreManager {
             obj.put("osVersion", host.osVersion);
             obj.put("status", host.status);
             obj.put("terminalThemePreset", host.terminalThemePreset);
+            obj.put("predictiveEcho", host.predictiveEcho);
+            obj.put("compression", host.compression);
+            obj.put("cipherPrefs", host.cipherPrefs);
+            obj.put("macPrefs", host.macPrefs);
+            obj.put("kexPrefs", host.kexPrefs);
+            obj.put("jumpHostId", host.jumpHostId);
+            array.put(obj);
+        }
+        return array;
+    }
+    
+    private JSONArray backupPortForwards() throws JSONException {
+        List<PortForwardEntity> forwards = portForwardDao.getAll();
+        JSONArray array = new JSONArray();
+        for (PortForwardEntity forward : forwards) {
+            JSONObject obj = new JSONObject();
+            obj.put("hostId", forward.hostId);
+            obj.put("type", forward.type);
+            obj.put("bindHost", forward.bindHost);
+            obj.put("bindPort", forward.bindPort);
+            obj.put("targetHost", forward.targetHost);
+            obj.put("targetPort", forward.targetPort);
             array.put(obj);
         }
         return array;
@@ -338,6 +370,8 @@ public class BackupRestoreManager {
         policy.put("session_policy", manager.getSessionPolicy().getValue());
         policy.put("timeout_minutes", manager.getTimeoutMinutes());
         policy.put("reconnect_on_resume", manager.isReconnectOnResume());
+        policy.put("auto_reconnect", manager.isAutoReconnect());
+        policy.put("reattach_multiplexer", manager.isReattachMultiplexer());
         policy.put("auto_disconnect_on_background", manager.isAutoDisconnectOnBackground());
         policy.put("bg_disconnect_delay", manager.getBackgroundDisconnectDelay());
         policy.put("keep_alive_enabled", manager.isKeepAliveEnabled());
@@ -361,7 +395,13 @@ public class BackupRestoreManager {
         return keys;
     }
     
-    private void restoreHosts(JSONArray hostsArray) throws JSONException {
+    /**
+     * @return 备份中的主机 id -> 恢复后的新 id
+     */
+    private Map<Long, Long> restoreHosts(JSONArray hostsArray) throws JSONException {
+        // 恢复后主机 id 会重新分配，跳板机引用需按旧 id -> 新 id 重新映射
+        Map<Long, Long> idMap = new HashMap<>();
+        List<HostEntity> jumpers = new ArrayList<>();
         for (int i = 0; i < hostsArray.length(); i++) {
             JSONObject obj = hostsArray.getJSONObject(i);
             HostEntity host = new HostEntity();
@@ -376,7 +416,45 @@ public class BackupRestoreManager {
             host.osVersion = obj.optString("osVersion", null);
             host.status = obj.optString("status", "unknown");
             host.terminalThemePreset = obj.optString("terminalThemePreset", "default");
-            hostDao.insert(host);
+            host.predictiveEcho = obj.optInt("predictiveEcho", 1);
+            host.compression = obj.optBoolean("compression", false);
+            host.cipherPrefs = obj.optString("cipherPrefs", null);
+            host.macPrefs = obj.optString("macPrefs", null);
+            host.kexPrefs = obj.optString("kexPrefs", null);
+            host.jumpHostId = obj.optLong("jumpHostId", 0);
+            long oldId = obj.optLong("id", 0);
+            host.id = hostDao.insert(host);
+            if (oldId != 0) {
+                idMap.put(oldId, host.id);
+            }
+            if (host.jumpHostId != 0) {
+                jumpers.add(host);
+            }
+        }
+        for (HostEntity host : jumpers) {
+            Long newJumpId = idMap.get(host.jumpHostId);
+            host.jumpHostId = newJumpId != null ? newJumpId : 0;
+            hostDao.update(host);
+        }
+        return idMap;
+    }
+    
+    private void restorePortForwards(JSONArray forwardsArray, Map<Long, Long> hostIdMap) throws JSONException {
+        for (int i = 0; i < forwardsArray.length(); i++) {
+            JSONObject obj = forwardsArray.getJSONObject(i);
+            // 与跳板机一样按新 id 重新关联；所属主机未恢复的转发无法保存 (外键)
+            Long hostId = hostIdMap.get(obj.optLong("hostId", 0));
+            if (hostId == null) {
+                continue;
+            }
+            PortForwardEntity forward = new PortForwardEntity();
+            forward.hostId = hostId;
+            forward.type = obj.optInt("type", 0);
+            forward.bindHost = obj.isNull("bindHost") ? null : obj.optString("bindHost", null);
+            forward.bindPort = obj.optInt("bindPort", 0);
+            forward.targetHost = obj.isNull("targetHost") ? null : obj.optString("targetHost", null);
+            forward.targetPort = obj.optInt("targetPort", 0);
+            portForwardDao.insert(forward);
         }
     }
     
@@ -419,6 +497,12 @@ public class BackupRestoreManager {
         if (policy.has("reconnect_on_resume")) {
             manager.setReconnectOnResume(policy.optBoolean("reconnect_on_resume", true));
         }
+        if (policy.has("auto_reconnect")) {
+            manager.setAutoReconnect(policy.optBoolean("auto_reconnect", true));
+        }
+        if (policy.has("reattach_multiplexer")) {
+            manager.setReattachMultiplexer(policy.optBoolean("reattach_multiplexer", false));
+        }
         if (policy.has("auto_disconnect_on_background")) {
             manager.setAutoDisconnectOnBackground(policy.optBoolean("auto_disconnect_on_background", false));
         }
@@ -24,6 +24,7 @@ public final class CommandConstants {
     public static final String CMD_KUBECTL_GET_NODES = "kubectl get nodes"; // 获取节点列表
     public static final String CMD_TMUX_LS = "tmux ls"; // 列出 tmux 会话
     public static final String CMD_TMUX_ATTACH_PREFIX = "tmux attach -t "; // 附加 tmux 会话前缀
+    public static final String CMD_REATTACH_MULTIPLEXER = "tmux attach 2>/dev/null || screen -r 2>/dev/null"; // 重连后恢复 tmux/screen 会话
 
     // SFTP 文件操作命令
     public static final String CMD_UNZIP = "unzip -o \"%s\""; // 解压 ZIP
@@ -97,6 +98,7 @@ public final class CommandConstants {
     public static final String CMD_DOCKER_ACTION_CONTAINER = "docker %s %s"; // 容器动作模板
     public static final String CMD_DOCKER_INSPECT = "docker inspect %s"; // 容器详情
     public static final String CMD_DOCKER_LOGS_TAIL = "docker logs --tail 100 %s"; // 容器日志（尾部）
+    public static final String CMD_DOCKER_LOGS_FOLLOW = "docker logs --tail 100 -f %s"; // 容器日志（持续跟踪）
 
     private CommandConstants() {}
 }
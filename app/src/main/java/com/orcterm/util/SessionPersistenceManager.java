@@ -13,6 +13,8 @@ public class SessionPersistenceManager {
     private static final String KEY_POLICY = "session_policy";
     private static final String KEY_TIMEOUT_MINUTES = "session_timeout_minutes";
     private static final String KEY_RECONNECT_ON_RESUME = "reconnect_on_resume";
+    private static final String KEY_AUTO_RECONNECT = "auto_reconnect";
+    private static final String KEY_REATTACH_MULTIPLEXER = "reconnect_reattach_multiplexer";
     private static final String KEY_AUTO_DISCONNECT_ON_BG = "auto_disconnect_on_background";
     private static final String KEY_BG_DISCONNECT_DELAY = "bg_disconnect_delay_seconds";
     private static final String KEY_KEEP_ALIVE_ENABLED = "keep_alive_enabled";
@@ -104,6 +106,34 @@ public class SessionPersistenceManager {
         prefs.edit().putBoolean(KEY_RECONNECT_ON_RESUME, enabled).apply();
     }
     
+    /**
+     * 连接意外中断 (网络切换、信号丢失) 时是否自动重连
+     */
+    public boolean isAutoReconnect() {
+        return prefs.getBoolean(KEY_AUTO_RECONNECT, true);
+    }
+    
+    /**
+     * 设置连接意外中断时是否自动重连
+     */
+    public void setAutoReconnect(boolean enabled) {
+        prefs.edit().putBoolean(KEY_AUTO_RECONNECT, enabled).apply();
+    }
+    
+    /**
+     * 自动重连后是否恢复 tmux/screen 会话
+     */
+    public boolean isReattachMultiplexer() {
+        return prefs.getBoolean(KEY_REATTACH_MULTIPLEXER, false);
+    }
+    
+    /**
+     * 设置自动重连后是否恢复 tmux/screen 会话
+     */
+    public void setReattachMultiplexer(boolean enabled) {
+        prefs.edit().putBoolean(KEY_REATTACH_MULTIPLEXER, enabled).apply();
+    }
+    
     /**
      * 是否在切换到后台时自动断开
      */
@@ -194,6 +224,8 @@ public class SessionPersistenceManager {
             .putInt(KEY_POLICY, SessionPolicy.SMART_MANAGE.getValue())
             .putInt(KEY_TIMEOUT_MINUTES, 30)
             .putBoolean(KEY_RECONNECT_ON_RESUME, true)
+            .putBoolean(KEY_AUTO_RECONNECT, true)
+            .putBoolean(KEY_REATTACH_MULTIPLEXER, false)
             .putBoolean(KEY_AUTO_DISCONNECT_ON_BG, false)
             .putInt(KEY_BG_DISCONNECT_DELAY, 60)
             .putBoolean(KEY_KEEP_ALIVE_ENABLED, true)
@@ -0,0 +1,223 @@
+package com.orcterm.core.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class ConnectionPoolTest {
+
+    private FakeConnector connector;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService prewarmExecutor;
+    private ConnectionPool pool;
+
+    @Before
+    public void setUp() {
+        connector = new FakeConnector();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        prewarmExecutor = Executors.newSingleThreadExecutor();
+        pool = new ConnectionPool(connector, scheduler, prewarmExecutor);
+        pool.setLimits(60_000, 2);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+        prewarmExecutor.shutdownNow();
+    }
+
+    private ConnectionPool.Lease lease(String host, String user, String password) throws Exception {
+        return pool.lease(host, 22, user, password, 0, null, "connect failed", "auth failed");
+    }
+
+    // 等待已排入调度线程的关闭任务执行完
+    private void drainScheduler() throws Exception {
+        scheduler.submit(() -> { }).get();
+    }
+
+    @Test
+    public void reusesIdleConnectionForSameKey() throws Exception {
+        ConnectionPool.Lease first = lease("a", "root", "pw");
+        long handle = first.getHandle();
+        first.release();
+        ConnectionPool.Lease second = lease("a", "root", "pw");
+        assertEquals(handle, second.getHandle());
+        assertEquals(1, connector.connects);
+    }
+
+    @Test
+    public void differentCredentialsUseSeparateConnections() throws Exception {
+        ConnectionPool.Lease first = lease("a", "root", "pw");
+        first.release();
+        ConnectionPool.Lease second = lease("a", "root", "other");
+        assertNotEquals(first.getHandle(), second.getHandle());
+        assertEquals(2, connector.connects);
+    }
+
+    @Test
+    public void busyConnectionOpensAnotherBelowHostLimit() throws Exception {
+        ConnectionPool.Lease first = lease("a", "root", "pw");
+        ConnectionPool.Lease second = lease("a", "root", "pw");
+        assertNotEquals(first.getHandle(), second.getHandle());
+        assertEquals(2, connector.connects);
+    }
+
+    @Test
+    public void sharesLeastBusyConnectionAtHostLimit() throws Exception {
+        ConnectionPool.Lease first = lease("a", "root", "pw");
+        ConnectionPool.Lease second = lease("a", "root", "pw");
+        ConnectionPool.Lease third = lease("a", "root", "pw");
+        assertEquals(2, connector.connects);
+        assertTrue(third.getHandle() == first.getHandle() || third.getHandle() == second.getHandle());
+        ConnectionPool.Lease other = (third.getHandle() == first.getHandle()) ? second : first;
+        ConnectionPool.Lease fourth = lease("a", "root", "pw");
+        assertEquals(other.getHandle(), fourth.getHandle());
+    }
+
+    @Test
+    public void hostLimitCountsAllCredentials() throws Exception {
+        lease("a", "root", "pw");
+        lease("a", "admin", "pw");
+        try {
+            lease("a", "deploy", "pw");
+            fail("expected the per-host limit to reject a third credential");
+        } catch (Exception expected) {
+            assertEquals(2, connector.connects);
+        }
+        // 其他主机不受影响
+        lease("b", "deploy", "pw");
+        assertEquals(3, connector.connects);
+    }
+
+    @Test
+    public void evictsIdleConnectionOfAnotherCredentialAtHostLimit() throws Exception {
+        ConnectionPool.Lease idle = lease("a", "root", "pw");
+        lease("a", "admin", "pw");
+        idle.release();
+        lease("a", "deploy", "pw");
+        drainScheduler();
+        assertEquals(3, connector.connects);
+        assertEquals(List.of(idle.getHandle()), connector.disconnected);
+    }
+
+    @Test
+    public void invalidatedConnectionIsClosedNotReused() throws Exception {
+        ConnectionPool.Lease first = lease("a", "root", "pw");
+        first.invalidate();
+        drainScheduler();
+        assertEquals(List.of(first.getHandle()), connector.disconnected);
+        ConnectionPool.Lease second = lease("a", "root", "pw");
+        assertNotEquals(first.getHandle(), second.getHandle());
+    }
+
+    @Test
+    public void releaseIsIdempotent() throws Exception {
+        ConnectionPool.Lease first = lease("a", "root", "pw");
+        ConnectionPool.Lease shared = lease("a", "root", "pw");
+        first.release();
+        first.release();
+        first.invalidate();
+        drainScheduler();
+        assertTrue(connector.disconnected.isEmpty());
+        shared.release();
+    }
+
+    @Test
+    public void zeroTtlClosesOnRelease() throws Exception {
+        pool.setLimits(0, 2);
+        ConnectionPool.Lease lease = lease("a", "root", "pw");
+        lease.release();
+        drainScheduler();
+        assertEquals(List.of(lease.getHandle()), connector.disconnected);
+    }
+
+    @Test
+    public void sweepClosesExpiredAndBrokenIdleConnections() throws Exception {
+        ConnectionPool.Lease healthy = lease("a", "root", "pw");
+        ConnectionPool.Lease broken = lease("b", "root", "pw");
+        ConnectionPool.Lease busy = lease("c", "root", "pw");
+        healthy.release();
+        broken.release();
+        connector.failing.add(broken.getHandle());
+        scheduler.submit(pool::sweep).get();
+        assertEquals(List.of(broken.getHandle()), connector.disconnected);
+        assertFalse(connector.probed.contains(busy.getHandle()));
+
+        pool.setLimits(0, 2);
+        scheduler.submit(pool::sweep).get();
+        assertEquals(List.of(broken.getHandle(), healthy.getHandle()), connector.disconnected);
+    }
+
+    @Test
+    public void evictAllClosesIdleAndRetiresLeased() throws Exception {
+        ConnectionPool.Lease idle = lease("a", "root", "pw");
+        ConnectionPool.Lease busy = lease("b", "root", "pw");
+        idle.release();
+        pool.evictAll();
+        drainScheduler();
+        assertEquals(List.of(idle.getHandle()), connector.disconnected);
+        busy.release();
+        drainScheduler();
+        assertEquals(List.of(idle.getHandle(), busy.getHandle()), connector.disconnected);
+    }
+
+    @Test
+    public void failedConnectDoesNotHoldHostSlot() throws Exception {
+        connector.failNextConnect = true;
+        try {
+            lease("a", "root", "pw");
+            fail("expected connect failure");
+        } catch (Exception expected) {
+            // 失败的握手不应占用主机配额
+        }
+        lease("a", "root", "pw");
+        lease("a", "root", "pw");
+        assertEquals(2, connector.connects);
+    }
+
+    private static final class FakeConnector implements ConnectionPool.Connector {
+        int connects;
+        boolean failNextConnect;
+        long nextHandle = 1;
+        final Set<Long> failing = new HashSet<>();
+        final Set<Long> probed = new HashSet<>();
+        final List<Long> disconnected = new ArrayList<>();
+
+        @Override
+        public synchronized long connect(String hostname, int port, String username, String password, int authType,
+                                         String keyPath, String connectFailMessage, String authFailMessage)
+                throws Exception {
+            if (failNextConnect) {
+                failNextConnect = false;
+                throw new Exception(connectFailMessage);
+            }
+            connects++;
+            return nextHandle++;
+        }
+
+        @Override
+        public synchronized boolean probe(long handle) {
+            probed.add(handle);
+            return !failing.contains(handle);
+        }
+
+        @Override
+        public synchronized void disconnect(long handle) {
+            disconnected.add(handle);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.orcterm.core.terminal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public class KittyGraphicsCommandTest {
+
+    @Test
+    public void detectsGraphicsCommand() {
+        assertTrue(KittyGraphicsCommand.isGraphics("Ga=T;AAAA"));
+        assertFalse(KittyGraphicsCommand.isGraphics("Xa=T"));
+        assertFalse(KittyGraphicsCommand.isGraphics(""));
+        assertFalse(KittyGraphicsCommand.isGraphics(null));
+    }
+
+    @Test
+    public void parsesControlKeysAndPayload() {
+        KittyGraphicsCommand cmd = KittyGraphicsCommand.parse("Ga=T,f=100,o=z,i=7,s=4,v=2,c=10,r=5,m=1,q=2;QUJD");
+        assertEquals('T', cmd.action);
+        assertEquals(KittyGraphicsCommand.FORMAT_PNG, cmd.format);
+        assertEquals('z', cmd.compression);
+        assertEquals(7, cmd.imageId);
+        assertEquals(4, cmd.pixelWidth);
+        assertEquals(2, cmd.pixelHeight);
+        assertEquals(10, cmd.columns);
+        assertEquals(5, cmd.rows);
+        assertTrue(cmd.more);
+        assertEquals(2, cmd.quiet);
+        assertEquals("QUJD", cmd.payload);
+    }
+
+    @Test
+    public void keepsDefaultsForMissingOrInvalidKeys() {
+        KittyGraphicsCommand cmd = KittyGraphicsCommand.parse("Gf=xx,bogus,i=");
+        assertEquals('t', cmd.action);
+        assertEquals(KittyGraphicsCommand.FORMAT_RGBA, cmd.format);
+        assertEquals(0, cmd.imageId);
+        assertFalse(cmd.more);
+        assertEquals("", cmd.payload);
+    }
+
+    @Test
+    public void parsesDeleteTarget() {
+        KittyGraphicsCommand cmd = KittyGraphicsCommand.parse("Ga=d,d=I,i=3");
+        assertEquals('d', cmd.action);
+        assertEquals('I', cmd.deleteTarget);
+        assertEquals(3, cmd.imageId);
+    }
+
+    @Test
+    public void resolvesSizeFromKeys() {
+        KittyGraphicsCommand cmd = KittyGraphicsCommand.parse("Gf=32,s=640,v=480;");
+        assertArrayEquals(new int[]{640, 480}, cmd.resolvePixelSize());
+    }
+
+    @Test
+    public void resolvesPngSizeFromHeader() {
+        byte[] header = {
+            (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n',
+            0, 0, 0, 13, 'I', 'H', 'D', 'R',
+            0, 0, 0x01, 0x2C, 0, 0, 0, (byte) 0xC8
+        };
+        String payload = Base64.getEncoder().encodeToString(header);
+        KittyGraphicsCommand cmd = KittyGraphicsCommand.parse("Gf=100;" + payload);
+        assertArrayEquals(new int[]{300, 200}, cmd.resolvePixelSize());
+    }
+
+    @Test
+    public void unknownSizeWithoutKeysOrPngHeader() {
+        assertArrayEquals(new int[]{0, 0}, KittyGraphicsCommand.parse("Gf=32;AAAA").resolvePixelSize());
+        assertArrayEquals(new int[]{0, 0}, KittyGraphicsCommand.parse("Gf=100;AAAA").resolvePixelSize());
+    }
+
+    @Test
+    public void decodesPayloadUnlessDataIsSet() {
+        KittyGraphicsCommand cmd = KittyGraphicsCommand.parse("Gf=32;QUJD");
+        assertArrayEquals("ABC".getBytes(StandardCharsets.US_ASCII), cmd.decodeData());
+        byte[] stored = {1, 2, 3};
+        cmd.data = stored;
+        assertSame(stored, cmd.decodeData());
+    }
+}
@@ -0,0 +1,107 @@
+package com.orcterm.core.terminal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LocalEchoPredictorTest {
+
+    private TerminalEmulator emulator;
+    private LocalEchoPredictor predictor;
+
+    @Before
+    public void setUp() {
+        emulator = new TerminalEmulator(80, 24);
+        emulator.append("$ ");
+        predictor = new LocalEchoPredictor(emulator);
+        predictor.setMode(LocalEchoPredictor.MODE_ALWAYS);
+    }
+
+    @Test
+    public void predictsPrintableInputAtCursor() {
+        predictor.onUserInput("ls");
+        assertEquals(2, predictor.getPredictions().size());
+        LocalEchoPredictor.Prediction first = predictor.getPredictions().get(0);
+        assertEquals(0, first.row);
+        assertEquals(2, first.col);
+        assertEquals('l', first.ch);
+        assertEquals(4, predictor.getPredictedCursorX());
+        assertTrue(predictor.shouldDisplay());
+    }
+
+    @Test
+    public void matchingEchoConfirmsPredictions() {
+        predictor.onUserInput("ls");
+        emulator.append("l");
+        predictor.onServerOutput();
+        assertEquals(1, predictor.getPredictions().size());
+        emulator.append("s");
+        predictor.onServerOutput();
+        assertTrue(predictor.getPredictions().isEmpty());
+        assertEquals(2, predictor.getConfirmedCount());
+        assertEquals(0, predictor.getRolledBackCount());
+    }
+
+    @Test
+    public void mismatchedEchoRollsBack() {
+        predictor.onUserInput("ls");
+        emulator.append("x");
+        predictor.onServerOutput();
+        assertTrue(predictor.getPredictions().isEmpty());
+        assertEquals(2, predictor.getRolledBackCount());
+    }
+
+    @Test
+    public void backspaceRemovesUnconfirmedPrediction() {
+        predictor.onUserInput("ab\u007f");
+        assertEquals(1, predictor.getPredictions().size());
+        assertEquals('a', predictor.getPredictions().get(0).ch);
+    }
+
+    @Test
+    public void newlineClearsPredictions() {
+        predictor.onUserInput("ls\r");
+        assertTrue(predictor.getPredictions().isEmpty());
+    }
+
+    @Test
+    public void controlInputStopsPrediction() {
+        predictor.onUserInput("a\u001b[Ab");
+        assertTrue(predictor.getPredictions().isEmpty());
+    }
+
+    @Test
+    public void noPredictionAtPasswordPrompt() {
+        emulator.append("\r\nPassword: ");
+        predictor.onUserInput("secret");
+        assertTrue(predictor.getPredictions().isEmpty());
+    }
+
+    @Test
+    public void noPredictionOnAlternateScreen() {
+        emulator.append("\u001b[?1049h");
+        predictor.onUserInput("q");
+        assertTrue(predictor.getPredictions().isEmpty());
+    }
+
+    @Test
+    public void offModeIgnoresInput() {
+        predictor.setMode(LocalEchoPredictor.MODE_OFF);
+        predictor.onUserInput("ls");
+        assertTrue(predictor.getPredictions().isEmpty());
+        assertFalse(predictor.shouldDisplay());
+    }
+
+    @Test
+    public void adaptiveModeDisplaysOnlyOnSlowLinks() {
+        predictor.setMode(LocalEchoPredictor.MODE_ADAPTIVE);
+        predictor.onUserInput("l");
+        predictor.setObservedLatencyMs(5);
+        assertFalse(predictor.shouldDisplay());
+        predictor.setObservedLatencyMs(200);
+        assertTrue(predictor.shouldDisplay());
+    }
+}
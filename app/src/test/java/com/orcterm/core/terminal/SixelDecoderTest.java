@@ -0,0 +1,76 @@
+package com.orcterm.core.terminal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SixelDecoderTest {
+
+    @Test
+    public void detectsSixelPayload() {
+        assertTrue(SixelDecoder.isSixel("0;1;0q~"));
+        assertTrue(SixelDecoder.isSixel("q~"));
+        assertFalse(SixelDecoder.isSixel("1$r"));
+        assertFalse(SixelDecoder.isSixel(null));
+    }
+
+    @Test
+    public void measureUsesRasterAttributes() {
+        assertArrayEquals(new int[]{10, 12}, SixelDecoder.measure("q\"1;1;10;12~"));
+    }
+
+    @Test
+    public void measureCountsColumnsAndBands() {
+        assertArrayEquals(new int[]{3, 12}, SixelDecoder.measure("q~~~-~~"));
+        assertArrayEquals(new int[]{5, 6}, SixelDecoder.measure("q!5~"));
+        assertArrayEquals(new int[]{4, 6}, SixelDecoder.measure("q~~$~~~~"));
+    }
+
+    @Test
+    public void measureClampsToMaxDimension() {
+        int max = SixelDecoder.MAX_DIMENSION;
+        assertArrayEquals(new int[]{max, max}, SixelDecoder.measure("q\"1;1;5000;9000~"));
+    }
+
+    @Test
+    public void decodeAppliesPaletteColor() {
+        SixelDecoder.Image image = SixelDecoder.decode("q#1;2;100;0;0#1~");
+        assertNotNull(image);
+        assertEquals(1, image.width);
+        assertEquals(6, image.height);
+        for (int pixel : image.pixels) {
+            assertEquals(0xFFFF0000, pixel);
+        }
+    }
+
+    @Test
+    public void undrawnPixelsStayTransparent() {
+        // '@' 只设置最上方一位
+        SixelDecoder.Image image = SixelDecoder.decode("q#1;2;0;100;0#1@");
+        assertNotNull(image);
+        assertEquals(0xFF00FF00, image.pixels[0]);
+        for (int y = 1; y < image.height; y++) {
+            assertEquals(0, image.pixels[y * image.width]);
+        }
+    }
+
+    @Test
+    public void decodeScalesDownToBounds() {
+        SixelDecoder.Image image = SixelDecoder.decode("q\"1;1;100;60!100~", 50, 50);
+        assertNotNull(image);
+        assertEquals(50, image.width);
+        assertEquals(30, image.height);
+        assertEquals(50 * 30, image.pixels.length);
+    }
+
+    @Test
+    public void decodeRejectsInvalidPayload() {
+        assertNull(SixelDecoder.decode("not sixel"));
+        assertNull(SixelDecoder.decode("q"));
+    }
+}
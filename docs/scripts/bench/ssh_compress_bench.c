@@ -0,0 +1,164 @@
+/*
+ * SSH 传输压缩基准测试
+ * 使用与 App 相同的 libssh2 源码，分别在关闭/开启 LIBSSH2_FLAG_COMPRESS 的情况下
+ * 通过 exec 通道拉取远端生成的文本，统计吞吐量与本进程 CPU 耗时。
+ *
+ * 用法: ssh_compress_bench <host> <port> <user> <password|-> [key_path]
+ *   环境变量 BENCH_BYTES   远端输出字节数 (默认 32 MiB)
+ *   环境变量 BENCH_ROUNDS  每种模式重复次数 (默认 3)
+ *   环境变量 BENCH_COMMAND 自定义远端命令 (默认输出类似 ls -l / 日志的文本)
+ */
+#include <arpa/inet.h>
+#include <netdb.h>
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <sys/resource.h>
+#include <sys/socket.h>
+#include <time.h>
+#include <unistd.h>
+
+#include "libssh2.h"
+
+static double now_sec(void) {
+    struct timespec ts;
+    clock_gettime(CLOCK_MONOTONIC, &ts);
+    return ts.tv_sec + ts.tv_nsec / 1e9;
+}
+
+static double cpu_sec(void) {
+    struct rusage ru;
+    getrusage(RUSAGE_SELF, &ru);
+    return ru.ru_utime.tv_sec + ru.ru_utime.tv_usec / 1e6
+        + ru.ru_stime.tv_sec + ru.ru_stime.tv_usec / 1e6;
+}
+
+static int connect_tcp(const char *host, const char *port) {
+    struct addrinfo hints;
+    struct addrinfo *res = NULL;
+    memset(&hints, 0, sizeof(hints));
+    hints.ai_family = AF_UNSPEC;
+    hints.ai_socktype = SOCK_STREAM;
+    if (getaddrinfo(host, port, &hints, &res) != 0) return -1;
+    int sock = -1;
+    for (struct addrinfo *ai = res; ai; ai = ai->ai_next) {
+        sock = socket(ai->ai_family, ai->ai_socktype, ai->ai_protocol);
+        if (sock < 0) continue;
+        if (connect(sock, ai->ai_addr, ai->ai_addrlen) == 0) break;
+        close(sock);
+        sock = -1;
+    }
+    freeaddrinfo(res);
+    return sock;
+}
+
+/**
+ * 执行一轮：连接、认证、读取全部输出
+ *
+ * @return 0 成功
+ */
+static int run_round(int compress, char **argv, int argc, const char *command,
+                     long long *bytes_out, double *wall_out, double *cpu_out) {
+    int sock = connect_tcp(argv[1], argv[2]);
+    if (sock < 0) {
+        fprintf(stderr, "connect failed\n");
+        return -1;
+    }
+    LIBSSH2_SESSION *session = libssh2_session_init();
+    libssh2_session_flag(session, LIBSSH2_FLAG_COMPRESS, compress);
+    if (libssh2_session_handshake(session, sock) != 0) {
+        fprintf(stderr, "handshake failed\n");
+        libssh2_session_free(session);
+        close(sock);
+        return -1;
+    }
+    int rc;
+    if (argc > 5) {
+        rc = libssh2_userauth_publickey_fromfile(session, argv[3], NULL, argv[5],
+                                                 strcmp(argv[4], "-") == 0 ? NULL : argv[4]);
+    } else {
+        rc = libssh2_userauth_password(session, argv[3], argv[4]);
+    }
+    if (rc != 0) {
+        fprintf(stderr, "auth failed\n");
+        libssh2_session_disconnect(session, "bye");
+        libssh2_session_free(session);
+        close(sock);
+        return -1;
+    }
+
+    const char *negotiated = libssh2_session_methods(session, LIBSSH2_METHOD_COMP_SC);
+    LIBSSH2_CHANNEL *channel = libssh2_channel_open_session(session);
+    if (!channel || libssh2_channel_exec(channel, command) != 0) {
+        fprintf(stderr, "exec failed\n");
+        return -1;
+    }
+
+    // 计时只覆盖数据传输，不含握手与认证
+    char buffer[32768];
+    long long total = 0;
+    double cpu_start = cpu_sec();
+    double wall_start = now_sec();
+    ssize_t n;
+    while ((n = libssh2_channel_read(channel, buffer, sizeof(buffer))) > 0) {
+        total += n;
+    }
+    *wall_out = now_sec() - wall_start;
+    *cpu_out = cpu_sec() - cpu_start;
+    *bytes_out = total;
+
+    libssh2_channel_close(channel);
+    libssh2_channel_free(channel);
+    libssh2_session_disconnect(session, "bye");
+    libssh2_session_free(session);
+    close(sock);
+
+    if (compress && (!negotiated || strcmp(negotiated, "none") == 0)) {
+        fprintf(stderr, "warning: server did not negotiate compression\n");
+    }
+    return n < 0 ? -1 : 0;
+}
+
+int main(int argc, char **argv) {
+    if (argc < 5) {
+        fprintf(stderr, "usage: %s <host> <port> <user> <password|-> [key_path]\n", argv[0]);
+        return 2;
+    }
+    long long target = getenv("BENCH_BYTES") ? atoll(getenv("BENCH_BYTES")) : 32LL * 1024 * 1024;
+    int rounds = getenv("BENCH_ROUNDS") ? atoi(getenv("BENCH_ROUNDS")) : 3;
+    char command[512];
+    if (getenv("BENCH_COMMAND")) {
+        snprintf(command, sizeof(command), "%s", getenv("BENCH_COMMAND"));
+    } else {
+        // 类终端输出的文本：重复的目录列表与日志行
+        snprintf(command, sizeof(command),
+                 "while :; do ls -l /usr/bin; dmesg 2>/dev/null || cat /etc/services; done | head -c %lld",
+                 target);
+    }
+
+    libssh2_init(0);
+    printf("%-6s %5s %12s %10s %10s %10s\n", "mode", "round", "bytes", "wall_s", "MiB/s", "cpu_s");
+    for (int compress = 0; compress <= 1; compress++) {
+        double wall_sum = 0;
+        double cpu_sum = 0;
+        long long bytes_sum = 0;
+        for (int round = 1; round <= rounds; round++) {
+            long long bytes = 0;
+            double wall = 0;
+            double cpu = 0;
+            if (run_round(compress, argv, argc, command, &bytes, &wall, &cpu) != 0) {
+                libssh2_exit();
+                return 1;
+            }
+            printf("%-6s %5d %12lld %10.3f %10.2f %10.3f\n", compress ? "zlib" : "none", round,
+                   bytes, wall, bytes / 1048576.0 / wall, cpu);
+            wall_sum += wall;
+            cpu_sum += cpu;
+            bytes_sum += bytes;
+        }
+        printf("%-6s %5s %12lld %10.3f %10.2f %10.3f\n", compress ? "zlib" : "none", "avg",
+               bytes_sum / rounds, wall_sum / rounds, bytes_sum / 1048576.0 / wall_sum, cpu_sum / rounds);
+    }
+    libssh2_exit();
+    return 0;
+}
@@ -0,0 +1,55 @@
+#!/bin/bash
+set -euo pipefail
+
+# SSH 传输压缩基准测试：在本机构建 libssh2 (开启 zlib) 与测试程序，
+# 对本地或指定的 sshd 分别测量关闭/开启压缩时的吞吐量与 CPU 耗时。
+#
+# 用法: ./bench_ssh_compression.sh [host] [port] [user] [password|-] [key_path]
+# 模拟低速链路可先对回环网卡限速，例如:
+#   sudo tc qdisc add dev lo root netem rate 2mbit delay 100ms
+
+SCRIPT_DIR="$(cd "$(dirname "$0")" && pwd)"
+ROOT_DIR="$(cd "$SCRIPT_DIR/../.." && pwd)"
+WORK_DIR="$SCRIPT_DIR/temp_bench"
+LIBSSH2_DIR="$ROOT_DIR/sshlib/src/main/cpp/libssh2_src"
+
+HOST="${1:-127.0.0.1}"
+PORT="${2:-22}"
+USER_NAME="${3:-$USER}"
+PASSWORD="${4:--}"
+KEY_PATH="${5:-$HOME/.ssh/id_ed25519}"
+
+log() {
+  printf "[bench] %s\n" "$1"
+}
+
+for tool in cmake cc; do
+  if ! command -v "$tool" >/dev/null 2>&1; then
+    log "缺少 $tool"
+    exit 1
+  fi
+done
+
+mkdir -p "$WORK_DIR"
+if [ ! -f "$WORK_DIR/libssh2/src/libssh2.a" ]; then
+  log "构建 libssh2 (ENABLE_ZLIB_COMPRESSION=ON)"
+  cmake -S "$LIBSSH2_DIR" -B "$WORK_DIR/libssh2" \
+    -DCMAKE_BUILD_TYPE=Release \
+    -DBUILD_SHARED_LIBS=OFF \
+    -DBUILD_EXAMPLES=OFF \
+    -DBUILD_TESTING=OFF \
+    -DCRYPTO_BACKEND=OpenSSL \
+    -DENABLE_ZLIB_COMPRESSION=ON >/dev/null
+  cmake --build "$WORK_DIR/libssh2" --target libssh2_static -j >/dev/null
+fi
+
+log "构建测试程序"
+cc -O2 -o "$WORK_DIR/ssh_compress_bench" "$SCRIPT_DIR/bench/ssh_compress_bench.c" \
+  -I"$LIBSSH2_DIR/include" "$WORK_DIR/libssh2/src/libssh2.a" -lssl -lcrypto -lz
+
+log "目标 $USER_NAME@$HOST:$PORT"
+if [ "$PASSWORD" = "-" ] && [ -f "$KEY_PATH" ]; then
+  "$WORK_DIR/ssh_compress_bench" "$HOST" "$PORT" "$USER_NAME" - "$KEY_PATH"
+else
+  "$WORK_DIR/ssh_compress_bench" "$HOST" "$PORT" "$USER_NAME" "$PASSWORD"
+fi
@@ -0,0 +1,256 @@
+#include <jni.h>
+#include <string.h>
+#include <android/log.h>
+#include <stdlib.h>
+#include <unistd.h>
+#include <fcntl.h>
+#include <poll.h>
+#include <errno.h>
+#include <signal.h>
+#include <termios.h>
+#include <pty.h>
+#include <time.h>
+#include <sys/ioctl.h>
+#include <sys/wait.h>
+
+#define TAG "PtyNative"
+#define LOGI(...) __android_log_print(ANDROID_LOG_INFO, TAG, __VA_ARGS__)
+#define LOGE(...) __android_log_print(ANDROID_LOG_ERROR, TAG, __VA_ARGS__)
+
+// 关闭时等待 Shell 响应 SIGHUP 退出的最长时间，超时后强制结束
+#define PTY_EXIT_WAIT_MS 200
+
+// 将 Java 字符串数组复制为以 NULL 结尾的 C 字符串数组，fork 前准备好，子进程中不再调用 JNI
+static char **copy_string_array(JNIEnv *env, jobjectArray array) {
+    jsize count = array ? (*env)->GetArrayLength(env, array) : 0;
+    char **result = calloc((size_t)count + 1, sizeof(char *));
+    if (!result) return NULL;
+    for (jsize i = 0; i < count; i++) {
+        jstring item = (jstring)(*env)->GetObjectArrayElement(env, array, i);
+        const char *utf = item ? (*env)->GetStringUTFChars(env, item, NULL) : NULL;
+        result[i] = strdup(utf ? utf : "");
+        if (utf) (*env)->ReleaseStringUTFChars(env, item, utf);
+        if (item) (*env)->DeleteLocalRef(env, item);
+    }
+    return result;
+}
+
+static void free_string_array(char **array) {
+    if (!array) return;
+    for (char **p = array; *p; p++) free(*p);
+    free(array);
+}
+
+/**
+ * 在新的伪终端中启动进程
+ * 子进程成为会话首进程并以 PTY 从设备为控制终端；主设备 fd 设为非阻塞，可与 SSH 会话一起 poll。
+ *
+ * @param path 可执行文件路径
+ * @param argv 参数 (含 argv[0])
+ * @param envp 环境变量 (KEY=VALUE)
+ * @param cwd  工作目录，null 表示继承
+ * @param pidOut 返回子进程 pid
+ * @return 主设备 fd，失败返回 -1
+ */
+JNIEXPORT jint JNICALL
+Java_com_orcterm_core_ssh_PtyNative_open(JNIEnv *env, jobject thiz, jstring path, jobjectArray argv, jobjectArray envp, jstring cwd, jint cols, jint rows, jintArray pidOut) {
+    if (!path || !pidOut || (*env)->GetArrayLength(env, pidOut) < 1) return -1;
+
+    const char *path_utf = (*env)->GetStringUTFChars(env, path, NULL);
+    const char *cwd_utf = cwd ? (*env)->GetStringUTFChars(env, cwd, NULL) : NULL;
+    char *exec_path = path_utf ? strdup(path_utf) : NULL;
+    char *work_dir = cwd_utf ? strdup(cwd_utf) : NULL;
+    if (path_utf) (*env)->ReleaseStringUTFChars(env, path, path_utf);
+    if (cwd_utf) (*env)->ReleaseStringUTFChars(env, cwd, cwd_utf);
+    char **args = copy_string_array(env, argv);
+    char **vars = copy_string_array(env, envp);
+    long max_fd = sysconf(_SC_OPEN_MAX);
+    if (max_fd < 0 || max_fd > 65536) max_fd = 65536;
+    if (!exec_path || !args || !vars) {
+        free(exec_path);
+        free(work_dir);
+        free_string_array(args);
+        free_string_array(vars);
+        return -1;
+    }
+
+    struct winsize ws;
+    memset(&ws, 0, sizeof(ws));
+    ws.ws_col = (unsigned short)(cols > 0 ? cols : 80);
+    ws.ws_row = (unsigned short)(rows > 0 ? rows : 24);
+
+    int master = -1;
+    pid_t pid = forkpty(&master, NULL, NULL, &ws);
+    if (pid == 0) {
+        // 子进程：只使用 async-signal-safe 调用
+        sigset_t mask;
+        sigfillset(&mask);
+        sigprocmask(SIG_UNBLOCK, &mask, NULL);
+        for (int sig = 1; sig < NSIG; sig++) {
+            signal(sig, SIG_DFL);
+        }
+        // 不把应用的 socket 等描述符泄漏给 Shell
+        for (int fd = STDERR_FILENO + 1; fd < max_fd; fd++) {
+            close(fd);
+        }
+        if (work_dir) chdir(work_dir);
+        execve(exec_path, args, vars);
+        _exit(127);
+    }
+
+    free(exec_path);
+    free(work_dir);
+    free_string_array(args);
+    free_string_array(vars);
+
+    if (pid < 0) {
+        LOGE("forkpty failed: %s", strerror(errno));
+        return -1;
+    }
+
+    // 输入按 UTF-8 处理，退格可删除完整的多字节字符
+    struct termios tios;
+    if (tcgetattr(master, &tios) == 0) {
+        tios.c_iflag |= IUTF8;
+        tcsetattr(master, TCSANOW, &tios);
+    }
+    int flags = fcntl(master, F_GETFL, 0);
+    fcntl(master, F_SETFL, flags | O_NONBLOCK);
+    fcntl(master, F_SETFD, FD_CLOEXEC);
+
+    jint pid_value = (jint)pid;
+    (*env)->SetIntArrayRegion(env, pidOut, 0, 1, &pid_value);
+    LOGI("pty started, pid=%d", (int)pid);
+    return master;
+}
+
+/**
+ * 调整伪终端窗口大小，前台进程组随之收到 SIGWINCH
+ */
+JNIEXPORT jint JNICALL
+Java_com_orcterm_core_ssh_PtyNative_resize(JNIEnv *env, jobject thiz, jint fd, jint cols, jint rows) {
+    if (fd < 0 || cols <= 0 || rows <= 0) return -1;
+    struct winsize ws;
+    memset(&ws, 0, sizeof(ws));
+    ws.ws_col = (unsigned short)cols;
+    ws.ws_row = (unsigned short)rows;
+    return ioctl(fd, TIOCSWINSZ, &ws) == 0 ? 0 : -1;
+}
+
+// read 结果：>0 字节数，0 暂无数据，-1 从设备已全部关闭 (进程退出) 或出错
+static jint pty_read(int fd, void *target, size_t length) {
+    while (1) {
+        ssize_t n = read(fd, target, length);
+        if (n > 0) return (jint)n;
+        if (n < 0 && errno == EINTR) continue;
+        if (n < 0 && (errno == EAGAIN || errno == EWOULDBLOCK)) return 0;
+        // Linux 上从设备全部关闭后主设备 read 返回 EIO
+        return -1;
+    }
+}
+
+/**
+ * 非阻塞读取到 direct ByteBuffer，不修改 position/limit
+ *
+ * @return 读取的字节数；0 表示暂无数据；-1 表示进程已退出或出错
+ */
+JNIEXPORT jint JNICALL
+Java_com_orcterm_core_ssh_PtyNative_readDirect(JNIEnv *env, jobject thiz, jint fd, jobject buffer, jint offset, jint length) {
+    if (fd < 0 || !buffer || offset < 0 || length <= 0) return -1;
+    char *base = (char *)(*env)->GetDirectBufferAddress(env, buffer);
+    jlong capacity = (*env)->GetDirectBufferCapacity(env, buffer);
+    if (!base || capacity < 0 || (jlong)offset + length > capacity) return -1;
+    return pty_read(fd, base + offset, (size_t)length);
+}
+
+/**
+ * 非阻塞读取到字节数组
+ *
+ * @return 读取的字节数；0 表示暂无数据；-1 表示进程已退出或出错
+ */
+JNIEXPORT jint JNICALL
+Java_com_orcterm_core_ssh_PtyNative_read(JNIEnv *env, jobject thiz, jint fd, jbyteArray buffer, jint offset, jint length) {
+    if (fd < 0 || !buffer || offset < 0 || length <= 0
+            || (jlong)offset + length > (*env)->GetArrayLength(env, buffer)) {
+        return -1;
+    }
+    jbyte *temp = malloc((size_t)length);
+    if (!temp) return -1;
+    jint n = pty_read(fd, temp, (size_t)length);
+    if (n > 0) {
+        (*env)->SetByteArrayRegion(env, buffer, offset, n, temp);
+    }
+    free(temp);
+    return n;
+}
+
+/**
+ * 非阻塞写入
+ *
+ * @return 写入的字节数；0 表示 PTY 输入缓冲已满暂不可写；-1 表示出错
+ */
+JNIEXPORT jint JNICALL
+Java_com_orcterm_core_ssh_PtyNative_write(JNIEnv *env, jobject thiz, jint fd, jbyteArray data, jint offset, jint length) {
+    if (fd < 0 || !data || offset < 0 || length < 0
+            || (jlong)offset + length > (*env)->GetArrayLength(env, data)) {
+        return -1;
+    }
+    if (length == 0) return 0;
+    jbyte *bytes = (*env)->GetByteArrayElements(env, data, NULL);
+    if (!bytes) return -1;
+    ssize_t n;
+    do {
+        n = write(fd, bytes + offset, (size_t)length);
+    } while (n < 0 && errno == EINTR);
+    (*env)->ReleaseByteArrayElements(env, data, bytes, JNI_ABORT);
+    if (n < 0) {
+        return (errno == EAGAIN || errno == EWOULDBLOCK) ? 0 : -1;
+    }
+    return (jint)n;
+}
+
+/**
+ * 等待主设备可读 (或可写)
+ *
+ * @param forWrite  true 等待可写，false 等待可读
+ * @param timeoutMs 超时毫秒数，负数表示无限等待
+ * @return 1 就绪 (含挂断)；0 超时；-1 出错
+ */
+JNIEXPORT jint JNICALL
+Java_com_orcterm_core_ssh_PtyNative_poll(JNIEnv *env, jobject thiz, jint fd, jboolean forWrite, jint timeoutMs) {
+    if (fd < 0) return -1;
+    struct pollfd pfd;
+    pfd.fd = fd;
+    pfd.events = forWrite ? POLLOUT : POLLIN;
+    pfd.revents = 0;
+    int rc;
+    do {
+        rc = poll(&pfd, 1, timeoutMs);
+    } while (rc < 0 && errno == EINTR);
+    if (rc < 0) return -1;
+    return rc > 0 ? 1 : 0;
+}
+
+/**
+ * 关闭主设备并回收子进程
+ * Shell 通过控制终端挂断收到 SIGHUP；短时间内未退出则强制结束，避免留下僵尸进程。
+ */
+JNIEXPORT void JNICALL
+Java_com_orcterm_core_ssh_PtyNative_close(JNIEnv *env, jobject thiz, jint fd, jint pid) {
+    if (fd >= 0) {
+        close(fd);
+    }
+    if (pid <= 0) return;
+    kill(-pid, SIGHUP);
+    kill(pid, SIGHUP);
+    struct timespec step = {0, 10 * 1000 * 1000};
+    for (int waited = 0; waited < PTY_EXIT_WAIT_MS; waited += 10) {
+        pid_t r = waitpid(pid, NULL, WNOHANG);
+        if (r == pid || (r < 0 && errno != EINTR)) return;
+        nanosleep(&step, NULL);
+    }
+    kill(-pid, SIGKILL);
+    kill(pid, SIGKILL);
+    while (waitpid(pid, NULL, 0) < 0 && errno == EINTR) {
+    }
+}
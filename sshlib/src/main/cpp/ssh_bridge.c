@@ -5,6 +5,7 @@
 #include <stdio.h>
 #include <sys/socket.h>
 #include <netinet/in.h>
+#include <netinet/tcp.h>
 #include <arpa/inet.h>
 #include <unistd.h>
 #include <fcntl.h>
@@ -13,11 +14,26 @@
 #include <openssl/pem.h>
 #include <openssl/err.h>
 #include <sys/stat.h>
+#include <poll.h>
+#include <errno.h>
+#include <pthread.h>
+#include <time.h>
 
 // Include libssh2 headers
 #include "libssh2.h"
 #include "libssh2_sftp.h"
 
+// libssh2 内部函数 (1.11.0，静态链接进本库)：公开 API 不会取走全局请求的应答，
+// 保活应答因此只能从会话的数据包队列中直接收取。
+// 二者不属于公开 ABI，升级 libssh2 时必须重新核对签名与数据包队列的语义，故在此锁定版本。
+#if LIBSSH2_VERSION_NUM != 0x010b00
+#error "keepalive reply collection relies on libssh2 1.11.0 internals; re-check _libssh2_packet_askv/_libssh2_transport_read before upgrading"
+#endif
+int _libssh2_transport_read(LIBSSH2_SESSION *session);
+int _libssh2_packet_askv(LIBSSH2_SESSION *session, const unsigned char *packet_types,
+                         unsigned char **data, size_t *data_len,
+                         int match_ofs, const unsigned char *match_buf, size_t match_len);
+
 #define TAG "SshNative"
 #define LOGI(...) __android_log_print(ANDROID_LOG_INFO, TAG, __VA_ARGS__)
 #define LOGE(...) __android_log_print(ANDROID_LOG_ERROR, TAG, __VA_ARGS__)
@@ -36,16 +52,192 @@ static void build_perm_string(unsigned long perm, int is_dir, char *out) {
     out[10] = '\0';
 }
 
+// 记录的未应答保活上限，超出部分不再计时 (早已达到失联判定)
+#define KEEPALIVE_MAX_PENDING 16
+
 /**
  * 上下文结构体，用于保存会话数据
  * 在 Java 层以 long (指针) 形式持有。
  */
-typedef struct {
-    int socket_fd;
+typedef struct SshContext {
+    int socket_fd;            // 经跳板机的会话为跳板会话的 socket (不持有，仅用于等待)
     LIBSSH2_SESSION *session;
     LIBSSH2_CHANNEL *channel; // 当前活动的 Shell 通道
+    int wake_pipe[2];         // 唤醒管道 [读端, 写端]，用于中断 waitForData
+    // 会话锁：libssh2 会话不是线程安全的，Shell、Exec、SFTP 与转发通道的所有调用都在锁内进行。
+    // 会话始终处于非阻塞模式，调用返回 EAGAIN 时释放锁并在 socket 上等待，
+    // 因此多个线程的通道可以在同一 TCP 连接上交错推进，而不会互相独占。
+    pthread_mutex_t lock;
+    // 打开闸门：libssh2 把通道打开、SFTP 初始化与 tcpip-forward 请求的进行中状态保存在会话上，
+    // 等待期间释放会话锁后，其他线程发起的打开会接续这份状态并拿走别人的通道；此类调用须逐个进行
+    pthread_mutex_t open_lock;
+    int timeout_ms;           // 单次操作的等待上限，0 表示不限
+    // 跳板 (ProxyJump)：内层会话的数据经 send/recv 回调读写跳板会话上的 direct-tcpip 通道
+    struct SshContext *outer;          // 跳板会话，直连时为 NULL
+    LIBSSH2_CHANNEL *tunnel;           // 承载本会话的通道，属于 outer
+    int tunnel_window_blocked;         // 上次发送因通道窗口耗尽而阻塞
+    struct SshContext *tunneled;       // 经本会话建立的内层会话链表，在本会话锁内访问
+    struct SshContext *next_tunneled;
+    // 保活 (keepalive@libssh2.org)：需要应答时按发送顺序记录未应答请求的发送时间，应答按请求顺序到达
+    int keepalive_interval;            // 秒，0 表示关闭
+    int keepalive_want_reply;
+    long long keepalive_sent_ms[KEEPALIVE_MAX_PENDING];
+    int keepalive_head;
+    time_t keepalive_last_sent_s;      // 上次发出保活的时间 (与 libssh2 内部记录一致，秒)
+    int keepalive_pending;             // 已记录发送时间的未应答保活
+    int keepalive_outstanding;         // 全部未应答保活 (含超出记录上限的)，应答按此逐个配对
+    jint keepalive_rtt_backlog[KEEPALIVE_MAX_PENDING];  // 全局请求期间收到的往返时间，留待下次 tick 报告
+    int keepalive_rtt_backlog_count;
+    int global_request_busy;           // forwardListen 等待应答期间不发送保活，也不收取应答
 } SshContext;
 
+// waitForData 返回值
+#define WAIT_ERROR    (-1)
+#define WAIT_TIMEOUT  0
+#define WAIT_READY    1
+#define WAIT_WOKEN    2
+
+// 等待 socket 的单次时长：其他线程可能已替本线程把数据读入通道缓冲 (此时 socket 不再可读)，
+// 需要定期重试；取值决定了并行通道在这种情况下的额外延迟上限
+#define SESSION_WAIT_SLICE_MS 10
+
+static void ctx_lock(SshContext *ctx) {
+    pthread_mutex_lock(&ctx->lock);
+}
+
+static void ctx_wakeup(SshContext *ctx) {
+    if (ctx->wake_pipe[1] < 0) return;
+    char one = 1;
+    // 管道已满说明已有未处理的唤醒，忽略 EAGAIN
+    ssize_t ignored = write(ctx->wake_pipe[1], &one, 1);
+    (void)ignored;
+}
+
+static void ctx_unlock(SshContext *ctx) {
+    // 本线程处理 socket 时可能顺带收下了 Shell 通道的数据，唤醒在 waitForData 中等待的读取线程
+    if (ctx->channel && libssh2_poll_channel_read(ctx->channel, 0)) {
+        ctx_wakeup(ctx);
+    }
+    // 内层会话的数据同理：已进入承载通道的缓冲后，跳板 socket 上不会再有事件
+    for (SshContext *inner = ctx->tunneled; inner; inner = inner->next_tunneled) {
+        if (libssh2_poll_channel_read(inner->tunnel, 0)) {
+            ctx_wakeup(inner);
+        }
+    }
+    pthread_mutex_unlock(&ctx->lock);
+}
+
+// 是否需要等待 socket 可写：经跳板机的会话因承载通道窗口耗尽而阻塞时，跳板 socket 通常可写，
+// 等待 POLLOUT 会立即返回而空转，此时应等待窗口调整消息 (入站数据)
+static int ctx_wants_pollout(SshContext *ctx, int dirs) {
+    return (dirs & LIBSSH2_SESSION_BLOCK_OUTBOUND) && !ctx->tunnel_window_blocked;
+}
+
+static long long now_ms(void) {
+    struct timespec ts;
+    clock_gettime(CLOCK_MONOTONIC, &ts);
+    return (long long)ts.tv_sec * 1000 + ts.tv_nsec / 1000000;
+}
+
+/**
+ * 在不持有会话锁的情况下等待 socket 就绪
+ *
+ * @param dirs     libssh2_session_block_directions 的结果 (需在锁内获取)
+ * @param deadline 截止时间 (now_ms)，0 表示不限
+ * @return 0 继续重试，-1 已超时
+ */
+static int wait_session_socket(SshContext *ctx, int dirs, long long deadline) {
+    int timeout = SESSION_WAIT_SLICE_MS;
+    if (deadline > 0) {
+        long long left = deadline - now_ms();
+        if (left <= 0) return -1;
+        if (left < timeout) timeout = (int)left;
+    }
+    struct pollfd pfd;
+    pfd.fd = ctx->socket_fd;
+    pfd.events = 0;
+    if (dirs & LIBSSH2_SESSION_BLOCK_INBOUND) pfd.events |= POLLIN;
+    if (ctx_wants_pollout(ctx, dirs)) pfd.events |= POLLOUT;
+    if (pfd.events == 0) pfd.events = POLLIN;
+    pfd.revents = 0;
+    poll(&pfd, 1, timeout);
+    return 0;
+}
+
+static long long ctx_deadline(SshContext *ctx) {
+    return ctx->timeout_ms > 0 ? now_ms() + ctx->timeout_ms : 0;
+}
+
+/**
+ * 在会话锁内执行一次非阻塞 libssh2 调用 (返回 int/ssize_t)；
+ * 返回 EAGAIN 时释放锁等待 socket 后重试，超时返回 LIBSSH2_ERROR_TIMEOUT。
+ */
+#define SSH_RETRY(ctx, result, call)                                          \
+    do {                                                                      \
+        long long deadline_ = ctx_deadline(ctx);                              \
+        for (;;) {                                                            \
+            int dirs_;                                                        \
+            ctx_lock(ctx);                                                    \
+            (result) = (call);                                                \
+            dirs_ = libssh2_session_block_directions((ctx)->session);         \
+            ctx_unlock(ctx);                                                  \
+            if ((result) != LIBSSH2_ERROR_EAGAIN) break;                      \
+            if (wait_session_socket((ctx), dirs_, deadline_) != 0) {          \
+                (result) = LIBSSH2_ERROR_TIMEOUT;                             \
+                break;                                                        \
+            }                                                                 \
+        }                                                                     \
+    } while (0)
+
+/**
+ * 同 SSH_RETRY，用于返回指针 (失败为 NULL，通过 last_errno 区分 EAGAIN) 的调用
+ * 会话级的打开操作 (通道、SFTP、监听) 须经 SSH_OPEN_PTR。
+ * _ERR 版本在会话锁内取得失败时的错误码 (成功为 0，等待超时为 LIBSSH2_ERROR_TIMEOUT)，
+ * 不会被同一会话上其他线程的调用覆盖。
+ */
+#define SSH_RETRY_PTR_ERR(ctx, result, err, call)                             \
+    do {                                                                      \
+        long long deadline_ = ctx_deadline(ctx);                              \
+        for (;;) {                                                            \
+            int dirs_;                                                        \
+            ctx_lock(ctx);                                                    \
+            (result) = (call);                                                \
+            (err) = (result) ? 0 : libssh2_session_last_errno((ctx)->session); \
+            dirs_ = libssh2_session_block_directions((ctx)->session);         \
+            ctx_unlock(ctx);                                                  \
+            if ((err) != LIBSSH2_ERROR_EAGAIN) break;                         \
+            if (wait_session_socket((ctx), dirs_, deadline_) != 0) {          \
+                (err) = LIBSSH2_ERROR_TIMEOUT;                                \
+                break;                                                        \
+            }                                                                 \
+        }                                                                     \
+    } while (0)
+
+#define SSH_RETRY_PTR(ctx, result, call)                                      \
+    do {                                                                      \
+        int err_;                                                             \
+        SSH_RETRY_PTR_ERR(ctx, result, err_, call);                           \
+        (void)err_;                                                           \
+    } while (0)
+
+/**
+ * 在打开闸门内执行 SSH_RETRY_PTR：同一会话上的打开操作逐个完成，不会交错
+ * (已打开通道上的读写不受影响)
+ */
+#define SSH_OPEN_PTR_ERR(ctx, result, err, call)                              \
+    do {                                                                      \
+        pthread_mutex_lock(&(ctx)->open_lock);                                \
+        SSH_RETRY_PTR_ERR(ctx, result, err, call);                            \
+        pthread_mutex_unlock(&(ctx)->open_lock);                              \
+    } while (0)
+
+#define SSH_OPEN_PTR(ctx, result, call)                                       \
+    do {                                                                      \
+        int err_;                                                             \
+        SSH_OPEN_PTR_ERR(ctx, result, err_, call);                            \
+        (void)err_;                                                           \
+    } while (0)
+
 typedef struct {
     char *data;
     size_t len;
@@ -162,45 +354,297 @@ static const char *hostkey_type_name(int type) {
 
 // --- 辅助函数 ---
 
+// --- TCP 连接 ---
+
+// DNS 缓存：getaddrinfo 不返回记录 TTL，缓存条目统一按固定时长过期
+#define DNS_CACHE_SIZE 16
+#define DNS_CACHE_TTL_MS 60000
+#define DNS_MAX_ADDRS 8
+// RFC 8305 建议的连接尝试间隔 (Connection Attempt Delay)
+#define CONNECT_ATTEMPT_DELAY_MS 250
+
+typedef struct {
+    char host[256];
+    int port;
+    long long expires_at;
+    int count;
+    struct sockaddr_storage addrs[DNS_MAX_ADDRS];
+    socklen_t lens[DNS_MAX_ADDRS];
+} DnsCacheEntry;
+
+static DnsCacheEntry dns_cache[DNS_CACHE_SIZE];
+static pthread_mutex_t dns_cache_lock = PTHREAD_MUTEX_INITIALIZER;
+
+// 由 SshNative.configureSocket 设置，对之后建立的连接生效
+static int connect_timeout_ms = 10000;
+static int socket_sndbuf = 0;   // 0 表示使用系统默认值
+static int socket_rcvbuf = 0;
+
+static int dns_cache_get(const char *hostname, int port, DnsCacheEntry *out) {
+    int found = 0;
+    long long now = now_ms();
+    pthread_mutex_lock(&dns_cache_lock);
+    for (int i = 0; i < DNS_CACHE_SIZE; i++) {
+        DnsCacheEntry *e = &dns_cache[i];
+        if (e->count > 0 && e->port == port && e->expires_at > now && strcmp(e->host, hostname) == 0) {
+            *out = *e;
+            found = 1;
+            break;
+        }
+    }
+    pthread_mutex_unlock(&dns_cache_lock);
+    return found;
+}
+
+static void dns_cache_put(const DnsCacheEntry *entry) {
+    pthread_mutex_lock(&dns_cache_lock);
+    int slot = 0;
+    for (int i = 0; i < DNS_CACHE_SIZE; i++) {
+        DnsCacheEntry *e = &dns_cache[i];
+        if (e->port == entry->port && strcmp(e->host, entry->host) == 0) {
+            slot = i;
+            break;
+        }
+        // 无同名条目时替换最早过期的一项
+        if (e->expires_at < dns_cache[slot].expires_at) slot = i;
+    }
+    dns_cache[slot] = *entry;
+    pthread_mutex_unlock(&dns_cache_lock);
+}
+
+static void dns_cache_drop(const char *hostname, int port) {
+    pthread_mutex_lock(&dns_cache_lock);
+    for (int i = 0; i < DNS_CACHE_SIZE; i++) {
+        DnsCacheEntry *e = &dns_cache[i];
+        if (e->count > 0 && e->port == port && strcmp(e->host, hostname) == 0) {
+            memset(e, 0, sizeof(*e));
+        }
+    }
+    pthread_mutex_unlock(&dns_cache_lock);
+}
+
+// 把成功连接的地址移到缓存首位，下次优先尝试
+static void dns_cache_promote(const char *hostname, int port, const struct sockaddr *addr, socklen_t len) {
+    pthread_mutex_lock(&dns_cache_lock);
+    for (int i = 0; i < DNS_CACHE_SIZE; i++) {
+        DnsCacheEntry *e = &dns_cache[i];
+        if (e->count == 0 || e->port != port || strcmp(e->host, hostname) != 0) continue;
+        for (int j = 1; j < e->count; j++) {
+            if (e->lens[j] == len && memcmp(&e->addrs[j], addr, len) == 0) {
+                struct sockaddr_storage tmp = e->addrs[j];
+                memmove(&e->addrs[1], &e->addrs[0], sizeof(e->addrs[0]) * j);
+                memmove(&e->lens[1], &e->lens[0], sizeof(e->lens[0]) * j);
+                e->addrs[0] = tmp;
+                e->lens[0] = len;
+                break;
+            }
+        }
+        break;
+    }
+    pthread_mutex_unlock(&dns_cache_lock);
+}
+
+/**
+ * 解析主机地址 (优先使用缓存)
+ * 结果按 RFC 8305 交错排列地址族：首个地址保持解析器给出的优先族，之后 IPv6/IPv4 交替。
+ *
+ * @return 0 成功，-1 解析失败
+ */
+static int resolve_host(const char *hostname, int port, DnsCacheEntry *out) {
+    if (strlen(hostname) >= sizeof(out->host)) return -1;
+    if (dns_cache_get(hostname, port, out)) return 0;
+
+    struct addrinfo hints;
+    struct addrinfo *res = NULL;
+    char service[16];
+    memset(&hints, 0, sizeof(hints));
+    hints.ai_family = AF_UNSPEC;
+    hints.ai_socktype = SOCK_STREAM;
+    hints.ai_flags = AI_ADDRCONFIG;
+    snprintf(service, sizeof(service), "%d", port);
+    int rc = getaddrinfo(hostname, service, &hints, &res);
+    if (rc != 0 || !res) {
+        LOGE("getaddrinfo(%s) failed: %s", hostname, gai_strerror(rc));
+        return -1;
+    }
+
+    struct addrinfo *v6[DNS_MAX_ADDRS];
+    struct addrinfo *v4[DNS_MAX_ADDRS];
+    int n6 = 0, n4 = 0;
+    int first_family = res->ai_family;
+    for (struct addrinfo *ai = res; ai; ai = ai->ai_next) {
+        if (ai->ai_addrlen > sizeof(struct sockaddr_storage)) continue;
+        if (ai->ai_family == AF_INET6 && n6 < DNS_MAX_ADDRS) v6[n6++] = ai;
+        else if (ai->ai_family == AF_INET && n4 < DNS_MAX_ADDRS) v4[n4++] = ai;
+    }
+
+    memset(out, 0, sizeof(*out));
+    strcpy(out->host, hostname);
+    out->port = port;
+    int i6 = 0, i4 = 0;
+    int take_v6 = first_family != AF_INET;
+    while (out->count < DNS_MAX_ADDRS && (i6 < n6 || i4 < n4)) {
+        struct addrinfo *ai;
+        if ((take_v6 && i6 < n6) || i4 >= n4) ai = v6[i6++];
+        else ai = v4[i4++];
+        memcpy(&out->addrs[out->count], ai->ai_addr, ai->ai_addrlen);
+        out->lens[out->count] = ai->ai_addrlen;
+        out->count++;
+        take_v6 = !take_v6;
+    }
+    freeaddrinfo(res);
+    if (out->count == 0) return -1;
+    out->expires_at = now_ms() + DNS_CACHE_TTL_MS;
+    dns_cache_put(out);
+    return 0;
+}
+
+// 发起一次非阻塞连接，返回 socket (连接进行中或已完成)，失败返回 -1
+static int start_connect_attempt(const struct sockaddr *addr, socklen_t len) {
+    int sock = socket(addr->sa_family, SOCK_STREAM | SOCK_CLOEXEC, 0);
+    if (sock < 0) return -1;
+    int one = 1;
+    setsockopt(sock, IPPROTO_TCP, TCP_NODELAY, &one, sizeof(one));
+    // 缓冲区需在 connect 前设置，接收窗口缩放因子在握手时确定
+    if (socket_sndbuf > 0) setsockopt(sock, SOL_SOCKET, SO_SNDBUF, &socket_sndbuf, sizeof(socket_sndbuf));
+    if (socket_rcvbuf > 0) setsockopt(sock, SOL_SOCKET, SO_RCVBUF, &socket_rcvbuf, sizeof(socket_rcvbuf));
+    fcntl(sock, F_SETFL, fcntl(sock, F_GETFL, 0) | O_NONBLOCK);
+    if (connect(sock, addr, len) != 0 && errno != EINPROGRESS) {
+        close(sock);
+        return -1;
+    }
+    return sock;
+}
+
 /**
  * 建立 TCP 连接
+ * 按 RFC 8305 (Happy Eyeballs v2) 错开发起多地址连接：每隔 CONNECT_ATTEMPT_DELAY_MS
+ * 或上一次尝试失败时启动下一个地址，最先完成握手的连接胜出，其余关闭。
+ * 无响应的地址不会让后续地址等待整个超时。
  *
  * @param hostname 主机名或 IP
  * @param port 端口
- * @return Socket 文件描述符，失败返回 -1
+ * @return Socket 文件描述符 (阻塞模式)，失败返回 -1
  */
 int connect_socket(const char *hostname, int port) {
-    int sock = socket(AF_INET, SOCK_STREAM, 0);
-    struct sockaddr_in sin;
-    struct hostent *he;
-    
-    if (sock == -1) return -1;
-    
-    he = gethostbyname(hostname);
-    if (!he) {
-        sin.sin_addr.s_addr = inet_addr(hostname);
-        if (sin.sin_addr.s_addr == INADDR_NONE) return -1;
-    } else {
-        memcpy(&sin.sin_addr, he->h_addr, he->h_length);
+    DnsCacheEntry target;
+    if (resolve_host(hostname, port, &target) != 0) return -1;
+
+    struct pollfd pfds[DNS_MAX_ADDRS];
+    int owners[DNS_MAX_ADDRS];
+    int active = 0;
+    int next = 0;
+    int winner = -1;
+    int winner_index = -1;
+    long long deadline = connect_timeout_ms > 0 ? now_ms() + connect_timeout_ms : 0;
+    long long next_attempt_at = 0;
+
+    while (winner < 0) {
+        long long now = now_ms();
+        if (deadline > 0 && now >= deadline) break;
+        if (next < target.count && (active == 0 || now >= next_attempt_at)) {
+            int sock = start_connect_attempt((struct sockaddr *)&target.addrs[next], target.lens[next]);
+            if (sock >= 0) {
+                pfds[active].fd = sock;
+                pfds[active].events = POLLOUT;
+                pfds[active].revents = 0;
+                owners[active] = next;
+                active++;
+                next_attempt_at = now + CONNECT_ATTEMPT_DELAY_MS;
+            }
+            next++;
+            continue;
+        }
+        if (active == 0) break;
+
+        int timeout = -1;
+        if (next < target.count) timeout = (int)(next_attempt_at - now);
+        if (deadline > 0 && (timeout < 0 || deadline - now < timeout)) timeout = (int)(deadline - now);
+        int rc = poll(pfds, active, timeout);
+        if (rc < 0 && errno != EINTR) break;
+        if (rc <= 0) continue;
+
+        for (int i = 0; i < active; i++) {
+            if (!pfds[i].revents) continue;
+            int err = 0;
+            socklen_t err_len = sizeof(err);
+            if (getsockopt(pfds[i].fd, SOL_SOCKET, SO_ERROR, &err, &err_len) == 0 && err == 0) {
+                winner = pfds[i].fd;
+                winner_index = owners[i];
+            } else {
+                close(pfds[i].fd);
+            }
+            // 移除已结束的尝试；失败时下一个地址立即开始
+            pfds[i] = pfds[active - 1];
+            owners[i] = owners[active - 1];
+            active--;
+            i--;
+            next_attempt_at = now;
+            if (winner >= 0) break;
+        }
     }
-    
-    sin.sin_family = AF_INET;
-    sin.sin_port = htons(port);
-    
-    if (connect(sock, (struct sockaddr*)(&sin), sizeof(struct sockaddr_in)) != 0) {
-        close(sock);
+
+    for (int i = 0; i < active; i++) {
+        close(pfds[i].fd);
+    }
+    if (winner < 0) {
+        LOGE("connect to %s:%d failed", hostname, port);
+        // 缓存的地址可能已失效，下次重新解析
+        dns_cache_drop(hostname, port);
         return -1;
     }
-    return sock;
+    if (winner_index > 0) {
+        dns_cache_promote(hostname, port, (struct sockaddr *)&target.addrs[winner_index], target.lens[winner_index]);
+    }
+    // libssh2 握手在阻塞模式下进行
+    fcntl(winner, F_SETFL, fcntl(winner, F_GETFL, 0) & ~O_NONBLOCK);
+    return winner;
+}
+
+JNIEXPORT void JNICALL
+Java_com_orcterm_core_ssh_SshNative_configureSocket(JNIEnv *env, jclass clazz, jint connectTimeoutMs, jint sendBufferBytes, jint receiveBufferBytes) {
+    connect_timeout_ms = connectTimeoutMs > 0 ? connectTimeoutMs : 0;
+    socket_sndbuf = sendBufferBytes > 0 ? sendBufferBytes : 0;
+    socket_rcvbuf = receiveBufferBytes > 0 ? receiveBufferBytes : 0;
+}
+
+JNIEXPORT void JNICALL
+Java_com_orcterm_core_ssh_SshNative_clearDnsCache(JNIEnv *env, jclass clazz) {
+    pthread_mutex_lock(&dns_cache_lock);
+    memset(dns_cache, 0, sizeof(dns_cache));
+    pthread_mutex_unlock(&dns_cache_lock);
 }
 
 // --- JNI 实现 ---
 
+// SshNative.CONNECT_* 标志
+#define CONNECT_FLAG_COMPRESS 1
+
+// 在握手前设置算法偏好 (逗号分隔，按优先级排列)；列表中没有本地支持的算法时保留默认顺序
+static void apply_method_pref(JNIEnv *env, LIBSSH2_SESSION *session, jstring prefs, int type, int reverse_type) {
+    if (!prefs) return;
+    const char *list = (*env)->GetStringUTFChars(env, prefs, 0);
+    if (list && list[0]) {
+        if (libssh2_session_method_pref(session, type, list) != 0) {
+            LOGE("method_pref(%d) rejected: %s", type, list);
+        } else if (reverse_type >= 0 && libssh2_session_method_pref(session, reverse_type, list) != 0) {
+            LOGE("method_pref(%d) rejected: %s", reverse_type, list);
+        }
+    }
+    if (list) (*env)->ReleaseStringUTFChars(env, prefs, list);
+}
+
 /**
- * 连接 SSH 服务器
+ * 建立 TCP 连接并完成 SSH 握手
+ *
+ * @param flags   CONNECT_FLAG_* 组合，需在握手前生效
+ * @param ciphers 加密算法偏好，NULL 表示默认 (双向相同)
+ * @param macs    MAC 算法偏好，NULL 表示默认 (双向相同)
+ * @param kex     密钥交换算法偏好，NULL 表示默认
+ * @return 上下文指针，失败返回 0
  */
-JNIEXPORT jlong JNICALL
-Java_com_orcterm_core_ssh_SshNative_connect(JNIEnv *env, jobject thiz, jstring host, jint port) {
+static jlong connect_session(JNIEnv *env, jstring host, jint port, jint flags,
+                             jstring ciphers, jstring macs, jstring kex) {
     const char *nativeHost = (*env)->GetStringUTFChars(env, host, 0);
     
     // 初始化 libssh2 (每个进程只需一次，但多次调用是安全的)
@@ -219,6 +663,14 @@ Java_com_orcterm_core_ssh_SshNative_connect(JNIEnv *env, jobject thiz, jstring h
         (*env)->ReleaseStringUTFChars(env, host, nativeHost);
         return 0;
     }
+
+    // 压缩在密钥交换时协商 (zlib@openssh.com / zlib)，服务器不支持时回退为 none
+    if (flags & CONNECT_FLAG_COMPRESS) {
+        libssh2_session_flag(session, LIBSSH2_FLAG_COMPRESS, 1);
+    }
+    apply_method_pref(env, session, ciphers, LIBSSH2_METHOD_CRYPT_CS, LIBSSH2_METHOD_CRYPT_SC);
+    apply_method_pref(env, session, macs, LIBSSH2_METHOD_MAC_CS, LIBSSH2_METHOD_MAC_SC);
+    apply_method_pref(env, session, kex, LIBSSH2_METHOD_KEX, -1);
     
     // 执行握手
     if (libssh2_session_handshake(session, sock) != 0) {
@@ -231,33 +683,360 @@ Java_com_orcterm_core_ssh_SshNative_connect(JNIEnv *env, jobject thiz, jstring h
     
     (*env)->ReleaseStringUTFChars(env, host, nativeHost);
     
-    SshContext *ctx = malloc(sizeof(SshContext));
+    // 握手完成后会话始终保持非阻塞，所有调用经由 SSH_RETRY 在会话锁内重试
+    libssh2_session_set_blocking(session, 0);
+
+    SshContext *ctx = calloc(1, sizeof(SshContext));
     ctx->socket_fd = sock;
     ctx->session = session;
-    ctx->channel = NULL;
+    pthread_mutex_init(&ctx->lock, NULL);
+    pthread_mutex_init(&ctx->open_lock, NULL);
+    if (pipe2(ctx->wake_pipe, O_NONBLOCK | O_CLOEXEC) != 0) {
+        ctx->wake_pipe[0] = -1;
+        ctx->wake_pipe[1] = -1;
+    }
     
     return (jlong)ctx;
 }
 
+/**
+ * 连接 SSH 服务器
+ */
+JNIEXPORT jlong JNICALL
+Java_com_orcterm_core_ssh_SshNative_connect(JNIEnv *env, jobject thiz, jstring host, jint port) {
+    return connect_session(env, host, port, 0, NULL, NULL, NULL);
+}
+
+/**
+ * 按选项连接 SSH 服务器
+ */
+JNIEXPORT jlong JNICALL
+Java_com_orcterm_core_ssh_SshNative_connectWithOptions(JNIEnv *env, jobject thiz, jstring host, jint port, jint flags,
+                                                       jstring ciphers, jstring macs, jstring kex) {
+    return connect_session(env, host, port, flags, ciphers, macs, kex);
+}
+
+// --- 跳板机 (ProxyJump) ---
+
+/**
+ * 内层会话的接收回调：从跳板会话的承载通道读取
+ * 在内层会话锁内被调用，再获取跳板会话锁 (加锁顺序固定为内层 -> 跳板)。
+ */
+static LIBSSH2_RECV_FUNC(tunnel_recv) {
+    SshContext *ctx = (SshContext *)*abstract;
+    SshContext *outer = ctx->outer;
+    ctx_lock(outer);
+    ssize_t rc = libssh2_channel_read(ctx->tunnel, buffer, length);
+    int eof = rc == 0 && libssh2_channel_eof(ctx->tunnel);
+    ctx_unlock(outer);
+    if (rc > 0) return rc;
+    if (rc == LIBSSH2_ERROR_EAGAIN || (rc == 0 && !eof)) return -EAGAIN;
+    // 通道关闭：返回 0 由 libssh2 作为连接断开处理
+    return rc == 0 ? 0 : -ECONNRESET;
+}
+
+/**
+ * 内层会话的发送回调：写入跳板会话的承载通道，窗口耗尽时返回 -EAGAIN
+ */
+static LIBSSH2_SEND_FUNC(tunnel_send) {
+    SshContext *ctx = (SshContext *)*abstract;
+    SshContext *outer = ctx->outer;
+    ctx_lock(outer);
+    ssize_t rc = libssh2_channel_write(ctx->tunnel, buffer, length);
+    ctx->tunnel_window_blocked = rc == LIBSSH2_ERROR_EAGAIN
+        && libssh2_channel_window_write(ctx->tunnel) == 0;
+    ctx_unlock(outer);
+    if (rc >= 0) return rc;
+    if (rc == LIBSSH2_ERROR_EAGAIN) return -EAGAIN;
+    return -EPIPE;
+}
+
+/**
+ * 在跳板会话的 direct-tcpip 通道上完成 SSH 握手，建立内层会话
+ * 内层会话不持有 socket，所有读写经回调落到承载通道；返回的句柄与直连会话用法相同。
+ * 承载通道的所有权转移给内层会话，失败时一并关闭；跳板会话须在内层会话断开后才能断开。
+ *
+ * @param outerHandle   已认证的跳板会话
+ * @param channelHandle 跳板会话上到目标 SSH 端口的 direct-tcpip 通道
+ * @return 上下文指针，失败返回 0
+ */
+JNIEXPORT jlong JNICALL
+Java_com_orcterm_core_ssh_SshNative_connectViaChannel(JNIEnv *env, jobject thiz, jlong outerHandle, jlong channelHandle,
+                                                      jint flags, jstring ciphers, jstring macs, jstring kex) {
+    SshContext *outer = (SshContext *)outerHandle;
+    LIBSSH2_CHANNEL *tunnel = (LIBSSH2_CHANNEL *)channelHandle;
+    if (!outer || !tunnel) return 0;
+
+    libssh2_init(0);
+
+    SshContext *ctx = calloc(1, sizeof(SshContext));
+    ctx->socket_fd = outer->socket_fd;
+    ctx->outer = outer;
+    ctx->tunnel = tunnel;
+    pthread_mutex_init(&ctx->lock, NULL);
+    pthread_mutex_init(&ctx->open_lock, NULL);
+    if (pipe2(ctx->wake_pipe, O_NONBLOCK | O_CLOEXEC) != 0) {
+        ctx->wake_pipe[0] = -1;
+        ctx->wake_pipe[1] = -1;
+    }
+
+    int rc = LIBSSH2_ERROR_ALLOC;
+    LIBSSH2_SESSION *session = libssh2_session_init_ex(NULL, NULL, NULL, ctx);
+    if (session) {
+        libssh2_session_callback_set(session, LIBSSH2_CALLBACK_RECV, (void *)tunnel_recv);
+        libssh2_session_callback_set(session, LIBSSH2_CALLBACK_SEND, (void *)tunnel_send);
+        if (flags & CONNECT_FLAG_COMPRESS) {
+            libssh2_session_flag(session, LIBSSH2_FLAG_COMPRESS, 1);
+        }
+        apply_method_pref(env, session, ciphers, LIBSSH2_METHOD_CRYPT_CS, LIBSSH2_METHOD_CRYPT_SC);
+        apply_method_pref(env, session, macs, LIBSSH2_METHOD_MAC_CS, LIBSSH2_METHOD_MAC_SC);
+        apply_method_pref(env, session, kex, LIBSSH2_METHOD_KEX, -1);
+        ctx->session = session;
+
+        // 没有可供 libssh2 阻塞等待的 socket，握手也以非阻塞方式重试，在跳板 socket 上等待
+        libssh2_session_set_blocking(session, 0);
+        long long deadline = connect_timeout_ms > 0 ? now_ms() + connect_timeout_ms : 0;
+        for (;;) {
+            ctx_lock(ctx);
+            rc = libssh2_session_handshake(session, outer->socket_fd);
+            int dirs = libssh2_session_block_directions(session);
+            ctx_unlock(ctx);
+            if (rc != LIBSSH2_ERROR_EAGAIN) break;
+            if (wait_session_socket(ctx, dirs, deadline) != 0) {
+                rc = LIBSSH2_ERROR_TIMEOUT;
+                break;
+            }
+        }
+    }
+
+    if (rc != 0) {
+        LOGE("SSH Handshake over tunnel failed: %d", rc);
+        if (session) libssh2_session_free(session);
+        if (ctx->wake_pipe[0] >= 0) close(ctx->wake_pipe[0]);
+        if (ctx->wake_pipe[1] >= 0) close(ctx->wake_pipe[1]);
+        pthread_mutex_destroy(&ctx->lock);
+        pthread_mutex_destroy(&ctx->open_lock);
+        free(ctx);
+        int crc;
+        SSH_RETRY(outer, crc, libssh2_channel_close(tunnel));
+        SSH_RETRY(outer, crc, libssh2_channel_free(tunnel));
+        libssh2_exit();
+        return 0;
+    }
+
+    ctx_lock(outer);
+    ctx->next_tunneled = outer->tunneled;
+    outer->tunneled = ctx;
+    ctx_unlock(outer);
+    return (jlong)ctx;
+}
+
+/**
+ * 获取握手协商出的算法
+ *
+ * @param type LIBSSH2_METHOD_* (与 SshNative.METHOD_* 取值一致)
+ */
+JNIEXPORT jstring JNICALL
+Java_com_orcterm_core_ssh_SshNative_getSessionMethod(JNIEnv *env, jobject thiz, jlong handle, jint type) {
+    SshContext *ctx = (SshContext *)handle;
+    if (!ctx) return NULL;
+    ctx_lock(ctx);
+    const char *method = libssh2_session_methods(ctx->session, type);
+    jstring result = method ? (*env)->NewStringUTF(env, method) : NULL;
+    ctx_unlock(ctx);
+    return result;
+}
+
 JNIEXPORT void JNICALL
 Java_com_orcterm_core_ssh_SshNative_setSessionTimeout(JNIEnv *env, jobject thiz, jlong handle, jint timeoutMs) {
     SshContext *ctx = (SshContext *)handle;
     if (!ctx) return;
+    ctx_lock(ctx);
     libssh2_session_set_timeout(ctx->session, timeoutMs);
+    ctx->timeout_ms = timeoutMs > 0 ? timeoutMs : 0;
+    ctx_unlock(ctx);
 }
 
 JNIEXPORT void JNICALL
 Java_com_orcterm_core_ssh_SshNative_setSessionReadTimeout(JNIEnv *env, jobject thiz, jlong handle, jint timeoutSec) {
     SshContext *ctx = (SshContext *)handle;
     if (!ctx) return;
+    ctx_lock(ctx);
     libssh2_session_set_read_timeout(ctx->session, timeoutSec);
+    ctx_unlock(ctx);
 }
 
 JNIEXPORT void JNICALL
 Java_com_orcterm_core_ssh_SshNative_setKeepaliveConfig(JNIEnv *env, jobject thiz, jlong handle, jboolean wantReply, jint intervalSec) {
     SshContext *ctx = (SshContext *)handle;
     if (!ctx) return;
+    ctx_lock(ctx);
     libssh2_keepalive_config(ctx->session, wantReply ? 1 : 0, intervalSec < 0 ? 0 : (unsigned int)intervalSec);
+    // 与 libssh2 一致：1 秒按 2 秒处理
+    ctx->keepalive_interval = intervalSec <= 0 ? 0 : (intervalSec == 1 ? 2 : intervalSec);
+    ctx->keepalive_want_reply = wantReply ? 1 : 0;
+    // 已发出的保活仍会得到应答，保留其记录以免之后的应答被算到别的请求上
+    ctx_unlock(ctx);
+}
+
+// 全局请求的应答类型 (以 0 结尾)
+static const unsigned char GLOBAL_REPLY_TYPES[] = { 81 /* REQUEST_SUCCESS */, 82 /* REQUEST_FAILURE */, 0 };
+
+// forwardListen 等待已发出保活的应答的上限
+#define GLOBAL_REQUEST_SETTLE_MS 5000
+
+/**
+ * 收取已进入数据包队列的保活应答 (会话锁内调用)
+ * 服务器不认识 keepalive@libssh2.org，通常回复 REQUEST_FAILURE，同样表示对端存活。
+ *
+ * @return 写入 rtts 的往返时间样本数
+ */
+static int keepalive_collect(SshContext *ctx, jint *rtts, int max) {
+    int n = 0;
+    long long now = now_ms();
+    while (ctx->keepalive_outstanding > 0) {
+        unsigned char *data = NULL;
+        size_t len = 0;
+        if (_libssh2_packet_askv(ctx->session, GLOBAL_REPLY_TYPES, &data, &len, 0, NULL, 0) != 0) break;
+        libssh2_free(ctx->session, data);
+        ctx->keepalive_outstanding--;
+        if (ctx->keepalive_pending == 0) continue;  // 超出记录上限发出的保活，只消耗应答
+        jint rtt = (jint)(now - ctx->keepalive_sent_ms[ctx->keepalive_head]);
+        ctx->keepalive_head = (ctx->keepalive_head + 1) % KEEPALIVE_MAX_PENDING;
+        ctx->keepalive_pending--;
+        if (rtts && n < max) {
+            rtts[n++] = rtt;
+        } else if (ctx->keepalive_rtt_backlog_count < KEEPALIVE_MAX_PENDING) {
+            ctx->keepalive_rtt_backlog[ctx->keepalive_rtt_backlog_count++] = rtt;
+        }
+    }
+    return n;
+}
+
+/**
+ * 已超过一个保活间隔仍未应答的保活数 (会话锁内调用)
+ */
+static int keepalive_missed(SshContext *ctx) {
+    long long overdue = now_ms() - (long long)ctx->keepalive_interval * 1000;
+    int missed = 0;
+    for (int i = 0; i < ctx->keepalive_pending; i++) {
+        if (ctx->keepalive_sent_ms[(ctx->keepalive_head + i) % KEEPALIVE_MAX_PENDING] > overdue) break;
+        missed++;
+    }
+    return missed;
+}
+
+/**
+ * 到期时经 libssh2_keepalive_send 发送保活，需要应答时登记为未应答请求 (会话锁内调用)
+ * 发送缓冲仍有未发出的数据时 libssh2 会丢弃保活 (却当作已发送)，此时不调用、稍后再试。
+ *
+ * @param seconds 返回距下次发送的秒数
+ * @return libssh2_keepalive_send 的结果
+ */
+static int keepalive_send_locked(SshContext *ctx, int *seconds) {
+    if (ctx->keepalive_interval <= 0) {
+        *seconds = 0;
+        return 0;
+    }
+    if (libssh2_session_block_directions(ctx->session) & LIBSSH2_SESSION_BLOCK_OUTBOUND) {
+        *seconds = 1;
+        return 0;
+    }
+    time_t before = time(NULL);
+    int rc = libssh2_keepalive_send(ctx->session, seconds);
+    // 发出时返回完整间隔；未发出时只有与上次发送同一秒才会返回完整间隔
+    if (rc == 0 && *seconds == ctx->keepalive_interval && before != ctx->keepalive_last_sent_s) {
+        ctx->keepalive_last_sent_s = time(NULL);
+        if (ctx->keepalive_want_reply) {
+            ctx->keepalive_outstanding++;
+            if (ctx->keepalive_pending < KEEPALIVE_MAX_PENDING) {
+                int tail = (ctx->keepalive_head + ctx->keepalive_pending) % KEEPALIVE_MAX_PENDING;
+                ctx->keepalive_sent_ms[tail] = now_ms();
+                ctx->keepalive_pending++;
+            }
+        }
+    }
+    return rc;
+}
+
+/**
+ * 发送需要应答的全局请求前调用
+ * 全局请求的应答不带标识、按序到达：先收齐已发出保活的应答，否则 libssh2 会把保活应答当作本请求的结果；
+ * 请求进行期间 (至 global_request_end) 暂停保活。
+ * 未应答的保活记录始终保留，迟到的应答仍按发送顺序与对应的保活配对。
+ *
+ * @return 0 可以发送请求；-1 保活应答未能按时收齐 (或连接出错)，此时不得发送请求，但仍需调用 global_request_end
+ */
+static int global_request_begin(SshContext *ctx) {
+    long long deadline = now_ms() + GLOBAL_REQUEST_SETTLE_MS;
+    ctx_lock(ctx);
+    ctx->global_request_busy++;
+    for (;;) {
+        keepalive_collect(ctx, NULL, 0);
+        if (ctx->keepalive_outstanding == 0) break;
+        int rc = _libssh2_transport_read(ctx->session);
+        if (rc == LIBSSH2_ERROR_EAGAIN) {
+            int dirs = libssh2_session_block_directions(ctx->session);
+            ctx_unlock(ctx);
+            int expired = wait_session_socket(ctx, dirs, deadline) != 0;
+            ctx_lock(ctx);
+            if (expired) break;
+        } else if (rc < 0) {
+            break;
+        }
+    }
+    int settled = ctx->keepalive_outstanding == 0 ? 0 : -1;
+    ctx_unlock(ctx);
+    return settled;
+}
+
+static void global_request_end(SshContext *ctx) {
+    ctx_lock(ctx);
+    ctx->global_request_busy--;
+    ctx_unlock(ctx);
+}
+
+/**
+ * 推进保活：收取已到达的应答并记录往返时间，到期时经 libssh2_keepalive_send 发送下一次保活
+ * 会话由反应器线程在每次事件及上次返回的到期时间调用，不额外唤醒。
+ *
+ * @param result [0] 已超过一个间隔仍未应答的保活数，[1] 本次收到的应答数，[2..] 各应答的往返毫秒数
+ * @return 距下次发送的秒数；未开启保活为 0；出错返回 -1
+ */
+JNIEXPORT jint JNICALL
+Java_com_orcterm_core_ssh_SshNative_keepaliveTick(JNIEnv *env, jobject thiz, jlong handle, jintArray result) {
+    SshContext *ctx = (SshContext *)handle;
+    if (!ctx || !result) return -1;
+    jsize cap = (*env)->GetArrayLength(env, result);
+    if (cap < 2) return -1;
+    jint *out = (*env)->GetIntArrayElements(env, result, NULL);
+    if (!out) return -1;
+
+    int rc = 0;
+    int seconds = 0;
+    ctx_lock(ctx);
+    // 先报告全局请求期间收到的样本
+    int samples = 0;
+    while (samples < ctx->keepalive_rtt_backlog_count && samples < cap - 2) {
+        out[2 + samples] = ctx->keepalive_rtt_backlog[samples];
+        samples++;
+    }
+    ctx->keepalive_rtt_backlog_count = 0;
+    samples += keepalive_collect(ctx, out + 2 + samples, cap - 2 - samples);
+    if (ctx->keepalive_interval > 0) {
+        if (ctx->global_request_busy) {
+            // 全局请求进行中：稍后再试
+            seconds = 1;
+        } else {
+            rc = keepalive_send_locked(ctx, &seconds);
+            if (seconds < 1) seconds = 1;
+        }
+    }
+    out[0] = ctx->keepalive_interval > 0 ? keepalive_missed(ctx) : 0;
+    out[1] = samples;
+    ctx_unlock(ctx);
+    (*env)->ReleaseIntArrayElements(env, result, out, 0);
+    return rc != 0 ? -1 : seconds;
 }
 
 JNIEXPORT jint JNICALL
@@ -265,7 +1044,16 @@ Java_com_orcterm_core_ssh_SshNative_sendKeepalive(JNIEnv *env, jobject thiz, jlo
     SshContext *ctx = (SshContext *)handle;
     if (!ctx) return -1;
     int secondsToNext = 0;
-    int rc = libssh2_keepalive_send(ctx->session, &secondsToNext);
+    int rc = 0;
+    ctx_lock(ctx);
+    // 收走已到达的应答，使其不在数据包队列中堆积；libssh2_keepalive_send 不会返回 EAGAIN
+    keepalive_collect(ctx, NULL, 0);
+    if (ctx->global_request_busy) {
+        secondsToNext = 1;
+    } else {
+        rc = keepalive_send_locked(ctx, &secondsToNext);
+    }
+    ctx_unlock(ctx);
     if (rc != 0) {
         return -1;
     }
@@ -282,8 +1070,10 @@ Java_com_orcterm_core_ssh_SshNative_knownHostsCheck(JNIEnv *env, jobject thiz, j
 
     size_t keyLen = 0;
     int keyType = 0;
+    ctx_lock(ctx);
     const char *key = libssh2_session_hostkey(ctx->session, &keyLen, &keyType);
     if (!key) {
+        ctx_unlock(ctx);
         (*env)->ReleaseStringUTFChars(env, host, hostStr);
         (*env)->ReleaseStringUTFChars(env, knownHostsPath, pathStr);
         return LIBSSH2_KNOWNHOST_CHECK_FAILURE;
@@ -291,6 +1081,7 @@ Java_com_orcterm_core_ssh_SshNative_knownHostsCheck(JNIEnv *env, jobject thiz, j
 
     LIBSSH2_KNOWNHOSTS *hosts = libssh2_knownhost_init(ctx->session);
     if (!hosts) {
+        ctx_unlock(ctx);
         (*env)->ReleaseStringUTFChars(env, host, hostStr);
         (*env)->ReleaseStringUTFChars(env, knownHostsPath, pathStr);
         return LIBSSH2_KNOWNHOST_CHECK_FAILURE;
@@ -305,6 +1096,7 @@ Java_com_orcterm_core_ssh_SshNative_knownHostsCheck(JNIEnv *env, jobject thiz, j
     struct libssh2_knownhost *known = NULL;
     int rc = libssh2_knownhost_checkp(hosts, hostStr, port, key, keyLen, typemask, &known);
     libssh2_knownhost_free(hosts);
+    ctx_unlock(ctx);
 
     (*env)->ReleaseStringUTFChars(env, host, hostStr);
     (*env)->ReleaseStringUTFChars(env, knownHostsPath, pathStr);
@@ -323,8 +1115,10 @@ Java_com_orcterm_core_ssh_SshNative_knownHostsAdd(JNIEnv *env, jobject thiz, jlo
 
     size_t keyLen = 0;
     int keyType = 0;
+    ctx_lock(ctx);
     const char *key = libssh2_session_hostkey(ctx->session, &keyLen, &keyType);
     if (!key) {
+        ctx_unlock(ctx);
         (*env)->ReleaseStringUTFChars(env, host, hostStr);
         (*env)->ReleaseStringUTFChars(env, knownHostsPath, pathStr);
         if (commentStr) (*env)->ReleaseStringUTFChars(env, comment, commentStr);
@@ -333,6 +1127,7 @@ Java_com_orcterm_core_ssh_SshNative_knownHostsAdd(JNIEnv *env, jobject thiz, jlo
 
     LIBSSH2_KNOWNHOSTS *hosts = libssh2_knownhost_init(ctx->session);
     if (!hosts) {
+        ctx_unlock(ctx);
         (*env)->ReleaseStringUTFChars(env, host, hostStr);
         (*env)->ReleaseStringUTFChars(env, knownHostsPath, pathStr);
         if (commentStr) (*env)->ReleaseStringUTFChars(env, comment, commentStr);
@@ -350,6 +1145,7 @@ Java_com_orcterm_core_ssh_SshNative_knownHostsAdd(JNIEnv *env, jobject thiz, jlo
         rc = libssh2_knownhost_writefile(hosts, pathStr, LIBSSH2_KNOWNHOST_FILE_OPENSSH);
     }
     libssh2_knownhost_free(hosts);
+    ctx_unlock(ctx);
 
     (*env)->ReleaseStringUTFChars(env, host, hostStr);
     (*env)->ReleaseStringUTFChars(env, knownHostsPath, pathStr);
@@ -364,14 +1160,15 @@ Java_com_orcterm_core_ssh_SshNative_getHostKeyInfo(JNIEnv *env, jobject thiz, jl
 
     int keyType = 0;
     size_t keyLen = 0;
+    ctx_lock(ctx);
     const char *key = libssh2_session_hostkey(ctx->session, &keyLen, &keyType);
-    if (!key) return (*env)->NewStringUTF(env, "");
-
-    const unsigned char *hash = (const unsigned char *)libssh2_hostkey_hash(ctx->session, LIBSSH2_HOSTKEY_HASH_SHA256);
-    if (!hash) return (*env)->NewStringUTF(env, "");
-
+    const unsigned char *hash = key
+        ? (const unsigned char *)libssh2_hostkey_hash(ctx->session, LIBSSH2_HOSTKEY_HASH_SHA256)
+        : NULL;
     unsigned char b64[128];
-    int outLen = EVP_EncodeBlock(b64, hash, 32);
+    int outLen = hash ? EVP_EncodeBlock(b64, hash, 32) : 0;
+    ctx_unlock(ctx);
+    if (!key || !hash) return (*env)->NewStringUTF(env, "");
     b64[outLen] = 0;
 
     char info[192];
@@ -390,7 +1187,8 @@ Java_com_orcterm_core_ssh_SshNative_authPassword(JNIEnv *env, jobject thiz, jlon
     const char *u = (*env)->GetStringUTFChars(env, user, 0);
     const char *p = (*env)->GetStringUTFChars(env, pwd, 0);
     
-    int rc = libssh2_userauth_password(ctx->session, u, p);
+    int rc;
+    SSH_RETRY(ctx, rc, libssh2_userauth_password(ctx->session, u, p));
     
     (*env)->ReleaseStringUTFChars(env, user, u);
     (*env)->ReleaseStringUTFChars(env, pwd, p);
@@ -413,7 +1211,8 @@ Java_com_orcterm_core_ssh_SshNative_authKey(JNIEnv *env, jobject thiz, jlong han
     const char *u = (*env)->GetStringUTFChars(env, user, 0);
     const char *k = (*env)->GetStringUTFChars(env, keyPath, 0);
     
-    int rc = libssh2_userauth_publickey_fromfile(ctx->session, u, NULL, k, NULL);
+    int rc;
+    SSH_RETRY(ctx, rc, libssh2_userauth_publickey_fromfile(ctx->session, u, NULL, k, NULL));
     
     (*env)->ReleaseStringUTFChars(env, user, u);
     (*env)->ReleaseStringUTFChars(env, keyPath, k);
@@ -434,7 +1233,8 @@ Java_com_orcterm_core_ssh_SshNative_authKeyWithPassphrase(JNIEnv *env, jobject t
     const char *k = (*env)->GetStringUTFChars(env, keyPath, 0);
     const char *p = passphrase ? (*env)->GetStringUTFChars(env, passphrase, 0) : NULL;
 
-    int rc = libssh2_userauth_publickey_fromfile(ctx->session, u, NULL, k, p);
+    int rc;
+    SSH_RETRY(ctx, rc, libssh2_userauth_publickey_fromfile(ctx->session, u, NULL, k, p));
 
     (*env)->ReleaseStringUTFChars(env, user, u);
     (*env)->ReleaseStringUTFChars(env, keyPath, k);
@@ -455,23 +1255,24 @@ Java_com_orcterm_core_ssh_SshNative_openShell(JNIEnv *env, jobject thiz, jlong h
     SshContext *ctx = (SshContext *)handle;
     if (!ctx) return -1;
     
-    LIBSSH2_CHANNEL *channel = libssh2_channel_open_session(ctx->session);
+    LIBSSH2_CHANNEL *channel;
+    SSH_OPEN_PTR(ctx, channel, libssh2_channel_open_session(ctx->session));
     if (!channel) return -1;
     
-    libssh2_channel_request_pty(channel, "xterm");
-    libssh2_channel_request_pty_size(channel, cols, rows);
+    int rc;
+    SSH_RETRY(ctx, rc, libssh2_channel_request_pty(channel, "xterm"));
+    SSH_RETRY(ctx, rc, libssh2_channel_request_pty_size(channel, cols, rows));
     
-    if (libssh2_channel_shell(channel) != 0) {
+    SSH_RETRY(ctx, rc, libssh2_channel_shell(channel));
+    if (rc != 0) {
         LOGE("Open shell failed");
-        libssh2_channel_free(channel);
+        SSH_RETRY(ctx, rc, libssh2_channel_free(channel));
         return -1;
     }
     
-    // 设置非阻塞模式，以便 UI 线程可以流畅读取
-    // 暂时保持阻塞，但在 Java 层使用短读取
-    libssh2_session_set_blocking(ctx->session, 0); 
-    
+    ctx_lock(ctx);
     ctx->channel = channel;
+    ctx_unlock(ctx);
     return 0;
 }
 
@@ -486,20 +1287,42 @@ Java_com_orcterm_core_ssh_SshNative_write(JNIEnv *env, jobject thiz, jlong handl
     jsize len = (*env)->GetArrayLength(env, data);
     jbyte *body = (*env)->GetByteArrayElements(env, data, 0);
     
-    libssh2_session_set_blocking(ctx->session, 1); // 写入时暂时设为阻塞以确保数据发送
+    // 窗口已满时释放会话锁等待，读取线程可继续推进
     ssize_t written_total = 0;
     while (written_total < len) {
-        ssize_t written = libssh2_channel_write(ctx->channel, (const char*)body + written_total, len - written_total);
-        if (written == LIBSSH2_ERROR_EAGAIN) continue;
+        ssize_t written;
+        SSH_RETRY(ctx, written, libssh2_channel_write(ctx->channel, (const char*)body + written_total, len - written_total));
         if (written <= 0) break;
         written_total += written;
     }
-    libssh2_session_set_blocking(ctx->session, 0); // 恢复非阻塞
     
-    (*env)->ReleaseByteArrayElements(env, data, body, 0);
+    (*env)->ReleaseByteArrayElements(env, data, body, JNI_ABORT);
     return (int)written_total;
 }
 
+/**
+ * 非阻塞写入 Shell，供反应器线程使用
+ * 远端窗口耗尽或 socket 发送缓冲已满时返回 0；libssh2 要求以相同数据重试，调用方需保留未写出部分。
+ *
+ * @return 写入的字节数；0 表示暂不可写；-1 表示出错
+ */
+JNIEXPORT jint JNICALL
+Java_com_orcterm_core_ssh_SshNative_writeNonBlocking(JNIEnv *env, jobject thiz, jlong handle, jbyteArray data, jint offset, jint length) {
+    SshContext *ctx = (SshContext *)handle;
+    if (!ctx || !ctx->channel || !data || offset < 0 || length <= 0) return -1;
+    if ((jlong)offset + length > (*env)->GetArrayLength(env, data)) return -1;
+
+    jbyte *body = (*env)->GetByteArrayElements(env, data, 0);
+    if (!body) return -1;
+    ctx_lock(ctx);
+    ssize_t rc = libssh2_channel_write(ctx->channel, (const char *)body + offset, (size_t)length);
+    ctx_unlock(ctx);
+    (*env)->ReleaseByteArrayElements(env, data, body, JNI_ABORT);
+    if (rc >= 0) return (jint)rc;
+    if (rc == LIBSSH2_ERROR_EAGAIN) return 0;
+    return -1;
+}
+
 /**
  * 从 Shell 读取数据
  */
@@ -508,9 +1331,11 @@ Java_com_orcterm_core_ssh_SshNative_read(JNIEnv *env, jobject thiz, jlong handle
     SshContext *ctx = (SshContext *)handle;
     if (!ctx || !ctx->channel) return (*env)->NewByteArray(env, 0);
     
-    char buffer[4096];
+    char buffer[8192];
     // 非阻塞读取
+    ctx_lock(ctx);
     ssize_t rc = libssh2_channel_read(ctx->channel, buffer, sizeof(buffer));
+    ctx_unlock(ctx);
     
     if (rc > 0) {
         jbyteArray result = (*env)->NewByteArray(env, (jsize)rc);
@@ -521,6 +1346,312 @@ Java_com_orcterm_core_ssh_SshNative_read(JNIEnv *env, jobject thiz, jlong handle
     return (*env)->NewByteArray(env, 0);
 }
 
+/**
+ * 从 Shell 直接读取到 direct ByteBuffer
+ * 返回读取字节数；暂无数据返回 0；通道 EOF 返回 -1，传输层错误返回 -2
+ */
+JNIEXPORT jint JNICALL
+Java_com_orcterm_core_ssh_SshNative_readDirect(JNIEnv *env, jobject thiz, jlong handle, jobject buffer, jint offset, jint length) {
+    SshContext *ctx = (SshContext *)handle;
+    if (!ctx || !ctx->channel || !buffer) return -1;
+
+    char *base = (char *)(*env)->GetDirectBufferAddress(env, buffer);
+    jlong capacity = (*env)->GetDirectBufferCapacity(env, buffer);
+    if (!base || capacity < 0 || offset < 0 || length <= 0 || (jlong)offset + length > capacity) {
+        return -1;
+    }
+
+    // 非阻塞读取，数据直接写入 Java 侧缓冲区
+    ctx_lock(ctx);
+    ssize_t rc = libssh2_channel_read(ctx->channel, base + offset, (size_t)length);
+    int eof = rc == 0 && libssh2_channel_eof(ctx->channel);
+    ctx_unlock(ctx);
+    if (rc > 0) {
+        return (jint)rc;
+    }
+    if (rc == LIBSSH2_ERROR_EAGAIN) {
+        return 0;
+    }
+    if (rc == 0) {
+        return eof ? -1 : 0;
+    }
+    // 通道已被远端关闭时按 EOF 处理，其余为传输层错误 (socket 断开、解密失败等)
+    if (rc == LIBSSH2_ERROR_CHANNEL_CLOSED) {
+        return -1;
+    }
+    return -2;
+}
+
+/**
+ * 等待 Shell 数据可读
+ * 按 libssh2_session_block_directions 确定关注的方向，在 socket 与唤醒管道上 poll，
+ * 线程在内核中休眠直到数据到达、超时或被 wakeup 唤醒。
+ *
+ * @return WAIT_READY / WAIT_TIMEOUT / WAIT_WOKEN，出错返回 WAIT_ERROR
+ */
+JNIEXPORT jint JNICALL
+Java_com_orcterm_core_ssh_SshNative_waitForData(JNIEnv *env, jobject thiz, jlong handle, jint timeoutMs) {
+    SshContext *ctx = (SshContext *)handle;
+    if (!ctx || ctx->socket_fd < 0) return WAIT_ERROR;
+
+    struct pollfd fds[2];
+    int nfds = 1;
+    ctx_lock(ctx);
+    int dirs = libssh2_session_block_directions(ctx->session);
+    // 其他线程可能已把 Shell 数据读入通道缓冲，此时 socket 上不会再有可读事件
+    int pending = ctx->channel && libssh2_poll_channel_read(ctx->channel, 0);
+    pthread_mutex_unlock(&ctx->lock);
+    if (pending) return WAIT_READY;
+    fds[0].fd = ctx->socket_fd;
+    // 未记录阻塞方向时 (上次读取未阻塞) 默认等待入站数据
+    fds[0].events = POLLIN;
+    if (ctx_wants_pollout(ctx, dirs)) fds[0].events |= POLLOUT;
+    fds[0].revents = 0;
+    if (ctx->wake_pipe[0] >= 0) {
+        fds[1].fd = ctx->wake_pipe[0];
+        fds[1].events = POLLIN;
+        fds[1].revents = 0;
+        nfds = 2;
+    }
+
+    int rc;
+    do {
+        rc = poll(fds, nfds, timeoutMs < 0 ? -1 : timeoutMs);
+    } while (rc < 0 && errno == EINTR);
+
+    if (rc < 0) return WAIT_ERROR;
+    if (rc == 0) return WAIT_TIMEOUT;
+    if (nfds == 2 && (fds[1].revents & POLLIN)) {
+        char drain[64];
+        while (read(ctx->wake_pipe[0], drain, sizeof(drain)) > 0) {
+        }
+        return WAIT_WOKEN;
+    }
+    // POLLHUP/POLLERR 也视为可读，由随后的读取返回 EOF/错误
+    return WAIT_READY;
+}
+
+/**
+ * 唤醒阻塞在 waitForData 中的线程
+ */
+JNIEXPORT void JNICALL
+Java_com_orcterm_core_ssh_SshNative_wakeup(JNIEnv *env, jobject thiz, jlong handle) {
+    SshContext *ctx = (SshContext *)handle;
+    if (!ctx) return;
+    ctx_wakeup(ctx);
+}
+
+// --- 会话反应器：单线程 poll 多个会话 ---
+
+typedef struct {
+    int wake_pipe[2];       // 唤醒管道 [读端, 写端]，注册变化或有待写数据时中断 poll
+    struct pollfd *fds;     // 复用的 pollfd 数组，仅反应器线程访问
+    int capacity;
+} PollReactor;
+
+static void drain_pipe(int fd) {
+    char drain[64];
+    while (read(fd, drain, sizeof(drain)) > 0) {
+    }
+}
+
+/**
+ * 创建反应器
+ * @return 反应器句柄，失败返回 0
+ */
+JNIEXPORT jlong JNICALL
+Java_com_orcterm_core_ssh_SshNative_reactorCreate(JNIEnv *env, jobject thiz) {
+    PollReactor *reactor = (PollReactor *)calloc(1, sizeof(PollReactor));
+    if (!reactor) return 0;
+    if (pipe2(reactor->wake_pipe, O_NONBLOCK | O_CLOEXEC) != 0) {
+        free(reactor);
+        return 0;
+    }
+    return (jlong)reactor;
+}
+
+/**
+ * 唤醒阻塞在 reactorPoll 中的反应器线程
+ */
+JNIEXPORT void JNICALL
+Java_com_orcterm_core_ssh_SshNative_reactorWakeup(JNIEnv *env, jobject thiz, jlong reactorHandle) {
+    PollReactor *reactor = (PollReactor *)reactorHandle;
+    if (!reactor) return;
+    char one = 1;
+    // 管道已满说明已有未处理的唤醒
+    ssize_t ignored = write(reactor->wake_pipe[1], &one, 1);
+    (void)ignored;
+}
+
+/**
+ * 在一次 poll 中等待一组会话中的任一会话就绪
+ * SSH 会话关注其 socket (按 libssh2 阻塞方向) 与自身的唤醒管道：经跳板机的会话共用跳板 socket，
+ * 数据被其他线程读入通道缓冲后由 ctx_unlock 通过唤醒管道通知。通道缓冲中已有数据的会话不等待直接就绪。
+ * 句柄为 0 的项为普通 fd (如本地 PTY 主设备)，只关注可读。
+ *
+ * @param handles   SSH 会话句柄，调用期间不得释放；0 表示该项使用 fds 中的 fd
+ * @param fds       句柄为 0 的项所等待的 fd，调用期间不得关闭
+ * @param ready     长度不小于 count，返回时就绪的会话置 1，其余置 0
+ * @return 就绪的会话数；超时或仅被 reactorWakeup 唤醒时为 0；出错返回 -1
+ */
+JNIEXPORT jint JNICALL
+Java_com_orcterm_core_ssh_SshNative_reactorPoll(JNIEnv *env, jobject thiz, jlong reactorHandle, jlongArray handles, jintArray fds_, jint count, jint timeoutMs, jintArray ready) {
+    PollReactor *reactor = (PollReactor *)reactorHandle;
+    if (!reactor || count < 0) return -1;
+    if (count > 0) {
+        if (!handles || !fds_ || !ready
+                || (*env)->GetArrayLength(env, handles) < count
+                || (*env)->GetArrayLength(env, fds_) < count
+                || (*env)->GetArrayLength(env, ready) < count) {
+            return -1;
+        }
+    }
+
+    int nfds = 1 + count * 2;
+    if (nfds > reactor->capacity) {
+        struct pollfd *grown = (struct pollfd *)realloc(reactor->fds, sizeof(struct pollfd) * nfds);
+        if (!grown) return -1;
+        reactor->fds = grown;
+        reactor->capacity = nfds;
+    }
+    struct pollfd *fds = reactor->fds;
+    jlong *ctxs = count > 0 ? (*env)->GetLongArrayElements(env, handles, NULL) : NULL;
+    jint *plain = count > 0 ? (*env)->GetIntArrayElements(env, fds_, NULL) : NULL;
+    jint *flags = count > 0 ? (*env)->GetIntArrayElements(env, ready, NULL) : NULL;
+    if (count > 0 && (!ctxs || !plain || !flags)) {
+        if (ctxs) (*env)->ReleaseLongArrayElements(env, handles, ctxs, JNI_ABORT);
+        if (plain) (*env)->ReleaseIntArrayElements(env, fds_, plain, JNI_ABORT);
+        if (flags) (*env)->ReleaseIntArrayElements(env, ready, flags, JNI_ABORT);
+        return -1;
+    }
+
+    fds[0].fd = reactor->wake_pipe[0];
+    fds[0].events = POLLIN;
+    fds[0].revents = 0;
+    int pending = 0;
+    for (jint i = 0; i < count; i++) {
+        SshContext *ctx = (SshContext *)ctxs[i];
+        struct pollfd *sock = &fds[1 + i * 2];
+        struct pollfd *wake = &fds[2 + i * 2];
+        // fd 为负的项被 poll 忽略
+        sock->fd = -1;
+        sock->events = 0;
+        sock->revents = 0;
+        wake->fd = -1;
+        wake->events = POLLIN;
+        wake->revents = 0;
+        flags[i] = 0;
+        if (!ctx && plain[i] >= 0) {
+            sock->fd = plain[i];
+            sock->events = POLLIN;
+            continue;
+        }
+        if (!ctx || ctx->socket_fd < 0) {
+            // 由随后的读取报告错误
+            flags[i] = 1;
+            pending++;
+            continue;
+        }
+        ctx_lock(ctx);
+        int dirs = libssh2_session_block_directions(ctx->session);
+        int buffered = ctx->channel && libssh2_poll_channel_read(ctx->channel, 0);
+        pthread_mutex_unlock(&ctx->lock);
+        if (buffered) {
+            flags[i] = 1;
+            pending++;
+        }
+        sock->fd = ctx->socket_fd;
+        sock->events = POLLIN;
+        if (ctx_wants_pollout(ctx, dirs)) sock->events |= POLLOUT;
+        wake->fd = ctx->wake_pipe[0];
+    }
+
+    int rc;
+    do {
+        rc = poll(fds, nfds, pending > 0 ? 0 : (timeoutMs < 0 ? -1 : timeoutMs));
+    } while (rc < 0 && errno == EINTR);
+
+    int result = -1;
+    if (rc >= 0) {
+        if (fds[0].revents & POLLIN) {
+            drain_pipe(reactor->wake_pipe[0]);
+        }
+        result = 0;
+        for (jint i = 0; i < count; i++) {
+            struct pollfd *sock = &fds[1 + i * 2];
+            struct pollfd *wake = &fds[2 + i * 2];
+            if (wake->fd >= 0 && (wake->revents & POLLIN)) {
+                drain_pipe(wake->fd);
+                flags[i] = 1;
+            }
+            // POLLHUP/POLLERR 也视为就绪，由随后的读取返回 EOF/错误
+            if (sock->revents) {
+                flags[i] = 1;
+            }
+            if (flags[i]) result++;
+        }
+    }
+
+    if (ctxs) (*env)->ReleaseLongArrayElements(env, handles, ctxs, JNI_ABORT);
+    if (plain) (*env)->ReleaseIntArrayElements(env, fds_, plain, JNI_ABORT);
+    if (flags) (*env)->ReleaseIntArrayElements(env, ready, flags, 0);
+    return result;
+}
+
+static jbyteArray bytes_to_jarray(JNIEnv *env, const char *data, size_t len) {
+    jbyteArray array = (*env)->NewByteArray(env, (jsize)len);
+    if (array && len > 0) {
+        (*env)->SetByteArrayRegion(env, array, 0, (jsize)len, (const jbyte *)data);
+    }
+    return array;
+}
+
+// 以标准 UTF-8 解码字节构造 Java 字符串；NewStringUTF 只接受 Modified UTF-8，遇到补充平面字符或非法序列会出错
+static jstring utf8_to_jstring(JNIEnv *env, const char *data, size_t len) {
+    jbyteArray bytes = bytes_to_jarray(env, data, len);
+    if (!bytes) return NULL;
+    jclass string_class = (*env)->FindClass(env, "java/lang/String");
+    jmethodID ctor = (*env)->GetMethodID(env, string_class, "<init>", "([BLjava/lang/String;)V");
+    jstring charset = (*env)->NewStringUTF(env, "UTF-8");
+    jstring result = (jstring)(*env)->NewObject(env, string_class, ctor, bytes, charset);
+    (*env)->DeleteLocalRef(env, charset);
+    (*env)->DeleteLocalRef(env, bytes);
+    (*env)->DeleteLocalRef(env, string_class);
+    return result;
+}
+
+/**
+ * 在会话锁下读取 exec 通道的 stdout/stderr 直到 EOF，暂无数据时释放锁等待 socket
+ * err 可为 NULL，此时 stderr 数据被丢弃 (仍需读出以免窗口阻塞)。
+ */
+static void drain_exec_channel(SshContext *ctx, LIBSSH2_CHANNEL *channel, StrBuf *out, StrBuf *err) {
+    char buffer[8192];
+    long long deadline = ctx_deadline(ctx);
+    while (1) {
+        ctx_lock(ctx);
+        ssize_t rc_out = libssh2_channel_read_ex(channel, 0, buffer, sizeof(buffer));
+        if (rc_out > 0 && sb_ensure(out, (size_t)rc_out) == 0) {
+            memcpy(out->data + out->len, buffer, (size_t)rc_out);
+            out->len += (size_t)rc_out;
+            out->data[out->len] = 0;
+        }
+        ssize_t rc_err = libssh2_channel_read_ex(channel, 1, buffer, sizeof(buffer));
+        if (rc_err > 0 && err && sb_ensure(err, (size_t)rc_err) == 0) {
+            memcpy(err->data + err->len, buffer, (size_t)rc_err);
+            err->len += (size_t)rc_err;
+            err->data[err->len] = 0;
+        }
+        int eof = libssh2_channel_eof(channel);
+        int dirs = libssh2_session_block_directions(ctx->session);
+        ctx_unlock(ctx);
+        if (rc_out > 0 || rc_err > 0) continue;
+        if (eof) break;
+        if (rc_out != LIBSSH2_ERROR_EAGAIN && rc_err != LIBSSH2_ERROR_EAGAIN && rc_out < 0) break;
+        // 两路都暂无数据：释放锁等待 socket
+        if (wait_session_socket(ctx, dirs, deadline) != 0) break;
+    }
+}
+
 /**
  * 执行单条命令
  */
@@ -531,118 +1662,226 @@ Java_com_orcterm_core_ssh_SshNative_exec(JNIEnv *env, jobject thiz, jlong handle
     
     const char *cmd = (*env)->GetStringUTFChars(env, command, 0);
     
-    libssh2_session_set_blocking(ctx->session, 1); // Exec 需要阻塞等待
-    LIBSSH2_CHANNEL *channel = libssh2_channel_open_session(ctx->session);
+    LIBSSH2_CHANNEL *channel;
+    SSH_OPEN_PTR(ctx, channel, libssh2_channel_open_session(ctx->session));
     if (!channel) {
         (*env)->ReleaseStringUTFChars(env, command, cmd);
-        libssh2_session_set_blocking(ctx->session, 0);
         return (*env)->NewStringUTF(env, "Error: Open Channel");
     }
     
-    libssh2_channel_exec(channel, cmd);
-    
-    // 读取输出
-    char *result = malloc(1); result[0] = 0;
-    size_t total = 0;
-    char buffer[1024];
-    ssize_t rc;
+    int exec_rc;
+    SSH_RETRY(ctx, exec_rc, libssh2_channel_exec(channel, cmd));
+    (*env)->ReleaseStringUTFChars(env, command, cmd);
     
-    while((rc = libssh2_channel_read(channel, buffer, sizeof(buffer)-1)) > 0) {
-        buffer[rc] = 0;
-        result = realloc(result, total + rc + 1);
-        memcpy(result + total, buffer, rc);
-        result[total + rc] = 0;
-        total += rc;
+    // 读取输出；等待期间释放会话锁，Shell 与其他通道可继续收发
+    StrBuf out;
+    sb_init(&out, 1024);
+    if (exec_rc == 0) {
+        drain_exec_channel(ctx, channel, &out, NULL);
     }
     
-    libssh2_channel_close(channel);
-    libssh2_channel_free(channel);
-    libssh2_session_set_blocking(ctx->session, 0); // 恢复
+    int close_rc;
+    SSH_RETRY(ctx, close_rc, libssh2_channel_close(channel));
+    SSH_RETRY(ctx, close_rc, libssh2_channel_free(channel));
     
-    (*env)->ReleaseStringUTFChars(env, command, cmd);
-    jstring jstr = (*env)->NewStringUTF(env, result);
-    free(result);
+    jstring jstr = utf8_to_jstring(env, out.data ? out.data : "", out.len);
+    sb_free(&out);
     return jstr;
 }
 
-JNIEXPORT jstring JNICALL
+static jobject new_exec_result(JNIEnv *env, jint exit_code, const char *out, size_t out_len,
+                               const char *err, size_t err_len, jlong duration_ms) {
+    jclass result_class = (*env)->FindClass(env, "com/orcterm/core/ssh/ExecResult");
+    if (!result_class) return NULL;
+    jmethodID ctor = (*env)->GetMethodID(env, result_class, "<init>", "(I[B[BJ)V");
+    jbyteArray out_bytes = bytes_to_jarray(env, out, out_len);
+    jbyteArray err_bytes = bytes_to_jarray(env, err, err_len);
+    jobject result = (*env)->NewObject(env, result_class, ctor, exit_code, out_bytes, err_bytes, duration_ms);
+    (*env)->DeleteLocalRef(env, out_bytes);
+    (*env)->DeleteLocalRef(env, err_bytes);
+    (*env)->DeleteLocalRef(env, result_class);
+    return result;
+}
+
+/**
+ * 执行命令并返回 ExecResult (退出码、stdout/stderr 原始字节、耗时)
+ * 输出以字节数组原样交给 Java，由调用方按需解码，不经过 JSON 转义。
+ */
+JNIEXPORT jobject JNICALL
 Java_com_orcterm_core_ssh_SshNative_execWithResult(JNIEnv *env, jobject thiz, jlong handle, jstring command) {
+    long long started = now_ms();
     SshContext *ctx = (SshContext *)handle;
-    if (!ctx) return (*env)->NewStringUTF(env, "{\"exitCode\":-1,\"stdout\":\"\",\"stderr\":\"No Context\"}");
+    if (!ctx) return new_exec_result(env, -1, "", 0, "No Context", strlen("No Context"), 0);
 
     const char *cmd = (*env)->GetStringUTFChars(env, command, 0);
 
-    libssh2_session_set_blocking(ctx->session, 1);
-    LIBSSH2_CHANNEL *channel = libssh2_channel_open_session(ctx->session);
+    LIBSSH2_CHANNEL *channel;
+    SSH_OPEN_PTR(ctx, channel, libssh2_channel_open_session(ctx->session));
     if (!channel) {
         (*env)->ReleaseStringUTFChars(env, command, cmd);
-        libssh2_session_set_blocking(ctx->session, 0);
-        return (*env)->NewStringUTF(env, "{\"exitCode\":-1,\"stdout\":\"\",\"stderr\":\"Open Channel\"}");
+        return new_exec_result(env, -1, "", 0, "Open Channel", strlen("Open Channel"), now_ms() - started);
     }
 
-    int exec_rc = libssh2_channel_exec(channel, cmd);
+    int exec_rc;
+    int close_rc;
+    SSH_RETRY(ctx, exec_rc, libssh2_channel_exec(channel, cmd));
     (*env)->ReleaseStringUTFChars(env, command, cmd);
     if (exec_rc != 0) {
-        libssh2_channel_close(channel);
-        libssh2_channel_free(channel);
-        libssh2_session_set_blocking(ctx->session, 0);
-        return (*env)->NewStringUTF(env, "{\"exitCode\":-1,\"stdout\":\"\",\"stderr\":\"Exec Failed\"}");
+        SSH_RETRY(ctx, close_rc, libssh2_channel_close(channel));
+        SSH_RETRY(ctx, close_rc, libssh2_channel_free(channel));
+        return new_exec_result(env, -1, "", 0, "Exec Failed", strlen("Exec Failed"), now_ms() - started);
     }
 
     StrBuf out;
     StrBuf err;
     sb_init(&out, 1024);
     sb_init(&err, 256);
+    drain_exec_channel(ctx, channel, &out, &err);
 
-    char buffer[2048];
-    while (1) {
-        ssize_t rc_out = libssh2_channel_read_ex(channel, 0, buffer, sizeof(buffer));
-        if (rc_out > 0) {
-            if (sb_ensure(&out, (size_t)rc_out) == 0) {
-                memcpy(out.data + out.len, buffer, (size_t)rc_out);
-                out.len += (size_t)rc_out;
-                out.data[out.len] = 0;
-            }
-        }
-        ssize_t rc_err = libssh2_channel_read_ex(channel, 1, buffer, sizeof(buffer));
-        if (rc_err > 0) {
-            if (sb_ensure(&err, (size_t)rc_err) == 0) {
-                memcpy(err.data + err.len, buffer, (size_t)rc_err);
-                err.len += (size_t)rc_err;
-                err.data[err.len] = 0;
-            }
-        }
-        if (rc_out == LIBSSH2_ERROR_EAGAIN && rc_err == LIBSSH2_ERROR_EAGAIN) {
-            if (libssh2_channel_eof(channel)) break;
-        }
-        if (rc_out <= 0 && rc_err <= 0) {
-            if (libssh2_channel_eof(channel)) break;
-        }
-    }
-
+    SSH_RETRY(ctx, close_rc, libssh2_channel_close(channel));
+    // 等待远端关闭后才能拿到可靠的退出码
+    SSH_RETRY(ctx, close_rc, libssh2_channel_wait_closed(channel));
+    ctx_lock(ctx);
     int exit_code = libssh2_channel_get_exit_status(channel);
+    ctx_unlock(ctx);
+    SSH_RETRY(ctx, close_rc, libssh2_channel_free(channel));
 
-    libssh2_channel_close(channel);
-    libssh2_channel_free(channel);
-    libssh2_session_set_blocking(ctx->session, 0);
-
-    StrBuf json;
-    sb_init(&json, out.len + err.len + 64);
-    sb_append(&json, "{\"exitCode\":");
-    char code_buf[32];
-    snprintf(code_buf, sizeof(code_buf), "%d", exit_code);
-    sb_append(&json, code_buf);
-    sb_append(&json, ",\"stdout\":\"");
-    sb_append_escaped(&json, out.data ? out.data : "");
-    sb_append(&json, "\",\"stderr\":\"");
-    sb_append_escaped(&json, err.data ? err.data : "");
-    sb_append(&json, "\"}");
-
-    jstring result = (*env)->NewStringUTF(env, json.data ? json.data : "{\"exitCode\":-1,\"stdout\":\"\",\"stderr\":\"\"}");
+    jobject result = new_exec_result(env, exit_code,
+        out.data ? out.data : "", out.len,
+        err.data ? err.data : "", err.len,
+        now_ms() - started);
 
     sb_free(&out);
     sb_free(&err);
-    sb_free(&json);
+    return result;
+}
+
+// --- 流式执行 (Exec Stream) ---
+
+/**
+ * 启动命令并返回通道句柄，输出由 execRead 增量读取
+ *
+ * @return 通道句柄，失败返回 0
+ */
+JNIEXPORT jlong JNICALL
+Java_com_orcterm_core_ssh_SshNative_execStart(JNIEnv *env, jobject thiz, jlong handle, jstring command) {
+    SshContext *ctx = (SshContext *)handle;
+    if (!ctx) return 0;
+
+    LIBSSH2_CHANNEL *channel;
+    SSH_OPEN_PTR(ctx, channel, libssh2_channel_open_session(ctx->session));
+    if (!channel) return 0;
+
+    const char *cmd = (*env)->GetStringUTFChars(env, command, 0);
+    int rc;
+    SSH_RETRY(ctx, rc, libssh2_channel_exec(channel, cmd));
+    (*env)->ReleaseStringUTFChars(env, command, cmd);
+    if (rc != 0) {
+        LOGE("Exec stream start failed: %d", rc);
+        SSH_RETRY(ctx, rc, libssh2_channel_close(channel));
+        SSH_RETRY(ctx, rc, libssh2_channel_free(channel));
+        return 0;
+    }
+    return (jlong)channel;
+}
+
+/**
+ * 非阻塞读取通道的 stdout (stream=0) 或 stderr (stream=1)，直接写入 direct ByteBuffer
+ *
+ * @return 读取的字节数；0 表示暂无数据；-1 表示该流已结束或出错
+ */
+JNIEXPORT jint JNICALL
+Java_com_orcterm_core_ssh_SshNative_execRead(JNIEnv *env, jobject thiz, jlong handle, jlong channelHandle, jint stream, jobject buffer, jint offset, jint length) {
+    SshContext *ctx = (SshContext *)handle;
+    LIBSSH2_CHANNEL *channel = (LIBSSH2_CHANNEL *)channelHandle;
+    if (!ctx || !channel || !buffer || offset < 0 || length <= 0) return -1;
+
+    char *base = (char *)(*env)->GetDirectBufferAddress(env, buffer);
+    jlong capacity = (*env)->GetDirectBufferCapacity(env, buffer);
+    if (!base || capacity < 0 || (jlong)offset + length > capacity) return -1;
+
+    ctx_lock(ctx);
+    ssize_t rc = libssh2_channel_read_ex(channel, stream, base + offset, (size_t)length);
+    int eof = rc == 0 && libssh2_channel_eof(channel);
+    ctx_unlock(ctx);
+    if (rc > 0) return (jint)rc;
+    if (rc == LIBSSH2_ERROR_EAGAIN) return 0;
+    if (rc == 0) return eof ? -1 : 0;
+    return -1;
+}
+
+/**
+ * 等待通道可读 (任一输出流有数据或已到 EOF)
+ * 不使用 Shell 的唤醒管道；调用方以较短超时循环以便响应取消。
+ *
+ * @return WAIT_READY / WAIT_TIMEOUT，出错返回 WAIT_ERROR
+ */
+JNIEXPORT jint JNICALL
+Java_com_orcterm_core_ssh_SshNative_waitForChannel(JNIEnv *env, jobject thiz, jlong handle, jlong channelHandle, jint timeoutMs) {
+    SshContext *ctx = (SshContext *)handle;
+    LIBSSH2_CHANNEL *channel = (LIBSSH2_CHANNEL *)channelHandle;
+    if (!ctx || !channel || ctx->socket_fd < 0) return WAIT_ERROR;
+
+    long long deadline = now_ms() + (timeoutMs > 0 ? timeoutMs : 0);
+    for (;;) {
+        ctx_lock(ctx);
+        // 其他线程可能已经把本通道的数据读入缓冲
+        int pending = libssh2_poll_channel_read(channel, 0)
+            || libssh2_poll_channel_read(channel, 1)
+            || libssh2_channel_eof(channel);
+        int dirs = libssh2_session_block_directions(ctx->session);
+        pthread_mutex_unlock(&ctx->lock);
+        if (pending) return WAIT_READY;
+
+        long long left = deadline - now_ms();
+        if (left <= 0) return WAIT_TIMEOUT;
+        struct pollfd pfd;
+        pfd.fd = ctx->socket_fd;
+        pfd.events = POLLIN;
+        if (ctx_wants_pollout(ctx, dirs)) pfd.events |= POLLOUT;
+        pfd.revents = 0;
+        int rc = poll(&pfd, 1, left < SESSION_WAIT_SLICE_MS ? (int)left : SESSION_WAIT_SLICE_MS);
+        if (rc < 0 && errno != EINTR) return WAIT_ERROR;
+        // socket 可读：数据可能属于本通道，交给调用方读取 (同时推进会话)
+        if (rc > 0) return WAIT_READY;
+    }
+}
+
+/**
+ * 关闭通道并等待远端确认，返回退出码；通道仍需调用 closeChannel 释放
+ */
+JNIEXPORT jint JNICALL
+Java_com_orcterm_core_ssh_SshNative_execWaitClosed(JNIEnv *env, jobject thiz, jlong handle, jlong channelHandle) {
+    SshContext *ctx = (SshContext *)handle;
+    LIBSSH2_CHANNEL *channel = (LIBSSH2_CHANNEL *)channelHandle;
+    if (!ctx || !channel) return -1;
+
+    int rc;
+    SSH_RETRY(ctx, rc, libssh2_channel_close(channel));
+    SSH_RETRY(ctx, rc, libssh2_channel_wait_closed(channel));
+    ctx_lock(ctx);
+    int exit_code = libssh2_channel_get_exit_status(channel);
+    ctx_unlock(ctx);
+    return exit_code;
+}
+
+/**
+ * 获取导致命令结束的信号名 (如 "TERM")，正常退出返回 null
+ */
+JNIEXPORT jstring JNICALL
+Java_com_orcterm_core_ssh_SshNative_execExitSignal(JNIEnv *env, jobject thiz, jlong handle, jlong channelHandle) {
+    SshContext *ctx = (SshContext *)handle;
+    LIBSSH2_CHANNEL *channel = (LIBSSH2_CHANNEL *)channelHandle;
+    if (!ctx || !channel) return NULL;
+
+    char *signal = NULL;
+    size_t signal_len = 0;
+    ctx_lock(ctx);
+    int rc = libssh2_channel_get_exit_signal(channel, &signal, &signal_len, NULL, NULL, NULL, NULL);
+    ctx_unlock(ctx);
+    if (rc != 0 || !signal) return NULL;
+    jstring result = (*env)->NewStringUTF(env, signal);
+    libssh2_free(ctx->session, signal);
     return result;
 }
 
@@ -654,22 +1893,21 @@ Java_com_orcterm_core_ssh_SshNative_sftpList(JNIEnv *env, jobject thiz, jlong ha
     SshContext *ctx = (SshContext *)handle;
     if (!ctx) return (*env)->NewStringUTF(env, "[]");
     
-    libssh2_session_set_blocking(ctx->session, 1);
-    
     const char *p = (*env)->GetStringUTFChars(env, path, 0);
-    LIBSSH2_SFTP *sftp = libssh2_sftp_init(ctx->session);
+    int rc;
+    LIBSSH2_SFTP *sftp;
+    SSH_OPEN_PTR(ctx, sftp, libssh2_sftp_init(ctx->session));
     
     if (!sftp) {
         (*env)->ReleaseStringUTFChars(env, path, p);
-        libssh2_session_set_blocking(ctx->session, 0);
         return (*env)->NewStringUTF(env, "[]");
     }
     
-    LIBSSH2_SFTP_HANDLE *h = libssh2_sftp_opendir(sftp, p);
+    LIBSSH2_SFTP_HANDLE *h;
+    SSH_RETRY_PTR(ctx, h, libssh2_sftp_opendir(sftp, p));
     if (!h) {
-        libssh2_sftp_shutdown(sftp);
+        SSH_RETRY(ctx, rc, libssh2_sftp_shutdown(sftp));
         (*env)->ReleaseStringUTFChars(env, path, p);
-        libssh2_session_set_blocking(ctx->session, 0);
         return (*env)->NewStringUTF(env, "[]");
     }
     
@@ -681,7 +1919,9 @@ Java_com_orcterm_core_ssh_SshNative_sftpList(JNIEnv *env, jobject thiz, jlong ha
     LIBSSH2_SFTP_ATTRIBUTES attrs;
     int first = 1;
     
-    while(libssh2_sftp_readdir(h, mem, sizeof(mem), &attrs) > 0) {
+    while (1) {
+        SSH_RETRY(ctx, rc, libssh2_sftp_readdir(h, mem, sizeof(mem), &attrs));
+        if (rc <= 0) break;
         if(strcmp(mem, ".") == 0 || strcmp(mem, "..") == 0) continue;
         
         if(!first) sb_append(&json, ",");
@@ -708,9 +1948,8 @@ Java_com_orcterm_core_ssh_SshNative_sftpList(JNIEnv *env, jobject thiz, jlong ha
     }
     sb_append(&json, "]");
     
-    libssh2_sftp_closedir(h);
-    libssh2_sftp_shutdown(sftp);
-    libssh2_session_set_blocking(ctx->session, 0);
+    SSH_RETRY(ctx, rc, libssh2_sftp_closedir(h));
+    SSH_RETRY(ctx, rc, libssh2_sftp_shutdown(sftp));
     (*env)->ReleaseStringUTFChars(env, path, p);
     
     jstring jstr = (*env)->NewStringUTF(env, json.data ? json.data : "[]");
@@ -726,34 +1965,32 @@ Java_com_orcterm_core_ssh_SshNative_sftpUpload(JNIEnv *env, jobject thiz, jlong
     const char *local = (*env)->GetStringUTFChars(env, localPath, 0);
     const char *remote = (*env)->GetStringUTFChars(env, remotePath, 0);
 
-    libssh2_session_set_blocking(ctx->session, 1);
-
-    LIBSSH2_SFTP *sftp = libssh2_sftp_init(ctx->session);
+    int close_rc;
+    LIBSSH2_SFTP *sftp;
+    SSH_OPEN_PTR(ctx, sftp, libssh2_sftp_init(ctx->session));
     if (!sftp) {
         (*env)->ReleaseStringUTFChars(env, localPath, local);
         (*env)->ReleaseStringUTFChars(env, remotePath, remote);
-        libssh2_session_set_blocking(ctx->session, 0);
         return -1;
     }
 
-    LIBSSH2_SFTP_HANDLE *h = libssh2_sftp_open(sftp, remote,
+    LIBSSH2_SFTP_HANDLE *h;
+    SSH_RETRY_PTR(ctx, h, libssh2_sftp_open(sftp, remote,
         LIBSSH2_FXF_WRITE | LIBSSH2_FXF_CREAT | LIBSSH2_FXF_TRUNC,
-        LIBSSH2_SFTP_S_IRUSR | LIBSSH2_SFTP_S_IWUSR | LIBSSH2_SFTP_S_IRGRP | LIBSSH2_SFTP_S_IROTH);
+        LIBSSH2_SFTP_S_IRUSR | LIBSSH2_SFTP_S_IWUSR | LIBSSH2_SFTP_S_IRGRP | LIBSSH2_SFTP_S_IROTH));
     if (!h) {
-        libssh2_sftp_shutdown(sftp);
+        SSH_RETRY(ctx, close_rc, libssh2_sftp_shutdown(sftp));
         (*env)->ReleaseStringUTFChars(env, localPath, local);
         (*env)->ReleaseStringUTFChars(env, remotePath, remote);
-        libssh2_session_set_blocking(ctx->session, 0);
         return -1;
     }
 
     FILE *fp = fopen(local, "rb");
     if (!fp) {
-        libssh2_sftp_close(h);
-        libssh2_sftp_shutdown(sftp);
+        SSH_RETRY(ctx, close_rc, libssh2_sftp_close(h));
+        SSH_RETRY(ctx, close_rc, libssh2_sftp_shutdown(sftp));
         (*env)->ReleaseStringUTFChars(env, localPath, local);
         (*env)->ReleaseStringUTFChars(env, remotePath, remote);
-        libssh2_session_set_blocking(ctx->session, 0);
         return -1;
     }
 
@@ -764,8 +2001,8 @@ Java_com_orcterm_core_ssh_SshNative_sftpUpload(JNIEnv *env, jobject thiz, jlong
         char *ptr = buffer;
         size_t left = nread;
         while (left > 0) {
-            ssize_t nw = libssh2_sftp_write(h, ptr, left);
-            if (nw == LIBSSH2_ERROR_EAGAIN) continue;
+            ssize_t nw;
+            SSH_RETRY(ctx, nw, libssh2_sftp_write(h, ptr, left));
             if (nw < 0) { rc = -1; break; }
             ptr += nw;
             left -= (size_t)nw;
@@ -774,9 +2011,8 @@ Java_com_orcterm_core_ssh_SshNative_sftpUpload(JNIEnv *env, jobject thiz, jlong
     }
 
     fclose(fp);
-    libssh2_sftp_close(h);
-    libssh2_sftp_shutdown(sftp);
-    libssh2_session_set_blocking(ctx->session, 0);
+    SSH_RETRY(ctx, close_rc, libssh2_sftp_close(h));
+    SSH_RETRY(ctx, close_rc, libssh2_sftp_shutdown(sftp));
 
     (*env)->ReleaseStringUTFChars(env, localPath, local);
     (*env)->ReleaseStringUTFChars(env, remotePath, remote);
@@ -791,50 +2027,47 @@ Java_com_orcterm_core_ssh_SshNative_sftpDownload(JNIEnv *env, jobject thiz, jlon
     const char *remote = (*env)->GetStringUTFChars(env, remotePath, 0);
     const char *local = (*env)->GetStringUTFChars(env, localPath, 0);
 
-    libssh2_session_set_blocking(ctx->session, 1);
-
-    LIBSSH2_SFTP *sftp = libssh2_sftp_init(ctx->session);
+    int close_rc;
+    LIBSSH2_SFTP *sftp;
+    SSH_OPEN_PTR(ctx, sftp, libssh2_sftp_init(ctx->session));
     if (!sftp) {
         (*env)->ReleaseStringUTFChars(env, remotePath, remote);
         (*env)->ReleaseStringUTFChars(env, localPath, local);
-        libssh2_session_set_blocking(ctx->session, 0);
         return -1;
     }
 
-    LIBSSH2_SFTP_HANDLE *h = libssh2_sftp_open(sftp, remote, LIBSSH2_FXF_READ, 0);
+    LIBSSH2_SFTP_HANDLE *h;
+    SSH_RETRY_PTR(ctx, h, libssh2_sftp_open(sftp, remote, LIBSSH2_FXF_READ, 0));
     if (!h) {
-        libssh2_sftp_shutdown(sftp);
+        SSH_RETRY(ctx, close_rc, libssh2_sftp_shutdown(sftp));
         (*env)->ReleaseStringUTFChars(env, remotePath, remote);
         (*env)->ReleaseStringUTFChars(env, localPath, local);
-        libssh2_session_set_blocking(ctx->session, 0);
         return -1;
     }
 
     FILE *fp = fopen(local, "wb");
     if (!fp) {
-        libssh2_sftp_close(h);
-        libssh2_sftp_shutdown(sftp);
+        SSH_RETRY(ctx, close_rc, libssh2_sftp_close(h));
+        SSH_RETRY(ctx, close_rc, libssh2_sftp_shutdown(sftp));
         (*env)->ReleaseStringUTFChars(env, remotePath, remote);
         (*env)->ReleaseStringUTFChars(env, localPath, local);
-        libssh2_session_set_blocking(ctx->session, 0);
         return -1;
     }
 
     char buffer[16384];
     int rc = 0;
     while (1) {
-        ssize_t nread = libssh2_sftp_read(h, buffer, sizeof(buffer));
+        ssize_t nread;
+        SSH_RETRY(ctx, nread, libssh2_sftp_read(h, buffer, sizeof(buffer)));
         if (nread == 0) break;
-        if (nread == LIBSSH2_ERROR_EAGAIN) continue;
         if (nread < 0) { rc = -1; break; }
         size_t nw = fwrite(buffer, 1, (size_t)nread, fp);
         if (nw != (size_t)nread) { rc = -1; break; }
     }
 
     fclose(fp);
-    libssh2_sftp_close(h);
-    libssh2_sftp_shutdown(sftp);
-    libssh2_session_set_blocking(ctx->session, 0);
+    SSH_RETRY(ctx, close_rc, libssh2_sftp_close(h));
+    SSH_RETRY(ctx, close_rc, libssh2_sftp_shutdown(sftp));
 
     (*env)->ReleaseStringUTFChars(env, remotePath, remote);
     (*env)->ReleaseStringUTFChars(env, localPath, local);
@@ -849,7 +2082,8 @@ Java_com_orcterm_core_ssh_SshNative_resize(JNIEnv *env, jobject thiz, jlong hand
     SshContext *ctx = (SshContext *)handle;
     if (!ctx || !ctx->channel) return -1;
     
-    int rc = libssh2_channel_request_pty_size(ctx->channel, cols, rows);
+    int rc;
+    SSH_RETRY(ctx, rc, libssh2_channel_request_pty_size(ctx->channel, cols, rows));
     return rc;
 }
 
@@ -861,12 +2095,42 @@ Java_com_orcterm_core_ssh_SshNative_disconnect(JNIEnv *env, jobject thiz, jlong
     SshContext *ctx = (SshContext *)handle;
     if (!ctx) return;
     
+    SshContext *outer = ctx->outer;
+    if (outer) {
+        // 先从跳板会话摘除，之后跳板会话不再引用本上下文
+        ctx_lock(outer);
+        for (SshContext **link = &outer->tunneled; *link; link = &(*link)->next_tunneled) {
+            if (*link == ctx) {
+                *link = ctx->next_tunneled;
+                break;
+            }
+        }
+        ctx_unlock(outer);
+    }
+
+    // 关闭阶段切回阻塞模式，确保断开消息发出；调用方需保证此后不再使用该句柄
+    // 经跳板机的会话没有可供 libssh2 阻塞等待的 socket，保持非阻塞，断开消息尽力发送
+    pthread_mutex_lock(&ctx->lock);
+    if (ctx->session && !outer) libssh2_session_set_blocking(ctx->session, 1);
     if (ctx->channel) libssh2_channel_free(ctx->channel);
+    ctx->channel = NULL;
     if (ctx->session) {
         libssh2_session_disconnect(ctx->session, "Normal Shutdown");
         libssh2_session_free(ctx->session);
+        ctx->session = NULL;
+    }
+    pthread_mutex_unlock(&ctx->lock);
+    if (outer) {
+        int rc;
+        SSH_RETRY(outer, rc, libssh2_channel_close(ctx->tunnel));
+        SSH_RETRY(outer, rc, libssh2_channel_free(ctx->tunnel));
+    } else {
+        close(ctx->socket_fd);
     }
-    close(ctx->socket_fd);
+    if (ctx->wake_pipe[0] >= 0) close(ctx->wake_pipe[0]);
+    if (ctx->wake_pipe[1] >= 0) close(ctx->wake_pipe[1]);
+    pthread_mutex_destroy(&ctx->lock);
+    pthread_mutex_destroy(&ctx->open_lock);
     free(ctx);
     
     libssh2_exit();
@@ -985,14 +2249,13 @@ Java_com_orcterm_core_ssh_SshNative_sendBindRequest(JNIEnv *env, jobject thiz, j
     const char *key = (*env)->GetStringUTFChars(env, pubKey, 0);
     
     // 打开到 localhost:apiPort 的 Direct TCP/IP 通道
-    libssh2_session_set_blocking(ctx->session, 1);
-    LIBSSH2_CHANNEL *channel = libssh2_channel_direct_tcpip(ctx->session, "127.0.0.1", apiPort);
+    LIBSSH2_CHANNEL *channel;
+    SSH_OPEN_PTR(ctx, channel, libssh2_channel_direct_tcpip(ctx->session, "127.0.0.1", apiPort));
     
     if (!channel) {
         LOGE("Direct TCPIP failed");
         (*env)->ReleaseStringUTFChars(env, token, tok);
         (*env)->ReleaseStringUTFChars(env, pubKey, key);
-        libssh2_session_set_blocking(ctx->session, 0);
         return (*env)->NewStringUTF(env, "Error: Connection Failed");
     }
 
@@ -1009,15 +2272,23 @@ Java_com_orcterm_core_ssh_SshNative_sendBindRequest(JNIEnv *env, jobject thiz, j
         "\r\n%s", strlen(body), body);
 
     // 发送请求
-    libssh2_channel_write(channel, request, strlen(request));
+    size_t request_len = strlen(request);
+    size_t sent = 0;
+    ssize_t rc;
+    while (sent < request_len) {
+        SSH_RETRY(ctx, rc, libssh2_channel_write(channel, request + sent, request_len - sent));
+        if (rc <= 0) break;
+        sent += (size_t)rc;
+    }
     
     // 读取响应
     char buffer[1024];
     char response[4096] = {0};
-    ssize_t rc;
     size_t total = 0;
     
-    while ((rc = libssh2_channel_read(channel, buffer, sizeof(buffer)-1)) > 0) {
+    while (1) {
+        SSH_RETRY(ctx, rc, libssh2_channel_read(channel, buffer, sizeof(buffer)-1));
+        if (rc <= 0) break;
         if (total + rc < sizeof(response) - 1) {
             memcpy(response + total, buffer, rc);
             total += rc;
@@ -1025,9 +2296,9 @@ Java_com_orcterm_core_ssh_SshNative_sendBindRequest(JNIEnv *env, jobject thiz, j
         }
     }
     
-    libssh2_channel_close(channel);
-    libssh2_channel_free(channel);
-    libssh2_session_set_blocking(ctx->session, 0);
+    int close_rc;
+    SSH_RETRY(ctx, close_rc, libssh2_channel_close(channel));
+    SSH_RETRY(ctx, close_rc, libssh2_channel_free(channel));
     
     (*env)->ReleaseStringUTFChars(env, token, tok);
     (*env)->ReleaseStringUTFChars(env, pubKey, key);
@@ -1045,27 +2316,45 @@ Java_com_orcterm_core_ssh_SshNative_sendBindRequest(JNIEnv *env, jobject thiz, j
 /**
  * 打开直接 TCP/IP 通道
  */
-JNIEXPORT jlong JNICALL
-Java_com_orcterm_core_ssh_SshNative_openDirectTcpIp(JNIEnv *env, jobject thiz, jlong handle, jstring targetHost, jint targetPort) {
-    SshContext *ctx = (SshContext *)handle;
-    if (!ctx) return 0;
-    
+static jlong open_direct_tcpip(JNIEnv *env, SshContext *ctx, jstring targetHost, jint targetPort, int *err) {
     const char *host = (*env)->GetStringUTFChars(env, targetHost, 0);
     
-    libssh2_session_set_blocking(ctx->session, 1);
-    LIBSSH2_CHANNEL *channel = libssh2_channel_direct_tcpip(ctx->session, host, targetPort);
-    libssh2_session_set_blocking(ctx->session, 0);
-    
-    (*env)->ReleaseStringUTFChars(env, targetHost, host);
+    LIBSSH2_CHANNEL *channel;
+    SSH_OPEN_PTR_ERR(ctx, channel, *err, libssh2_channel_direct_tcpip(ctx->session, host, targetPort));
     
     if (!channel) {
-        LOGE("Direct TCPIP failed to %s:%d", host, targetPort);
-        return 0;
+        LOGE("Direct TCPIP failed to %s:%d (%d)", host, targetPort, *err);
     }
+    (*env)->ReleaseStringUTFChars(env, targetHost, host);
+    if (!channel) return 0;
     
     return (jlong)channel;
 }
 
+JNIEXPORT jlong JNICALL
+Java_com_orcterm_core_ssh_SshNative_openDirectTcpIp(JNIEnv *env, jobject thiz, jlong handle, jstring targetHost, jint targetPort) {
+    SshContext *ctx = (SshContext *)handle;
+    if (!ctx) return 0;
+    int err;
+    return open_direct_tcpip(env, ctx, targetHost, targetPort, &err);
+}
+
+/**
+ * 同 openDirectTcpIp，失败时将 libssh2 错误码写入 error[0]
+ * 服务器拒绝打开 (LIBSSH2_ERROR_CHANNEL_FAILURE) 说明会话本身仍在往返
+ */
+JNIEXPORT jlong JNICALL
+Java_com_orcterm_core_ssh_SshNative_openDirectTcpIpWithError(JNIEnv *env, jobject thiz, jlong handle, jstring targetHost, jint targetPort, jintArray error) {
+    SshContext *ctx = (SshContext *)handle;
+    int err = LIBSSH2_ERROR_BAD_USE;
+    jlong channel = ctx ? open_direct_tcpip(env, ctx, targetHost, targetPort, &err) : 0;
+    if (error && (*env)->GetArrayLength(env, error) > 0) {
+        jint value = channel ? 0 : err;
+        (*env)->SetIntArrayRegion(env, error, 0, 1, &value);
+    }
+    return channel;
+}
+
 /**
  * 写入数据到通道
  */
@@ -1079,18 +2368,16 @@ Java_com_orcterm_core_ssh_SshNative_writeChannel(JNIEnv *env, jobject thiz, jlon
     jsize len = (*env)->GetArrayLength(env, data);
     jbyte *body = (*env)->GetByteArrayElements(env, data, 0);
     
-    // 使用阻塞模式写入以保证可靠性
-    libssh2_session_set_blocking(ctx->session, 1);
+    // 写满为止；窗口不足时释放会话锁等待
     ssize_t written_total = 0;
     while (written_total < len) {
-        ssize_t written = libssh2_channel_write(channel, (const char*)body + written_total, len - written_total);
-        if (written == LIBSSH2_ERROR_EAGAIN) continue;
+        ssize_t written;
+        SSH_RETRY(ctx, written, libssh2_channel_write(channel, (const char*)body + written_total, len - written_total));
         if (written <= 0) break;
         written_total += written;
     }
-    libssh2_session_set_blocking(ctx->session, 0);
     
-    (*env)->ReleaseByteArrayElements(env, data, body, 0);
+    (*env)->ReleaseByteArrayElements(env, data, body, JNI_ABORT);
     return (int)written_total;
 }
 
@@ -1105,7 +2392,10 @@ Java_com_orcterm_core_ssh_SshNative_readChannel(JNIEnv *env, jobject thiz, jlong
     if (!ctx || !channel) return NULL;
     
     char buffer[8192];
+    ctx_lock(ctx);
     ssize_t rc = libssh2_channel_read(channel, buffer, sizeof(buffer));
+    int eof = rc == 0 && libssh2_channel_eof(channel);
+    ctx_unlock(ctx);
     
     if (rc > 0) {
         jbyteArray result = (*env)->NewByteArray(env, (jsize)rc);
@@ -1113,11 +2403,11 @@ Java_com_orcterm_core_ssh_SshNative_readChannel(JNIEnv *env, jobject thiz, jlong
         return result;
     }
     
-    if (rc == LIBSSH2_ERROR_EAGAIN) {
+    if (rc == LIBSSH2_ERROR_EAGAIN || (rc == 0 && !eof)) {
         return (*env)->NewByteArray(env, 0);
     }
     
-    // EOF (0) 或 错误 (<0 且非 EAGAIN)
+    // EOF 或 错误 (<0 且非 EAGAIN)
     return NULL;
 }
 
@@ -1125,10 +2415,181 @@ Java_com_orcterm_core_ssh_SshNative_readChannel(JNIEnv *env, jobject thiz, jlong
  * 关闭通道
  */
 JNIEXPORT void JNICALL
-Java_com_orcterm_core_ssh_SshNative_closeChannel(JNIEnv *env, jobject thiz, jlong channelHandle) {
+Java_com_orcterm_core_ssh_SshNative_closeChannel(JNIEnv *env, jobject thiz, jlong handle, jlong channelHandle) {
+    SshContext *ctx = (SshContext *)handle;
+    LIBSSH2_CHANNEL *channel = (LIBSSH2_CHANNEL *)channelHandle;
+    if (!ctx || !channel) return;
+    int rc;
+    SSH_RETRY(ctx, rc, libssh2_channel_close(channel));
+    SSH_RETRY(ctx, rc, libssh2_channel_free(channel));
+}
+
+/**
+ * 非阻塞写入通道，数据直接取自 direct ByteBuffer
+ * 远端窗口耗尽或 socket 发送缓冲已满时返回 0，由调用方保留数据稍后重试 (背压)
+ *
+ * @return 写入的字节数；0 表示暂不可写；-1 表示出错
+ */
+JNIEXPORT jint JNICALL
+Java_com_orcterm_core_ssh_SshNative_writeChannelDirect(JNIEnv *env, jobject thiz, jlong handle, jlong channelHandle, jobject buffer, jint offset, jint length) {
+    SshContext *ctx = (SshContext *)handle;
     LIBSSH2_CHANNEL *channel = (LIBSSH2_CHANNEL *)channelHandle;
-    if (channel) {
-        libssh2_channel_close(channel);
-        libssh2_channel_free(channel);
+    if (!ctx || !channel || !buffer || offset < 0 || length <= 0) return -1;
+
+    char *base = (char *)(*env)->GetDirectBufferAddress(env, buffer);
+    jlong capacity = (*env)->GetDirectBufferCapacity(env, buffer);
+    if (!base || capacity < 0 || (jlong)offset + length > capacity) return -1;
+
+    ctx_lock(ctx);
+    ssize_t rc = libssh2_channel_write(channel, base + offset, (size_t)length);
+    ctx_unlock(ctx);
+    if (rc >= 0) return (jint)rc;
+    if (rc == LIBSSH2_ERROR_EAGAIN) return 0;
+    return -1;
+}
+
+/**
+ * 发送通道 EOF (本地一侧已关闭写入)，远端仍可继续发送数据
+ */
+JNIEXPORT jint JNICALL
+Java_com_orcterm_core_ssh_SshNative_sendChannelEof(JNIEnv *env, jobject thiz, jlong handle, jlong channelHandle) {
+    SshContext *ctx = (SshContext *)handle;
+    LIBSSH2_CHANNEL *channel = (LIBSSH2_CHANNEL *)channelHandle;
+    if (!ctx || !channel) return -1;
+    int rc;
+    SSH_RETRY(ctx, rc, libssh2_channel_send_eof(channel));
+    return rc;
+}
+
+/**
+ * 等待一组通道中的任一通道可读 (有数据或已 EOF)、可写 (远端窗口已打开)，或 socket 就绪
+ * 转发引擎的监视线程用它代替逐通道轮询；socket 就绪时数据可能属于任一通道，交由调用方读取推进会话。
+ *
+ * @param readChannels  关注可读的通道句柄，可为 NULL
+ * @param writeChannels 有待写数据、关注窗口的通道句柄，可为 NULL
+ * @return WAIT_READY / WAIT_TIMEOUT，出错返回 WAIT_ERROR
+ */
+JNIEXPORT jint JNICALL
+Java_com_orcterm_core_ssh_SshNative_waitForChannels(JNIEnv *env, jobject thiz, jlong handle, jlongArray readChannels, jlongArray writeChannels, jint timeoutMs) {
+    SshContext *ctx = (SshContext *)handle;
+    if (!ctx || ctx->socket_fd < 0) return WAIT_ERROR;
+
+    jsize read_count = readChannels ? (*env)->GetArrayLength(env, readChannels) : 0;
+    jsize write_count = writeChannels ? (*env)->GetArrayLength(env, writeChannels) : 0;
+    jlong *reads = read_count > 0 ? (*env)->GetLongArrayElements(env, readChannels, NULL) : NULL;
+    jlong *writes = write_count > 0 ? (*env)->GetLongArrayElements(env, writeChannels, NULL) : NULL;
+
+    int result = WAIT_TIMEOUT;
+    long long deadline = now_ms() + (timeoutMs > 0 ? timeoutMs : 0);
+    for (;;) {
+        int pending = 0;
+        ctx_lock(ctx);
+        // 其他线程 (如 Shell 读取) 可能已把数据或窗口调整读入会话缓冲，socket 上不会再有事件
+        for (jsize i = 0; i < read_count && !pending; i++) {
+            LIBSSH2_CHANNEL *channel = (LIBSSH2_CHANNEL *)reads[i];
+            pending = libssh2_poll_channel_read(channel, 0) || libssh2_channel_eof(channel);
+        }
+        int dirs = libssh2_session_block_directions(ctx->session);
+        // 发送缓冲仍有未发出的数据包时窗口再大也写不进去，改由下方等待 POLLOUT
+        for (jsize i = 0; i < write_count && !pending && !(dirs & LIBSSH2_SESSION_BLOCK_OUTBOUND); i++) {
+            pending = libssh2_channel_window_write((LIBSSH2_CHANNEL *)writes[i]) > 0;
+        }
+        pthread_mutex_unlock(&ctx->lock);
+        if (pending) {
+            result = WAIT_READY;
+            break;
+        }
+
+        long long left = deadline - now_ms();
+        if (left <= 0) break;
+        struct pollfd pfd;
+        pfd.fd = ctx->socket_fd;
+        pfd.events = POLLIN;
+        if (ctx_wants_pollout(ctx, dirs)) pfd.events |= POLLOUT;
+        pfd.revents = 0;
+        int rc = poll(&pfd, 1, left < SESSION_WAIT_SLICE_MS ? (int)left : SESSION_WAIT_SLICE_MS);
+        if (rc < 0 && errno != EINTR) {
+            result = WAIT_ERROR;
+            break;
+        }
+        if (rc > 0) {
+            result = (pfd.revents & (POLLERR | POLLNVAL)) ? WAIT_ERROR : WAIT_READY;
+            break;
+        }
+    }
+
+    if (reads) (*env)->ReleaseLongArrayElements(env, readChannels, reads, JNI_ABORT);
+    if (writes) (*env)->ReleaseLongArrayElements(env, writeChannels, writes, JNI_ABORT);
+    return result;
+}
+
+// 远程转发监听的待接受连接队列上限，超出后服务器的连接请求被拒绝
+#define FORWARD_QUEUE_MAXSIZE 16
+
+/**
+ * 请求服务器在 bindHost:bindPort 上监听，连接经 forwarded-tcpip 通道送回本端 (远程端口转发 -R)
+ *
+ * @param bindHost  服务器端绑定地址，NULL 表示所有地址 (受 sshd GatewayPorts 限制)
+ * @param bindPort  服务器端端口，0 表示由服务器分配
+ * @param boundPort 非 NULL 时写回实际绑定的端口
+ * @return 监听句柄，失败返回 0
+ */
+JNIEXPORT jlong JNICALL
+Java_com_orcterm_core_ssh_SshNative_forwardListen(JNIEnv *env, jobject thiz, jlong handle, jstring bindHost, jint bindPort, jintArray boundPort) {
+    SshContext *ctx = (SshContext *)handle;
+    if (!ctx) return 0;
+
+    const char *host = bindHost ? (*env)->GetStringUTFChars(env, bindHost, 0) : NULL;
+    int bound = 0;
+    LIBSSH2_LISTENER *listener;
+    // 闸门包住整个全局请求：tcpip-forward 的进行中状态与应答都在会话上
+    pthread_mutex_lock(&ctx->open_lock);
+    if (global_request_begin(ctx) == 0) {
+        SSH_RETRY_PTR(ctx, listener, libssh2_channel_forward_listen_ex(ctx->session, host, bindPort, &bound, FORWARD_QUEUE_MAXSIZE));
+    } else {
+        // 保活应答迟迟未到，本请求的应答将无法区分
+        LOGE("Forward listen skipped: keepalive replies still outstanding");
+        listener = NULL;
+    }
+    global_request_end(ctx);
+    pthread_mutex_unlock(&ctx->open_lock);
+
+    if (!listener) {
+        LOGE("Forward listen failed on %s:%d", host ? host : "*", bindPort);
+    } else if (boundPort && (*env)->GetArrayLength(env, boundPort) > 0) {
+        jint value = bound;
+        (*env)->SetIntArrayRegion(env, boundPort, 0, 1, &value);
     }
+    if (host) (*env)->ReleaseStringUTFChars(env, bindHost, host);
+    return (jlong)listener;
+}
+
+/**
+ * 非阻塞接受一个远程转发连接
+ * 会顺带处理 socket 上已到达的数据包；队列为空时立即返回。
+ *
+ * @return 通道句柄，无待接受连接返回 0
+ */
+JNIEXPORT jlong JNICALL
+Java_com_orcterm_core_ssh_SshNative_forwardAccept(JNIEnv *env, jobject thiz, jlong handle, jlong listenerHandle) {
+    SshContext *ctx = (SshContext *)handle;
+    LIBSSH2_LISTENER *listener = (LIBSSH2_LISTENER *)listenerHandle;
+    if (!ctx || !listener) return 0;
+
+    ctx_lock(ctx);
+    LIBSSH2_CHANNEL *channel = libssh2_channel_forward_accept(listener);
+    ctx_unlock(ctx);
+    return (jlong)channel;
+}
+
+/**
+ * 取消远程转发监听并释放监听句柄；已接受的通道不受影响，仍需逐个关闭
+ */
+JNIEXPORT void JNICALL
+Java_com_orcterm_core_ssh_SshNative_forwardCancel(JNIEnv *env, jobject thiz, jlong handle, jlong listenerHandle) {
+    SshContext *ctx = (SshContext *)handle;
+    LIBSSH2_LISTENER *listener = (LIBSSH2_LISTENER *)listenerHandle;
+    if (!ctx || !listener) return;
+    int rc;
+    SSH_RETRY(ctx, rc, libssh2_channel_forward_cancel(listener));
 }
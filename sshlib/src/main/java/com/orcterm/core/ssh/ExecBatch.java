@@ -0,0 +1,250 @@
+package com.orcterm.core.ssh;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 批量并行执行
+ * 在同一 SSH 会话上为每条命令打开独立的 exec 通道，最多 {@link #MAX_PARALLEL} 条同时执行，结果按完成顺序回报。
+ * 通道的打开在 JNI 中逐个进行，执行与读取在会话锁释放期间交错，总耗时约为一次往返加最慢的命令，
+ * 而不是逐条执行时的往返之和。
+ * {@link #run} 返回前会取消并等待全部执行线程结束，返回后调用方即可释放会话句柄。
+ *
+ * <pre>
+ * Map&lt;String, ExecResult&gt; results = new ExecBatch.Builder(sshNative, handle)
+ *     .add("host", "hostname")
+ *     .add("kernel", "uname -r")
+ *     .build()
+ *     .run();
+ * </pre>
+ */
+public final class ExecBatch {
+
+    /**
+     * 单条结果回调，在执行线程上调用
+     */
+    public interface Listener {
+        void onResult(String key, ExecResult result);
+    }
+
+    /** 默认等待上限 */
+    public static final long DEFAULT_TIMEOUT_MS = 30_000;
+
+    /** 同时执行的命令数上限 */
+    public static final int MAX_PARALLEL = 4;
+
+    private static final int BUFFER_SIZE = 8192;
+    // 单次等待上限，保证取消能及时生效
+    private static final int WAIT_SLICE_MS = 200;
+
+    private final SshNative sshNative;
+    private final long handle;
+    private final Map<String, String> commands;
+    private final long timeoutMs;
+
+    private ExecBatch(Builder builder) {
+        this.sshNative = builder.sshNative;
+        this.handle = builder.handle;
+        this.commands = new LinkedHashMap<>(builder.commands);
+        this.timeoutMs = builder.timeoutMs;
+    }
+
+    /**
+     * 执行全部命令并等待完成
+     *
+     * @return 按添加顺序排列的结果；超时或失败的命令退出码为 -1
+     */
+    public Map<String, ExecResult> run() throws InterruptedException {
+        return run(null);
+    }
+
+    /**
+     * 执行全部命令，每条完成时回调 listener，并等待全部完成
+     * 超时或被中断时取消未完成的命令 (关闭其通道)，并在返回前等待执行线程全部退出。
+     *
+     * @param listener 单条结果回调，可为 null
+     * @return 按添加顺序排列的结果；超时或失败的命令退出码为 -1
+     */
+    public Map<String, ExecResult> run(Listener listener) throws InterruptedException {
+        Map<String, ExecResult> completed = Collections.synchronizedMap(new LinkedHashMap<>());
+        if (commands.isEmpty()) {
+            return completed;
+        }
+        List<String> keys = new ArrayList<>(commands.keySet());
+        CountDownLatch done = new CountDownLatch(keys.size());
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(keys.size(), MAX_PARALLEL), r -> {
+            Thread thread = new Thread(r, "ExecBatch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (String key : keys) {
+                String command = commands.get(key);
+                executor.execute(() -> {
+                    try {
+                        if (cancelled.get()) {
+                            return;
+                        }
+                        ExecResult result;
+                        try {
+                            result = handle != 0 ? execute(command, deadline, cancelled) : failed("Exec failed");
+                        } catch (RuntimeException e) {
+                            result = failed("Exec failed");
+                        }
+                        if (result == null) {
+                            // 已取消或超时
+                            return;
+                        }
+                        completed.put(key, result);
+                        if (listener != null) {
+                            listener.onResult(key, result);
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            done.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } finally {
+            // 执行线程仍在使用会话句柄，必须全部退出后才能返回
+            cancelled.set(true);
+            executor.shutdownNow();
+            awaitTerminationUninterruptibly(executor);
+        }
+
+        Map<String, ExecResult> ordered = new LinkedHashMap<>();
+        synchronized (completed) {
+            for (String key : keys) {
+                ExecResult result = completed.get(key);
+                ordered.put(key, result != null ? result : failed("Timeout"));
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * 在独立的 exec 通道上执行一条命令并收集全部输出
+     *
+     * @return 执行结果；被取消或超时返回 null
+     */
+    private ExecResult execute(String command, long deadline, AtomicBoolean cancelled) {
+        long startTime = System.currentTimeMillis();
+        long channel = sshNative.execStart(handle, command);
+        if (channel == 0) {
+            return failed("Exec failed");
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        try {
+            boolean stdoutOpen = true;
+            boolean stderrOpen = true;
+            while (stdoutOpen || stderrOpen) {
+                long left = deadline - System.currentTimeMillis();
+                if (cancelled.get() || left <= 0) {
+                    return null;
+                }
+                boolean progressed = false;
+                if (stdoutOpen) {
+                    int n = readInto(channel, SshNative.STREAM_STDOUT, buffer, stdout);
+                    progressed = n > 0;
+                    stdoutOpen = n >= 0;
+                }
+                if (stderrOpen) {
+                    int n = readInto(channel, SshNative.STREAM_STDERR, buffer, stderr);
+                    progressed |= n > 0;
+                    stderrOpen = n >= 0;
+                }
+                if (!progressed && (stdoutOpen || stderrOpen)) {
+                    int wait = (int) Math.max(1, Math.min(WAIT_SLICE_MS, left));
+                    if (sshNative.waitForChannel(handle, channel, wait) == SshNative.WAIT_ERROR) {
+                        return failed("SSH socket poll failed");
+                    }
+                }
+            }
+            int exitCode = sshNative.execWaitClosed(handle, channel);
+            return new ExecResult(exitCode, stdout.toByteArray(), stderr.toByteArray(),
+                    System.currentTimeMillis() - startTime);
+        } finally {
+            sshNative.closeChannel(handle, channel);
+        }
+    }
+
+    private int readInto(long channel, int stream, ByteBuffer buffer, ByteArrayOutputStream target) {
+        int n = sshNative.execRead(handle, channel, stream, buffer, 0, BUFFER_SIZE);
+        if (n > 0) {
+            byte[] chunk = new byte[n];
+            buffer.get(chunk, 0, n).clear();
+            target.write(chunk, 0, n);
+        }
+        return n;
+    }
+
+    private static void awaitTerminationUninterruptibly(ExecutorService executor) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(WAIT_SLICE_MS, TimeUnit.MILLISECONDS)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ExecResult failed(String message) {
+        return new ExecResult(-1, new byte[0], message.getBytes(StandardCharsets.UTF_8), 0);
+    }
+
+    /**
+     * 批量命令构建器
+     */
+    public static final class Builder {
+        private final SshNative sshNative;
+        private final long handle;
+        private final Map<String, String> commands = new LinkedHashMap<>();
+        private long timeoutMs = DEFAULT_TIMEOUT_MS;
+
+        public Builder(SshNative sshNative, long handle) {
+            this.sshNative = sshNative;
+            this.handle = handle;
+        }
+
+        /**
+         * 添加命令，相同 key 会覆盖之前的命令
+         */
+        public Builder add(String key, String command) {
+            commands.put(key, command);
+            return this;
+        }
+
+        /**
+         * 等待全部结果的上限，超时未完成的命令以失败结果返回
+         */
+        public Builder timeoutMs(long timeoutMs) {
+            this.timeoutMs = Math.max(1, timeoutMs);
+            return this;
+        }
+
+        public ExecBatch build() {
+            return new ExecBatch(this);
+        }
+    }
+}
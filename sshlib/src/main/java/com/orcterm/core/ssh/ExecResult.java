@@ -0,0 +1,61 @@
+package com.orcterm.core.ssh;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 命令执行结果
+ * 由 JNI 层直接构造：stdout/stderr 为远端输出的原始字节，不经过 JSON 转义与再解析，
+ * 字符集解码在 Java 侧按需进行 (非法序列替换为 U+FFFD)。
+ */
+public final class ExecResult {
+
+    private final int exitCode;
+    private final byte[] stdout;
+    private final byte[] stderr;
+    private final long durationMs;
+
+    // JNI: SshNative.execWithResult 通过此构造函数创建
+    ExecResult(int exitCode, byte[] stdout, byte[] stderr, long durationMs) {
+        this.exitCode = exitCode;
+        this.stdout = stdout != null ? stdout : new byte[0];
+        this.stderr = stderr != null ? stderr : new byte[0];
+        this.durationMs = durationMs;
+    }
+
+    /** 退出码；通道打开或命令启动失败时为 -1 */
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    public boolean isSuccess() {
+        return exitCode == 0;
+    }
+
+    /** 标准输出原始字节 (不拷贝，调用方不应修改) */
+    public byte[] getStdout() {
+        return stdout;
+    }
+
+    /** 标准错误原始字节 (不拷贝，调用方不应修改) */
+    public byte[] getStderr() {
+        return stderr;
+    }
+
+    public String getStdoutText() {
+        return getStdoutText(StandardCharsets.UTF_8);
+    }
+
+    public String getStdoutText(Charset charset) {
+        return new String(stdout, charset);
+    }
+
+    public String getStderrText() {
+        return new String(stderr, StandardCharsets.UTF_8);
+    }
+
+    /** 从打开通道到取得退出码的耗时 (毫秒) */
+    public long getDurationMs() {
+        return durationMs;
+    }
+}
@@ -0,0 +1,215 @@
+package com.orcterm.core.ssh;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流式命令执行
+ * 在共享的 SSH 句柄上打开独立的 exec 通道，stdout/stderr 数据到达即回调，不在内存中累积整个输出，
+ * 适合 "docker logs -f"、"journalctl -f" 等持续输出或大量输出的命令。
+ * 支持取消 (关闭通道) 与超时，结束时回报退出码与退出信号。
+ * 回调在后台读取线程上执行，回调中的数组会被复用，需要保留时请自行拷贝。
+ */
+public final class ExecStream implements Closeable {
+
+    /**
+     * 输出与结束回调
+     */
+    public interface Listener {
+        /** 收到标准输出数据，仅 data[0, length) 有效 */
+        void onStdout(byte[] data, int length);
+
+        /** 收到标准错误数据，仅 data[0, length) 有效 */
+        void onStderr(byte[] data, int length);
+
+        /** 命令结束、被取消、超时或出错，只回调一次 */
+        void onExit(ExecStream stream);
+    }
+
+    /** 无超时 */
+    public static final long NO_TIMEOUT = 0;
+
+    private static final int BUFFER_SIZE = 8192;
+    // 单次等待上限，保证取消与超时能及时生效
+    private static final int WAIT_SLICE_MS = 200;
+
+    private static final ExecutorService READER_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "ExecStream");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final SshNative sshNative;
+    private final long handle;
+    private final String command;
+    private final long timeoutMs;
+    private final Listener listener;
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    private volatile long channel;
+    private volatile boolean cancelled;
+    private volatile boolean timedOut;
+    private volatile int exitStatus = -1;
+    private volatile String exitSignal;
+    private volatile String error;
+    private final long startTimeMs = System.currentTimeMillis();
+    private volatile long durationMs;
+
+    private ExecStream(SshNative sshNative, long handle, String command, long timeoutMs, Listener listener) {
+        this.sshNative = sshNative;
+        this.handle = handle;
+        this.command = command;
+        this.timeoutMs = timeoutMs;
+        this.listener = listener;
+    }
+
+    /**
+     * 启动命令并在后台读取输出
+     *
+     * @param sshNative JNI 接口
+     * @param handle    已认证的会话句柄，可与 Shell 共享
+     * @param command   要执行的命令
+     * @param timeoutMs 超时毫秒数，{@link #NO_TIMEOUT} 表示不限
+     * @param listener  输出回调
+     * @return 运行中的执行流
+     * @throws IOException 通道打开或命令启动失败
+     */
+    public static ExecStream start(SshNative sshNative, long handle, String command, long timeoutMs, Listener listener) throws IOException {
+        if (handle == 0) {
+            throw new IOException("SSH not connected");
+        }
+        ExecStream stream = new ExecStream(sshNative, handle, command, timeoutMs, listener);
+        long channel = sshNative.execStart(handle, command);
+        if (channel == 0) {
+            throw new IOException("Exec start failed: " + command);
+        }
+        stream.channel = channel;
+        READER_EXECUTOR.execute(stream::pump);
+        return stream;
+    }
+
+    private void pump() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        byte[] chunk = new byte[BUFFER_SIZE];
+        boolean stdoutOpen = true;
+        boolean stderrOpen = true;
+        try {
+            while (!cancelled && (stdoutOpen || stderrOpen)) {
+                if (timeoutMs > 0 && System.currentTimeMillis() - startTimeMs >= timeoutMs) {
+                    timedOut = true;
+                    break;
+                }
+                boolean progressed = false;
+                if (stdoutOpen) {
+                    int n = sshNative.execRead(handle, channel, SshNative.STREAM_STDOUT, buffer, 0, BUFFER_SIZE);
+                    if (n > 0) {
+                        buffer.get(chunk, 0, n).clear();
+                        listener.onStdout(chunk, n);
+                        progressed = true;
+                    } else if (n < 0) {
+                        stdoutOpen = false;
+                    }
+                }
+                if (stderrOpen && !cancelled) {
+                    int n = sshNative.execRead(handle, channel, SshNative.STREAM_STDERR, buffer, 0, BUFFER_SIZE);
+                    if (n > 0) {
+                        buffer.get(chunk, 0, n).clear();
+                        listener.onStderr(chunk, n);
+                        progressed = true;
+                    } else if (n < 0) {
+                        stderrOpen = false;
+                    }
+                }
+                if (!progressed && (stdoutOpen || stderrOpen) && !cancelled) {
+                    int wait = WAIT_SLICE_MS;
+                    if (timeoutMs > 0) {
+                        long left = timeoutMs - (System.currentTimeMillis() - startTimeMs);
+                        wait = (int) Math.max(1, Math.min(wait, left));
+                    }
+                    if (sshNative.waitForChannel(handle, channel, wait) == SshNative.WAIT_ERROR) {
+                        error = "SSH socket poll failed";
+                        break;
+                    }
+                }
+            }
+            if (!cancelled && !timedOut && error == null) {
+                exitStatus = sshNative.execWaitClosed(handle, channel);
+                exitSignal = sshNative.execExitSignal(handle, channel);
+            }
+        } catch (RuntimeException e) {
+            error = e.getMessage();
+        } finally {
+            long ch = channel;
+            channel = 0;
+            if (ch != 0) {
+                sshNative.closeChannel(handle, ch);
+            }
+            durationMs = System.currentTimeMillis() - startTimeMs;
+            finished.countDown();
+            listener.onExit(this);
+        }
+    }
+
+    /**
+     * 取消执行：关闭通道，远端进程收到 EOF/SIGPIPE 后结束
+     * 读取线程会在下一个等待片段内退出并回调 onExit。
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    @Override
+    public void close() {
+        cancel();
+    }
+
+    /**
+     * 等待命令结束
+     *
+     * @return true 表示已结束，false 表示等待超时
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+    public boolean isRunning() {
+        return finished.getCount() > 0;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    /** 退出码；取消、超时或出错时为 -1 */
+    public int getExitStatus() {
+        return exitStatus;
+    }
+
+    /** 终止命令的信号名，正常退出为 null */
+    public String getExitSignal() {
+        return exitSignal;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /** 读取出错时的描述，正常结束为 null */
+    public String getError() {
+        return error;
+    }
+
+    /** 从启动到结束的耗时 (毫秒)，运行中为 0 */
+    public long getDurationMs() {
+        return durationMs;
+    }
+}
@@ -0,0 +1,68 @@
+package com.orcterm.core.ssh;
+
+/**
+ * 本地伪终端 (PTY) 接口
+ * 通过 forkpty 在新的伪终端中启动本地 Shell，主设备 fd 为非阻塞模式，
+ * 可与 SSH 会话一起由会话反应器 poll。与 {@link SshNative} 共用 'orcterm-jni' 动态库。
+ */
+public class PtyNative {
+    static {
+        System.loadLibrary("orcterm-jni");
+    }
+
+    /**
+     * 在新的伪终端中启动进程
+     *
+     * @param path   可执行文件路径
+     * @param argv   参数 (含 argv[0])
+     * @param envp   环境变量 (KEY=VALUE)
+     * @param cwd    工作目录，null 表示继承
+     * @param cols   列数
+     * @param rows   行数
+     * @param pidOut 返回子进程 pid，长度不小于 1
+     * @return 主设备 fd，失败返回 -1
+     */
+    public native int open(String path, String[] argv, String[] envp, String cwd, int cols, int rows, int[] pidOut);
+
+    /**
+     * 调整窗口大小 (TIOCSWINSZ)，前台进程组随之收到 SIGWINCH
+     *
+     * @return 0 成功，-1 失败
+     */
+    public native int resize(int fd, int cols, int rows);
+
+    /**
+     * 非阻塞读取到 direct ByteBuffer (零拷贝)，不修改 position/limit
+     *
+     * @return 读取的字节数；0 表示暂无数据；-1 表示进程已退出或出错
+     */
+    public native int readDirect(int fd, java.nio.ByteBuffer buffer, int offset, int length);
+
+    /**
+     * 非阻塞读取到字节数组
+     *
+     * @return 读取的字节数；0 表示暂无数据；-1 表示进程已退出或出错
+     */
+    public native int read(int fd, byte[] buffer, int offset, int length);
+
+    /**
+     * 非阻塞写入
+     *
+     * @return 写入的字节数；0 表示暂不可写；-1 表示出错
+     */
+    public native int write(int fd, byte[] data, int offset, int length);
+
+    /**
+     * 等待主设备可读或可写
+     *
+     * @param forWrite  true 等待可写，false 等待可读
+     * @param timeoutMs 超时毫秒数，负数表示无限等待
+     * @return 1 就绪 (含进程退出)；0 超时；-1 出错
+     */
+    public native int poll(int fd, boolean forWrite, int timeoutMs);
+
+    /**
+     * 关闭主设备并回收子进程 (SIGHUP，未及时退出则 SIGKILL)
+     */
+    public native void close(int fd, int pid);
+}
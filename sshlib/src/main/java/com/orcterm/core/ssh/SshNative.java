@@ -4,6 +4,8 @@ package com.orcterm.core.ssh;
  * SSH 本地接口类
  * 负责调用 JNI 层实现 SSH 连接、Shell 会话、SFTP 文件操作及端口转发功能。
  * 通过加载 'orcterm-jni' 动态库与底层 C 代码交互。
+ * 同一句柄上的 Shell、Exec、SFTP 与转发通道可以在不同线程并发调用：
+ * 底层会话由每个连接的锁串行访问，等待网络时释放锁，长时间的 Exec/SFTP 不会阻塞 Shell 输入输出。
  */
 public class SshNative {
     static {
@@ -22,6 +24,80 @@ public class SshNative {
      */
     public native long connect(String host, int port);
 
+    /** connectWithOptions: 请求传输压缩 (zlib@openssh.com / zlib) */
+    public static final int CONNECT_COMPRESS = 1;
+
+    /**
+     * 按选项连接到 SSH 服务器
+     * 选项与算法偏好在握手前生效，服务器不支持时按协商结果回退。
+     * 算法偏好为逗号分隔的 SSH 算法名，按优先级排列，本地不支持的名称会被忽略；null 或空串表示默认顺序。
+     *
+     * @param host    主机名或 IP 地址
+     * @param port    端口号
+     * @param flags   CONNECT_* 标志组合
+     * @param ciphers 加密算法偏好 (如 "aes128-gcm@openssh.com,aes128-ctr")
+     * @param macs    MAC 算法偏好
+     * @param kex     密钥交换算法偏好
+     * @return 会话上下文句柄，连接失败返回 0
+     */
+    public native long connectWithOptions(String host, int port, int flags, String ciphers, String macs, String kex);
+
+    /**
+     * 经跳板机连接 (ProxyJump)：在跳板会话的 direct-tcpip 通道上完成 SSH 握手
+     * 返回的句柄与 connect 的结果用法相同 (主机密钥校验、认证、Shell)。
+     * 通道的所有权转移给新会话，失败时一并关闭；跳板会话须在新会话 disconnect 之后才能断开。
+     *
+     * @param outerHandle   已认证的跳板会话句柄
+     * @param channelHandle 跳板会话上到目标 SSH 端口的通道 (openDirectTcpIp)
+     * @param flags         CONNECT_* 标志组合
+     * @param ciphers       加密算法偏好
+     * @param macs          MAC 算法偏好
+     * @param kex           密钥交换算法偏好
+     * @return 会话上下文句柄，握手失败返回 0
+     */
+    public native long connectViaChannel(long outerHandle, long channelHandle, int flags, String ciphers, String macs, String kex);
+
+    /** getSessionMethod: 密钥交换 */
+    public static final int METHOD_KEX = 0;
+    /** getSessionMethod: 主机密钥 */
+    public static final int METHOD_HOSTKEY = 1;
+    /** getSessionMethod: 加密 (客户端到服务器) */
+    public static final int METHOD_CRYPT_CS = 2;
+    /** getSessionMethod: 加密 (服务器到客户端) */
+    public static final int METHOD_CRYPT_SC = 3;
+    /** getSessionMethod: MAC (客户端到服务器) */
+    public static final int METHOD_MAC_CS = 4;
+    /** getSessionMethod: MAC (服务器到客户端) */
+    public static final int METHOD_MAC_SC = 5;
+    /** getSessionMethod: 压缩 (客户端到服务器) */
+    public static final int METHOD_COMP_CS = 6;
+    /** getSessionMethod: 压缩 (服务器到客户端) */
+    public static final int METHOD_COMP_SC = 7;
+
+    /**
+     * 获取握手协商出的算法
+     *
+     * @param handle 会话句柄
+     * @param type   METHOD_* 常量
+     * @return 算法名 (压缩未启用时为 "none")，未知时返回 null
+     */
+    public native String getSessionMethod(long handle, int type);
+
+    /**
+     * 配置之后建立的 TCP 连接 (进程级)
+     * 解析结果在进程内缓存，IPv6/IPv4 多地址按 Happy Eyeballs 错开并行连接，socket 启用 TCP_NODELAY。
+     *
+     * @param connectTimeoutMs   TCP 连接超时毫秒数，0 表示不限
+     * @param sendBufferBytes    SO_SNDBUF 大小，0 表示系统默认
+     * @param receiveBufferBytes SO_RCVBUF 大小，0 表示系统默认
+     */
+    public static native void configureSocket(int connectTimeoutMs, int sendBufferBytes, int receiveBufferBytes);
+
+    /**
+     * 清空 DNS 缓存 (如网络切换后)
+     */
+    public static native void clearDnsCache();
+
     /**
      * 使用密码验证身份
      *
@@ -72,11 +148,70 @@ public class SshNative {
      *
      * @param handle  会话句柄
      * @param command 要执行的命令字符串
-     * @return 命令的标准输出结果
+     * @return 命令的标准输出结果 (按 UTF-8 解码)
      */
     public native String exec(long handle, String command);
 
-    public native String execWithResult(long handle, String command);
+    /**
+     * 执行命令并返回完整结果
+     * 退出码与 stdout/stderr 原始字节由 JNI 直接填入 {@link ExecResult}，解码在 Java 侧进行。
+     *
+     * @param handle  会话句柄
+     * @param command 要执行的命令字符串
+     * @return 执行结果，通道打开或命令启动失败时退出码为 -1
+     */
+    public native ExecResult execWithResult(long handle, String command);
+
+    /**
+     * 启动流式执行
+     * 立即返回通道句柄，输出通过 {@link #execRead} 增量读取；一般经由 {@link ExecStream} 使用。
+     *
+     * @param handle  会话句柄
+     * @param command 要执行的命令字符串
+     * @return 通道句柄，失败返回 0
+     */
+    public native long execStart(long handle, String command);
+
+    /** execRead: 标准输出 */
+    public static final int STREAM_STDOUT = 0;
+    /** execRead: 标准错误 */
+    public static final int STREAM_STDERR = 1;
+
+    /**
+     * 从执行通道的 stdout/stderr 非阻塞读取到 direct ByteBuffer
+     * 不修改 ByteBuffer 的 position/limit。
+     *
+     * @param handle        会话句柄
+     * @param channelHandle 通道句柄
+     * @param stream        {@link #STREAM_STDOUT} 或 {@link #STREAM_STDERR}
+     * @param buffer        direct ByteBuffer
+     * @param offset        写入起始偏移
+     * @param length        最多读取的字节数
+     * @return 读取的字节数；0 表示暂无数据；-1 表示已结束或出错
+     */
+    public native int execRead(long handle, long channelHandle, int stream, java.nio.ByteBuffer buffer, int offset, int length);
+
+    /**
+     * 等待通道有输出或到达 EOF
+     *
+     * @param handle        会话句柄
+     * @param channelHandle 通道句柄
+     * @param timeoutMs     超时毫秒数
+     * @return WAIT_READY / WAIT_TIMEOUT / WAIT_ERROR
+     */
+    public native int waitForChannel(long handle, long channelHandle, int timeoutMs);
+
+    /**
+     * 关闭执行通道并等待远端确认，通道仍需 {@link #closeChannel} 释放
+     *
+     * @return 命令退出码
+     */
+    public native int execWaitClosed(long handle, long channelHandle);
+
+    /**
+     * 获取终止命令的信号名 (如 "TERM")，正常退出返回 null
+     */
+    public native String execExitSignal(long handle, long channelHandle);
 
     /**
      * SFTP: 列出目录内容
@@ -100,6 +235,18 @@ public class SshNative {
      */
     public native int write(long handle, byte[] data);
 
+    /**
+     * 非阻塞写入 Shell 通道
+     * 暂不可写时返回 0，调用方保留未写出的部分，待会话 socket 就绪后以相同数据重试。
+     *
+     * @param handle 会话句柄
+     * @param data   要发送的字节数据
+     * @param offset 起始偏移
+     * @param length 字节数
+     * @return 写入的字节数；0 表示暂不可写；-1 表示出错
+     */
+    public native int writeNonBlocking(long handle, byte[] data, int offset, int length);
+
     /**
      * 从 Shell 通道读取数据
      *
@@ -108,6 +255,78 @@ public class SshNative {
      */
     public native byte[] read(long handle);
 
+    /** readDirect：远端关闭通道 (Shell 退出) */
+    public static final int READ_EOF = -1;
+    /** readDirect：传输层错误 (连接断开)，区别于正常的通道关闭 */
+    public static final int READ_ERROR = -2;
+
+    /**
+     * 从 Shell 通道直接读取到 direct ByteBuffer (零拷贝)
+     * libssh2_channel_read 直接写入缓冲区内存，不分配 Java 数组。
+     * 不修改 ByteBuffer 的 position/limit，由调用方维护。
+     *
+     * @param handle 会话句柄
+     * @param buffer 调用方持有的 direct ByteBuffer
+     * @param offset 写入起始偏移
+     * @param length 最多读取的字节数
+     * @return 读取的字节数；0 表示暂无数据；{@link #READ_EOF} 表示通道已关闭；{@link #READ_ERROR} 表示连接出错
+     */
+    public native int readDirect(long handle, java.nio.ByteBuffer buffer, int offset, int length);
+
+    /** waitForData: 出错 */
+    public static final int WAIT_ERROR = -1;
+    /** waitForData: 超时 */
+    public static final int WAIT_TIMEOUT = 0;
+    /** waitForData: socket 可读 (或需要写出) */
+    public static final int WAIT_READY = 1;
+    /** waitForData: 被 wakeup 唤醒 */
+    public static final int WAIT_WOKEN = 2;
+
+    /**
+     * 等待 Shell 数据到达
+     * 按 libssh2 阻塞方向在 socket 上 poll，线程在内核中休眠，不占用 CPU。
+     *
+     * @param handle    会话句柄
+     * @param timeoutMs 超时毫秒数，负数表示无限等待
+     * @return WAIT_READY / WAIT_TIMEOUT / WAIT_WOKEN / WAIT_ERROR
+     */
+    public native int waitForData(long handle, int timeoutMs);
+
+    /**
+     * 唤醒阻塞在 {@link #waitForData} 中的线程 (用于断开连接或取消)
+     *
+     * @param handle 会话句柄
+     */
+    public native void wakeup(long handle);
+
+    /**
+     * 创建会话反应器：一个线程在一次 poll 中等待多个会话
+     *
+     * @return 反应器句柄，失败返回 0
+     */
+    public native long reactorCreate();
+
+    /**
+     * 唤醒阻塞在 {@link #reactorPoll} 中的线程 (注册变化或有待写数据)
+     *
+     * @param reactorHandle 反应器句柄
+     */
+    public native void reactorWakeup(long reactorHandle);
+
+    /**
+     * 等待一组会话中任一会话的 socket 就绪、通道缓冲中有数据或会话被 {@link #wakeup} 唤醒
+     * 句柄为 0 的项改为等待 fds 中对应的 fd 可读 (如本地 PTY 主设备)。
+     *
+     * @param reactorHandle 反应器句柄
+     * @param handles       会话句柄，调用期间不得断开
+     * @param fds           句柄为 0 的项所等待的 fd，调用期间不得关闭
+     * @param count         会话数
+     * @param timeoutMs     超时毫秒数，负数表示无限等待
+     * @param ready         返回时就绪的会话置 1，其余置 0
+     * @return 就绪的会话数；超时或被 {@link #reactorWakeup} 唤醒时为 0；出错返回 -1
+     */
+    public native int reactorPoll(long reactorHandle, long[] handles, int[] fds, int count, int timeoutMs, int[] ready);
+
     /**
      * 断开连接并释放资源
      * 关闭通道、会话和 Socket，释放本地内存。
@@ -124,6 +343,23 @@ public class SshNative {
 
     public native int sendKeepalive(long handle);
 
+    /** keepaliveTick 结果：已超过一个间隔仍未应答的保活数 */
+    public static final int KEEPALIVE_MISSED = 0;
+    /** keepaliveTick 结果：本次收到的应答数 */
+    public static final int KEEPALIVE_RTT_COUNT = 1;
+    /** keepaliveTick 结果：各应答的往返毫秒数自此位置起依次存放 */
+    public static final int KEEPALIVE_RTT_START = 2;
+
+    /**
+     * 推进保活：收取已到达的保活应答并记录往返时间，到期时发送下一次保活 (want-reply 由 setKeepaliveConfig 设置)
+     * 需在会话有事件时调用以及时收取应答；发送时间由 libssh2_keepalive_send 给出的间隔决定。
+     *
+     * @param handle 会话句柄
+     * @param result 结果数组，布局见 {@link #KEEPALIVE_MISSED} 等常量，长度决定最多返回的样本数
+     * @return 距下次发送的秒数；未开启保活为 0；出错返回 -1
+     */
+    public native int keepaliveTick(long handle, int[] result);
+
     public native int knownHostsCheck(long handle, String host, int port, String knownHostsPath);
 
     public native int knownHostsAdd(long handle, String host, int port, String knownHostsPath, String comment);
@@ -163,6 +399,18 @@ public class SshNative {
      */
     public native long openDirectTcpIp(long handle, String targetHost, int targetPort);
 
+    /** 服务器拒绝打开通道 (libssh2 LIBSSH2_ERROR_CHANNEL_FAILURE)，会话本身仍可用 */
+    public static final int ERROR_CHANNEL_FAILURE = -21;
+
+    /**
+     * 同 {@link #openDirectTcpIp}，失败时写回 libssh2 错误码
+     * 可据此区分服务器拒绝 ({@link #ERROR_CHANNEL_FAILURE}) 与会话传输失效 (socket 错误或等待超时)。
+     *
+     * @param error 长度至少为 1 时写回错误码，成功为 0
+     * @return 通道句柄 (Channel 指针)，失败返回 0
+     */
+    public native long openDirectTcpIpWithError(long handle, String targetHost, int targetPort, int[] error);
+
     /**
      * 写入数据到指定通道
      * 用于端口转发的数据发送。
@@ -187,7 +435,67 @@ public class SshNative {
     /**
      * 关闭指定通道
      *
+     * @param handle        会话句柄
+     * @param channelHandle 通道句柄
+     */
+    public native void closeChannel(long handle, long channelHandle);
+
+    /**
+     * 非阻塞写入通道，数据取自 direct ByteBuffer
+     * 不修改 ByteBuffer 的 position/limit。远端窗口耗尽时返回 0，调用方应保留数据稍后重试。
+     *
+     * @param handle        会话句柄
      * @param channelHandle 通道句柄
+     * @param buffer        direct ByteBuffer
+     * @param offset        读取起始偏移
+     * @param length        最多写入的字节数
+     * @return 写入的字节数；0 表示暂不可写；-1 表示出错
+     */
+    public native int writeChannelDirect(long handle, long channelHandle, java.nio.ByteBuffer buffer, int offset, int length);
+
+    /**
+     * 发送通道 EOF，表示本地不再写入；远端数据仍可继续读取
+     *
+     * @return 0 成功，负数为 libssh2 错误码
+     */
+    public native int sendChannelEof(long handle, long channelHandle);
+
+    /**
+     * 等待一组通道中任一通道可读、可写 (远端窗口打开)，或会话 socket 就绪
+     *
+     * @param handle        会话句柄
+     * @param readChannels  关注可读的通道句柄，可为 null
+     * @param writeChannels 有待写数据的通道句柄，可为 null
+     * @param timeoutMs     超时毫秒数
+     * @return WAIT_READY / WAIT_TIMEOUT / WAIT_ERROR
+     */
+    public native int waitForChannels(long handle, long[] readChannels, long[] writeChannels, int timeoutMs);
+
+    /**
+     * 请求服务器监听端口 (远程端口转发 -R)，连接以 forwarded-tcpip 通道送回
+     *
+     * @param handle    会话句柄
+     * @param bindHost  服务器端绑定地址，null 表示所有地址
+     * @param bindPort  服务器端端口，0 表示由服务器分配
+     * @param boundPort 长度至少为 1 时写回实际绑定的端口，可为 null
+     * @return 监听句柄，失败返回 0
+     */
+    public native long forwardListen(long handle, String bindHost, int bindPort, int[] boundPort);
+
+    /**
+     * 非阻塞接受一个远程转发连接
+     *
+     * @param handle         会话句柄
+     * @param listenerHandle 监听句柄
+     * @return 通道句柄，无待接受连接返回 0
+     */
+    public native long forwardAccept(long handle, long listenerHandle);
+
+    /**
+     * 取消远程转发监听并释放监听句柄，已接受的通道需另行关闭
+     *
+     * @param handle         会话句柄
+     * @param listenerHandle 监听句柄
      */
-    public native void closeChannel(long channelHandle);
+    public native void forwardCancel(long handle, long listenerHandle);
 }
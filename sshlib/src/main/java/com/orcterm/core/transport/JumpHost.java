@@ -0,0 +1,22 @@
+package com.orcterm.core.transport;
+
+/**
+ * 跳板机 (ProxyJump) 连接来源
+ * SshTransport 连接时从这里取得已认证的跳板会话，在其上打开到目标的 direct-tcpip 通道并建立内层会话，
+ * 内层会话断开后归还。实现可让同一跳板机后的多个目标共享一条跳板连接。
+ */
+public interface JumpHost {
+    /**
+     * 获取已认证的跳板会话句柄，可能需要建立连接，不要在主线程调用
+     *
+     * @throws Exception 跳板机连接或认证失败
+     */
+    long acquire() throws Exception;
+
+    /**
+     * 归还 {@link #acquire()} 得到的句柄
+     *
+     * @param broken 跳板连接已不可用，不应再被复用
+     */
+    void release(long handle, boolean broken);
+}
@@ -1,64 +1,137 @@
 package com.orcterm.core.transport;
 
-import java.io.InputStream;
-import java.io.OutputStream;
+import com.orcterm.core.ssh.PtyNative;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
  * 本地 Shell 传输实现
+ * Shell 运行在 forkpty 创建的真实伪终端中：支持窗口大小调整 (TIOCSWINSZ)、作业控制与行编辑；
+ * 主设备 fd 为非阻塞模式，与 SSH 会话一样由会话反应器 poll 后读写。
  */
-public class LocalTransport implements Transport {
-    private Process process;
-    private InputStream input;
-    private OutputStream output;
+public class LocalTransport implements NonBlockingTransport {
+    private static final String SHELL = "/system/bin/sh";
+    // 首次 resize 之前使用的窗口大小
+    private static final int DEFAULT_COLS = 80;
+    private static final int DEFAULT_ROWS = 24;
+    // 阻塞写入时每次等待可写的上限
+    private static final int WRITE_WAIT_MS = 1000;
+
+    private final PtyNative ptyNative = new PtyNative();
+    private volatile int masterFd = -1;
+    private int pid = -1;
     private volatile boolean connected = false;
 
     @Override
     public void connect(String host, int port, String user, String password, int authType, String keyPath) throws Exception {
-        ProcessBuilder pb = new ProcessBuilder("/system/bin/sh");
-        Map<String, String> env = pb.environment();
-        env.put("TERM", "xterm-256color");
-        // env.put("HOME", "/sdcard"); // Optional
-        
-        // Redirect error stream to input stream to capture stderr
-        pb.redirectErrorStream(true);
-        
-        process = pb.start();
-        input = process.getInputStream();
-        output = process.getOutputStream();
+        List<String> env = new ArrayList<>();
+        for (Map.Entry<String, String> entry : System.getenv().entrySet()) {
+            if (!"TERM".equals(entry.getKey())) {
+                env.add(entry.getKey() + "=" + entry.getValue());
+            }
+        }
+        env.add("TERM=xterm-256color");
+
+        int[] pidOut = new int[1];
+        int fd = ptyNative.open(SHELL, new String[]{"sh"}, env.toArray(new String[0]), null,
+                DEFAULT_COLS, DEFAULT_ROWS, pidOut);
+        if (fd < 0) {
+            throw new IOException("Failed to start local shell");
+        }
+        pid = pidOut[0];
+        masterFd = fd;
         connected = true;
     }
 
     @Override
     public void disconnect() {
-        if (process != null) {
-            process.destroy();
-            process = null;
-        }
         connected = false;
+        int fd = masterFd;
+        masterFd = -1;
+        if (fd >= 0) {
+            ptyNative.close(fd, pid);
+            pid = -1;
+        }
     }
 
     @Override
     public void write(byte[] data) throws Exception {
-        if (output != null) {
-            output.write(data);
-            output.flush();
+        int offset = 0;
+        while (offset < data.length) {
+            int written = writeNonBlocking(data, offset, data.length - offset);
+            if (written == 0) {
+                ptyNative.poll(masterFd, true, WRITE_WAIT_MS);
+            }
+            offset += written;
         }
     }
 
+    @Override
+    public int writeNonBlocking(byte[] data, int offset, int length) throws IOException {
+        int fd = masterFd;
+        if (!connected || fd < 0) {
+            throw new IOException("Local shell not running");
+        }
+        int written = ptyNative.write(fd, data, offset, length);
+        if (written < 0) {
+            throw new IOException("Local shell write failed");
+        }
+        return written;
+    }
+
     @Override
     public int read(byte[] buffer) throws Exception {
-        if (input == null) return -1;
-        return input.read(buffer);
+        int fd = masterFd;
+        if (!connected || fd < 0) return -1;
+        return ptyNative.read(fd, buffer, 0, buffer.length);
+    }
+
+    @Override
+    public int read(java.nio.ByteBuffer buffer) throws Exception {
+        if (!buffer.isDirect()) {
+            return NonBlockingTransport.super.read(buffer);
+        }
+        if (!buffer.hasRemaining()) return 0;
+        int fd = masterFd;
+        if (!connected || fd < 0) return -1;
+        int read = ptyNative.readDirect(fd, buffer, buffer.position(), buffer.remaining());
+        if (read > 0) {
+            buffer.position(buffer.position() + read);
+        }
+        return read;
+    }
+
+    @Override
+    public boolean waitForData(int timeoutMs) throws Exception {
+        int fd = masterFd;
+        if (!connected || fd < 0) {
+            throw new IOException("Local shell not running");
+        }
+        int result = ptyNative.poll(fd, false, timeoutMs);
+        if (result < 0) {
+            throw new IOException("Local shell poll failed");
+        }
+        return result > 0;
     }
 
     @Override
     public void resize(int cols, int rows) {
-        // Java Process 无法直接调整 PTY，当前实现忽略
+        int fd = masterFd;
+        if (connected && fd >= 0) {
+            ptyNative.resize(fd, cols, rows);
+        }
     }
 
     @Override
     public boolean isConnected() {
-        return connected && process != null && (android.os.Build.VERSION.SDK_INT >= 26 ? process.isAlive() : true);
+        return connected;
+    }
+
+    @Override
+    public int getPollFd() {
+        return masterFd;
     }
 }
@@ -0,0 +1,28 @@
+package com.orcterm.core.transport;
+
+import java.io.IOException;
+
+/**
+ * 可由共享 I/O 反应器驱动的传输
+ * read 不阻塞 (暂无数据返回 0)；反应器在 {@link #getHandle()} 对应的 SSH 会话或
+ * {@link #getPollFd()} 返回的 fd 上等待就绪，读写都在反应器线程上完成。
+ */
+public interface NonBlockingTransport extends Transport {
+
+    /**
+     * 非阻塞写入
+     *
+     * @return 写入的字节数；0 表示暂不可写，需保留剩余数据稍后以相同内容重试
+     * @throws IOException 连接已断开或写入失败
+     */
+    int writeNonBlocking(byte[] data, int offset, int length) throws IOException;
+
+    /**
+     * 反应器直接 poll 的 fd (getHandle 为 0 时使用)
+     *
+     * @return fd，-1 表示无
+     */
+    default int getPollFd() {
+        return -1;
+    }
+}
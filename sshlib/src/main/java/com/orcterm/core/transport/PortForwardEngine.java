@@ -0,0 +1,978 @@
+package com.orcterm.core.transport;
+
+import android.util.Log;
+
+import com.orcterm.core.ssh.SshNative;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端口转发引擎
+ * 所有本地监听与连接由单个 NIO Selector 线程以非阻塞方式处理，SSH 通道的读写同样在该线程上非阻塞进行；
+ * 监视线程在会话 socket 上等待 (waitForChannels)，通道有数据或远端窗口打开时唤醒选择器线程。
+ * 通道的打开与关闭需要与服务器往返，交给小线程池完成，不阻塞其他连接的数据转发。
+ * 远程转发 (-R) 由服务器监听，选择器线程在每轮推进时非阻塞地接受新通道，再以非阻塞 connect 连接本地目标。
+ *
+ * 背压：通道窗口耗尽时暂停读取本地 socket；本地 socket 写不动时暂停读取通道，使远端窗口不再扩大。
+ */
+final class PortForwardEngine {
+
+    private static final String TAG = "PortForward";
+
+    // 每个方向一块缓冲，与 libssh2 单个数据包的负载上限相当
+    private static final int BUFFER_SIZE = 32 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 64;
+    // 监视线程单次等待上限，也决定了通道集合变化后最迟多久被纳入等待
+    private static final int WATCH_TIMEOUT_MS = 100;
+    private static final int CHANNEL_THREADS = 4;
+    private static final long[] NO_CHANNELS = new long[0];
+
+    private static final int STATE_SOCKS_GREETING = 0;
+    private static final int STATE_SOCKS_REQUEST = 1;
+    private static final int STATE_OPENING = 2;
+    private static final int STATE_OPEN = 3;
+    private static final int STATE_CONNECTING = 4;
+
+    private static final byte[] SOCKS_NO_AUTH = {0x05, 0x00};
+    private static final byte[] SOCKS_SUCCEEDED = {0x05, 0x00, 0x00, 0x01, 0, 0, 0, 0, 0, 0};
+    private static final byte[] SOCKS_FAILED = {0x05, 0x01, 0x00, 0x01, 0, 0, 0, 0, 0, 0};
+
+    private final SshNative sshNative;
+    private final long sshHandle;
+    private final Selector selector;
+    private final Thread selectorThread;
+    private final Thread watcherThread;
+    private final ExecutorService channelExecutor = Executors.newFixedThreadPool(CHANNEL_THREADS, r -> {
+        Thread thread = new Thread(r, "ssh-forward-io");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // 通道打开逐个进行：libssh2 把进行中的打开状态保存在会话上，并发打开会互相接续对方的状态
+    private final ExecutorService openExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "ssh-forward-open");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Map<String, ServerSocketChannel> listeners = new ConcurrentHashMap<>();
+    private final Map<String, Listener> remoteListeners = new ConcurrentHashMap<>();
+    private final Map<String, PortForwardStats> stats = new ConcurrentHashMap<>();
+    // 待释放的通道：必须在监视线程不再引用后才能释放
+    private final ConcurrentLinkedQueue<Long> closingChannels = new ConcurrentLinkedQueue<>();
+
+    // 以下字段仅由选择器线程访问
+    private final Set<Connection> connections = new HashSet<>();
+    private final ArrayDeque<ByteBuffer> bufferPool = new ArrayDeque<>();
+    private final List<Long> closedChannels = new ArrayList<>();
+    private final List<Listener> acceptingListeners = new ArrayList<>();
+    private boolean watchSetDirty;
+
+    // 监视线程与选择器线程之间的交接
+    private final Object watchLock = new Object();
+    private volatile long[] watchReads = NO_CHANNELS;
+    private volatile long[] watchWrites = NO_CHANNELS;
+    private boolean pumpRequested;
+    private volatile boolean running = true;
+
+    PortForwardEngine(SshNative sshNative, long sshHandle) throws IOException {
+        this.sshNative = sshNative;
+        this.sshHandle = sshHandle;
+        this.selector = Selector.open();
+        selectorThread = new Thread(this::selectLoop, "ssh-forward");
+        selectorThread.setDaemon(true);
+        watcherThread = new Thread(this::watchLoop, "ssh-forward-watch");
+        watcherThread.setDaemon(true);
+        selectorThread.start();
+        watcherThread.start();
+    }
+
+    boolean hasForward(String key) {
+        return listeners.containsKey(key) || remoteListeners.containsKey(key);
+    }
+
+    /**
+     * 所有转发的统计，按开启时间排序
+     */
+    List<PortForwardStats> getStats() {
+        List<PortForwardStats> list = new ArrayList<>(stats.values());
+        list.sort((a, b) -> Long.compare(a.getStartedAtMs(), b.getStartedAtMs()));
+        return list;
+    }
+
+    /**
+     * 监听本地端口，每个连接转发到 targetHost:targetPort
+     */
+    void addLocalForward(String key, int localPort, String targetHost, int targetPort) throws IOException {
+        addListener(key, localPort, new Listener(key, targetHost, targetPort,
+                new PortForwardStats(key, PortForwardStats.TYPE_LOCAL, localPort, targetHost, targetPort)));
+    }
+
+    /**
+     * 监听本地端口作为 SOCKS5 代理 (仅 CONNECT，无认证)
+     */
+    void addDynamicForward(String key, int localPort) throws IOException {
+        addListener(key, localPort, new Listener(key, null, 0,
+                new PortForwardStats(key, PortForwardStats.TYPE_DYNAMIC, localPort, null, 0)));
+    }
+
+    /**
+     * 请求服务器监听 bindHost:bindPort，每个连接转发到本地可达的 targetHost:targetPort
+     * 同步等待服务器应答，须在后台线程调用。
+     *
+     * @return 服务器实际绑定的端口 (bindPort 为 0 时由服务器分配)
+     */
+    int addRemoteForward(String key, String bindHost, int bindPort, String targetHost, int targetPort) throws IOException {
+        int[] bound = new int[1];
+        long handle = sshNative.forwardListen(sshHandle, bindHost, bindPort, bound);
+        if (handle == 0) {
+            throw new IOException("Remote forward rejected on " + bindHost + ":" + bindPort);
+        }
+        int port = bound[0] != 0 ? bound[0] : bindPort;
+        Listener listener = new Listener(key, targetHost, targetPort,
+                new PortForwardStats(key, PortForwardStats.TYPE_REMOTE, port, targetHost, targetPort), handle);
+        remoteListeners.put(key, listener);
+        stats.put(key, listener.stats);
+        post(() -> acceptingListeners.add(listener));
+        synchronized (watchLock) {
+            watchLock.notifyAll();
+        }
+        return port;
+    }
+
+    /**
+     * 关闭一条转发的监听及其所有连接
+     */
+    void removeForward(String key) {
+        ServerSocketChannel server = listeners.remove(key);
+        Listener remote = remoteListeners.remove(key);
+        stats.remove(key);
+        if (server == null && remote == null) {
+            return;
+        }
+        if (server != null) {
+            closeQuietly(server);
+        }
+        if (remote != null) {
+            cancelRemote(remote);
+        }
+        post(() -> {
+            for (Connection conn : new ArrayList<>(connections)) {
+                if (conn.listener.key.equals(key)) {
+                    close(conn);
+                }
+            }
+        });
+    }
+
+    /**
+     * 关闭所有监听和转发中的连接，引擎保持运行
+     */
+    void stopAll() {
+        for (ServerSocketChannel server : listeners.values()) {
+            closeQuietly(server);
+        }
+        listeners.clear();
+        for (Listener remote : remoteListeners.values()) {
+            cancelRemote(remote);
+        }
+        remoteListeners.clear();
+        stats.clear();
+        post(this::closeAllConnections);
+    }
+
+    /**
+     * 停止引擎线程；须在释放 SSH 会话之前调用。未释放的通道与远程监听随会话一起释放。
+     */
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+        synchronized (watchLock) {
+            watchLock.notifyAll();
+        }
+        joinQuietly(selectorThread);
+        joinQuietly(watcherThread);
+        for (ServerSocketChannel server : listeners.values()) {
+            closeQuietly(server);
+        }
+        listeners.clear();
+        remoteListeners.clear();
+        acceptingListeners.clear();
+        for (Connection conn : connections) {
+            closeQuietly(conn.socket);
+        }
+        connections.clear();
+        closeQuietly(selector);
+        channelExecutor.shutdownNow();
+        openExecutor.shutdownNow();
+        try {
+            // 正在打开/关闭通道的任务仍在使用会话，等待其结束
+            openExecutor.awaitTermination(2, TimeUnit.SECONDS);
+            channelExecutor.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void addListener(String key, int localPort, Listener listener) throws IOException {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        try {
+            server.socket().setReuseAddress(true);
+            server.socket().bind(new InetSocketAddress(localPort));
+            server.configureBlocking(false);
+        } catch (IOException e) {
+            closeQuietly(server);
+            throw e;
+        }
+        listeners.put(key, server);
+        stats.put(key, listener.stats);
+        post(() -> {
+            try {
+                server.register(selector, SelectionKey.OP_ACCEPT, listener);
+            } catch (IOException e) {
+                Log.w(TAG, "register listener failed: " + e.getMessage());
+                listeners.remove(key, server);
+                stats.remove(key, listener.stats);
+                closeQuietly(server);
+            }
+        });
+    }
+
+    /**
+     * 远程监听句柄只在选择器线程上使用：先从接受列表中移除，再交给线程池向服务器取消
+     */
+    private void cancelRemote(Listener listener) {
+        post(() -> {
+            acceptingListeners.remove(listener);
+            try {
+                channelExecutor.execute(() -> sshNative.forwardCancel(sshHandle, listener.sshListener));
+            } catch (RejectedExecutionException e) {
+                // 引擎已停止，监听随会话释放
+            }
+        });
+    }
+
+    private void post(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    // --- 选择器线程 ---
+
+    private void selectLoop() {
+        while (running) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                Log.e(TAG, "select failed", e);
+                break;
+            }
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+            Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+            while (it.hasNext()) {
+                SelectionKey key = it.next();
+                it.remove();
+                Object attachment = key.attachment();
+                if (attachment instanceof Listener) {
+                    accept(key, (Listener) attachment);
+                } else if (attachment instanceof Connection) {
+                    handleSocket(key, (Connection) attachment);
+                }
+            }
+            boolean pump;
+            synchronized (watchLock) {
+                pump = pumpRequested;
+            }
+            if (pump) {
+                for (Listener listener : acceptingListeners) {
+                    acceptRemote(listener);
+                }
+                for (Connection conn : new ArrayList<>(connections)) {
+                    if (conn.state == STATE_OPEN) {
+                        writeToChannel(conn);
+                        readFromChannel(conn);
+                    }
+                }
+            }
+            if (watchSetDirty) {
+                publishWatchSet();
+            }
+            // 先发布不含这些通道的集合，再交给监视线程释放
+            if (!closedChannels.isEmpty()) {
+                closingChannels.addAll(closedChannels);
+                closedChannels.clear();
+            }
+            if (pump) {
+                synchronized (watchLock) {
+                    pumpRequested = false;
+                    watchLock.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void accept(SelectionKey key, Listener listener) {
+        ServerSocketChannel server = (ServerSocketChannel) key.channel();
+        while (true) {
+            SocketChannel socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                Log.w(TAG, "accept failed on " + listener.key + ": " + e.getMessage());
+                key.cancel();
+                return;
+            }
+            if (socket == null) {
+                return;
+            }
+            Connection conn = new Connection(socket, listener,
+                    listener.stats.onAccepted(String.valueOf(socket.socket().getRemoteSocketAddress())));
+            try {
+                socket.configureBlocking(false);
+                socket.socket().setTcpNoDelay(true);
+                conn.key = socket.register(selector, 0, conn);
+            } catch (IOException e) {
+                listener.stats.onClosed(conn.stats);
+                closeQuietly(socket);
+                continue;
+            }
+            connections.add(conn);
+            if (listener.dynamic) {
+                conn.state = STATE_SOCKS_GREETING;
+                conn.handshake = ByteBuffer.allocate(512);
+                updateInterest(conn);
+            } else {
+                openChannel(conn, listener.targetHost, listener.targetPort);
+            }
+        }
+    }
+
+    /**
+     * 接受服务器送来的远程转发通道，并为每个通道发起到本地目标的连接
+     */
+    private void acceptRemote(Listener listener) {
+        long channel;
+        while ((channel = sshNative.forwardAccept(sshHandle, listener.sshListener)) != 0) {
+            SocketChannel socket;
+            try {
+                socket = SocketChannel.open();
+            } catch (IOException e) {
+                listener.stats.onFailed("open socket failed: " + e.getMessage());
+                closedChannels.add(channel);
+                continue;
+            }
+            Connection conn = new Connection(socket, listener,
+                    listener.stats.onAccepted("remote:" + listener.stats.getLocalPort()));
+            conn.channel = channel;
+            conn.state = STATE_CONNECTING;
+            connections.add(conn);
+            try {
+                socket.configureBlocking(false);
+                socket.socket().setTcpNoDelay(true);
+                conn.key = socket.register(selector, 0, conn);
+            } catch (IOException e) {
+                fail(conn, "open socket failed: " + e.getMessage());
+                continue;
+            }
+            // 目标可能是主机名，解析放到线程池，不阻塞选择器线程
+            try {
+                channelExecutor.execute(() -> {
+                    InetSocketAddress address = new InetSocketAddress(listener.targetHost, listener.targetPort);
+                    post(() -> connectTarget(conn, address));
+                });
+            } catch (RejectedExecutionException e) {
+                close(conn);
+            }
+        }
+    }
+
+    private void connectTarget(Connection conn, InetSocketAddress address) {
+        if (conn.closed) {
+            return;
+        }
+        if (address.isUnresolved()) {
+            fail(conn, "resolve " + conn.stats.getTarget() + " failed");
+            return;
+        }
+        try {
+            if (conn.socket.connect(address)) {
+                onTargetConnected(conn);
+            } else {
+                updateInterest(conn);
+            }
+        } catch (IOException e) {
+            fail(conn, "connect " + conn.stats.getTarget() + " failed: " + e.getMessage());
+        }
+    }
+
+    private void onTargetConnected(Connection conn) {
+        conn.state = STATE_OPEN;
+        conn.listener.stats.onEstablished(conn.stats);
+        // 服务器端客户端可能在连接建立前已发来数据，留在通道缓冲中
+        readFromChannel(conn);
+    }
+
+    private void handleSocket(SelectionKey key, Connection conn) {
+        if (conn.state == STATE_CONNECTING) {
+            if (key.isValid() && key.isConnectable()) {
+                try {
+                    if (conn.socket.finishConnect()) {
+                        onTargetConnected(conn);
+                    }
+                } catch (IOException e) {
+                    fail(conn, "connect " + conn.stats.getTarget() + " failed: " + e.getMessage());
+                }
+            }
+            return;
+        }
+        try {
+            if (key.isValid() && key.isWritable()) {
+                flushToSocket(conn);
+                if (conn.outbound == null && conn.state == STATE_OPEN) {
+                    readFromChannel(conn);
+                }
+            }
+            if (!conn.closed && key.isValid() && key.isReadable()) {
+                if (conn.state == STATE_OPEN) {
+                    readFromSocket(conn);
+                } else {
+                    readHandshake(conn);
+                }
+            }
+        } catch (IOException e) {
+            close(conn);
+        }
+    }
+
+    private void openChannel(Connection conn, String host, int port) {
+        conn.state = STATE_OPENING;
+        updateInterest(conn);
+        try {
+            openExecutor.execute(() -> {
+                long channel = sshNative.openDirectTcpIp(sshHandle, host, port);
+                post(() -> onChannelOpened(conn, channel));
+            });
+        } catch (RejectedExecutionException e) {
+            close(conn);
+        }
+    }
+
+    private void onChannelOpened(Connection conn, long channel) {
+        if (conn.closed) {
+            if (channel != 0) {
+                closedChannels.add(channel);
+            }
+            return;
+        }
+        if (channel == 0) {
+            if (conn.listener.dynamic) {
+                writeQuietly(conn.socket, SOCKS_FAILED);
+            }
+            fail(conn, "open channel to " + conn.stats.getTarget() + " failed");
+            return;
+        }
+        conn.channel = channel;
+        conn.state = STATE_OPEN;
+        conn.listener.stats.onEstablished(conn.stats);
+        try {
+            if (conn.listener.dynamic) {
+                queueToSocket(conn, SOCKS_SUCCEEDED);
+                flushToSocket(conn);
+            }
+            // SOCKS 请求之后客户端可能已经发来数据
+            writeToChannel(conn);
+            readFromChannel(conn);
+        } catch (IOException e) {
+            close(conn);
+        }
+    }
+
+    /**
+     * 本地 socket -> 通道
+     */
+    private void readFromSocket(Connection conn) throws IOException {
+        if (conn.inbound != null || conn.socketEof) {
+            return;
+        }
+        ByteBuffer buffer = acquireBuffer();
+        int read = conn.socket.read(buffer);
+        if (read < 0) {
+            releaseBuffer(buffer);
+            conn.socketEof = true;
+        } else if (read == 0) {
+            releaseBuffer(buffer);
+            return;
+        } else {
+            buffer.flip();
+            conn.inbound = buffer;
+        }
+        writeToChannel(conn);
+    }
+
+    private void writeToChannel(Connection conn) {
+        ByteBuffer buffer = conn.inbound;
+        while (buffer != null && buffer.hasRemaining()) {
+            int written = sshNative.writeChannelDirect(sshHandle, conn.channel, buffer, buffer.position(), buffer.remaining());
+            if (written < 0) {
+                fail(conn, "channel write failed");
+                return;
+            }
+            if (written == 0) {
+                // 远端窗口耗尽：保留数据并停止读取本地 socket，窗口打开后由监视线程唤醒
+                break;
+            }
+            buffer.position(buffer.position() + written);
+            conn.stats.bytesOut.add(written);
+            conn.listener.stats.bytesOut.add(written);
+        }
+        if (buffer != null && !buffer.hasRemaining()) {
+            releaseBuffer(buffer);
+            conn.inbound = null;
+        }
+        if (conn.socketEof && conn.inbound == null && !conn.eofSent) {
+            conn.eofSent = true;
+            sshNative.sendChannelEof(sshHandle, conn.channel);
+            if (conn.channelEof) {
+                close(conn);
+                return;
+            }
+        }
+        updateInterest(conn);
+    }
+
+    /**
+     * 通道 -> 本地 socket；socket 写不动时停止读取通道
+     */
+    private void readFromChannel(Connection conn) {
+        try {
+            while (!conn.closed && conn.outbound == null && !conn.channelEof) {
+                ByteBuffer buffer = acquireBuffer();
+                int read = sshNative.execRead(sshHandle, conn.channel, SshNative.STREAM_STDOUT, buffer, 0, buffer.capacity());
+                if (read > 0) {
+                    conn.stats.bytesIn.add(read);
+                    conn.listener.stats.bytesIn.add(read);
+                    buffer.limit(read);
+                    conn.outbound = buffer;
+                    flushToSocket(conn);
+                    continue;
+                }
+                releaseBuffer(buffer);
+                if (read < 0) {
+                    conn.channelEof = true;
+                }
+                break;
+            }
+            if (conn.channelEof && conn.outbound == null && !conn.closed) {
+                if (conn.socketEof) {
+                    close(conn);
+                    return;
+                }
+                conn.socket.shutdownOutput();
+            }
+        } catch (IOException e) {
+            close(conn);
+            return;
+        }
+        updateInterest(conn);
+    }
+
+    private void flushToSocket(Connection conn) throws IOException {
+        ByteBuffer buffer = conn.outbound;
+        if (buffer == null) {
+            return;
+        }
+        while (buffer.hasRemaining()) {
+            if (conn.socket.write(buffer) == 0) {
+                break;
+            }
+        }
+        if (!buffer.hasRemaining()) {
+            releaseBuffer(buffer);
+            conn.outbound = null;
+        }
+        updateInterest(conn);
+    }
+
+    private void queueToSocket(Connection conn, byte[] data) {
+        if (conn.outbound == null) {
+            conn.outbound = acquireBuffer();
+        } else {
+            conn.outbound.compact();
+        }
+        conn.outbound.put(data);
+        conn.outbound.flip();
+    }
+
+    /**
+     * 非阻塞解析 SOCKS5 握手；数据不完整时保留在 handshake 缓冲中等待下次可读
+     */
+    private void readHandshake(Connection conn) throws IOException {
+        ByteBuffer hs = conn.handshake;
+        if (!hs.hasRemaining() || conn.socket.read(hs) < 0) {
+            close(conn);
+            return;
+        }
+        hs.flip();
+        if (conn.state == STATE_SOCKS_GREETING) {
+            int length;
+            try {
+                length = parseSocksGreeting(hs);
+            } catch (ProtocolException e) {
+                fail(conn, e.getMessage());
+                return;
+            }
+            if (length == 0) {
+                hs.compact();
+                return;
+            }
+            hs.position(hs.position() + length);
+            queueToSocket(conn, SOCKS_NO_AUTH);
+            flushToSocket(conn);
+            conn.state = STATE_SOCKS_REQUEST;
+        }
+        if (conn.state == STATE_SOCKS_REQUEST) {
+            SocksRequest request;
+            try {
+                request = parseSocksRequest(hs);
+            } catch (ProtocolException e) {
+                writeQuietly(conn.socket, SOCKS_FAILED);
+                fail(conn, e.getMessage());
+                return;
+            }
+            if (request == null) {
+                hs.compact();
+                return;
+            }
+            if (hs.hasRemaining()) {
+                conn.inbound = acquireBuffer();
+                conn.inbound.put(hs);
+                conn.inbound.flip();
+            }
+            conn.handshake = null;
+            conn.stats.setTarget(request.host + ":" + request.port);
+            openChannel(conn, request.host, request.port);
+        }
+    }
+
+    /**
+     * 解析从 position 开始的 SOCKS5 问候 (版本、方法数、方法列表)，不移动 position
+     *
+     * @return 问候的字节数；数据不完整返回 0
+     * @throws ProtocolException 版本不是 5 或未提供任何方法
+     */
+    static int parseSocksGreeting(ByteBuffer hs) throws ProtocolException {
+        int start = hs.position();
+        if (hs.remaining() < 2) {
+            return 0;
+        }
+        int version = hs.get(start) & 0xff;
+        int methods = hs.get(start + 1) & 0xff;
+        if (version != 0x05 || methods == 0) {
+            throw new ProtocolException("unsupported SOCKS greeting");
+        }
+        return hs.remaining() < 2 + methods ? 0 : 2 + methods;
+    }
+
+    /**
+     * 解析从 position 开始的 SOCKS5 CONNECT 请求，成功时 position 移到请求之后
+     *
+     * @return 目标地址；数据不完整返回 null 且不移动 position
+     * @throws ProtocolException 非 CONNECT 命令或地址类型未知
+     */
+    static SocksRequest parseSocksRequest(ByteBuffer hs) throws IOException {
+        int start = hs.position();
+        if (hs.remaining() < 5) {
+            return null;
+        }
+        int version = hs.get(start) & 0xff;
+        int cmd = hs.get(start + 1) & 0xff;
+        int rsv = hs.get(start + 2) & 0xff;
+        int atyp = hs.get(start + 3) & 0xff;
+        int addrLen;
+        int addrStart = start + 4;
+        if (atyp == 0x01) {
+            addrLen = 4;
+        } else if (atyp == 0x03) {
+            addrLen = hs.get(addrStart) & 0xff;
+            addrStart++;
+        } else if (atyp == 0x04) {
+            addrLen = 16;
+        } else {
+            addrLen = -1;
+        }
+        if (version != 0x05 || rsv != 0x00 || cmd != 0x01 || addrLen <= 0) {
+            throw new ProtocolException("unsupported SOCKS request");
+        }
+        int end = addrStart + addrLen + 2;
+        if (hs.limit() < end) {
+            return null;
+        }
+        byte[] addr = new byte[addrLen];
+        hs.position(addrStart);
+        hs.get(addr);
+        int port = ((hs.get() & 0xff) << 8) | (hs.get() & 0xff);
+        String host = atyp == 0x03
+                ? new String(addr, StandardCharsets.US_ASCII)
+                : InetAddress.getByAddress(addr).getHostAddress();
+        return new SocksRequest(host, port);
+    }
+
+    private void updateInterest(Connection conn) {
+        if (conn.closed || conn.key == null || !conn.key.isValid()) {
+            return;
+        }
+        int ops = 0;
+        if (conn.state == STATE_CONNECTING) {
+            ops |= SelectionKey.OP_CONNECT;
+        } else if (conn.state == STATE_SOCKS_GREETING || conn.state == STATE_SOCKS_REQUEST) {
+            ops |= SelectionKey.OP_READ;
+        } else if (conn.state == STATE_OPEN && conn.inbound == null && !conn.socketEof) {
+            ops |= SelectionKey.OP_READ;
+        }
+        if (conn.outbound != null) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        if (conn.key.interestOps() != ops) {
+            conn.key.interestOps(ops);
+        }
+        watchSetDirty = true;
+    }
+
+    private void publishWatchSet() {
+        watchSetDirty = false;
+        int reads = 0;
+        int writes = 0;
+        for (Connection conn : connections) {
+            if (conn.state != STATE_OPEN) continue;
+            if (conn.outbound == null && !conn.channelEof) reads++;
+            if (conn.inbound != null) writes++;
+        }
+        long[] readSet = reads == 0 ? NO_CHANNELS : new long[reads];
+        long[] writeSet = writes == 0 ? NO_CHANNELS : new long[writes];
+        reads = 0;
+        writes = 0;
+        for (Connection conn : connections) {
+            if (conn.state != STATE_OPEN) continue;
+            if (conn.outbound == null && !conn.channelEof) readSet[reads++] = conn.channel;
+            if (conn.inbound != null) writeSet[writes++] = conn.channel;
+        }
+        boolean wasIdle = watchReads.length == 0 && watchWrites.length == 0;
+        watchReads = readSet;
+        watchWrites = writeSet;
+        if (wasIdle && (reads > 0 || writes > 0)) {
+            synchronized (watchLock) {
+                watchLock.notifyAll();
+            }
+        }
+    }
+
+    private void fail(Connection conn, String error) {
+        if (!conn.closed) {
+            conn.listener.stats.onFailed(error);
+            close(conn);
+        }
+    }
+
+    private void close(Connection conn) {
+        if (conn.closed) {
+            return;
+        }
+        conn.closed = true;
+        connections.remove(conn);
+        conn.listener.stats.onClosed(conn.stats);
+        if (conn.key != null) {
+            conn.key.cancel();
+        }
+        closeQuietly(conn.socket);
+        if (conn.inbound != null) {
+            releaseBuffer(conn.inbound);
+            conn.inbound = null;
+        }
+        if (conn.outbound != null) {
+            releaseBuffer(conn.outbound);
+            conn.outbound = null;
+        }
+        if (conn.channel != 0) {
+            closedChannels.add(conn.channel);
+            conn.channel = 0;
+        }
+        watchSetDirty = true;
+    }
+
+    private void closeAllConnections() {
+        for (Connection conn : new ArrayList<>(connections)) {
+            close(conn);
+        }
+    }
+
+    private ByteBuffer acquireBuffer() {
+        ByteBuffer buffer = bufferPool.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    private void releaseBuffer(ByteBuffer buffer) {
+        if (bufferPool.size() < MAX_POOLED_BUFFERS) {
+            bufferPool.add(buffer);
+        }
+    }
+
+    // --- 监视线程 ---
+
+    private void watchLoop() {
+        while (running) {
+            Long closing;
+            while ((closing = closingChannels.poll()) != null) {
+                final long channel = closing;
+                try {
+                    channelExecutor.execute(() -> sshNative.closeChannel(sshHandle, channel));
+                } catch (RejectedExecutionException e) {
+                    // 引擎已停止，通道随会话释放
+                }
+            }
+            long[] reads = watchReads;
+            long[] writes = watchWrites;
+            // 远程转发的新连接可能被 Shell 读取线程顺带收进监听队列，socket 上不再有事件，超时后也推进一次
+            boolean accepting = !remoteListeners.isEmpty();
+            try {
+                if (reads.length == 0 && writes.length == 0 && !accepting) {
+                    synchronized (watchLock) {
+                        watchLock.wait(WATCH_TIMEOUT_MS);
+                    }
+                    continue;
+                }
+                int result = sshNative.waitForChannels(sshHandle, reads, writes, WATCH_TIMEOUT_MS);
+                if (result == SshNative.WAIT_ERROR) {
+                    // 会话 socket 异常，由终端连接负责断开；此处避免空转
+                    synchronized (watchLock) {
+                        watchLock.wait(1000);
+                    }
+                } else if (result == SshNative.WAIT_READY || accepting) {
+                    synchronized (watchLock) {
+                        pumpRequested = true;
+                        selector.wakeup();
+                        // 等待选择器线程处理完本轮，避免对同一批数据重复唤醒
+                        while (pumpRequested && running) {
+                            watchLock.wait(WATCH_TIMEOUT_MS);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static void writeQuietly(SocketChannel socket, byte[] data) {
+        try {
+            socket.write(ByteBuffer.wrap(data));
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static void closeQuietly(java.io.Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static void joinQuietly(Thread thread) {
+        if (thread == Thread.currentThread()) {
+            return;
+        }
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * SOCKS5 CONNECT 请求的目标地址
+     */
+    static final class SocksRequest {
+        final String host;
+        final int port;
+
+        SocksRequest(String host, int port) {
+            this.host = host;
+            this.port = port;
+        }
+    }
+
+    private static final class Listener {
+        final String key;
+        final String targetHost;
+        final int targetPort;
+        final boolean dynamic;
+        final PortForwardStats stats;
+        // 远程转发的 libssh2 监听句柄，本地监听为 0
+        final long sshListener;
+
+        Listener(String key, String targetHost, int targetPort, PortForwardStats stats) {
+            this(key, targetHost, targetPort, stats, 0);
+        }
+
+        Listener(String key, String targetHost, int targetPort, PortForwardStats stats, long sshListener) {
+            this.key = key;
+            this.targetHost = targetHost;
+            this.targetPort = targetPort;
+            this.dynamic = stats.getType() == PortForwardStats.TYPE_DYNAMIC;
+            this.stats = stats;
+            this.sshListener = sshListener;
+        }
+    }
+
+    private static final class Connection {
+        final SocketChannel socket;
+        final Listener listener;
+        final PortForwardStats.ConnectionStats stats;
+        SelectionKey key;
+        int state;
+        long channel;
+        ByteBuffer handshake;
+        // socket -> 通道的待写数据 (读模式)，null 表示无
+        ByteBuffer inbound;
+        // 通道 -> socket 的待写数据 (读模式)，null 表示无
+        ByteBuffer outbound;
+        boolean socketEof;
+        boolean channelEof;
+        boolean eofSent;
+        boolean closed;
+
+        Connection(SocketChannel socket, Listener listener, PortForwardStats.ConnectionStats stats) {
+            this.socket = socket;
+            this.listener = listener;
+            this.stats = stats;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.orcterm.core.transport;
+
+/**
+ * 端口转发配置
+ * 描述一条转发而不持有任何连接，可保存后在重连时原样恢复。
+ * 本地/动态转发的 bindPort 为本机监听端口；远程转发的 bindHost:bindPort 为服务器端监听地址，
+ * 目标为本机可达的地址。
+ */
+public final class PortForwardSpec {
+
+    private final int type;
+    private final String bindHost;
+    private final int bindPort;
+    private final String targetHost;
+    private final int targetPort;
+
+    private PortForwardSpec(int type, String bindHost, int bindPort, String targetHost, int targetPort) {
+        this.type = type;
+        this.bindHost = bindHost;
+        this.bindPort = bindPort;
+        this.targetHost = targetHost;
+        this.targetPort = targetPort;
+    }
+
+    /**
+     * 本地转发 (-L)：本机 localPort -> 服务器可达的 targetHost:targetPort
+     */
+    public static PortForwardSpec local(int localPort, String targetHost, int targetPort) {
+        return new PortForwardSpec(PortForwardStats.TYPE_LOCAL, null, localPort, targetHost, targetPort);
+    }
+
+    /**
+     * 动态转发 (-D)：本机 localPort 上的 SOCKS5 代理
+     */
+    public static PortForwardSpec dynamic(int localPort) {
+        return new PortForwardSpec(PortForwardStats.TYPE_DYNAMIC, null, localPort, null, 0);
+    }
+
+    /**
+     * 远程转发 (-R)：服务器 bindHost:bindPort -> 本机可达的 targetHost:targetPort
+     *
+     * @param bindHost 服务器端绑定地址，null 或空串表示仅回环地址
+     */
+    public static PortForwardSpec remote(String bindHost, int bindPort, String targetHost, int targetPort) {
+        String host = bindHost == null || bindHost.trim().isEmpty() ? "localhost" : bindHost.trim();
+        return new PortForwardSpec(PortForwardStats.TYPE_REMOTE, host, bindPort, targetHost, targetPort);
+    }
+
+    /**
+     * 按类型构造，供从持久化记录恢复；类型未知时返回 null
+     */
+    public static PortForwardSpec of(int type, String bindHost, int bindPort, String targetHost, int targetPort) {
+        switch (type) {
+            case PortForwardStats.TYPE_LOCAL:
+                return local(bindPort, targetHost, targetPort);
+            case PortForwardStats.TYPE_DYNAMIC:
+                return dynamic(bindPort);
+            case PortForwardStats.TYPE_REMOTE:
+                return remote(bindHost, bindPort, targetHost, targetPort);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 转发在会话中的唯一标识，与 {@link PortForwardStats#getKey()} 一致
+     */
+    public String getKey() {
+        switch (type) {
+            case PortForwardStats.TYPE_DYNAMIC:
+                return "dynamic:" + bindPort;
+            case PortForwardStats.TYPE_REMOTE:
+                return "remote:" + bindHost + ":" + bindPort + ":" + targetHost + ":" + targetPort;
+            default:
+                return bindPort + ":" + targetHost + ":" + targetPort;
+        }
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    /**
+     * 服务器端绑定地址；仅远程转发有值
+     */
+    public String getBindHost() {
+        return bindHost;
+    }
+
+    public int getBindPort() {
+        return bindPort;
+    }
+
+    /**
+     * 目标主机；动态转发为 null
+     */
+    public String getTargetHost() {
+        return targetHost;
+    }
+
+    public int getTargetPort() {
+        return targetPort;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof PortForwardSpec && getKey().equals(((PortForwardSpec) o).getKey());
+    }
+
+    @Override
+    public int hashCode() {
+        return getKey().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case PortForwardStats.TYPE_DYNAMIC:
+                return "-D " + bindPort;
+            case PortForwardStats.TYPE_REMOTE:
+                return "-R " + bindHost + ":" + bindPort + ":" + targetHost + ":" + targetPort;
+            default:
+                return "-L " + bindPort + ":" + targetHost + ":" + targetPort;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.orcterm.core.transport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单条端口转发的流量统计
+ * 计数器由转发线程累加 (LongAdder 无锁)，界面线程随时读取，读到的是近似的即时值。
+ * 方向以本机为准：in 为 SSH 通道 -> 本地 socket，out 为本地 socket -> SSH 通道。
+ * 远程转发 (TYPE_REMOTE) 的 localPort 为服务器端绑定的端口，目标为本地可达的地址。
+ */
+public final class PortForwardStats {
+
+    public static final int TYPE_LOCAL = 0;
+    public static final int TYPE_DYNAMIC = 1;
+    public static final int TYPE_REMOTE = 2;
+
+    private final String key;
+    private final int type;
+    private final int localPort;
+    private final String targetHost;
+    private final int targetPort;
+    private final long startedAtMs = System.currentTimeMillis();
+
+    final LongAdder bytesIn = new LongAdder();
+    final LongAdder bytesOut = new LongAdder();
+    final LongAdder activeConnections = new LongAdder();
+    final LongAdder totalConnections = new LongAdder();
+    final LongAdder failedConnections = new LongAdder();
+    final LongAdder setupTimeTotalMs = new LongAdder();
+    final LongAdder setupCount = new LongAdder();
+    final LongAccumulator setupTimeMaxMs = new LongAccumulator(Math::max, 0);
+    private final Set<ConnectionStats> connections = ConcurrentHashMap.newKeySet();
+    private volatile String lastError;
+
+    PortForwardStats(String key, int type, int localPort, String targetHost, int targetPort) {
+        this.key = key;
+        this.type = type;
+        this.localPort = localPort;
+        this.targetHost = targetHost;
+        this.targetPort = targetPort;
+    }
+
+    /**
+     * 单个转发连接的统计
+     */
+    public static final class ConnectionStats {
+        private final String client;
+        private final long acceptedAtMs = System.currentTimeMillis();
+        private volatile String target;
+        private volatile long setupMs = -1;
+        final LongAdder bytesIn = new LongAdder();
+        final LongAdder bytesOut = new LongAdder();
+
+        ConnectionStats(String client, String target) {
+            this.client = client;
+            this.target = target;
+        }
+
+        public String getClient() {
+            return client;
+        }
+
+        /**
+         * 目标地址；SOCKS 连接在握手完成前为 null
+         */
+        public String getTarget() {
+            return target;
+        }
+
+        public long getAcceptedAtMs() {
+            return acceptedAtMs;
+        }
+
+        /**
+         * 从接受连接到转发建立 (SSH 通道打开，远程转发为本地目标连通) 的耗时，尚未建立时为 -1
+         */
+        public long getSetupMs() {
+            return setupMs;
+        }
+
+        public long getBytesIn() {
+            return bytesIn.sum();
+        }
+
+        public long getBytesOut() {
+            return bytesOut.sum();
+        }
+
+        void setTarget(String target) {
+            this.target = target;
+        }
+
+        void setSetupMs(long setupMs) {
+            this.setupMs = setupMs;
+        }
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    /**
+     * 监听端口；远程转发为服务器端端口
+     */
+    public int getLocalPort() {
+        return localPort;
+    }
+
+    /**
+     * 目标主机；动态转发为 null
+     */
+    public String getTargetHost() {
+        return targetHost;
+    }
+
+    public int getTargetPort() {
+        return targetPort;
+    }
+
+    public long getStartedAtMs() {
+        return startedAtMs;
+    }
+
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    public long getActiveConnections() {
+        return activeConnections.sum();
+    }
+
+    public long getTotalConnections() {
+        return totalConnections.sum();
+    }
+
+    public long getFailedConnections() {
+        return failedConnections.sum();
+    }
+
+    /**
+     * 平均连接建立耗时 (毫秒)，尚无成功连接时为 0
+     */
+    public long getAverageSetupMs() {
+        long count = setupCount.sum();
+        return count == 0 ? 0 : setupTimeTotalMs.sum() / count;
+    }
+
+    public long getMaxSetupMs() {
+        return setupTimeMaxMs.get();
+    }
+
+    /**
+     * 最近一次连接失败的原因，无失败时为 null
+     */
+    public String getLastError() {
+        return lastError;
+    }
+
+    /**
+     * 当前活动连接的快照
+     */
+    public List<ConnectionStats> getConnections() {
+        return new ArrayList<>(connections);
+    }
+
+    ConnectionStats onAccepted(String client) {
+        ConnectionStats conn = new ConnectionStats(client,
+                type != TYPE_DYNAMIC ? targetHost + ":" + targetPort : null);
+        connections.add(conn);
+        totalConnections.increment();
+        activeConnections.increment();
+        return conn;
+    }
+
+    void onEstablished(ConnectionStats conn) {
+        long setupMs = Math.max(0, System.currentTimeMillis() - conn.acceptedAtMs);
+        conn.setSetupMs(setupMs);
+        setupTimeTotalMs.add(setupMs);
+        setupCount.increment();
+        setupTimeMaxMs.accumulate(setupMs);
+    }
+
+    void onFailed(String error) {
+        failedConnections.increment();
+        lastError = error;
+    }
+
+    void onClosed(ConnectionStats conn) {
+        if (connections.remove(conn)) {
+            activeConnections.decrement();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.orcterm.core.transport;
+
+/**
+ * SSH 连接往返时间序列
+ * 样本为保活请求 (want-reply) 从发出到收到应答的耗时，保留最近 {@link #CAPACITY} 个。
+ * 由会话持有，重连后继续累积；反应器线程写入，界面线程读取。
+ */
+public final class RttSeries {
+
+    /** 保留的样本数 */
+    public static final int CAPACITY = 60;
+
+    private final int[] samples = new int[CAPACITY];
+    private final long[] timestamps = new long[CAPACITY];
+    private int count = 0;
+    private int nextIndex = 0;
+
+    synchronized void add(int rttMs) {
+        samples[nextIndex] = Math.max(0, rttMs);
+        timestamps[nextIndex] = System.currentTimeMillis();
+        nextIndex = (nextIndex + 1) % CAPACITY;
+        if (count < CAPACITY) {
+            count++;
+        }
+    }
+
+    public synchronized int getSampleCount() {
+        return count;
+    }
+
+    /**
+     * 最近一次往返时间，无样本时为 -1
+     */
+    public synchronized int getLastMs() {
+        return count == 0 ? -1 : samples[(nextIndex + CAPACITY - 1) % CAPACITY];
+    }
+
+    /**
+     * 最近一次样本的记录时间 (System.currentTimeMillis)，无样本时为 0
+     */
+    public synchronized long getLastSampleAtMs() {
+        return count == 0 ? 0 : timestamps[(nextIndex + CAPACITY - 1) % CAPACITY];
+    }
+
+    public synchronized int getAverageMs() {
+        if (count == 0) {
+            return -1;
+        }
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += samples[i];
+        }
+        return (int) (sum / count);
+    }
+
+    public synchronized int getMaxMs() {
+        int max = -1;
+        for (int i = 0; i < count; i++) {
+            max = Math.max(max, samples[i]);
+        }
+        return max;
+    }
+
+    /**
+     * 按时间顺序 (旧 -> 新) 返回样本副本
+     */
+    public synchronized int[] snapshot() {
+        int[] result = new int[count];
+        int start = count < CAPACITY ? 0 : nextIndex;
+        for (int i = 0; i < count; i++) {
+            result[i] = samples[(start + i) % CAPACITY];
+        }
+        return result;
+    }
+}
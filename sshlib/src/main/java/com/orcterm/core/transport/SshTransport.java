@@ -3,39 +3,41 @@ package com.orcterm.core.transport;
 import android.content.Context;
 import android.content.SharedPreferences;
 
+import com.orcterm.core.ssh.ExecBatch;
+import com.orcterm.core.ssh.ExecResult;
 import com.orcterm.core.ssh.SshNative;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 /**
  * SSH 传输层实现
  * 使用 JNI (SshNative) 实现 SSH 连接、认证、读写和端口转发功能。
  * 实现了 Transport 接口，提供标准的终端连接能力。
  */
-public class SshTransport implements Transport {
+public class SshTransport implements NonBlockingTransport {
     private final SshNative sshNative;
     private long sshHandle = 0; // 本地 SSH 句柄
     private volatile boolean connected = false;
     
-    // 端口转发相关资源
-    private final List<ServerSocket> forwardingSockets = new ArrayList<>();
-    private final int forwardPoolSize = Math.max(2, Runtime.getRuntime().availableProcessors());
-    private final ExecutorService forwardAcceptExecutor = Executors.newSingleThreadExecutor();
-    private final ExecutorService forwardWorkerExecutor = Executors.newFixedThreadPool(forwardPoolSize);
-    private final ConcurrentHashMap<String, Boolean> activeForwards = new ConcurrentHashMap<>();
+    // 端口转发引擎，首次开启转发时创建
+    private PortForwardEngine forwardEngine;
     private HostKeyVerifier hostKeyVerifier;
     private int keepaliveIntervalSec = 0;
+    // 连续未应答的保活达到该数即判定对端失联，0 表示不判定
+    private int keepaliveMaxMissed = 0;
+    private RttSeries rttSeries = new RttSeries();
+    private final int[] keepaliveResult = new int[SshNative.KEEPALIVE_RTT_START + 8];
     private HostKeyPolicy hostKeyPolicy = HostKeyPolicy.TRUST_ON_FIRST_USE;
+    private boolean compressionEnabled = false;
+    private String cipherPrefs;
+    private String macPrefs;
+    private String kexPrefs;
+    // 经跳板机连接时的跳板来源与当前持有的跳板会话
+    private JumpHost jumpHost;
+    private long jumpHandle = 0;
+    // 会话因传输错误 (读写失败、保活超时) 结束；经跳板机时归还的跳板连接不再复用
+    private volatile boolean transportFailed = false;
+    // 读取线程在 waitForData/readDirect 期间持有，disconnect 先唤醒再获取，避免释放仍在使用的本地上下文
+    private final Object readLock = new Object();
 
     public enum HostKeyPolicy {
         TRUST_ON_FIRST_USE,
@@ -45,11 +47,6 @@ public class SshTransport implements Transport {
 
     public SshTransport() {
         this.sshNative = new SshNative();
-        if (forwardWorkerExecutor instanceof ThreadPoolExecutor) {
-            ThreadPoolExecutor pool = (ThreadPoolExecutor) forwardWorkerExecutor;
-            pool.setKeepAliveTime(30, TimeUnit.SECONDS);
-            pool.allowCoreThreadTimeOut(true);
-        }
     }
 
     public void setHostKeyVerifier(HostKeyVerifier verifier) {
@@ -61,7 +58,37 @@ public class SshTransport implements Transport {
             this.hostKeyPolicy = policy;
         }
     }
+
+    // 请求传输压缩，需在 connect 前设置
+    public void setCompressionEnabled(boolean enabled) {
+        this.compressionEnabled = enabled;
+    }
+
+    // 算法偏好 (逗号分隔，null 表示默认)，需在 connect 前设置
+    public void setMethodPreferences(String ciphers, String macs, String kex) {
+        this.cipherPrefs = ciphers;
+        this.macPrefs = macs;
+        this.kexPrefs = kex;
+    }
+
+    /**
+     * 保活往返时间写入的序列；由会话传入以便跨重连累积
+     */
+    public void setRttSeries(RttSeries series) {
+        if (series != null) {
+            this.rttSeries = series;
+        }
+    }
+
+    public RttSeries getRttSeries() {
+        return rttSeries;
+    }
     
+    // 经跳板机连接，需在 connect 前设置；null 表示直连
+    public void setJumpHost(JumpHost jumpHost) {
+        this.jumpHost = jumpHost;
+    }
+
     // 使用已建立的 SSH 句柄接管连接，用于跨界面复用
     public void attachExistingHandle(long handle, int cols, int rows) throws Exception {
         if (handle == 0) {
@@ -98,10 +125,18 @@ public class SshTransport implements Transport {
                 throw new Exception("Password is empty");
             }
         }
-        sshHandle = sshNative.connect(host, port);
+        int flags = compressionEnabled ? SshNative.CONNECT_COMPRESS : 0;
+        if (jumpHost != null) {
+            sshHandle = connectViaJumpHost(host, port, flags);
+        } else {
+            sshHandle = sshNative.connectWithOptions(host, port, flags, cipherPrefs, macPrefs, kexPrefs);
+        }
         if (sshHandle == 0) {
             throw new Exception("Connection failed");
         }
+        android.util.Log.i("SSH_SESSION", "cipher=" + sshNative.getSessionMethod(sshHandle, SshNative.METHOD_CRYPT_SC)
+                + " mac=" + sshNative.getSessionMethod(sshHandle, SshNative.METHOD_MAC_SC)
+                + " compression=" + sshNative.getSessionMethod(sshHandle, SshNative.METHOD_COMP_SC));
 
         Context context = null;
         try {
@@ -116,12 +151,15 @@ public class SshTransport implements Transport {
             int readTimeoutSec = prefs.getInt("ssh_read_timeout_sec", 60);
             int keepaliveIntervalSec = prefs.getInt("ssh_keepalive_interval_sec", 0);
             boolean keepaliveReply = prefs.getBoolean("ssh_keepalive_reply", true);
+            int keepaliveMaxMissed = prefs.getInt("ssh_keepalive_max_missed", 3);
             if (connectTimeoutSec > 0) {
                 sshNative.setSessionTimeout(sshHandle, connectTimeoutSec * 1000);
             }
             sshNative.setSessionReadTimeout(sshHandle, readTimeoutSec);
             sshNative.setKeepaliveConfig(sshHandle, keepaliveReply, Math.max(0, keepaliveIntervalSec));
             this.keepaliveIntervalSec = Math.max(0, keepaliveIntervalSec);
+            // 不要求回包时无从判断对端是否存活
+            this.keepaliveMaxMissed = keepaliveReply ? Math.max(0, keepaliveMaxMissed) : 0;
         }
 
         if (context != null) {
@@ -147,7 +185,7 @@ public class SshTransport implements Transport {
                 }
 
                 if (!trusted) {
-                    sshNative.disconnect(sshHandle);
+                    closeHandle(sshHandle);
                     sshHandle = 0;
                     throw new Exception("Host key verification failed");
                 }
@@ -170,7 +208,7 @@ public class SshTransport implements Transport {
         }
 
         if (authResult != 0) {
-            sshNative.disconnect(sshHandle);
+            closeHandle(sshHandle);
             sshHandle = 0;
             throw new Exception("Authentication failed");
         }
@@ -180,16 +218,54 @@ public class SshTransport implements Transport {
         android.util.Log.i("SSH_SESSION", "ssh connected handle=" + sshHandle);
     }
 
+    /**
+     * 在跳板会话上打开到目标的通道，并在通道上完成握手
+     *
+     * @return 内层会话句柄，握手失败返回 0
+     */
+    private long connectViaJumpHost(String host, int port, int flags) throws Exception {
+        long outer = jumpHost.acquire();
+        int[] error = new int[1];
+        long channel = sshNative.openDirectTcpIpWithError(outer, host, port, error);
+        if (channel == 0) {
+            // 区分目标不可达与跳板连接已失效，后者不应再被其他会话复用：
+            // 只有服务器明确拒绝打开通道才说明跳板连接仍在往返
+            jumpHost.release(outer, error[0] != SshNative.ERROR_CHANNEL_FAILURE);
+            throw new Exception("Jump host cannot reach " + host + ":" + port);
+        }
+        long handle = sshNative.connectViaChannel(outer, channel, flags, cipherPrefs, macPrefs, kexPrefs);
+        if (handle == 0) {
+            jumpHost.release(outer, false);
+            return 0;
+        }
+        jumpHandle = outer;
+        transportFailed = false;
+        return handle;
+    }
+
+    // 释放会话；经跳板机时随后归还跳板会话 (内层会话须先于跳板会话释放)
+    private void closeHandle(long handle) {
+        sshNative.disconnect(handle);
+        long outer = jumpHandle;
+        jumpHandle = 0;
+        if (outer != 0) {
+            jumpHost.release(outer, transportFailed);
+        }
+    }
+
     @Override
     public void disconnect() {
-        stopAllForwards();
-        if (sshHandle != 0) {
-            sshNative.disconnect(sshHandle);
-            sshHandle = 0;
-        }
+        // 转发引擎的线程仍在使用会话，需先于会话释放停止
+        shutdownForwarding();
         connected = false;
-        forwardAcceptExecutor.shutdownNow();
-        forwardWorkerExecutor.shutdownNow();
+        long handle = sshHandle;
+        if (handle != 0) {
+            sshNative.wakeup(handle);
+            synchronized (readLock) {
+                closeHandle(handle);
+                sshHandle = 0;
+            }
+        }
         android.util.Log.i("SSH_SESSION", "ssh disconnected");
     }
 
@@ -199,6 +275,20 @@ public class SshTransport implements Transport {
         sshNative.write(sshHandle, data);
     }
 
+    @Override
+    public int writeNonBlocking(byte[] data, int offset, int length) throws IOException {
+        long handle = sshHandle;
+        if (!connected || handle == 0) {
+            throw new IOException("SSH not connected");
+        }
+        int written = sshNative.writeNonBlocking(handle, data, offset, length);
+        if (written < 0) {
+            transportFailed = true;
+            throw new IOException("SSH write failed");
+        }
+        return written;
+    }
+
     @Override
     public int read(byte[] buffer) throws Exception {
         if (!connected || sshHandle == 0) return -1;
@@ -210,6 +300,51 @@ public class SshTransport implements Transport {
         return Math.min(data.length, buffer.length);
     }
 
+    @Override
+    public int read(java.nio.ByteBuffer buffer) throws Exception {
+        if (!buffer.isDirect()) {
+            return NonBlockingTransport.super.read(buffer);
+        }
+        if (!buffer.hasRemaining()) return 0;
+        int read;
+        synchronized (readLock) {
+            if (!connected || sshHandle == 0) return -1;
+            read = sshNative.readDirect(sshHandle, buffer, buffer.position(), buffer.remaining());
+        }
+        if (read > 0) {
+            buffer.position(buffer.position() + read);
+        } else if (read == SshNative.READ_ERROR) {
+            // 与 Shell 正常退出 (EOF) 区分，供上层判断是否需要重连
+            transportFailed = true;
+            throw new IOException("SSH connection lost");
+        }
+        return read;
+    }
+
+    @Override
+    public boolean waitForData(int timeoutMs) throws Exception {
+        int result;
+        synchronized (readLock) {
+            if (!connected || sshHandle == 0) {
+                throw new IOException("SSH not connected");
+            }
+            result = sshNative.waitForData(sshHandle, timeoutMs);
+        }
+        if (result == SshNative.WAIT_ERROR) {
+            transportFailed = true;
+            throw new IOException("SSH socket poll failed");
+        }
+        return result == SshNative.WAIT_READY;
+    }
+
+    @Override
+    public void wakeup() {
+        long handle = sshHandle;
+        if (handle != 0) {
+            sshNative.wakeup(handle);
+        }
+    }
+
     @Override
     public void resize(int cols, int rows) {
         if (connected && sshHandle != 0) {
@@ -227,24 +362,59 @@ public class SshTransport implements Transport {
         return sshHandle;
     }
 
-    public void sendKeepalive() {
-        if (connected && sshHandle != 0) {
-            sshNative.sendKeepalive(sshHandle);
-            android.util.Log.d("SSH_SESSION", "keepalive sent");
+    /**
+     * 推进保活：收取已到达的应答并记入往返时间序列，到期时发送下一次保活
+     * 由反应器在会话每次有事件及上次返回的时间到达时调用。
+     *
+     * @return 距下次需要调用的毫秒数；未开启保活返回 -1
+     * @throws IOException 连续未应答的保活达到上限 (对端失联) 或发送失败
+     */
+    public long serviceKeepalive() throws IOException {
+        if (keepaliveIntervalSec <= 0) {
+            return -1;
+        }
+        long handle = sshHandle;
+        if (!connected || handle == 0) {
+            throw new IOException("SSH not connected");
+        }
+        int seconds = sshNative.keepaliveTick(handle, keepaliveResult);
+        if (seconds < 0) {
+            transportFailed = true;
+            throw new IOException("SSH keepalive failed");
         }
+        int samples = keepaliveResult[SshNative.KEEPALIVE_RTT_COUNT];
+        for (int i = 0; i < samples; i++) {
+            rttSeries.add(keepaliveResult[SshNative.KEEPALIVE_RTT_START + i]);
+        }
+        int missed = keepaliveResult[SshNative.KEEPALIVE_MISSED];
+        if (keepaliveMaxMissed > 0 && missed >= keepaliveMaxMissed) {
+            transportFailed = true;
+            throw new IOException("SSH keepalive timeout: " + missed + " replies missed");
+        }
+        return seconds * 1000L;
     }
 
     public int getKeepaliveIntervalSec() {
         return keepaliveIntervalSec;
     }
 
-    public String execWithResult(String command) throws Exception {
+    public ExecResult execWithResult(String command) throws Exception {
         if (!connected || sshHandle == 0) {
             throw new Exception("SSH not connected");
         }
         return sshNative.execWithResult(sshHandle, command);
     }
 
+    /**
+     * 创建在当前连接上并行执行的批量命令
+     */
+    public ExecBatch.Builder newExecBatch() throws Exception {
+        if (!connected || sshHandle == 0) {
+            throw new Exception("SSH not connected");
+        }
+        return new ExecBatch.Builder(sshNative, sshHandle);
+    }
+
     public int sftpUpload(String localPath, String remotePath) throws Exception {
         if (!connected || sshHandle == 0) {
             throw new Exception("SSH not connected");
@@ -271,274 +441,112 @@ public class SshTransport implements Transport {
      * @throws IOException 开启失败时抛出异常
      */
     public void startLocalForwarding(int localPort, String targetHost, int targetPort) throws IOException {
-        if (!connected || sshHandle == 0) {
-            throw new IOException("SSH not connected");
-        }
-        
-        String key = localPort + ":" + targetHost + ":" + targetPort;
-        if (activeForwards.containsKey(key)) {
+        String key = PortForwardSpec.local(localPort, targetHost, targetPort).getKey();
+        PortForwardEngine engine = ensureForwardEngine();
+        if (engine.hasForward(key)) {
             return; // 转发已存在
         }
-
-        ServerSocket serverSocket = new ServerSocket(localPort);
-        forwardingSockets.add(serverSocket);
-        activeForwards.put(key, true);
-
-        forwardAcceptExecutor.execute(() -> {
-            try {
-                while (connected && !serverSocket.isClosed()) {
-                    Socket clientSocket = serverSocket.accept();
-                    handleForwardConnection(clientSocket, targetHost, targetPort);
-                }
-            } catch (IOException e) {
-                // Socket 关闭或出错
-            } finally {
-                activeForwards.remove(key);
-            }
-        });
+        engine.addLocalForward(key, localPort, targetHost, targetPort);
     }
 
     /**
-     * 处理单个转发连接
-     * 在本地 Socket 和 SSH 通道之间建立数据传输。
+     * 开启动态端口转发 (SOCKS5 代理)
+     *
+     * @param localPort 本地监听端口
+     * @throws IOException 开启失败时抛出异常
      */
-    private void handleForwardConnection(Socket clientSocket, String targetHost, int targetPort) {
-        forwardWorkerExecutor.execute(() -> {
-            long channel = 0;
-            try {
-                channel = sshNative.openDirectTcpIp(sshHandle, targetHost, targetPort);
-                if (channel == 0) {
-                    clientSocket.close();
-                    return;
-                }
+    public void startDynamicForwarding(int localPort) throws IOException {
+        String key = PortForwardSpec.dynamic(localPort).getKey();
+        PortForwardEngine engine = ensureForwardEngine();
+        if (engine.hasForward(key)) {
+            return;
+        }
+        engine.addDynamicForward(key, localPort);
+    }
 
-                final long channelHandle = channel;
-                final InputStream socketIn = clientSocket.getInputStream();
-                final OutputStream socketOut = clientSocket.getOutputStream();
-
-                forwardWorkerExecutor.execute(() -> {
-                    try {
-                        byte[] buffer = new byte[8192];
-                        int read;
-                        while ((read = socketIn.read(buffer)) != -1) {
-                            if (sshNative.writeChannel(sshHandle, channelHandle, java.util.Arrays.copyOf(buffer, read)) < 0) {
-                                break;
-                            }
-                        }
-                    } catch (Exception e) {
-                        // 忽略异常
-                    } finally {
-                        try { clientSocket.shutdownInput(); } catch (Exception ignored) {}
-                    }
-                });
-
-                try {
-                    while (connected && !clientSocket.isClosed()) {
-                        byte[] data = sshNative.readChannel(sshHandle, channelHandle);
-                        if (data == null) {
-                             // EOF 或 错误
-                             break;
-                        }
-                        if (data.length > 0) {
-                            socketOut.write(data);
-                            socketOut.flush();
-                        } else {
-                            // 简单的轮询，如果 JNI 支持阻塞读取会更好
-                            Thread.sleep(10);
-                        }
-                    }
-                } catch (Exception e) {
-                   // 忽略异常
-                } finally {
-                     sshNative.closeChannel(channelHandle);
-                     try { clientSocket.close(); } catch (Exception ignored) {}
-                }
+    /**
+     * 开启远程端口转发 (-R)
+     * 服务器在 bindHost:bindPort 上监听，连接转发到本机可达的目标。需等待服务器应答，不要在主线程调用。
+     *
+     * @param bindHost   服务器端绑定地址，null 表示仅回环地址
+     * @param bindPort   服务器端端口，0 表示由服务器分配
+     * @param targetHost 本机可达的目标主机
+     * @param targetPort 目标端口
+     * @return 服务器实际绑定的端口；转发已存在时返回 bindPort
+     * @throws IOException 服务器拒绝或未连接时抛出异常
+     */
+    public int startRemoteForwarding(String bindHost, int bindPort, String targetHost, int targetPort) throws IOException {
+        PortForwardSpec spec = PortForwardSpec.remote(bindHost, bindPort, targetHost, targetPort);
+        PortForwardEngine engine = ensureForwardEngine();
+        if (engine.hasForward(spec.getKey())) {
+            return bindPort;
+        }
+        return engine.addRemoteForward(spec.getKey(), spec.getBindHost(), bindPort, targetHost, targetPort);
+    }
 
-            } catch (Exception e) {
-                if (channel != 0) sshNative.closeChannel(channel);
-                try { clientSocket.close(); } catch (Exception ignored) {}
-            }
-        });
+    /**
+     * 按配置开启一条转发
+     *
+     * @throws IOException 开启失败时抛出异常
+     */
+    public void startForwarding(PortForwardSpec spec) throws IOException {
+        switch (spec.getType()) {
+            case PortForwardStats.TYPE_DYNAMIC:
+                startDynamicForwarding(spec.getBindPort());
+                break;
+            case PortForwardStats.TYPE_REMOTE:
+                startRemoteForwarding(spec.getBindHost(), spec.getBindPort(), spec.getTargetHost(), spec.getTargetPort());
+                break;
+            default:
+                startLocalForwarding(spec.getBindPort(), spec.getTargetHost(), spec.getTargetPort());
+                break;
+        }
     }
 
-    public void startDynamicForwarding(int localPort) throws IOException {
+    private synchronized PortForwardEngine ensureForwardEngine() throws IOException {
         if (!connected || sshHandle == 0) {
             throw new IOException("SSH not connected");
         }
-        String key = "dynamic:" + localPort;
-        if (activeForwards.containsKey(key)) {
-            return;
+        if (forwardEngine == null) {
+            forwardEngine = new PortForwardEngine(sshNative, sshHandle);
         }
-        ServerSocket serverSocket = new ServerSocket(localPort);
-        forwardingSockets.add(serverSocket);
-        activeForwards.put(key, true);
-        forwardAcceptExecutor.execute(() -> {
-            try {
-                while (connected && !serverSocket.isClosed()) {
-                    Socket clientSocket = serverSocket.accept();
-                    handleDynamicForwardConnection(clientSocket);
-                }
-            } catch (IOException e) {
-            } finally {
-                activeForwards.remove(key);
-            }
-        });
+        return forwardEngine;
     }
 
-    private void handleDynamicForwardConnection(Socket clientSocket) {
-        forwardWorkerExecutor.execute(() -> {
-            long channel = 0;
-            try {
-                InputStream socketIn = clientSocket.getInputStream();
-                OutputStream socketOut = clientSocket.getOutputStream();
-
-                int version = socketIn.read();
-                if (version != 0x05) {
-                    clientSocket.close();
-                    return;
-                }
-                int nMethods = socketIn.read();
-                if (nMethods <= 0) {
-                    clientSocket.close();
-                    return;
-                }
-                byte[] methods = readFully(socketIn, nMethods);
-                if (methods == null) {
-                    clientSocket.close();
-                    return;
-                }
-                socketOut.write(new byte[] {0x05, 0x00});
-                socketOut.flush();
-
-                int reqVer = socketIn.read();
-                int cmd = socketIn.read();
-                int rsv = socketIn.read();
-                int atyp = socketIn.read();
-                if (reqVer != 0x05 || rsv != 0x00) {
-                    sendSocksFail(socketOut);
-                    clientSocket.close();
-                    return;
-                }
-                if (cmd != 0x01) {
-                    sendSocksFail(socketOut);
-                    clientSocket.close();
-                    return;
-                }
-
-                String host;
-                if (atyp == 0x01) {
-                    byte[] addr = readFully(socketIn, 4);
-                    if (addr == null) {
-                        sendSocksFail(socketOut);
-                        clientSocket.close();
-                        return;
-                    }
-                    host = (addr[0] & 0xff) + "." + (addr[1] & 0xff) + "." + (addr[2] & 0xff) + "." + (addr[3] & 0xff);
-                } else if (atyp == 0x03) {
-                    int len = socketIn.read();
-                    if (len <= 0) {
-                        sendSocksFail(socketOut);
-                        clientSocket.close();
-                        return;
-                    }
-                    byte[] addr = readFully(socketIn, len);
-                    if (addr == null) {
-                        sendSocksFail(socketOut);
-                        clientSocket.close();
-                        return;
-                    }
-                    host = new String(addr);
-                } else if (atyp == 0x04) {
-                    byte[] addr = readFully(socketIn, 16);
-                    if (addr == null) {
-                        sendSocksFail(socketOut);
-                        clientSocket.close();
-                        return;
-                    }
-                    java.net.InetAddress inetAddress = java.net.InetAddress.getByAddress(addr);
-                    host = inetAddress.getHostAddress();
-                } else {
-                    sendSocksFail(socketOut);
-                    clientSocket.close();
-                    return;
-                }
-
-                byte[] portBytes = readFully(socketIn, 2);
-                if (portBytes == null) {
-                    sendSocksFail(socketOut);
-                    clientSocket.close();
-                    return;
-                }
-                int targetPort = ((portBytes[0] & 0xff) << 8) | (portBytes[1] & 0xff);
-
-                channel = sshNative.openDirectTcpIp(sshHandle, host, targetPort);
-                if (channel == 0) {
-                    sendSocksFail(socketOut);
-                    clientSocket.close();
-                    return;
-                }
-
-                socketOut.write(new byte[] {0x05, 0x00, 0x00, 0x01, 0, 0, 0, 0, 0, 0});
-                socketOut.flush();
-
-                final long channelHandle = channel;
-
-                forwardWorkerExecutor.execute(() -> {
-                    try {
-                        byte[] buffer = new byte[8192];
-                        int read;
-                        while ((read = socketIn.read(buffer)) != -1) {
-                            if (sshNative.writeChannel(sshHandle, channelHandle, java.util.Arrays.copyOf(buffer, read)) < 0) {
-                                break;
-                            }
-                        }
-                    } catch (Exception e) {
-                    } finally {
-                        try { clientSocket.shutdownInput(); } catch (Exception ignored) {}
-                    }
-                });
-
-                try {
-                    while (connected && !clientSocket.isClosed()) {
-                        byte[] data = sshNative.readChannel(sshHandle, channelHandle);
-                        if (data == null) {
-                            break;
-                        }
-                        if (data.length > 0) {
-                            socketOut.write(data);
-                            socketOut.flush();
-                        } else {
-                            Thread.sleep(10);
-                        }
-                    }
-                } catch (Exception e) {
-                } finally {
-                    sshNative.closeChannel(channelHandle);
-                    try { clientSocket.close(); } catch (Exception ignored) {}
-                }
-            } catch (Exception e) {
-                if (channel != 0) sshNative.closeChannel(channel);
-                try { clientSocket.close(); } catch (Exception ignored) {}
-            }
-        });
+    private void shutdownForwarding() {
+        PortForwardEngine engine;
+        synchronized (this) {
+            engine = forwardEngine;
+            forwardEngine = null;
+        }
+        if (engine != null) {
+            engine.shutdown();
+        }
     }
 
-    private static byte[] readFully(InputStream in, int len) throws IOException {
-        byte[] data = new byte[len];
-        int read = 0;
-        while (read < len) {
-            int r = in.read(data, read, len - read);
-            if (r == -1) return null;
-            read += r;
+    /**
+     * 获取所有端口转发的流量统计
+     */
+    public java.util.List<PortForwardStats> getForwardStats() {
+        PortForwardEngine engine;
+        synchronized (this) {
+            engine = forwardEngine;
         }
-        return data;
+        return engine == null ? java.util.Collections.emptyList() : engine.getStats();
     }
 
-    private static void sendSocksFail(OutputStream out) {
-        try {
-            out.write(new byte[] {0x05, 0x01, 0x00, 0x01, 0, 0, 0, 0, 0, 0});
-            out.flush();
-        } catch (Exception e) {
+    /**
+     * 停止单条端口转发
+     *
+     * @param key {@link PortForwardStats#getKey()}
+     */
+    public void stopForward(String key) {
+        PortForwardEngine engine;
+        synchronized (this) {
+            engine = forwardEngine;
+        }
+        if (engine != null) {
+            engine.removeForward(key);
         }
     }
 
@@ -546,12 +554,12 @@ public class SshTransport implements Transport {
      * 停止所有端口转发
      */
     public void stopAllForwards() {
-        for (ServerSocket ss : forwardingSockets) {
-            try {
-                ss.close();
-            } catch (IOException ignored) {}
+        PortForwardEngine engine;
+        synchronized (this) {
+            engine = forwardEngine;
+        }
+        if (engine != null) {
+            engine.stopAll();
         }
-        forwardingSockets.clear();
-        activeForwards.clear();
     }
 }
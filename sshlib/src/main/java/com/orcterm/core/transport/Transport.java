@@ -44,6 +44,59 @@ public interface Transport {
      */
     int read(byte[] buffer) throws Exception;
 
+    /**
+     * 读取数据到 ByteBuffer
+     * 从 position 开始写入，最多写到 limit，并相应推进 position。
+     * 默认实现经由 {@link #read(byte[])} 中转；SSH 实现对 direct 缓冲区做零拷贝读取。
+     *
+     * @param buffer 目标缓冲区
+     * @return 读取的字节数，如果到达流末尾则返回 -1
+     * @throws Exception 读取失败时抛出异常
+     */
+    default int read(java.nio.ByteBuffer buffer) throws Exception {
+        if (!buffer.hasRemaining()) {
+            return 0;
+        }
+        if (buffer.hasArray()) {
+            byte[] array = buffer.array();
+            int start = buffer.arrayOffset() + buffer.position();
+            byte[] target = start == 0 && buffer.remaining() == array.length ? array : new byte[buffer.remaining()];
+            int read = read(target);
+            if (read > 0) {
+                if (target != array) {
+                    System.arraycopy(target, 0, array, start, read);
+                }
+                buffer.position(buffer.position() + read);
+            }
+            return read;
+        }
+        byte[] temp = new byte[buffer.remaining()];
+        int read = read(temp);
+        if (read > 0) {
+            buffer.put(temp, 0, read);
+        }
+        return read;
+    }
+
+    /**
+     * 等待数据可读
+     * 非阻塞传输在此休眠直到数据到达、超时或被 {@link #wakeup()} 唤醒；
+     * 默认实现立即返回 true，适用于 read 本身阻塞的流式传输。
+     *
+     * @param timeoutMs 最长等待毫秒数
+     * @return true 表示可能有数据可读，false 表示超时或被唤醒
+     * @throws Exception 等待失败 (如连接已断开) 时抛出异常
+     */
+    default boolean waitForData(int timeoutMs) throws Exception {
+        return true;
+    }
+
+    /**
+     * 唤醒阻塞在 {@link #waitForData(int)} 中的读取线程
+     */
+    default void wakeup() {
+    }
+
     /**
      * 调整终端大小
      * 通知远程主机终端窗口大小发生变化。
@@ -0,0 +1,94 @@
+package com.orcterm.core.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+
+public class PortForwardEngineSocksTest {
+
+    private static ByteBuffer bytes(int... values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length);
+        for (int value : values) {
+            buffer.put((byte) value);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @Test
+    public void greetingLengthIncludesMethods() throws IOException {
+        ByteBuffer hs = bytes(0x05, 0x02, 0x00, 0x02);
+        assertEquals(4, PortForwardEngine.parseSocksGreeting(hs));
+        assertEquals(0, hs.position());
+    }
+
+    @Test
+    public void incompleteGreetingWaitsForMoreData() throws IOException {
+        assertEquals(0, PortForwardEngine.parseSocksGreeting(bytes(0x05)));
+        assertEquals(0, PortForwardEngine.parseSocksGreeting(bytes(0x05, 0x02, 0x00)));
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void rejectsSocks4Greeting() throws IOException {
+        PortForwardEngine.parseSocksGreeting(bytes(0x04, 0x01, 0x00));
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void rejectsGreetingWithoutMethods() throws IOException {
+        PortForwardEngine.parseSocksGreeting(bytes(0x05, 0x00));
+    }
+
+    @Test
+    public void parsesIpv4Connect() throws IOException {
+        ByteBuffer hs = bytes(0x05, 0x01, 0x00, 0x01, 10, 0, 0, 7, 0x1F, 0x90);
+        PortForwardEngine.SocksRequest request = PortForwardEngine.parseSocksRequest(hs);
+        assertNotNull(request);
+        assertEquals("10.0.0.7", request.host);
+        assertEquals(8080, request.port);
+        assertEquals(hs.limit(), hs.position());
+    }
+
+    @Test
+    public void parsesDomainConnectAndLeavesTrailingData() throws IOException {
+        ByteBuffer hs = bytes(0x05, 0x01, 0x00, 0x03, 4, 'h', 'o', 's', 't', 0x00, 0x50, 'G', 'E');
+        PortForwardEngine.SocksRequest request = PortForwardEngine.parseSocksRequest(hs);
+        assertNotNull(request);
+        assertEquals("host", request.host);
+        assertEquals(80, request.port);
+        assertEquals(2, hs.remaining());
+    }
+
+    @Test
+    public void parsesIpv6Connect() throws IOException {
+        ByteBuffer hs = bytes(0x05, 0x01, 0x00, 0x04,
+                0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0x00, 0x16);
+        PortForwardEngine.SocksRequest request = PortForwardEngine.parseSocksRequest(hs);
+        assertNotNull(request);
+        assertEquals("0:0:0:0:0:0:0:1", request.host);
+        assertEquals(22, request.port);
+    }
+
+    @Test
+    public void incompleteRequestLeavesPositionUnchanged() throws IOException {
+        ByteBuffer hs = bytes(0x05, 0x01, 0x00, 0x03, 4, 'h', 'o');
+        assertNull(PortForwardEngine.parseSocksRequest(hs));
+        assertEquals(0, hs.position());
+        assertNull(PortForwardEngine.parseSocksRequest(bytes(0x05, 0x01, 0x00)));
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void rejectsBindCommand() throws IOException {
+        PortForwardEngine.parseSocksRequest(bytes(0x05, 0x02, 0x00, 0x01, 127, 0, 0, 1, 0x00, 0x50));
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void rejectsUnknownAddressType() throws IOException {
+        PortForwardEngine.parseSocksRequest(bytes(0x05, 0x01, 0x00, 0x05, 0, 0, 0, 0, 0, 0));
+    }
+}
@@ -0,0 +1,65 @@
+package com.orcterm.core.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class PortForwardSpecTest {
+
+    @Test
+    public void localForwardFields() {
+        PortForwardSpec spec = PortForwardSpec.local(8080, "db.internal", 5432);
+        assertEquals(PortForwardStats.TYPE_LOCAL, spec.getType());
+        assertNull(spec.getBindHost());
+        assertEquals(8080, spec.getBindPort());
+        assertEquals("db.internal", spec.getTargetHost());
+        assertEquals(5432, spec.getTargetPort());
+        assertEquals("-L 8080:db.internal:5432", spec.toString());
+    }
+
+    @Test
+    public void dynamicForwardHasNoTarget() {
+        PortForwardSpec spec = PortForwardSpec.dynamic(1080);
+        assertEquals(PortForwardStats.TYPE_DYNAMIC, spec.getType());
+        assertNull(spec.getTargetHost());
+        assertEquals("dynamic:1080", spec.getKey());
+        assertEquals("-D 1080", spec.toString());
+    }
+
+    @Test
+    public void remoteForwardDefaultsToLoopbackBind() {
+        assertEquals("localhost", PortForwardSpec.remote(null, 9000, "127.0.0.1", 3000).getBindHost());
+        assertEquals("localhost", PortForwardSpec.remote("  ", 9000, "127.0.0.1", 3000).getBindHost());
+        assertEquals("0.0.0.0", PortForwardSpec.remote(" 0.0.0.0 ", 9000, "127.0.0.1", 3000).getBindHost());
+    }
+
+    @Test
+    public void keysDistinguishTypes() {
+        PortForwardSpec local = PortForwardSpec.local(9000, "localhost", 3000);
+        PortForwardSpec remote = PortForwardSpec.remote("localhost", 9000, "localhost", 3000);
+        assertFalse(local.getKey().equals(remote.getKey()));
+        assertFalse(local.equals(remote));
+    }
+
+    @Test
+    public void ofRoundTripsEveryType() {
+        PortForwardSpec[] specs = {
+            PortForwardSpec.local(8080, "db.internal", 5432),
+            PortForwardSpec.dynamic(1080),
+            PortForwardSpec.remote("0.0.0.0", 9000, "127.0.0.1", 3000)
+        };
+        for (PortForwardSpec spec : specs) {
+            PortForwardSpec copy = PortForwardSpec.of(spec.getType(), spec.getBindHost(), spec.getBindPort(),
+                    spec.getTargetHost(), spec.getTargetPort());
+            assertEquals(spec, copy);
+            assertEquals(spec.hashCode(), copy.hashCode());
+        }
+    }
+
+    @Test
+    public void ofRejectsUnknownType() {
+        assertNull(PortForwardSpec.of(99, null, 1, "host", 2));
+    }
+}
@@ -0,0 +1,62 @@
+package com.orcterm.core.transport;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class RttSeriesTest {
+
+    @Test
+    public void emptySeries() {
+        RttSeries series = new RttSeries();
+        assertEquals(0, series.getSampleCount());
+        assertEquals(-1, series.getLastMs());
+        assertEquals(-1, series.getAverageMs());
+        assertEquals(-1, series.getMaxMs());
+        assertEquals(0, series.getLastSampleAtMs());
+        assertArrayEquals(new int[0], series.snapshot());
+    }
+
+    @Test
+    public void aggregatesSamples() {
+        RttSeries series = new RttSeries();
+        long before = System.currentTimeMillis();
+        series.add(10);
+        series.add(30);
+        series.add(20);
+        assertEquals(3, series.getSampleCount());
+        assertEquals(20, series.getLastMs());
+        assertEquals(20, series.getAverageMs());
+        assertEquals(30, series.getMaxMs());
+        assertTrue(series.getLastSampleAtMs() >= before);
+        assertArrayEquals(new int[]{10, 30, 20}, series.snapshot());
+    }
+
+    @Test
+    public void negativeSamplesClampToZero() {
+        RttSeries series = new RttSeries();
+        series.add(-5);
+        assertEquals(0, series.getLastMs());
+    }
+
+    @Test
+    public void keepsMostRecentSamplesInOrder() {
+        RttSeries series = new RttSeries();
+        int total = RttSeries.CAPACITY + 5;
+        for (int i = 0; i < total; i++) {
+            series.add(i);
+        }
+        assertEquals(RttSeries.CAPACITY, series.getSampleCount());
+        assertEquals(total - 1, series.getLastMs());
+        assertEquals(total - 1, series.getMaxMs());
+        int[] snapshot = series.snapshot();
+        assertEquals(RttSeries.CAPACITY, snapshot.length);
+        for (int i = 0; i < snapshot.length; i++) {
+            assertEquals(5 + i, snapshot[i]);
+        }
+        // 5..64 的平均值
+        assertEquals((5 + total - 1) / 2, series.getAverageMs());
+    }
+}